@@ -10,11 +10,17 @@ import com.gitee.qdbp.able.jdbc.ordering.OrderPaging;
 import com.gitee.qdbp.able.jdbc.ordering.Orderings;
 import com.gitee.qdbp.able.jdbc.paging.PageList;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
 import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.plugins.BatchUpsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.DbConditionConverter;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.utils.EntityCache;
 import com.gitee.qdbp.jdbc.utils.ParseTools;
 
 /**
@@ -31,6 +37,15 @@ public interface CrudDao<T> {
     /** 获取SQL生成工具 **/
     CrudSqlBuilder getSqlBuilder();
 
+    /**
+     * 获取实体缓存<br>
+     * 启用后findById和listByIds(全部字段且不排序时)优先从缓存中获取, 增删改时按主键或整体失效
+     *
+     * @return 实体缓存
+     * @since 3.2.2
+     */
+    EntityCache getEntityCache();
+
     /**
      * 根据主键编号获取对象<br>
      * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
@@ -204,6 +219,66 @@ public interface CrudDao<T> {
      */
     List<T> list(Fields fields, DbWhere where, Orderings orderings) throws ServiceException;
 
+    /**
+     * 主要功能: 按指定字段以游标方式逐行读取实体数据, 交给handler处理, 不会将全部结果加载到内存<br>
+     * 适用于数据导出等大数据量的场景; handler返回false时停止读取<br>
+     * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
+     * <br>
+     * SELECT {columnNames} FROM {tableName}<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;WHERE {whereConditions} AND DATA_STATE='E'<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ORDER BY {orderByConditions}<br>
+     * 
+     * @param fields 查询的字段: 全部字段传入Fields.ALL, 指定字段传入IncludeFields对象, 排除字段传入ExcludeFields对象
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @since 3.2.2
+     */
+    int forEach(Fields fields, DbWhere where, Orderings orderings, RowDataHandler<T> handler) throws ServiceException;
+
+    /**
+     * 主要功能: 以游标方式逐行读取实体数据, 交给handler处理
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @see #forEach(Fields, DbWhere, Orderings, RowDataHandler)
+     * @since 3.2.2
+     */
+    int forEach(DbWhere where, Orderings orderings, RowDataHandler<T> handler) throws ServiceException;
+
+    /**
+     * 主要功能: 按指定字段以游标方式读取实体数据, 每读取batchSize行交给handler处理一次<br>
+     * handler返回false时停止读取
+     * 
+     * @param fields 查询的字段: 全部字段传入Fields.ALL, 指定字段传入IncludeFields对象, 排除字段传入ExcludeFields对象
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param batchSize 每批的行数
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @see #forEach(Fields, DbWhere, Orderings, RowDataHandler)
+     * @since 3.2.2
+     */
+    int forEachBatch(Fields fields, DbWhere where, Orderings orderings, int batchSize, BatchDataHandler<T> handler)
+            throws ServiceException;
+
+    /**
+     * 主要功能: 以游标方式读取实体数据, 每读取batchSize行交给handler处理一次
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param batchSize 每批的行数
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @see #forEachBatch(Fields, DbWhere, Orderings, int, BatchDataHandler)
+     * @since 3.2.2
+     */
+    int forEachBatch(DbWhere where, Orderings orderings, int batchSize, BatchDataHandler<T> handler)
+            throws ServiceException;
+
     /**
      * 主要功能: 根据条件分页按指定字段查询实体列表<br>
      * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
@@ -235,6 +310,39 @@ public interface CrudDao<T> {
      */
     PageList<T> list(Fields fields, DbWhere where, OrderPaging odpg) throws ServiceException;
 
+    /**
+     * 主要功能: 根据条件以键集分页(Keyset/Seek)方式按指定字段查询实体列表<br>
+     * 根据上一页最后一条记录的排序字段值定位, 不需要扫描并丢弃前面的记录, 适用于深度翻页; 不统计总记录数<br>
+     * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
+     * <br>
+     * SELECT {columnNames} FROM {tableName}<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;WHERE {whereConditions} AND DATA_STATE='E' AND (K1,K2) &gt; (?,?)<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ORDER BY K1, K2 LIMIT {rows}<br>
+     * 
+     * @param fields 查询的字段, 必须包含排序字段
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param paging 键集分页条件<br>
+     *            首页: KeysetPaging.of(20, "createTime desc, id desc");<br>
+     *            下一页: KeysetPaging.of(20, "createTime desc, id desc", lastCreateTime, lastId);<br>
+     *            或者由上一页的结果获取: pageList.nextPaging();<br>
+     * @return 列表数据及下一页的定位值
+     * @see KeysetPaging#of(int, String, Object...)
+     * @see KeysetPageList#nextPaging()
+     * @since 3.2.2
+     */
+    KeysetPageList<T> list(Fields fields, DbWhere where, KeysetPaging paging) throws ServiceException;
+
+    /**
+     * 主要功能: 根据条件以键集分页(Keyset/Seek)方式查询实体列表
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param paging 键集分页条件
+     * @return 列表数据及下一页的定位值
+     * @see #list(Fields, DbWhere, KeysetPaging)
+     * @since 3.2.2
+     */
+    KeysetPageList<T> list(DbWhere where, KeysetPaging paging) throws ServiceException;
+
     /**
      * 主要功能: 根据ID查找所有的实体列表<br>
      * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
@@ -748,6 +856,44 @@ public interface CrudDao<T> {
      */
     int updates(List<?> entities, boolean fillUpdateParams) throws ServiceException;
 
+    /**
+     * 根据主键编号批量新增或更新实体对象<br>
+     * 主键不存在的记录执行新增, 已存在的记录执行更新, 不需要先查询再拆分列表<br>
+     * 注意: 如果主键编号为空将会自动生成(也就是一定会执行新增)<br>
+     * 注意: entity将会自动由entityFieldFillExecutor填充创建参数和更新参数<br>
+     * 注意: 创建参数(创建人/创建时间/数据状态等)只在新增时写入, 记录已存在时不会更新<br>
+     * 注意: 这里的限制条件只有主键编号, 而不会追加数据状态作为限制条件<br>
+     * 注意: 大部分的实现类要求实体列表字段对齐<br>
+     * ---- 例如第1个实体有abcd四个字段,第2个实体只有abc三个字段, 则第2个实体的d字段将被设置为NULL<br>
+     * 
+     * @param entities 实体对象列表(只能是entity或map或IdEntity列表, 其他参数将会报错)
+     * @return 返回主键编号
+     * @throws ServiceException 操作失败
+     * @see DbConditionConverter#convertBeanToInsertMap(Object) 参数转换说明
+     * @see BatchUpsertExecutor 具体实现由<code>BatchUpsertExecutor</code>的子类提供
+     * @since 3.2.2
+     */
+    List<String> upserts(List<?> entities) throws ServiceException;
+
+    /**
+     * 根据主键编号批量新增或更新实体对象<br>
+     * 主键不存在的记录执行新增, 已存在的记录执行更新, 不需要先查询再拆分列表<br>
+     * 注意: 如果主键编号为空将会自动生成(也就是一定会执行新增)<br>
+     * 注意: 创建参数(创建人/创建时间/数据状态等)只在新增时写入, 记录已存在时不会更新<br>
+     * 注意: 这里的限制条件只有主键编号, 而不会追加数据状态作为限制条件<br>
+     * 注意: 大部分的实现类要求实体列表字段对齐<br>
+     * ---- 例如第1个实体有abcd四个字段,第2个实体只有abc三个字段, 则第2个实体的d字段将被设置为NULL<br>
+     * 
+     * @param entities 实体对象列表(只能是entity或map或IdEntity列表, 其他参数将会报错)
+     * @param fillParams 是否自动填充创建参数和更新参数(创建人/创建时间/修改人/修改时间等)
+     * @return 返回主键编号
+     * @throws ServiceException 操作失败
+     * @see DbConditionConverter#convertBeanToInsertMap(Object) 参数转换说明
+     * @see BatchUpsertExecutor 具体实现由<code>BatchUpsertExecutor</code>的子类提供
+     * @since 3.2.2
+     */
+    List<String> upserts(List<?> entities, boolean fillParams) throws ServiceException;
+
     /**
      * 根据主键编号删除实体对象(逻辑删除)<br>
      * 注意: entity将会自动由entityFieldFillExecutor填充更新参数(修改人/修改时间等)<br>
@@ -8,7 +8,11 @@ import com.gitee.qdbp.able.jdbc.fields.Fields;
 import com.gitee.qdbp.able.jdbc.ordering.OrderPaging;
 import com.gitee.qdbp.able.jdbc.ordering.Orderings;
 import com.gitee.qdbp.able.jdbc.paging.PageList;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.sql.build.QuerySqlBuilder;
 
 /**
@@ -182,6 +186,68 @@ public interface JoinQueryer<T> {
      */
     List<T> list(Fields fields, DbWhere where, Orderings orderings) throws ServiceException;
 
+    /**
+     * 主要功能: 按指定字段以游标方式逐行读取关联查询数据, 交给handler处理, 不会将全部结果加载到内存<br>
+     * 适用于数据导出等大数据量的场景; handler返回false时停止读取<br>
+     * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
+     * <br>
+     * SELECT {columnNames} FROM {tableNameA} A<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;INNER JOIN {tableNameB} B<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ON A.DATA_ID=B.ID AND B.DATA_STATE=0<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;WHERE {whereConditions} AND A.DATA_STATE=0<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ORDER BY {orderByConditions}
+     * 
+     * @param fields 查询的字段: 全部字段传入Fields.ALL, 指定字段传入IncludeFields对象, 排除字段传入ExcludeFields对象
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @since 3.2.2
+     */
+    int forEach(Fields fields, DbWhere where, Orderings orderings, RowDataHandler<T> handler) throws ServiceException;
+
+    /**
+     * 主要功能: 以游标方式逐行读取关联查询数据, 交给handler处理
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @see #forEach(Fields, DbWhere, Orderings, RowDataHandler)
+     * @since 3.2.2
+     */
+    int forEach(DbWhere where, Orderings orderings, RowDataHandler<T> handler) throws ServiceException;
+
+    /**
+     * 主要功能: 按指定字段以游标方式读取关联查询数据, 每读取batchSize行交给handler处理一次<br>
+     * handler返回false时停止读取
+     * 
+     * @param fields 查询的字段: 全部字段传入Fields.ALL, 指定字段传入IncludeFields对象, 排除字段传入ExcludeFields对象
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param batchSize 每批的行数
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @see #forEach(Fields, DbWhere, Orderings, RowDataHandler)
+     * @since 3.2.2
+     */
+    int forEachBatch(Fields fields, DbWhere where, Orderings orderings, int batchSize, BatchDataHandler<T> handler)
+            throws ServiceException;
+
+    /**
+     * 主要功能: 以游标方式读取关联查询数据, 每读取batchSize行交给handler处理一次
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param orderings 排序条件, 不需要排序时应传入Orderings.NONE
+     * @param batchSize 每批的行数
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @see #forEachBatch(Fields, DbWhere, Orderings, int, BatchDataHandler)
+     * @since 3.2.2
+     */
+    int forEachBatch(DbWhere where, Orderings orderings, int batchSize, BatchDataHandler<T> handler)
+            throws ServiceException;
+
     /**
      * 根据条件分页查询实体列表<br>
      * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
@@ -206,6 +272,36 @@ public interface JoinQueryer<T> {
      */
     PageList<T> list(Fields fields, DbWhere where, OrderPaging odpg) throws ServiceException;
 
+    /**
+     * 根据条件以键集分页(Keyset/Seek)方式查询实体列表<br>
+     * 根据上一页最后一条记录的排序字段值定位, 不需要扫描并丢弃前面的记录, 适用于深度翻页; 不统计总记录数<br>
+     * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
+     * <br>
+     * SELECT {columnNames} FROM {tableNameA} A<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;INNER JOIN {tableNameB} B<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ON A.DATA_ID=B.ID AND B.DATA_STATE=0<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;WHERE {whereConditions} AND A.DATA_STATE=0 AND (A.K1,A.K2) &gt; (?,?)<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;ORDER BY A.K1, A.K2 LIMIT {rows}
+     * 
+     * @param fields 查询的字段, 必须包含排序字段
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param paging 键集分页条件, 如: KeysetPaging.of(20, "u.createTime desc, u.id desc")
+     * @return 列表数据及下一页的定位值
+     * @since 3.2.2
+     */
+    KeysetPageList<T> list(Fields fields, DbWhere where, KeysetPaging paging) throws ServiceException;
+
+    /**
+     * 根据条件以键集分页(Keyset/Seek)方式查询实体列表
+     * 
+     * @param where 查询条件, 如果没有查询条件应传入DbWhere.NONE
+     * @param paging 键集分页条件
+     * @return 列表数据及下一页的定位值
+     * @see #list(Fields, DbWhere, KeysetPaging)
+     * @since 3.2.2
+     */
+    KeysetPageList<T> list(DbWhere where, KeysetPaging paging) throws ServiceException;
+
     /**
      * 根据条件统计实体数量<br>
      * 注意: 默认查询条件由entityFieldFillExecutor添加, 只查有效项<br>
@@ -14,7 +14,11 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
 import com.gitee.qdbp.able.exception.ServiceException;
 import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
+import com.gitee.qdbp.jdbc.utils.ReadReplicaRouter;
 import com.gitee.qdbp.tools.files.PathTools;
 
 /**
@@ -190,6 +194,52 @@ public interface SqlBufferJdbcOperations {
      */
     SqlRowSet queryForRowSet(SqlBuffer sb) throws ServiceException;
 
+    /**
+     * 以游标方式逐行读取查询结果, 每一行经rowMapper转换后交给handler处理<br>
+     * 结果集为只进只读(TYPE_FORWARD_ONLY/CONCUR_READ_ONLY), 不会将全部结果加载到内存, 适用于大数据量的查询<br>
+     * 处理结束(包括handler返回false时)自动关闭结果集并释放连接<br>
+     * fetchSize取自qdbc.query.fetchSize配置(可按数据库类型配置), 默认1000, MySQL/MariaDB默认Integer.MIN_VALUE<br>
+     * 注意: PostgreSQL需要在事务中执行(autoCommit=false)才会启用游标, 否则驱动仍会一次性读取全部结果
+     * 
+     * @param sb SqlBuffer
+     * @param rowMapper 结果转换类
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @throws ServiceException 查询失败
+     * @since 3.2.2
+     */
+    <T> int forEach(SqlBuffer sb, RowMapper<T> rowMapper, RowDataHandler<T> handler) throws ServiceException;
+
+    /**
+     * 以游标方式逐行读取查询结果, 每一行经rowMapper转换后交给handler处理
+     * 
+     * @param sb SqlBuffer
+     * @param fetchSize 每次从数据库读取的行数
+     * @param rowMapper 结果转换类
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @throws ServiceException 查询失败
+     * @see #forEach(SqlBuffer, RowMapper, RowDataHandler)
+     * @since 3.2.2
+     */
+    <T> int forEach(SqlBuffer sb, int fetchSize, RowMapper<T> rowMapper, RowDataHandler<T> handler)
+            throws ServiceException;
+
+    /**
+     * 以游标方式读取查询结果, 每读取batchSize行交给handler处理一次
+     * 
+     * @param sb SqlBuffer
+     * @param batchSize 每批的行数
+     * @param rowMapper 结果转换类
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @throws ServiceException 查询失败
+     * @see #forEach(SqlBuffer, RowMapper, RowDataHandler)
+     * @since 3.2.2
+     */
+    <T> int forEachBatch(SqlBuffer sb, int batchSize, RowMapper<T> rowMapper, BatchDataHandler<T> handler)
+            throws ServiceException;
+
     /**
      * Issue an insert via a prepared statement, binding the given arguments.
      * @param sb SqlBuffer
@@ -241,6 +291,32 @@ public interface SqlBufferJdbcOperations {
      * @throws ServiceException if there is any problem issuing the update
      */
     int batchUpdate(SqlBuffer sb) throws ServiceException;
+
+    /**
+     * 以JDBC批处理方式执行批量新增(PreparedStatement.addBatch/executeBatch)<br>
+     * 预编译SQL相同的SqlBuffer归为一组, 每组只预编译一次, 每个SqlBuffer的参数作为一个批处理项<br>
+     * 每组的记录数超过flushSize时分多次提交
+     * 
+     * @param sbs SqlBuffer列表
+     * @param flushSize 每次提交的记录数
+     * @return 受影响行数
+     * @throws ServiceException 执行失败
+     * @since 3.2.2
+     */
+    int batchInsert(List<SqlBuffer> sbs, int flushSize) throws ServiceException;
+
+    /**
+     * 以JDBC批处理方式执行批量更新(PreparedStatement.addBatch/executeBatch)<br>
+     * 预编译SQL相同的SqlBuffer归为一组, 每组只预编译一次, 每个SqlBuffer的参数作为一个批处理项<br>
+     * 每组的记录数超过flushSize时分多次提交
+     * 
+     * @param sbs SqlBuffer列表
+     * @param flushSize 每次提交的记录数
+     * @return 受影响行数
+     * @throws ServiceException 执行失败
+     * @since 3.2.2
+     */
+    int batchUpdate(List<SqlBuffer> sbs, int flushSize) throws ServiceException;
     
     /**
 	 * 根据查询语句统计记录总数 (解析查询语句生成统计语句)
@@ -251,6 +327,24 @@ public interface SqlBufferJdbcOperations {
 	 */
     int countByQuerySql(SqlBuffer querySql) throws ServiceException;
 
+    /**
+     * 获取查询结果缓存(由qdbc.queryCache.*配置, 默认不启用)
+     * 
+     * @return 查询结果缓存
+     * @since 3.2.2
+     */
+    QueryResultCache getQueryResultCache();
+
+    /**
+     * 获取读写分离的只读库路由<br>
+     * 在其他线程中执行的查询(如分页的并行统计/分表的并行查询), 需要通过路由传递当前线程的读己之写状态
+     * 
+     * @return 只读库路由, 没有配置只读库时返回null
+     * @see ReadReplicaRouter#propagate(java.util.concurrent.Callable)
+     * @since 3.2.2
+     */
+    ReadReplicaRouter getReadReplicaRouter();
+
     /**
      * 执行SQL脚本<br>
      * 如: executeSqlScript("file:/home/sqls/create.tables.oracle.sql");<br>
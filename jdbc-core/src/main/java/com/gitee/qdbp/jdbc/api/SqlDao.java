@@ -5,6 +5,10 @@ import java.util.Map;
 import org.springframework.jdbc.core.RowMapper;
 import com.gitee.qdbp.able.jdbc.paging.PageList;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 
 /**
@@ -70,6 +74,50 @@ public interface SqlDao {
      */
     <T> List<T> listForObjects(String sqlId, Object params, RowMapper<T> rowMapper);
 
+    /**
+     * 以游标方式逐行读取查询结果, 交给handler处理, 不会将全部结果加载到内存<br>
+     * handler返回false时停止读取
+     * 
+     * @param <T> 对象类型
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param resultType 结果类型
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @since 3.2.2
+     */
+    <T> int forEachObjects(String sqlId, Object params, Class<T> resultType, RowDataHandler<T> handler);
+
+    /**
+     * 以游标方式逐行读取查询结果, 交给handler处理, 不会将全部结果加载到内存<br>
+     * handler返回false时停止读取
+     * 
+     * @param <T> 对象类型
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param rowMapper 结果转换类
+     * @param handler 行数据处理类
+     * @return 已处理的行数
+     * @since 3.2.2
+     */
+    <T> int forEachObjects(String sqlId, Object params, RowMapper<T> rowMapper, RowDataHandler<T> handler);
+
+    /**
+     * 以游标方式读取查询结果, 每读取batchSize行交给handler处理一次<br>
+     * handler返回false时停止读取
+     * 
+     * @param <T> 对象类型
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param batchSize 每批的行数
+     * @param resultType 结果类型
+     * @param handler 批数据处理类
+     * @return 已处理的行数
+     * @since 3.2.2
+     */
+    <T> int forEachBatch(String sqlId, Object params, int batchSize, Class<T> resultType,
+            BatchDataHandler<T> handler);
+
     /**
      * 查询数据列表, 结果为Map列表
      * 
@@ -113,6 +161,47 @@ public interface SqlDao {
      */
     PageList<Map<String, Object>> pageForMaps(String sqlId, Object params, Paging paging);
 
+    /**
+     * 键集分页(Keyset/Seek)查询数据列表<br>
+     * SELECT * FROM ( {sql} ) K_K WHERE (K1,K2) &gt; (?,?) ORDER BY K1, K2 LIMIT {rows}<br>
+     * 排序字段为查询结果的列名, SQL中不能有ORDER BY
+     * 
+     * @param <T> 对象类型
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param paging 键集分页参数, 如: KeysetPaging.of(20, "CREATE_TIME DESC, ID DESC")
+     * @param resultType 结果类型
+     * @return 查询结果列表及下一页的定位值
+     * @since 3.2.2
+     */
+    <T> KeysetPageList<T> pageForObjects(String sqlId, Object params, KeysetPaging paging, Class<T> resultType);
+
+    /**
+     * 键集分页(Keyset/Seek)查询数据列表
+     * 
+     * @param <T> 对象类型
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param paging 键集分页参数
+     * @param rowMapper 结果转换类
+     * @return 查询结果列表及下一页的定位值
+     * @see #pageForObjects(String, Object, KeysetPaging, Class)
+     * @since 3.2.2
+     */
+    <T> KeysetPageList<T> pageForObjects(String sqlId, Object params, KeysetPaging paging, RowMapper<T> rowMapper);
+
+    /**
+     * 键集分页(Keyset/Seek)查询数据列表, 结果为Map列表
+     * 
+     * @param sqlId SqlId
+     * @param params 查询参数 (可为null)
+     * @param paging 键集分页参数
+     * @return Map列表及下一页的定位值
+     * @see #pageForObjects(String, Object, KeysetPaging, Class)
+     * @since 3.2.2
+     */
+    KeysetPageList<Map<String, Object>> pageForMaps(String sqlId, Object params, KeysetPaging paging);
+
     /**
      * 分页查询数据列表 (注意:查询SQL和统计SQL中包含的占位符参数必须完全一致)
      * 
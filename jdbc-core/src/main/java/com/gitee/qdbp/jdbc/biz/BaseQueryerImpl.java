@@ -1,6 +1,8 @@
 
 package com.gitee.qdbp.jdbc.biz;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.springframework.jdbc.core.RowMapper;
@@ -10,20 +12,36 @@ import com.gitee.qdbp.able.jdbc.condition.DbWhere;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere.EmptiableWhere;
 import com.gitee.qdbp.able.jdbc.fields.Fields;
 import com.gitee.qdbp.able.jdbc.ordering.OrderPaging;
+import com.gitee.qdbp.able.jdbc.ordering.OrderType;
+import com.gitee.qdbp.able.jdbc.ordering.Ordering;
 import com.gitee.qdbp.able.jdbc.ordering.Orderings;
 import com.gitee.qdbp.able.jdbc.paging.PageList;
 import com.gitee.qdbp.able.jdbc.paging.PartList;
 import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
 import com.gitee.qdbp.jdbc.exception.DbErrorCode;
+import com.gitee.qdbp.jdbc.exception.UnsupportedFieldException;
+import com.gitee.qdbp.jdbc.model.FieldColumns;
 import com.gitee.qdbp.jdbc.model.FieldScene;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.model.TablesFieldColumn;
 import com.gitee.qdbp.jdbc.plugins.EntityFieldFillExecutor;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
 import com.gitee.qdbp.jdbc.result.KeyIntegerMapper;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.result.RowToBeanMapper;
 import com.gitee.qdbp.jdbc.result.SingleColumnMapper;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
 import com.gitee.qdbp.jdbc.sql.build.QuerySqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.QueryFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.KeysetQuery;
 import com.gitee.qdbp.jdbc.utils.PagingQuery;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache.CacheKey;
 import com.gitee.qdbp.tools.utils.VerifyTools;
 
 /**
@@ -75,6 +93,60 @@ public abstract class BaseQueryerImpl<T> {
         return null;
     }
 
+    /**
+     * 获取当前操作使用的SQL生成工具(分表时由子类返回当前操作的实际表对应的SQL生成工具)
+     * 
+     * @return SQL生成工具
+     * @since 3.2.2
+     */
+    protected QuerySqlBuilder currentSqlBuilder() {
+        return this.sqlBuilder;
+    }
+
+    /**
+     * 获取查询结果缓存的名称(用于区分结果类型)
+     * 
+     * @return 缓存名称, 返回null表示不缓存
+     * @since 3.2.2
+     */
+    protected String getQueryCacheName() {
+        return null;
+    }
+
+    /**
+     * 生成查询结果缓存的KEY
+     * 
+     * @param category 查询类别, 如find/list/count等
+     * @param buffer 查询语句
+     * @return 缓存KEY, 不允许缓存时返回null
+     * @since 3.2.2
+     */
+    protected CacheKey newQueryCacheKey(String category, SqlBuffer buffer) {
+        String cacheName = getQueryCacheName();
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        if (cacheName == null || !cache.isEnabled()) {
+            return null;
+        }
+        PreparedSql prepared = buffer.getPreparedSql(dialect);
+        List<String> tableNames = currentSqlBuilder().helper().getTableNames();
+        return cache.newCacheKey(tableNames, cacheName + ':' + category, prepared);
+    }
+
+    /** 分页查询的缓存类别 **/
+    private static String getPagingCacheCategory(String category, OrderPaging odpg) {
+        if (!odpg.isPaging()) {
+            return category;
+        }
+        StringBuilder buffer = new StringBuilder(category);
+        buffer.append(':').append(odpg.getStart()).append(',').append(odpg.getRows());
+        if (odpg.isNeedCount()) {
+            buffer.append(",count");
+        } else {
+            buffer.append(',').append(odpg.getTotal());
+        }
+        return buffer.toString();
+    }
+
     public T find(DbWhere where) {
         return find(Fields.ALL, where);
     }
@@ -83,8 +155,19 @@ public abstract class BaseQueryerImpl<T> {
         VerifyTools.requireNotBlank(where, "where");
         entityFieldFillExecutor.fillQueryWhereDataState(where, getMajorTableAlias());
         entityFieldFillExecutor.fillQueryWhereParams(where, getMajorTableAlias());
-        SqlBuffer buffer = sqlBuilder.buildFindSql(fields, where);
-        return jdbc.queryForObject(buffer, rowToBeanMapper);
+        return doFind(fields, where);
+    }
+
+    protected T doFind(Fields fields, DbWhere where) {
+        SqlBuffer buffer = currentSqlBuilder().buildFindSql(fields, where);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey("find", buffer);
+        T result = cache.get(cacheKey);
+        if (result == null) {
+            result = jdbc.queryForObject(buffer, rowToBeanMapper);
+            cache.put(cacheKey, result);
+        }
+        return result;
     }
 
     public List<T> listAll() {
@@ -132,21 +215,141 @@ public abstract class BaseQueryerImpl<T> {
         return this.doList(fields, readyWhere, orderings);
     }
 
+    public int forEach(DbWhere where, Orderings orderings, RowDataHandler<T> handler) throws ServiceException {
+        return forEach(Fields.ALL, where, orderings, handler);
+    }
+
+    public int forEach(Fields fields, DbWhere where, Orderings orderings, RowDataHandler<T> handler)
+            throws ServiceException {
+        DbWhere readyWhere = checkWhere(where);
+        entityFieldFillExecutor.fillQueryWhereDataState(readyWhere, getMajorTableAlias());
+        entityFieldFillExecutor.fillQueryWhereParams(readyWhere, getMajorTableAlias());
+        SqlBuffer buffer = currentSqlBuilder().buildListSql(fields, readyWhere, orderings);
+        return jdbc.forEach(buffer, rowToBeanMapper, handler);
+    }
+
+    public int forEachBatch(DbWhere where, Orderings orderings, int batchSize, BatchDataHandler<T> handler)
+            throws ServiceException {
+        return forEachBatch(Fields.ALL, where, orderings, batchSize, handler);
+    }
+
+    public int forEachBatch(Fields fields, DbWhere where, Orderings orderings, int batchSize,
+            BatchDataHandler<T> handler) throws ServiceException {
+        DbWhere readyWhere = checkWhere(where);
+        entityFieldFillExecutor.fillQueryWhereDataState(readyWhere, getMajorTableAlias());
+        entityFieldFillExecutor.fillQueryWhereParams(readyWhere, getMajorTableAlias());
+        SqlBuffer buffer = currentSqlBuilder().buildListSql(fields, readyWhere, orderings);
+        return jdbc.forEachBatch(buffer, batchSize, rowToBeanMapper, handler);
+    }
+
     protected List<T> doList(Fields fields, DbWhere where, Orderings orderings) {
-        SqlBuffer buffer = sqlBuilder.buildListSql(fields, where, orderings);
-        return jdbc.query(buffer, rowToBeanMapper);
+        SqlBuffer buffer = currentSqlBuilder().buildListSql(fields, where, orderings);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey("list", buffer);
+        // 缓存保存的是副本, 每次命中都返回新的对象
+        List<T> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        List<T> list = jdbc.query(buffer, rowToBeanMapper);
+        cache.put(cacheKey, list);
+        return list;
     }
 
     protected PageList<T> doList(Fields fields, DbWhere where, OrderPaging odpg) {
-        SqlBuffer wsb = sqlBuilder.helper().buildWhereSql(where, true);
-        SqlBuffer qsb = sqlBuilder.buildListSql(fields, wsb, odpg.getOrderings());
+        SqlBuffer wsb = currentSqlBuilder().helper().buildWhereSql(where, true);
+        SqlBuffer qsb = currentSqlBuilder().buildListSql(fields, wsb, odpg.getOrderings());
+        // 分页查询会修改qsb, 因此要先生成缓存KEY
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey(getPagingCacheCategory("page", odpg), qsb);
+        PageList<T> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return fillCachedTotal(cached, odpg);
+        }
+
         SqlBuffer csb = null;
         if (odpg.isPaging() && odpg.isNeedCount()) {
-            csb = sqlBuilder.buildCountSql(wsb);
+            csb = currentSqlBuilder().buildCountSql(wsb);
         }
 
         PartList<T> list = PagingQuery.queryForList(jdbc, qsb, csb, odpg, rowToBeanMapper);
-        return list == null ? null : new PageList<T>(list, list.getTotal());
+        PageList<T> result = list == null ? null : new PageList<T>(list, list.getTotal());
+        cache.put(cacheKey, result);
+        return result;
+    }
+
+    /** 命中缓存的分页结果(已是新的副本), 与查询数据库一样回填总数 **/
+    private static <E> PageList<E> fillCachedTotal(PageList<E> cached, OrderPaging odpg) {
+        if (odpg.isPaging() && odpg.isNeedCount()) {
+            odpg.setTotal(cached.getTotal());
+        }
+        return cached;
+    }
+
+    public KeysetPageList<T> list(DbWhere where, KeysetPaging paging) throws ServiceException {
+        return list(Fields.ALL, where, paging);
+    }
+
+    public KeysetPageList<T> list(Fields fields, DbWhere where, KeysetPaging paging) throws ServiceException {
+        VerifyTools.requireNonNull(paging, "paging");
+        // 带分页查询列表, 允许条件为空, 因此不检查
+        DbWhere readyWhere = where;
+        if (where == null || where == DbWhere.NONE) {
+            readyWhere = new DbWhere();
+        }
+        entityFieldFillExecutor.fillQueryWhereDataState(readyWhere, getMajorTableAlias());
+        entityFieldFillExecutor.fillQueryWhereParams(readyWhere, getMajorTableAlias());
+        return this.doList(fields, readyWhere, paging);
+    }
+
+    protected KeysetPageList<T> doList(Fields fields, DbWhere where, KeysetPaging paging) {
+        QueryFragmentHelper helper = currentSqlBuilder().helper();
+        FieldColumns<? extends SimpleFieldColumn> resultColumns = helper.getAllFieldColumns().filter(FieldScene.RESULT);
+        List<String> columnNames = new ArrayList<>();
+        List<OrderType> orderTypes = new ArrayList<>();
+        List<String> keyLabels = new ArrayList<>();
+        for (Ordering item : paging.getOrderings()) {
+            String fieldName = item.getOrderBy();
+            columnNames.add(helper.getColumnName(FieldScene.CONDITION, fieldName));
+            orderTypes.add(item.getOrderType());
+            keyLabels.add(getResultColumnLabel(resultColumns, fieldName));
+        }
+
+        // WHERE {whereConditions} AND (A,B) > (?,?)
+        SqlBuilder wsb = new SqlBuilder();
+        SqlBuffer whereSql = helper.buildWhereSql(where, false);
+        if (VerifyTools.isNotBlank(whereSql)) {
+            wsb.ad(whereSql);
+        }
+        if (!paging.isFirstPage()) {
+            List<Object> lastValues = Arrays.asList(paging.getLastKeys());
+            SqlBuffer seekSql = dialect.buildKeysetConditionSql(columnNames, orderTypes, lastValues);
+            if (!wsb.isEmpty()) {
+                wsb.ad("AND");
+            }
+            wsb.ad(seekSql);
+        }
+        if (!wsb.isEmpty()) {
+            wsb.pd("WHERE");
+        }
+        SqlBuffer qsb = currentSqlBuilder().buildListSql(fields, wsb.out(), paging.getOrderings());
+        return KeysetQuery.queryForList(jdbc, qsb, keyLabels, paging, rowToBeanMapper);
+    }
+
+    /** 获取排序字段在结果集中的列名(表关联查询时重名字段为列别名) **/
+    private String getResultColumnLabel(FieldColumns<? extends SimpleFieldColumn> columns, String fieldName) {
+        SimpleFieldColumn column = columns.findFirstByFieldName(fieldName);
+        if (column == null) {
+            String message = "keyset ordering field not found in result columns";
+            throw new UnsupportedFieldException(message, Arrays.asList(fieldName));
+        }
+        if (column instanceof TablesFieldColumn) {
+            String columnAlias = ((TablesFieldColumn) column).getColumnAlias();
+            if (VerifyTools.isNotBlank(columnAlias)) {
+                return columnAlias;
+            }
+        }
+        return column.getColumnName();
     }
 
     public <V> V findFieldValue(String fieldName, DbWhere where, Class<V> valueClazz) throws ServiceException {
@@ -176,16 +379,26 @@ public abstract class BaseQueryerImpl<T> {
 
     protected <V> PageList<V> doListFieldValues(String fieldName, boolean distinct, DbWhere where, OrderPaging odpg,
             Class<V> valueClazz) throws ServiceException {
-        SqlBuffer wsb = sqlBuilder.helper().buildWhereSql(where, true);
-        SqlBuffer qsb = sqlBuilder.buildListFieldValuesSql(fieldName, distinct, wsb, odpg.getOrderings());
+        SqlBuffer wsb = currentSqlBuilder().helper().buildWhereSql(where, true);
+        SqlBuffer qsb = currentSqlBuilder().buildListFieldValuesSql(fieldName, distinct, wsb, odpg.getOrderings());
+        // 分页查询会修改qsb, 因此要先生成缓存KEY
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        String category = getPagingCacheCategory("values:" + valueClazz.getName(), odpg);
+        CacheKey cacheKey = newQueryCacheKey(category, qsb);
+        PageList<V> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return fillCachedTotal(cached, odpg);
+        }
         SqlBuffer csb = null;
         if (odpg.isPaging() && odpg.isNeedCount()) {
-            csb = sqlBuilder.buildCountSql(wsb);
+            csb = currentSqlBuilder().buildCountSql(wsb);
         }
-        String columnName = sqlBuilder.helper().getColumnName(FieldScene.CONDITION, fieldName);
+        String columnName = currentSqlBuilder().helper().getColumnName(FieldScene.CONDITION, fieldName);
         RowMapper<V> rowMapper = new SingleColumnMapper<>(columnName, valueClazz);
         PartList<V> list = PagingQuery.queryForList(jdbc, qsb, csb, odpg, rowMapper);
-        return list == null ? null : new PageList<V>(list, list.getTotal());
+        PageList<V> result = list == null ? null : new PageList<V>(list, list.getTotal());
+        cache.put(cacheKey, result);
+        return result;
     }
 
     public int count(DbWhere where) throws ServiceException {
@@ -196,8 +409,15 @@ public abstract class BaseQueryerImpl<T> {
     }
 
     protected int doCount(DbWhere readyWhere) throws ServiceException {
-        SqlBuffer buffer = sqlBuilder.buildCountSql(readyWhere);
-        return jdbc.queryForObject(buffer, Integer.class);
+        SqlBuffer buffer = currentSqlBuilder().buildCountSql(readyWhere);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey("count", buffer);
+        Integer total = cache.get(cacheKey);
+        if (total == null) {
+            total = jdbc.queryForObject(buffer, Integer.class);
+            cache.put(cacheKey, total);
+        }
+        return total;
     }
 
     public Map<String, Integer> groupCount(String groupBy, DbWhere where) throws ServiceException {
@@ -209,7 +429,7 @@ public abstract class BaseQueryerImpl<T> {
     }
 
     protected Map<String, Integer> doGroupCount(String groupBy, DbWhere readyWhere) throws ServiceException {
-        SqlBuffer buffer = sqlBuilder.buildGroupCountSql(groupBy, readyWhere);
+        SqlBuffer buffer = currentSqlBuilder().buildGroupCountSql(groupBy, readyWhere);
         List<KeyValue<Integer>> list = jdbc.query(buffer, KEY_INTEGER_MAPPER);
         return KeyValue.toMap(list);
     }
@@ -2,11 +2,15 @@ package com.gitee.qdbp.jdbc.biz;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import com.gitee.qdbp.able.exception.ServiceException;
 import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.fields.AllFields;
 import com.gitee.qdbp.able.jdbc.fields.Fields;
 import com.gitee.qdbp.able.jdbc.fields.IncludeFields;
 import com.gitee.qdbp.able.jdbc.model.PkEntity;
@@ -20,7 +24,9 @@ import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.model.FieldScene;
 import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
 import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
+import com.gitee.qdbp.jdbc.plugins.BeanToMapConverter;
 import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.plugins.BatchUpsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.DbConditionConverter;
 import com.gitee.qdbp.jdbc.plugins.EntityDataStateFillStrategy;
 import com.gitee.qdbp.jdbc.plugins.EntityFieldFillExecutor;
@@ -34,7 +40,9 @@ import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
 import com.gitee.qdbp.jdbc.sql.build.QuerySqlBuilder;
 import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
 import com.gitee.qdbp.jdbc.sql.fragment.TableCrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
 import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.EntityCache;
 import com.gitee.qdbp.tools.utils.ConvertTools;
 import com.gitee.qdbp.tools.utils.VerifyTools;
 
@@ -49,10 +57,13 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
     protected Class<T> beanClass;
     /** 批量执行时的大小限制(0为无限制) **/
     protected int defaultBatchSize = QdbcBootImpl.DEFAULT_BATCH_SIZE;
+    /** 实体缓存 **/
+    protected EntityCache entityCache;
 
     CrudDaoImpl(Class<T> c, SqlBufferJdbcOperations jdbc) {
         super(newQuerySqlBuilder(c, jdbc), newEntityFieldFillExecutor(c), jdbc, newRowToBeanMapper(c));
         this.beanClass = c;
+        this.entityCache = newEntityCache(c, jdbc);
     }
 
     private static QuerySqlBuilder newQuerySqlBuilder(Class<?> clazz, SqlBufferJdbcOperations jdbc) {
@@ -72,11 +83,60 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         return new TableRowToBeanMapper<>(clazz, converter);
     }
 
+    private static EntityCache newEntityCache(Class<?> clazz, SqlBufferJdbcOperations jdbc) {
+        EntityCache cache = new EntityCache(clazz.getSimpleName(), 1000);
+        cache.init(new DbConfig(DbTools.getDbConfig(), jdbc.getDbVersion()));
+        return cache;
+    }
+
     @Override
     public CrudSqlBuilder getSqlBuilder() {
         return (CrudSqlBuilder) this.sqlBuilder;
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    protected String getQueryCacheName() {
+        return beanClass.getName();
+    }
+
+    /** 修改数据后, 使当前表的查询结果缓存失效 **/
+    protected void invalidateQueryCache() {
+        jdbc.getQueryResultCache().invalidate(getSqlBuilder().helper().getTableNames());
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * 修改数据后, 使实体缓存失效
+     *
+     * @param ids 受影响的主键, 为null表示无法确定(按条件修改), 将清空当前实体的缓存
+     */
+    protected void invalidateEntityCache(List<String> ids) {
+        entityCache.evict(ids);
+    }
+
+    /** 从实体缓存中获取, 每次都转换为新的实体对象 **/
+    protected T getCachedEntity(String id) {
+        Map<String, Object> fields = entityCache.get(id);
+        if (fields == null) {
+            return null;
+        }
+        MapToBeanConverter converter = DbTools.getMapToBeanConverter();
+        return converter.convert(fields, beanClass);
+    }
+
+    /** 将实体对象转换为字段值Map, 用于写入实体缓存 **/
+    protected Map<String, Object> convertEntityToCacheFields(T entity) {
+        BeanToMapConverter converter = DbTools.getBeanToMapConverter();
+        // deep=false: 不需要递归转换; clearBlankValue=false: 保留空值, 以便原样还原
+        return converter.convert(entity, false, false);
+    }
+
     @Override
     public T findById(String id) {
         VerifyTools.requireNotBlank(id, "id");
@@ -88,7 +148,20 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         String primaryField = pk.getFieldName();
         DbWhere where = new DbWhere();
         where.on(primaryField, "=", id);
-        return this.find(where);
+        if (!entityCache.isUsable()) {
+            return this.find(where);
+        }
+        T cached = getCachedEntity(id);
+        if (cached != null) {
+            return cached;
+        }
+        // 版本号在查询之前获取, 查询期间发生的修改会使本次结果不被缓存
+        long version = entityCache.getVersion();
+        T entity = this.find(where);
+        if (entity != null) {
+            entityCache.put(id, convertEntityToCacheFields(entity), version);
+        }
+        return entity;
     }
 
     @Override
@@ -104,12 +177,66 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
             String details = "UnsupportedListByIds, class=" + beanClass.getName();
             throw new ServiceException(DbErrorCode.DB_PRIMARY_KEY_FIELD_IS_UNRESOLVED, details);
         }
+        boolean allFields = fields == null || fields instanceof AllFields;
+        boolean noOrderings = orderings == null || orderings.isEmpty();
+        if (entityCache.isUsable() && allFields && noOrderings) {
+            return listByIdsUseCache(pk, ids);
+        }
         String primaryField = pk.getFieldName();
         DbWhere where = new DbWhere();
         where.on(primaryField, "in", ids);
         return list(fields, where, orderings);
     }
 
+    /**
+     * 优先从实体缓存中获取, 只从数据库查询缓存中没有的记录, 按传入的主键顺序返回
+     *
+     * @param pk 主键字段
+     * @param ids 主键列表
+     * @return 列表数据
+     */
+    protected List<T> listByIdsUseCache(SimpleFieldColumn pk, List<String> ids) {
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        Map<String, T> found = new HashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String id : uniqueIds) {
+            T cached = getCachedEntity(id);
+            if (cached == null) {
+                missingIds.add(id);
+            } else {
+                found.put(id, cached);
+            }
+        }
+        // 主键的字符串形式与传入的不一致, 无法确定位置的记录放在最后
+        List<T> unmatched = new ArrayList<>();
+        if (!missingIds.isEmpty()) {
+            long version = entityCache.getVersion();
+            DbWhere where = new DbWhere();
+            where.on(pk.getFieldName(), "in", new ArrayList<>(missingIds));
+            List<T> loaded = list(Fields.ALL, where, null);
+            for (T entity : loaded) {
+                Map<String, Object> fields = convertEntityToCacheFields(entity);
+                Object pkValue = fields.get(pk.getFieldName());
+                String id = pkValue == null ? null : pkValue.toString();
+                if (id != null && missingIds.contains(id) && !found.containsKey(id)) {
+                    found.put(id, entity);
+                    entityCache.put(id, fields, version);
+                } else {
+                    unmatched.add(entity);
+                }
+            }
+        }
+        List<T> results = new ArrayList<>();
+        for (String id : uniqueIds) {
+            T entity = found.get(id);
+            if (entity != null) {
+                results.add(entity);
+            }
+        }
+        results.addAll(unmatched);
+        return results;
+    }
+
     @Override
     public List<T> listChildren(String startCode, String codeField, String parentField, DbWhere filterWhere,
             DbWhere searchWhere, Orderings orderings) {
@@ -257,7 +384,14 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         Map<String, Object> readyEntity = pe.getEntity();
         // 执行数据库插入
         SqlBuffer buffer = getSqlBuilder().buildInsertSql(readyEntity);
-        jdbc.insert(buffer);
+        try {
+            jdbc.insert(buffer);
+        } finally {
+            invalidateQueryCache();
+            if (VerifyTools.isNotBlank(id)) {
+                invalidateEntityCache(ConvertTools.toList(id));
+            }
+        }
         return id;
     }
 
@@ -305,7 +439,13 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         DbVersion version = jdbc.getDbVersion();
         BatchInsertExecutor batchOperator = DbTools.getBatchInsertExecutor(version);
         // 执行批量数据库插入
-        return batchOperator.inserts(contents, jdbc, getSqlBuilder());
+        try {
+            return batchOperator.inserts(contents, jdbc, getSqlBuilder());
+        } finally {
+            invalidateQueryCache();
+            // 主键由数据库生成的记录不可能在缓存中
+            invalidateEntityCache(getPrimaryKeys(contents, false));
+        }
     }
 
     @Override
@@ -336,7 +476,7 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         where.on(pk.getFieldName(), "=", pkValue);
         entityFieldFillExecutor.fillUpdateWhereDataState(where);
         entityFieldFillExecutor.fillUpdateWhereParams(where);
-        return this.doUpdate(ud, where, errorOnUnaffected);
+        return this.doUpdate(ud, where, ConvertTools.toList(pkValue), errorOnUnaffected);
     }
 
     @Override
@@ -375,7 +515,7 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
             // 填充Where条件
             entityFieldFillExecutor.fillUpdateWhereDataState(where);
             entityFieldFillExecutor.fillUpdateWhereParams(where);
-            return this.doUpdate(ud, where, errorOnUnaffected);
+            return this.doUpdate(ud, where, ConvertTools.toList(pkValue.toString()), errorOnUnaffected);
         } else { // 如果Update对象中带有where字段, 将where字段值转换为DbWhere对象
             Object whereValue = entity.remove("where");
             DbWhere where;
@@ -458,9 +598,31 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
 
     protected int doUpdate(DbUpdate readyEntity, DbWhere readyWhere, boolean errorOnUnaffected)
             throws ServiceException {
+        return doUpdate(readyEntity, readyWhere, null, errorOnUnaffected);
+    }
+
+    /**
+     * 执行更新
+     * 
+     * @param readyEntity 更新内容
+     * @param readyWhere 更新条件
+     * @param ids 受影响的主键, 用于实体缓存失效; 为null表示无法确定, 将清空当前实体的缓存
+     * @param errorOnUnaffected 受影响行数为0时是否报错
+     * @return 受影响行数
+     * @throws ServiceException 操作失败
+     * @since 3.2.2
+     */
+    protected int doUpdate(DbUpdate readyEntity, DbWhere readyWhere, List<String> ids, boolean errorOnUnaffected)
+            throws ServiceException {
         SqlBuffer buffer = getSqlBuilder().buildUpdateSql(readyEntity, readyWhere);
 
-        int rows = jdbc.update(buffer);
+        int rows;
+        try {
+            rows = jdbc.update(buffer);
+        } finally {
+            invalidateQueryCache();
+            invalidateEntityCache(ids);
+        }
 
         if (rows == 0 && errorOnUnaffected) {
             throw new ServiceException(DbErrorCode.DB_AFFECTED_ROWS_IS_ZERO);
@@ -504,7 +666,7 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
             // 与批量处理的逻辑保持一致, 不限制数据状态
             // entityFieldFillExecutor.fillUpdateWhereDataState(where);
             // entityFieldFillExecutor.fillUpdateWhereParams(where);
-            return this.doUpdate(ud, where, false);
+            return this.doUpdate(ud, where, ConvertTools.toList(pkValue), false);
         } else if (batchSize <= 0 || entities.size() <= batchSize) {
             return doBatchUpdates(entities, fillUpdateParams);
         } else { // 分批导入
@@ -539,7 +701,129 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         DbVersion version = jdbc.getDbVersion();
         BatchUpdateExecutor batchOperator = DbTools.getBatchUpdateExecutor(version);
         // 执行批量数据库更新
-        return batchOperator.updates(contents, jdbc, getSqlBuilder());
+        try {
+            return batchOperator.updates(contents, jdbc, getSqlBuilder());
+        } finally {
+            invalidateQueryCache();
+            invalidateEntityCache(getPrimaryKeys(contents, true));
+        }
+    }
+
+    @Override
+    public List<String> upserts(List<?> entities) throws ServiceException {
+        return upserts(entities, true, this.defaultBatchSize);
+    }
+
+    @Override
+    public List<String> upserts(List<?> entities, boolean fillParams) throws ServiceException {
+        return upserts(entities, fillParams, this.defaultBatchSize);
+    }
+
+    protected List<String> upserts(List<?> entities, boolean fillParams, int batchSize) throws ServiceException {
+        VerifyTools.requireNotBlank(entities, "entities");
+        // 查找主键(根据主键判断记录是否存在, 必须要有主键)
+        SimpleFieldColumn pk = getSqlBuilder().helper().getPrimaryKey();
+        if (pk == null) { // 没有找到主键字段
+            String details = "UnsupportedBatchUpsert, class=" + beanClass.getName();
+            throw new ServiceException(DbErrorCode.DB_PRIMARY_KEY_FIELD_IS_UNRESOLVED, details);
+        }
+        if (batchSize <= 0 || entities.size() <= batchSize) {
+            return doBatchUpserts(entities, fillParams);
+        } else { // 分批导入
+            List<String> ids = new ArrayList<>();
+            List<Object> buffer = new ArrayList<>();
+            for (int i = 1, size = entities.size(); i <= size; i++) {
+                buffer.add(entities.get(i - 1));
+                if (i % batchSize == 0 || i == size) {
+                    List<String> batchIds = doBatchUpserts(buffer, fillParams);
+                    ids.addAll(batchIds);
+                    buffer.clear();
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * 执行批量新增或更新
+     * 
+     * @param entities 实体对象列表(只能是entity或map或IdEntity列表, 其他参数将会报错)
+     * @param fillParams 是否自动填充创建参数和更新参数
+     * @return 返回主键编号
+     * @throws ServiceException 操作失败
+     * @since 3.2.2
+     */
+    protected List<String> doBatchUpserts(List<?> entities, boolean fillParams) throws ServiceException {
+        List<PkEntity> contents = new ArrayList<>();
+        for (Object item : entities) {
+            // 将实体类转换为map, 并执行实体业务数据填充
+            contents.add(convertAndFillUpsertParams(item, fillParams));
+        }
+        // 创建人/创建时间等字段不论是否自动填充, 记录已存在时都不更新
+        Set<String> insertOnlyFields = getInsertOnlyFields();
+
+        DbVersion version = jdbc.getDbVersion();
+        BatchUpsertExecutor batchOperator = DbTools.getBatchUpsertExecutor(version);
+        // 执行批量数据库新增或更新
+        try {
+            return batchOperator.upserts(contents, insertOnlyFields, jdbc, getSqlBuilder());
+        } finally {
+            invalidateQueryCache();
+            invalidateEntityCache(getPrimaryKeys(contents, false));
+        }
+    }
+
+    /**
+     * 执行实体业务数据转换, 并填充创建参数和更新参数<br>
+     * 主键为空时自动生成; 数据状态总是按新增填充, 与insert一致
+     * 
+     * @param object 实体对象, 只支持map/T/PkEntity, 其他类型将会报错
+     * @param fillParams 是否自动填充创建参数和更新参数
+     * @return 转换后的实体和主键
+     * @since 3.2.2
+     */
+    protected PkEntity convertAndFillUpsertParams(Object object, boolean fillParams) {
+        PkEntity pe = convertAndFillCreateParams(object, fillParams);
+        fillEntityUpdateParams(pe.getEntity(), fillParams);
+        return pe;
+    }
+
+    /**
+     * 获取只在新增时写入的字段(由字段填充策略决定, 如创建人/创建时间/数据状态)<br>
+     * 在空的map上执行创建参数填充, 除去更新参数填充也会写入的字段, 剩下的就是只在新增时写入的字段
+     * 
+     * @return 字段名
+     * @since 3.2.2
+     */
+    protected Set<String> getInsertOnlyFields() {
+        Map<String, Object> createFields = new HashMap<>();
+        entityFieldFillExecutor.fillEntityCreateDataState(createFields);
+        entityFieldFillExecutor.fillEntityCreateParams(createFields);
+        Map<String, Object> updateFields = new HashMap<>();
+        entityFieldFillExecutor.fillEntityUpdateParams(updateFields);
+        Set<String> fieldNames = new HashSet<>(createFields.keySet());
+        fieldNames.removeAll(updateFields.keySet());
+        return fieldNames;
+    }
+
+    /**
+     * 获取主键列表, 用于实体缓存失效
+     * 
+     * @param contents 实体对象列表
+     * @param required 主键是否必填: 为true时如果有主键为空的记录则返回null(清空缓存); 为false时跳过主键为空的记录
+     * @return 主键列表
+     */
+    protected List<String> getPrimaryKeys(List<PkEntity> contents, boolean required) {
+        List<String> ids = new ArrayList<>();
+        for (PkEntity item : contents) {
+            String id = item.getPrimaryKey();
+            if (VerifyTools.isNotBlank(id)) {
+                ids.add(id);
+            } else if (required) {
+                return null;
+            }
+        }
+        return ids;
     }
 
     @Override
@@ -562,7 +846,7 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         where.on(primaryField, "in", ids);
         entityFieldFillExecutor.fillDeleteWhereDataState(where);
         entityFieldFillExecutor.fillDeleteWhereParams(where);
-        return this.doDelete(where, false, fillUpdateParams, errorOnUnaffected);
+        return this.doDelete(where, ids, false, fillUpdateParams, errorOnUnaffected);
     }
 
     @Override
@@ -615,7 +899,7 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
         String primaryField = pk.getFieldName();
         DbWhere where = new DbWhere();
         where.on(primaryField, "in", ids);
-        return this.doDelete(where, true, false, errorOnUnaffected);
+        return this.doDelete(where, ids, true, false, errorOnUnaffected);
     }
 
     @Override
@@ -647,10 +931,32 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
 
     protected int doDelete(DbWhere readyWhere, boolean physical, boolean fillUpdateParams, boolean errorOnUnaffected)
             throws ServiceException {
+        return doDelete(readyWhere, null, physical, fillUpdateParams, errorOnUnaffected);
+    }
+
+    /**
+     * 执行删除
+     * 
+     * @param readyWhere 删除条件
+     * @param ids 受影响的主键, 用于实体缓存失效; 为null表示无法确定, 将清空当前实体的缓存
+     * @param physical 是否物理删除
+     * @param fillUpdateParams 逻辑删除时是否自动填充更新参数
+     * @param errorOnUnaffected 受影响行数为0时是否报错
+     * @return 受影响行数
+     * @throws ServiceException 操作失败
+     * @since 3.2.2
+     */
+    protected int doDelete(DbWhere readyWhere, List<String> ids, boolean physical, boolean fillUpdateParams,
+            boolean errorOnUnaffected) throws ServiceException {
         int rows;
         if (physical) { // 物理删除
             SqlBuffer buffer = getSqlBuilder().buildDeleteSql(readyWhere);
-            rows = jdbc.delete(buffer);
+            try {
+                rows = jdbc.delete(buffer);
+            } finally {
+                invalidateQueryCache();
+                invalidateEntityCache(ids);
+            }
         } else { // 逻辑删除
             if (entityFieldFillExecutor.supportedTableLogicalDelete()) { // 支持逻辑删除
                 DbUpdate ud = new DbUpdate();
@@ -659,7 +965,12 @@ public class CrudDaoImpl<T> extends BaseQueryerImpl<T> implements CrudDao<T> {
                     entityFieldFillExecutor.fillLogicalDeleteParams(ud);
                 }
                 SqlBuffer buffer = getSqlBuilder().buildUpdateSql(ud, readyWhere);
-                rows = jdbc.update(buffer);
+                try {
+                    rows = jdbc.update(buffer);
+                } finally {
+                    invalidateQueryCache();
+                    invalidateEntityCache(ids);
+                }
             } else { // 不支持逻辑删除
                 String details = "UnsupportedLogicDelete, class=" + beanClass.getName();
                 throw new ServiceException(DbErrorCode.DB_UNSUPPORTED_LOGICAL_DELETE, details);
@@ -26,10 +26,12 @@ import com.gitee.qdbp.jdbc.utils.DbTools;
 public class JoinQueryerImpl<T> extends BaseQueryerImpl<T> implements JoinQueryer<T> {
 
     private String majorTableAlias;
+    private String queryCacheName;
 
     public JoinQueryerImpl(TableJoin t, Class<T> r, SqlBufferJdbcOperations jdbc) {
         super(newQuerySqlBuilder(t, jdbc), newEntityFieldFillExecutor(t), jdbc, newRowToBeanMapper(t, r));
         this.majorTableAlias = t.getMajor().getTableAlias();
+        this.queryCacheName = r.getName() + '@' + TableJoin.buildCacheKey(t, false);
         List<JoinItem> joins = t.getJoins();
         for (JoinItem item : joins) {
             entityFieldFillExecutor.fillQueryWhereDataState(item.getWhere(), item.getTableAlias());
@@ -62,6 +64,12 @@ public class JoinQueryerImpl<T> extends BaseQueryerImpl<T> implements JoinQuerye
         return majorTableAlias;
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    protected String getQueryCacheName() {
+        return queryCacheName;
+    }
+
     @Override
     public QuerySqlBuilder getSqlBuilder() {
         return (QuerySqlBuilder) sqlBuilder;
@@ -1,7 +1,7 @@
 package com.gitee.qdbp.jdbc.biz;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.sql.DataSource;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -14,11 +14,13 @@ import com.gitee.qdbp.jdbc.api.QdbcBoot;
 import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
 import com.gitee.qdbp.jdbc.api.SqlDao;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
 import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
 import com.gitee.qdbp.jdbc.sql.build.QuerySqlBuilder;
 import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
 import com.gitee.qdbp.jdbc.sql.fragment.TableCrudFragmentHelper;
 import com.gitee.qdbp.jdbc.sql.fragment.TableJoinFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbTools;
 
 /**
  * 基础增删改查对象的构造器
@@ -31,7 +33,7 @@ public class QdbcBootImpl implements QdbcBoot {
     /** SqlBuffer数据库操作类 **/
     private SqlBufferJdbcOperations sqlBufferJdbcOperations;
 
-    private Map<Class<?>, CrudDao<?>> crudDaoCache = new HashMap<>();
+    private ConcurrentMap<Class<?>, CrudDao<?>> crudDaoCache = new ConcurrentHashMap<>();
     // private Map<String, JoinQueryer<?>> joinQueryCache = new HashMap<>();
     /** 批量执行时的大小限制常量(0为无限制) **/
     protected static int DEFAULT_BATCH_SIZE = 500;
@@ -64,14 +66,21 @@ public class QdbcBootImpl implements QdbcBoot {
     @Override
     @SuppressWarnings("unchecked")
     public <T> CrudDao<T> buildCrudDao(Class<T> clazz) {
-        if (crudDaoCache.containsKey(clazz)) {
-            return (CrudDao<T>) crudDaoCache.get(clazz);
+        CrudDao<?> cached = crudDaoCache.get(clazz);
+        if (cached != null) {
+            return (CrudDao<T>) cached;
+        }
+        CrudDaoImpl<T> instance;
+        TableShardingStrategy shardingStrategy = DbTools.getTableShardingStrategy(clazz);
+        if (shardingStrategy == null) {
+            instance = new CrudDaoImpl<>(clazz, sqlBufferJdbcOperations);
         } else {
-            CrudDaoImpl<T> instance = new CrudDaoImpl<>(clazz, sqlBufferJdbcOperations);
-            instance.setDefaultBatchSize(this.defaultBatchSize);
-            crudDaoCache.put(clazz, instance);
-            return instance;
+            instance = new ShardingCrudDaoImpl<>(clazz, sqlBufferJdbcOperations, shardingStrategy);
         }
+        instance.setDefaultBatchSize(this.defaultBatchSize);
+        // 并发创建时以先放入缓存的为准, 保证同一个类只有一个CrudDao实例
+        CrudDao<?> existing = crudDaoCache.putIfAbsent(clazz, instance);
+        return existing != null ? (CrudDao<T>) existing : instance;
     }
 
     /** {@inheritDoc} **/
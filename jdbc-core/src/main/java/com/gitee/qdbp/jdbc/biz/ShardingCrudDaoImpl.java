@@ -0,0 +1,907 @@
+package com.gitee.qdbp.jdbc.biz;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.gitee.qdbp.able.exception.ServiceException;
+import com.gitee.qdbp.able.jdbc.base.DbCondition;
+import com.gitee.qdbp.able.jdbc.condition.DbField;
+import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.condition.SubWhere;
+import com.gitee.qdbp.able.jdbc.fields.Fields;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.able.jdbc.ordering.OrderPaging;
+import com.gitee.qdbp.able.jdbc.ordering.OrderType;
+import com.gitee.qdbp.able.jdbc.ordering.Ordering;
+import com.gitee.qdbp.able.jdbc.ordering.Orderings;
+import com.gitee.qdbp.able.jdbc.paging.PageList;
+import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.exception.DbErrorCode;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
+import com.gitee.qdbp.jdbc.operator.DbBaseOperator;
+import com.gitee.qdbp.jdbc.plugins.BeanToMapConverter;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.build.QuerySqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.sql.fragment.TableCrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.ReadReplicaRouter;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 支持分表的增删改查数据库操作(同一数据源内的水平分表)<br>
+ * 每个实际表一个SQL生成工具, 执行时将当前线程的SQL生成工具切换为实际表的, 其余逻辑与CrudDaoImpl相同<br>
+ * 新增: 按实体中分表字段的值确定实际表, 批量新增按实际表分组执行, 分表字段为空时报错<br>
+ * 修改/删除: 按WHERE条件(或更新内容)中分表字段的值确定实际表, 无法确定时在所有实际表上依次执行<br>
+ * 查询: 按WHERE条件中分表字段的等于或IN条件确定实际表, 无法确定时在所有实际表上查询(不在事务中时并行执行),
+ * 查询结果在内存中按排序字段合并; 分页查询时每个实际表查询前N页的数据, 合并后再截取当前页, 总数为各表之和<br>
+ * 注意: 1. 分表字段的值不能修改, WHERE条件中没有分表字段时, 更新内容中分表字段的值将被用于确定实际表,
+ * 因此只会修改该实际表中的记录; 2. 合并排序时空值排在最前(升序); 3. 跨分表的页码越大, 合并的数据量越大;
+ * 4. 跨分表时不支持KeysetPaging分页查询以及按其他字段排序的字段值列表查询; 5. 跨分表时递归查询只在各表内递归;
+ * 6. 所有实际表由分表策略决定, 如按时间分表只到当前时间所在的表, 未来时间的数据不会被跨分表查询到
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class ShardingCrudDaoImpl<T> extends CrudDaoImpl<T> {
+
+    /** 分表策略 **/
+    private final TableShardingStrategy shardingStrategy;
+    /** 逻辑表名 **/
+    private final String logicalTableName;
+    /** 实际表的SQL生成工具 **/
+    private final ConcurrentMap<String, CrudSqlBuilder> shardingSqlBuilders = new ConcurrentHashMap<>();
+    /** 当前线程正在操作的实际表的SQL生成工具 **/
+    private final ThreadLocal<CrudSqlBuilder> currentShardingSqlBuilder = new ThreadLocal<>();
+
+    ShardingCrudDaoImpl(Class<T> c, SqlBufferJdbcOperations jdbc, TableShardingStrategy shardingStrategy) {
+        super(c, jdbc);
+        VerifyTools.requireNonNull(shardingStrategy, "shardingStrategy");
+        this.shardingStrategy = shardingStrategy;
+        this.logicalTableName = super.getSqlBuilder().helper().getTableName();
+    }
+
+    /** 分表策略 **/
+    public TableShardingStrategy getShardingStrategy() {
+        return shardingStrategy;
+    }
+
+    /**
+     * 获取SQL生成工具<br>
+     * 正在操作实际表时返回实际表的SQL生成工具, 否则返回逻辑表的SQL生成工具
+     */
+    @Override
+    public CrudSqlBuilder getSqlBuilder() {
+        CrudSqlBuilder current = currentShardingSqlBuilder.get();
+        return current != null ? current : super.getSqlBuilder();
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    protected QuerySqlBuilder currentSqlBuilder() {
+        return getSqlBuilder();
+    }
+
+    /** 获取实际表的SQL生成工具 **/
+    protected CrudSqlBuilder getShardingSqlBuilder(String shardingTableName) {
+        CrudSqlBuilder builder = shardingSqlBuilders.get(shardingTableName);
+        if (builder == null) {
+            CrudFragmentHelper helper = new TableCrudFragmentHelper(beanClass, shardingTableName, dialect);
+            CrudSqlBuilder newer = new CrudSqlBuilder(helper);
+            CrudSqlBuilder older = shardingSqlBuilders.putIfAbsent(shardingTableName, newer);
+            builder = older != null ? older : newer;
+        }
+        return builder;
+    }
+
+    /** 在指定的实际表上执行的操作 **/
+    protected interface ShardingAction<R> {
+
+        /**
+         * 执行操作, 此时getSqlBuilder()返回的是实际表的SQL生成工具
+         *
+         * @param shardingTableName 实际表名
+         * @return 执行结果
+         */
+        R execute(String shardingTableName);
+    }
+
+    /**
+     * 在指定的实际表上执行操作
+     *
+     * @param shardingTableName 实际表名
+     * @param action 操作
+     * @return 执行结果
+     */
+    protected <R> R executeOnTable(String shardingTableName, ShardingAction<R> action) {
+        CrudSqlBuilder previous = currentShardingSqlBuilder.get();
+        currentShardingSqlBuilder.set(getShardingSqlBuilder(shardingTableName));
+        try {
+            return action.execute(shardingTableName);
+        } finally {
+            if (previous == null) {
+                currentShardingSqlBuilder.remove();
+            } else {
+                currentShardingSqlBuilder.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在多个实际表上执行查询, 按实际表的顺序返回结果<br>
+     * 不在事务中且qdbc.sharding.concurrent=true(默认)时并行执行, 执行器与分页查询的并行执行器相同
+     *
+     * @param shardingTableNames 实际表名
+     * @param action 操作
+     * @return 各实际表的执行结果
+     */
+    protected <R> List<R> queryOnTables(List<String> shardingTableNames, final ShardingAction<R> action) {
+        List<R> results = new ArrayList<>();
+        if (shardingTableNames.size() <= 1 || !isConcurrentEnabled()) {
+            for (String shardingTableName : shardingTableNames) {
+                results.add(executeOnTable(shardingTableName, action));
+            }
+            return results;
+        }
+
+        Executor executor = DbPluginContainer.defaults().getPagingQueryExecutor();
+        // 其他实际表在线程池中执行, 需要传递当前线程的读己之写状态
+        ReadReplicaRouter router = jdbc.getReadReplicaRouter();
+        List<FutureTask<R>> futures = new ArrayList<>();
+        for (int i = 1; i < shardingTableNames.size(); i++) {
+            final String shardingTableName = shardingTableNames.get(i);
+            Callable<R> task = new Callable<R>() {
+
+                @Override
+                public R call() {
+                    return executeOnTable(shardingTableName, action);
+                }
+            };
+            FutureTask<R> future = new FutureTask<>(router == null ? task : router.propagate(task));
+            futures.add(future);
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满, 在当前线程执行
+                future.run();
+            }
+        }
+        // 第一张表在当前线程执行
+        try {
+            results.add(executeOnTable(shardingTableNames.get(0), action));
+        } catch (RuntimeException | Error e) {
+            cancelAll(futures);
+            throw e;
+        }
+        for (FutureTask<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(futures);
+                throw new IllegalStateException("Interrupted while waiting for sharding query.", e);
+            } catch (ExecutionException e) {
+                cancelAll(futures);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new IllegalStateException("Failed to execute sharding query.", cause);
+                }
+            }
+        }
+        return results;
+    }
+
+    private static <R> void cancelAll(List<FutureTask<R>> futures) {
+        for (FutureTask<R> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 是否并行查询多个实际表<br>
+     * 在事务中(或当前线程已绑定连接)时, 其他线程无法使用同一连接, 因此不并行
+     */
+    protected boolean isConcurrentEnabled() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), jdbc.getDbVersion());
+        return config.getBoolean("qdbc.sharding.concurrent", true);
+    }
+
+    /** 所有实际表 **/
+    protected List<String> getAllShardingTableNames() {
+        List<String> tableNames = shardingStrategy.getAllShardingTableNames(logicalTableName);
+        if (VerifyTools.isBlank(tableNames)) {
+            String details = "ShardingTablesIsEmpty, class=" + beanClass.getName();
+            throw new ServiceException(DbErrorCode.DB_SHARDING_TABLE_IS_UNRESOLVED, details);
+        }
+        return tableNames;
+    }
+
+    /** 根据分表字段的值确定实际表, 无法确定时返回null **/
+    protected String getShardingTableName(Object fieldValue) {
+        return shardingStrategy.getShardingTableName(logicalTableName, fieldValue);
+    }
+
+    /** 根据实体中分表字段的值确定实际表, 无法确定时报错 **/
+    protected String requireShardingTableName(Map<String, Object> entity) {
+        String shardingField = shardingStrategy.getShardingField();
+        String shardingTableName = getShardingTableName(entity.get(shardingField));
+        if (shardingTableName == null) {
+            String details = "ShardingFieldValueIsRequired, class=" + beanClass.getName() + ", field=" + shardingField;
+            throw new ServiceException(DbErrorCode.DB_SHARDING_TABLE_IS_UNRESOLVED, details);
+        }
+        return shardingTableName;
+    }
+
+    /**
+     * 根据WHERE条件确定实际表, 无法确定时返回所有实际表<br>
+     * 只识别顶层(AND连接)的分表字段的等于或IN条件
+     *
+     * @param where 条件
+     * @return 实际表名
+     */
+    protected List<String> resolveShardingTableNames(DbWhere where) {
+        Set<String> tableNames = findShardingTableNames(where);
+        return tableNames == null ? getAllShardingTableNames() : new ArrayList<>(tableNames);
+    }
+
+    /** 根据WHERE条件查找实际表, 无法确定时返回null **/
+    protected Set<String> findShardingTableNames(DbWhere where) {
+        if (where == null || where.isEmpty()) {
+            return null;
+        }
+        if (where instanceof SubWhere && !"AND".equalsIgnoreCase(((SubWhere) where).getLogicType())) {
+            return null; // OR条件无法确定
+        }
+        String shardingField = shardingStrategy.getShardingField();
+        DbBaseOperator equals = DbTools.getWhereOperator("=");
+        DbBaseOperator in = DbTools.getWhereOperator("in");
+        Iterator<DbCondition> iterator = where.iterator();
+        while (iterator.hasNext()) {
+            DbCondition condition = iterator.next();
+            if (!(condition instanceof DbField)) {
+                continue;
+            }
+            DbField field = (DbField) condition;
+            if (!shardingField.equals(field.getFieldName())) {
+                continue;
+            }
+            String operateType = VerifyTools.nvl(field.getOperateType(), "Equals");
+            Collection<?> values;
+            if (equals.matchers(operateType)) {
+                values = Collections.singletonList(field.getFieldValue());
+            } else if (in.matchers(operateType)) {
+                values = toCollection(field.getFieldValue());
+            } else {
+                continue;
+            }
+            Set<String> tableNames = findShardingTableNamesByValues(values);
+            if (tableNames != null) {
+                return tableNames;
+            }
+        }
+        return null;
+    }
+
+    /** 根据更新内容中分表字段的值查找实际表(不支持修改分表字段的值), 无法确定时返回null **/
+    protected Set<String> findShardingTableNames(DbUpdate entity) {
+        if (entity == null || entity.isEmpty()) {
+            return null;
+        }
+        String shardingField = shardingStrategy.getShardingField();
+        DbBaseOperator set = DbTools.getUpdateOperator("Set");
+        Iterator<DbCondition> iterator = entity.iterator();
+        while (iterator.hasNext()) {
+            DbCondition condition = iterator.next();
+            if (condition instanceof DbField) {
+                DbField field = (DbField) condition;
+                String operateType = VerifyTools.nvl(field.getOperateType(), "Set");
+                if (shardingField.equals(field.getFieldName()) && set.matchers(operateType)) {
+                    return findShardingTableNamesByValues(Collections.singletonList(field.getFieldValue()));
+                }
+            }
+        }
+        return null;
+    }
+
+    private Set<String> findShardingTableNamesByValues(Collection<?> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        Set<String> tableNames = new LinkedHashSet<>();
+        for (Object value : values) {
+            String tableName = getShardingTableName(value);
+            if (tableName == null) {
+                return null;
+            }
+            tableNames.add(tableName);
+        }
+        return tableNames;
+    }
+
+    private static Collection<?> toCollection(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        } else if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        } else {
+            return Collections.singletonList(value);
+        }
+    }
+
+    @Override
+    protected String executeInsert(Object object, final boolean fillCreateParams) throws ServiceException {
+        // 先在逻辑表上完成转换和填充(主键按逻辑表生成), 再根据分表字段确定实际表
+        final PkEntity pe = convertAndFillCreateParams(object, fillCreateParams);
+        String shardingTableName = requireShardingTableName(pe.getEntity());
+        return executeOnTable(shardingTableName, new ShardingAction<String>() {
+
+            @Override
+            public String execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.executeInsert(pe, false);
+            }
+        });
+    }
+
+    @Override
+    protected List<String> doBatchInserts(List<?> entities, final boolean fillCreateParams) throws ServiceException {
+        // 按实际表分组, 保持原来的顺序
+        Map<String, List<Integer>> groupIndexes = new LinkedHashMap<>();
+        Map<String, List<PkEntity>> groupContents = new LinkedHashMap<>();
+        for (int i = 0, size = entities.size(); i < size; i++) {
+            PkEntity pe = convertAndFillCreateParams(entities.get(i), fillCreateParams);
+            String shardingTableName = requireShardingTableName(pe.getEntity());
+            if (!groupContents.containsKey(shardingTableName)) {
+                groupIndexes.put(shardingTableName, new ArrayList<Integer>());
+                groupContents.put(shardingTableName, new ArrayList<PkEntity>());
+            }
+            groupIndexes.get(shardingTableName).add(i);
+            groupContents.get(shardingTableName).add(pe);
+        }
+
+        String[] ids = new String[entities.size()];
+        for (Map.Entry<String, List<PkEntity>> entry : groupContents.entrySet()) {
+            final List<PkEntity> contents = entry.getValue();
+            List<String> groupIds = executeOnTable(entry.getKey(), new ShardingAction<List<String>>() {
+
+                @Override
+                public List<String> execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doBatchInserts(contents, false);
+                }
+            });
+            List<Integer> indexes = groupIndexes.get(entry.getKey());
+            for (int i = 0; i < indexes.size() && groupIds != null && i < groupIds.size(); i++) {
+                ids[indexes.get(i)] = groupIds.get(i);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(ids));
+    }
+
+    @Override
+    protected List<String> doBatchUpserts(List<?> entities, boolean fillParams) throws ServiceException {
+        // 与批量新增一致, 先在逻辑表上完成转换和填充, 再按实际表分组, 保持原来的顺序
+        Map<String, List<Integer>> groupIndexes = new LinkedHashMap<>();
+        Map<String, List<PkEntity>> groupContents = new LinkedHashMap<>();
+        for (int i = 0, size = entities.size(); i < size; i++) {
+            PkEntity pe = convertAndFillUpsertParams(entities.get(i), fillParams);
+            String shardingTableName = requireShardingTableName(pe.getEntity());
+            if (!groupContents.containsKey(shardingTableName)) {
+                groupIndexes.put(shardingTableName, new ArrayList<Integer>());
+                groupContents.put(shardingTableName, new ArrayList<PkEntity>());
+            }
+            groupIndexes.get(shardingTableName).add(i);
+            groupContents.get(shardingTableName).add(pe);
+        }
+
+        String[] ids = new String[entities.size()];
+        for (Map.Entry<String, List<PkEntity>> entry : groupContents.entrySet()) {
+            final List<PkEntity> contents = entry.getValue();
+            List<String> groupIds = executeOnTable(entry.getKey(), new ShardingAction<List<String>>() {
+
+                @Override
+                public List<String> execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doBatchUpserts(contents, false);
+                }
+            });
+            List<Integer> indexes = groupIndexes.get(entry.getKey());
+            for (int i = 0; i < indexes.size() && groupIds != null && i < groupIds.size(); i++) {
+                ids[indexes.get(i)] = groupIds.get(i);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(ids));
+    }
+
+    /**
+     * 修改操作, 按以下顺序确定实际表:<br>
+     * 1. WHERE条件中分表字段的等于或IN条件;<br>
+     * 2. 更新内容中分表字段的值(分表字段不能修改, 因此视为记录当前所在的实际表, 其他实际表中的记录不会被修改);<br>
+     * 3. 以上都无法确定时, 在所有实际表上依次执行
+     */
+    @Override
+    protected int doUpdate(final DbUpdate readyEntity, final DbWhere readyWhere, final List<String> ids,
+            boolean errorOnUnaffected) throws ServiceException {
+        Set<String> tableNames = findShardingTableNames(readyWhere);
+        if (tableNames == null) {
+            tableNames = findShardingTableNames(readyEntity);
+        }
+        List<String> shardingTableNames;
+        if (tableNames == null) {
+            shardingTableNames = getAllShardingTableNames();
+        } else {
+            shardingTableNames = new ArrayList<>(tableNames);
+        }
+        // 修改操作依次执行, 以便在同一事务中
+        int rows = 0;
+        for (String shardingTableName : shardingTableNames) {
+            rows += executeOnTable(shardingTableName, new ShardingAction<Integer>() {
+
+                @Override
+                public Integer execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doUpdate(readyEntity, readyWhere, ids, false);
+                }
+            });
+        }
+        if (rows == 0 && errorOnUnaffected) {
+            throw new ServiceException(DbErrorCode.DB_AFFECTED_ROWS_IS_ZERO);
+        }
+        return rows;
+    }
+
+    @Override
+    protected int doBatchUpdates(List<?> entities, boolean fillUpdateParams) throws ServiceException {
+        // 按实际表分组, 无法确定实际表的记录在所有实际表上执行
+        Map<String, List<PkEntity>> groupContents = new LinkedHashMap<>();
+        List<PkEntity> unresolved = new ArrayList<>();
+        String shardingField = shardingStrategy.getShardingField();
+        for (Object item : entities) {
+            PkEntity pe = convertAndFillUpdateParams(item, fillUpdateParams);
+            String shardingTableName = getShardingTableName(pe.getEntity().get(shardingField));
+            if (shardingTableName == null) {
+                unresolved.add(pe);
+                continue;
+            }
+            if (!groupContents.containsKey(shardingTableName)) {
+                groupContents.put(shardingTableName, new ArrayList<PkEntity>());
+            }
+            groupContents.get(shardingTableName).add(pe);
+        }
+        if (!unresolved.isEmpty()) {
+            for (String shardingTableName : getAllShardingTableNames()) {
+                if (!groupContents.containsKey(shardingTableName)) {
+                    groupContents.put(shardingTableName, new ArrayList<PkEntity>());
+                }
+                groupContents.get(shardingTableName).addAll(unresolved);
+            }
+        }
+
+        int rows = 0;
+        for (Map.Entry<String, List<PkEntity>> entry : groupContents.entrySet()) {
+            final List<PkEntity> contents = entry.getValue();
+            rows += executeOnTable(entry.getKey(), new ShardingAction<Integer>() {
+
+                @Override
+                public Integer execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doBatchUpdates(contents, false);
+                }
+            });
+        }
+        return rows;
+    }
+
+    @Override
+    protected int doDelete(final DbWhere readyWhere, final List<String> ids, final boolean physical,
+            final boolean fillUpdateParams, boolean errorOnUnaffected) throws ServiceException {
+        // 修改操作依次执行, 以便在同一事务中
+        int rows = 0;
+        for (String shardingTableName : resolveShardingTableNames(readyWhere)) {
+            rows += executeOnTable(shardingTableName, new ShardingAction<Integer>() {
+
+                @Override
+                public Integer execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doDelete(readyWhere, ids, physical, fillUpdateParams, false);
+                }
+            });
+        }
+        if (rows == 0 && errorOnUnaffected) {
+            throw new ServiceException(DbErrorCode.DB_AFFECTED_ROWS_IS_ZERO);
+        }
+        return rows;
+    }
+
+    @Override
+    protected T doFind(final Fields fields, final DbWhere where) {
+        List<T> results = queryOnTables(resolveShardingTableNames(where), new ShardingAction<T>() {
+
+            @Override
+            public T execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.doFind(fields, where);
+            }
+        });
+        T found = null;
+        int count = 0;
+        for (T item : results) {
+            if (item != null) {
+                found = item;
+                count++;
+            }
+        }
+        if (count > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, count);
+        }
+        return found;
+    }
+
+    @Override
+    protected List<T> doList(final Fields fields, final DbWhere where, final Orderings orderings) {
+        List<List<T>> results = queryOnTables(resolveShardingTableNames(where), new ShardingAction<List<T>>() {
+
+            @Override
+            public List<T> execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.doList(fields, where, orderings);
+            }
+        });
+        return mergeOrderedResults(results, orderings);
+    }
+
+    @Override
+    protected PageList<T> doList(final Fields fields, final DbWhere where, final OrderPaging odpg) {
+        List<String> shardingTableNames = resolveShardingTableNames(where);
+        if (shardingTableNames.size() == 1) {
+            return executeOnTable(shardingTableNames.get(0), new ShardingAction<PageList<T>>() {
+
+                @Override
+                public PageList<T> execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doList(fields, where, odpg);
+                }
+            });
+        }
+        if (!odpg.isPaging()) {
+            List<T> list = doList(fields, where, odpg.getOrderings());
+            return new PageList<T>(list, list.size());
+        }
+
+        // 每个实际表都查询从第1条至当前页最后1条的数据, 合并排序后再截取当前页
+        final int start = Math.max(0, odpg.getStart());
+        final int end = start + odpg.getRows();
+        final boolean needCount = odpg.isNeedCount();
+        List<PageList<T>> results = queryOnTables(shardingTableNames, new ShardingAction<PageList<T>>() {
+
+            @Override
+            public PageList<T> execute(String shardingTableName) {
+                // 每个实际表使用各自的分页参数, 因为查询时会设置总数
+                OrderPaging paging = OrderPaging.of(new Paging(1, end, needCount), odpg.getOrderings());
+                return ShardingCrudDaoImpl.super.doList(fields, where, paging);
+            }
+        });
+        int total = 0;
+        List<List<T>> lists = new ArrayList<>();
+        for (PageList<T> item : results) {
+            if (item != null) {
+                lists.add(item);
+                total += item.getTotal() == null ? item.size() : item.getTotal();
+            }
+        }
+        List<T> merged = mergeOrderedResults(lists, odpg.getOrderings());
+        List<T> page = new ArrayList<>(merged.subList(Math.min(start, merged.size()), Math.min(end, merged.size())));
+        if (needCount) {
+            odpg.setTotal(total);
+        } else if (odpg.getTotal() != null) {
+            total = odpg.getTotal();
+        }
+        return new PageList<T>(page, total);
+    }
+
+    @Override
+    protected KeysetPageList<T> doList(final Fields fields, final DbWhere where, final KeysetPaging paging) {
+        String shardingTableName = requireSingleShardingTable(where, "KeysetPaging");
+        return executeOnTable(shardingTableName, new ShardingAction<KeysetPageList<T>>() {
+
+            @Override
+            public KeysetPageList<T> execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.doList(fields, where, paging);
+            }
+        });
+    }
+
+    @Override
+    protected <V> PageList<V> doListFieldValues(final String fieldName, final boolean distinct, final DbWhere where,
+            final OrderPaging odpg, final Class<V> valueClazz) throws ServiceException {
+        List<String> shardingTableNames = resolveShardingTableNames(where);
+        ShardingAction<PageList<V>> action = new ShardingAction<PageList<V>>() {
+
+            @Override
+            public PageList<V> execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.doListFieldValues(fieldName, distinct, where, odpg, valueClazz);
+            }
+        };
+        if (shardingTableNames.size() == 1) {
+            return executeOnTable(shardingTableNames.get(0), action);
+        }
+        // 跨分表时只支持不分页且按当前字段排序(或不排序)
+        Orderings orderings = odpg == null ? null : odpg.getOrderings();
+        OrderType orderType = null;
+        if (orderings != null) {
+            for (Ordering item : orderings) {
+                if (!fieldName.equals(item.getOrderBy())) {
+                    throw unsupportedShardingOperation("ListFieldValuesOrderByOtherField");
+                } else if (orderType == null) {
+                    orderType = item.getOrderType();
+                }
+            }
+        }
+        if (odpg != null && odpg.isPaging()) {
+            throw unsupportedShardingOperation("ListFieldValuesPaging");
+        }
+        List<PageList<V>> results = queryOnTables(shardingTableNames, action);
+        Collection<V> values = distinct ? new LinkedHashSet<V>() : new ArrayList<V>();
+        for (PageList<V> item : results) {
+            if (item != null) {
+                values.addAll(item);
+            }
+        }
+        List<V> list = new ArrayList<>(values);
+        if (orderType != null) {
+            final boolean desc = orderType == OrderType.DESC;
+            Collections.sort(list, new Comparator<V>() {
+
+                @Override
+                public int compare(V o1, V o2) {
+                    int result = compareValues(o1, o2);
+                    return desc ? -result : result;
+                }
+            });
+        }
+        return new PageList<V>(list, list.size());
+    }
+
+    @Override
+    protected int doCount(final DbWhere readyWhere) throws ServiceException {
+        List<Integer> results = queryOnTables(resolveShardingTableNames(readyWhere), new ShardingAction<Integer>() {
+
+            @Override
+            public Integer execute(String shardingTableName) {
+                return ShardingCrudDaoImpl.super.doCount(readyWhere);
+            }
+        });
+        int total = 0;
+        for (Integer item : results) {
+            total += item == null ? 0 : item;
+        }
+        return total;
+    }
+
+    @Override
+    protected Map<String, Integer> doGroupCount(final String groupBy, final DbWhere readyWhere)
+            throws ServiceException {
+        List<String> shardingTableNames = resolveShardingTableNames(readyWhere);
+        List<Map<String, Integer>> results = queryOnTables(shardingTableNames,
+            new ShardingAction<Map<String, Integer>>() {
+
+                @Override
+                public Map<String, Integer> execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doGroupCount(groupBy, readyWhere);
+                }
+            });
+        Map<String, Integer> merged = new LinkedHashMap<>();
+        for (Map<String, Integer> item : results) {
+            if (item == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> entry : item.entrySet()) {
+                Integer older = merged.get(entry.getKey());
+                int value = entry.getValue() == null ? 0 : entry.getValue();
+                merged.put(entry.getKey(), older == null ? value : older + value);
+            }
+        }
+        return merged;
+    }
+
+    /** 跨分表时依次遍历各实际表, 排序只在各表内有效 **/
+    @Override
+    public int forEach(final Fields fields, DbWhere where, final Orderings orderings,
+            final RowDataHandler<T> handler) throws ServiceException {
+        final DbWhere readyWhere = checkWhere(where);
+        entityFieldFillExecutor.fillQueryWhereDataState(readyWhere, getMajorTableAlias());
+        entityFieldFillExecutor.fillQueryWhereParams(readyWhere, getMajorTableAlias());
+        int rows = 0;
+        for (String shardingTableName : resolveShardingTableNames(readyWhere)) {
+            rows += executeOnTable(shardingTableName, new ShardingAction<Integer>() {
+
+                @Override
+                public Integer execute(String shardingTableName) {
+                    SqlBuffer buffer = getSqlBuilder().buildListSql(fields, readyWhere, orderings);
+                    return jdbc.forEach(buffer, rowToBeanMapper, handler);
+                }
+            });
+        }
+        return rows;
+    }
+
+    /** 跨分表时依次遍历各实际表, 排序只在各表内有效 **/
+    @Override
+    public int forEachBatch(final Fields fields, DbWhere where, final Orderings orderings, final int batchSize,
+            final BatchDataHandler<T> handler) throws ServiceException {
+        final DbWhere readyWhere = checkWhere(where);
+        entityFieldFillExecutor.fillQueryWhereDataState(readyWhere, getMajorTableAlias());
+        entityFieldFillExecutor.fillQueryWhereParams(readyWhere, getMajorTableAlias());
+        int rows = 0;
+        for (String shardingTableName : resolveShardingTableNames(readyWhere)) {
+            rows += executeOnTable(shardingTableName, new ShardingAction<Integer>() {
+
+                @Override
+                public Integer execute(String shardingTableName) {
+                    SqlBuffer buffer = getSqlBuilder().buildListSql(fields, readyWhere, orderings);
+                    return jdbc.forEachBatch(buffer, batchSize, rowToBeanMapper, handler);
+                }
+            });
+        }
+        return rows;
+    }
+
+    @Override
+    protected <R> List<R> doListChildren(final List<String> startCodes, final String codeField,
+            final String parentField, final Fields selectFields, final DbWhere filterWhere, final DbWhere searchWhere,
+            final Orderings orderings, final Class<R> resultType) throws ServiceException {
+        Set<String> tableNames = findShardingTableNames(filterWhere);
+        if (tableNames == null) {
+            tableNames = findShardingTableNames(searchWhere);
+        }
+        List<String> shardingTableNames;
+        if (tableNames == null) {
+            shardingTableNames = getAllShardingTableNames();
+        } else {
+            shardingTableNames = new ArrayList<>(tableNames);
+        }
+        // 递归查询通过SqlDao执行, 各实际表依次执行
+        List<R> results = new ArrayList<>();
+        for (String shardingTableName : shardingTableNames) {
+            List<R> list = executeOnTable(shardingTableName, new ShardingAction<List<R>>() {
+
+                @Override
+                public List<R> execute(String shardingTableName) {
+                    return ShardingCrudDaoImpl.super.doListChildren(startCodes, codeField, parentField,
+                        selectFields, filterWhere, searchWhere, orderings, resultType);
+                }
+            });
+            if (list != null) {
+                results.addAll(list);
+            }
+        }
+        return results;
+    }
+
+    /** 根据WHERE条件确定唯一的实际表, 无法确定时报错 **/
+    protected String requireSingleShardingTable(DbWhere where, String operation) {
+        Set<String> tableNames = findShardingTableNames(where);
+        if (tableNames == null || tableNames.size() != 1) {
+            throw unsupportedShardingOperation(operation);
+        }
+        return tableNames.iterator().next();
+    }
+
+    private ServiceException unsupportedShardingOperation(String operation) {
+        String details = operation + ", class=" + beanClass.getName();
+        return new ServiceException(DbErrorCode.DB_UNSUPPORTED_SHARDING_OPERATION, details);
+    }
+
+    /**
+     * 合并多个实际表的查询结果, 有排序字段时按排序字段重新排序(各表的结果已经有序, 排序是稳定的)
+     *
+     * @param results 各实际表的查询结果
+     * @param orderings 排序字段
+     * @return 合并后的结果
+     */
+    protected List<T> mergeOrderedResults(List<List<T>> results, Orderings orderings) {
+        List<T> merged = new ArrayList<>();
+        if (orderings == null || orderings.isEmpty() || results.size() <= 1) {
+            for (List<T> item : results) {
+                if (item != null) {
+                    merged.addAll(item);
+                }
+            }
+            return merged;
+        }
+
+        final List<Ordering> orderItems = new ArrayList<>();
+        for (Ordering item : orderings) {
+            orderItems.add(item);
+        }
+        // 每条记录只转换一次
+        BeanToMapConverter converter = DbTools.getBeanToMapConverter();
+        List<SortItem<T>> sortItems = new ArrayList<>();
+        for (List<T> list : results) {
+            if (list == null) {
+                continue;
+            }
+            for (T row : list) {
+                Map<String, Object> map = converter.convert(row, false, false);
+                Object[] keys = new Object[orderItems.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = map.get(orderItems.get(i).getOrderBy());
+                }
+                sortItems.add(new SortItem<>(row, keys));
+            }
+        }
+        Collections.sort(sortItems, new Comparator<SortItem<T>>() {
+
+            @Override
+            public int compare(SortItem<T> o1, SortItem<T> o2) {
+                for (int i = 0; i < orderItems.size(); i++) {
+                    int result = compareValues(o1.keys[i], o2.keys[i]);
+                    if (result != 0) {
+                        return orderItems.get(i).getOrderType() == OrderType.DESC ? -result : result;
+                    }
+                }
+                return 0;
+            }
+        });
+        for (SortItem<T> item : sortItems) {
+            merged.add(item.row);
+        }
+        return merged;
+    }
+
+    /** 比较两个字段值, 空值最小 **/
+    @SuppressWarnings("unchecked")
+    protected static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        } else if (a == null) {
+            return -1;
+        } else if (b == null) {
+            return 1;
+        } else if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        } else if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable<Object>) a).compareTo(b);
+        } else {
+            return a.toString().compareTo(b.toString());
+        }
+    }
+
+    private static class SortItem<T> {
+
+        private final T row;
+        private final Object[] keys;
+
+        public SortItem(T row, Object[] keys) {
+            this.row = row;
+            this.keys = keys;
+        }
+    }
+}
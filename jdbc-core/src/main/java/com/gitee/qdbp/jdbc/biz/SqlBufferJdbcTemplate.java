@@ -2,24 +2,29 @@ package com.gitee.qdbp.jdbc.biz;
 
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.SqlProvider;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
-import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
-import org.springframework.jdbc.core.namedparam.ParsedSql;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.jdbc.support.JdbcAccessor;
@@ -33,13 +38,22 @@ import com.gitee.qdbp.jdbc.api.SqlDao;
 import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
 import com.gitee.qdbp.jdbc.result.FirstColumnMapper;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
+import com.gitee.qdbp.jdbc.result.RowMapperExtractor;
 import com.gitee.qdbp.jdbc.result.RowToBeanMapper;
+import com.gitee.qdbp.jdbc.result.RowToBeanMappingPlan;
 import com.gitee.qdbp.jdbc.result.TableRowToBeanMapper;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
 import com.gitee.qdbp.jdbc.utils.CountSqlParser;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
 import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.LruCache;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
+import com.gitee.qdbp.jdbc.utils.ReadReplicaRouter;
 import com.gitee.qdbp.tools.files.PathTools;
 import com.gitee.qdbp.tools.utils.ConvertTools;
 import com.gitee.qdbp.tools.utils.ReflectTools;
@@ -61,6 +75,9 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
     private SqlDao sqlDao;
     private NamedParameterJdbcOperations namedParameterJdbcOperations;
     protected CountSqlParser countSqlParser = new CountSqlParser();
+    private final QueryResultCache queryResultCache = new QueryResultCache(1000);
+    /** 读写分离的只读库路由, 没有配置只读库时为null **/
+    private ReadReplicaRouter readReplicaRouter;
 
     public SqlBufferJdbcTemplate() {
     }
@@ -77,6 +94,31 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         this.namedParameterJdbcOperations = namedParameterJdbcOperations;
     }
 
+    /**
+     * 设置读写分离的只读库<br>
+     * 查询语句路由到只读库; 增删改/事务中的操作/当前线程增删改之后的读己之写窗口期内的查询使用主库<br>
+     * 只读库应与主库是相同类型和版本的数据库, 选择策略和读己之写窗口期见qdbc.replica.*配置项
+     *
+     * @param replicas 只读库
+     * @since 3.2.2
+     */
+    public void setReadReplicas(List<NamedParameterJdbcOperations> replicas) {
+        if (replicas == null || replicas.isEmpty()) {
+            this.readReplicaRouter = null;
+            return;
+        }
+        List<JdbcOperations> operations = new ArrayList<>();
+        for (NamedParameterJdbcOperations item : replicas) {
+            operations.add(item.getJdbcOperations());
+        }
+        this.readReplicaRouter = new ReadReplicaRouter(operations);
+    }
+
+    @Override
+    public ReadReplicaRouter getReadReplicaRouter() {
+        return readReplicaRouter;
+    }
+
     private boolean inited = false;
 
     protected void init() {
@@ -106,6 +148,30 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
             sqlDialect = DbTools.buildSqlDialect(dbVersion);
             log.debug("Database version: {}", dbVersion);
         }
+        // 统计语句缓存的容量
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), dbVersion);
+        Integer countSqlCacheSize = config.getInteger("qdbc.query.countSqlCache.maxSize", null);
+        if (countSqlCacheSize != null && countSqlCacheSize != COUNT_SQL_CACHE.getMaxSize()) {
+            COUNT_SQL_CACHE.setMaxSize(countSqlCacheSize);
+        }
+        // SQL字符串解析结果缓存的容量
+        LruCache<String, ?> parsedSqlCache = SqlFragmentContainer.defaults().getParsedSqlCache();
+        Integer parseCacheSize = config.getInteger("qdbc.sql.parseCache.maxSize", null);
+        if (parseCacheSize != null && parseCacheSize != parsedSqlCache.getMaxSize()) {
+            parsedSqlCache.setMaxSize(parseCacheSize);
+        }
+        // 结果集映射计划缓存的容量
+        LruCache<String, ?> planCache = RowToBeanMappingPlan.getPlanCache();
+        Integer planCacheSize = config.getInteger("qdbc.result.mappingPlanCache.maxSize", null);
+        if (planCacheSize != null && planCacheSize != planCache.getMaxSize()) {
+            planCache.setMaxSize(planCacheSize);
+        }
+        // 查询结果缓存
+        queryResultCache.init(config);
+        // 读写分离
+        if (readReplicaRouter != null) {
+            readReplicaRouter.init(config);
+        }
         if (this.sqlDao == null) {
             SqlFragmentContainer container = SqlFragmentContainer.defaults();
             this.sqlDao = new SqlDaoImpl(container, this);
@@ -143,10 +209,11 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql statement:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+        markWritten();
         try {
-            T result = namedParameterJdbcOperations.execute(sql, params, action);
+            PreparedStatementCreator creator = new SimplePreparedStatementCreator(prepared, false);
+            T result = getJdbcOperations().execute(creator, action);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", result == null ? 0 : 1, time);
@@ -172,10 +239,9 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            T result = namedParameterJdbcOperations.query(sql, params, rse);
+            T result = getReadJdbcOperations().query(prepared.getSql(), prepared.getValues(), rse);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", result == null ? 0 : 1, time);
@@ -202,10 +268,9 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            namedParameterJdbcOperations.query(sql, params, rch);
+            getReadJdbcOperations().query(prepared.getSql(), prepared.getValues(), rch);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query, elapsed time {}ms.", time);
@@ -225,10 +290,10 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            List<T> list = namedParameterJdbcOperations.query(sql, params, rowMapper);
+            RowMapperExtractor<T> rse = new RowMapperExtractor<>(rowMapper);
+            List<T> list = getReadJdbcOperations().query(prepared.getSql(), prepared.getValues(), rse);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", list == null ? 0 : list.size(), time);
@@ -249,10 +314,11 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            T result = namedParameterJdbcOperations.queryForObject(sql, params, rowMapper);
+            RowMapperExtractor<T> rse = new RowMapperExtractor<>(rowMapper, 1);
+            List<T> list = getReadJdbcOperations().query(prepared.getSql(), prepared.getValues(), rse);
+            T result = DataAccessUtils.requiredSingleResult(list);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", result == null ? 0 : 1, time);
@@ -283,9 +349,8 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
         try {
-            String sql = sb.getPreparedSqlString(sqlDialect);
-            Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
-            T result = namedParameterJdbcOperations.queryForObject(sql, params, resultType);
+            PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+            T result = getReadJdbcOperations().queryForObject(prepared.getSql(), prepared.getValues(), resultType);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 queryForObjectLogResult(time, result);
@@ -330,10 +395,9 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            Map<String, Object> result = namedParameterJdbcOperations.queryForMap(sql, params);
+            Map<String, Object> result = getReadJdbcOperations().queryForMap(prepared.getSql(), prepared.getValues());
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", result == null ? 0 : 1, time);
@@ -360,14 +424,14 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
             List<T> list;
             if (ReflectTools.isPrimitive(elementType, false)) {
-                list = namedParameterJdbcOperations.queryForList(sql, params, elementType);
+                list = getReadJdbcOperations().queryForList(prepared.getSql(), prepared.getValues(), elementType);
             } else {
-                list = namedParameterJdbcOperations.query(sql, params, newRowToBeanMapper(elementType));
+                RowMapperExtractor<T> rse = new RowMapperExtractor<>(newRowToBeanMapper(elementType));
+                list = getReadJdbcOperations().query(prepared.getSql(), prepared.getValues(), rse);
             }
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
@@ -389,10 +453,10 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            List<Map<String, Object>> list = namedParameterJdbcOperations.queryForList(sql, params);
+            JdbcOperations jdbc = getReadJdbcOperations();
+            List<Map<String, Object>> list = jdbc.queryForList(prepared.getSql(), prepared.getValues());
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query returns {} rows, elapsed time {}ms.", list == null ? 0 : list.size(), time);
@@ -413,10 +477,9 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql query:\n{}", logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
         try {
-            SqlRowSet result = namedParameterJdbcOperations.queryForRowSet(sql, params);
+            SqlRowSet result = getReadJdbcOperations().queryForRowSet(prepared.getSql(), prepared.getValues());
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql query, elapsed time {}ms.", time);
@@ -429,6 +492,125 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         }
     }
 
+    @Override
+    public <T> int forEach(SqlBuffer sb, RowMapper<T> rowMapper, RowDataHandler<T> handler) throws ServiceException {
+        return forEach(sb, getDefaultFetchSize(), rowMapper, handler);
+    }
+
+    @Override
+    public <T> int forEach(SqlBuffer sb, int fetchSize, RowMapper<T> rowMapper, RowDataHandler<T> handler)
+            throws ServiceException {
+        VerifyTools.requireNotBlank(sb, "sqlBuffer");
+        VerifyTools.requireNonNull(rowMapper, "rowMapper");
+        VerifyTools.requireNonNull(handler, "handler");
+        long startTime = System.currentTimeMillis();
+        String logsql = null;
+        if (log.isDebugEnabled()) {
+            log.debug("Executing sql query for each:\n{}", logsql = getFormattedSqlString(sb, 1));
+        }
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+        PreparedStatementCreator creator = new SimplePreparedStatementCreator(prepared, fetchSize);
+        try {
+            Integer rows = getReadJdbcOperations().query(creator, new EachRowExtractor<>(rowMapper, handler));
+            if (log.isDebugEnabled()) {
+                long time = System.currentTimeMillis() - startTime;
+                log.debug("Sql query for each handled {} rows, elapsed time {}ms.", rows, time);
+            }
+            return rows == null ? 0 : rows;
+        } catch (DataAccessException e) {
+            String details = "Sql:\n" + (logsql != null ? logsql : getFormattedSqlString(sb, 1));
+            details = StringTools.concat('\n', details, e.getCause() == null ? null : e.getCause().getMessage());
+            throw new ServiceException(ResultCode.DB_SELECT_ERROR, details, e);
+        }
+    }
+
+    @Override
+    public <T> int forEachBatch(SqlBuffer sb, int batchSize, RowMapper<T> rowMapper, BatchDataHandler<T> handler)
+            throws ServiceException {
+        VerifyTools.requireNonNull(handler, "handler");
+        BatchRowHandler<T> batchRowHandler = new BatchRowHandler<>(batchSize, handler);
+        int rows = forEach(sb, getDefaultFetchSize(), rowMapper, batchRowHandler);
+        // 处理最后一批
+        batchRowHandler.flush();
+        return rows;
+    }
+
+    /**
+     * 游标查询的默认fetchSize, 取自qdbc.query.fetchSize配置(可按数据库类型配置)<br>
+     * MySQL/MariaDB驱动只有fetchSize=Integer.MIN_VALUE时才会逐行读取(除非连接参数指定了useCursorFetch=true)
+     * 
+     * @return fetchSize
+     */
+    protected int getDefaultFetchSize() {
+        DbVersion version = getDbVersion();
+        int defaultFetchSize = version.matchesWith("mysql,mariadb") ? Integer.MIN_VALUE : 1000;
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), version);
+        return config.getInteger("qdbc.query.fetchSize", defaultFetchSize);
+    }
+
+    /** 逐行读取结果集并交给RowDataHandler处理 **/
+    private static class EachRowExtractor<T> implements ResultSetExtractor<Integer> {
+
+        private final RowMapper<T> rowMapper;
+        private final RowDataHandler<T> handler;
+
+        public EachRowExtractor(RowMapper<T> rowMapper, RowDataHandler<T> handler) {
+            this.rowMapper = rowMapper;
+            this.handler = handler;
+        }
+
+        @Override
+        public Integer extractData(ResultSet rs) throws SQLException {
+            RowMapper<T> mapper = null;
+            int rowNum = 0;
+            while (rs.next()) {
+                if (mapper == null) {
+                    mapper = RowMapperExtractor.bind(rowMapper, rs);
+                }
+                T row = mapper.mapRow(rs, rowNum);
+                boolean next = handler.handle(row, rowNum++);
+                if (!next) {
+                    break;
+                }
+            }
+            return rowNum;
+        }
+    }
+
+    /** 将逐行数据按批次汇总后交给BatchDataHandler处理 **/
+    private static class BatchRowHandler<T> implements RowDataHandler<T> {
+
+        private final int batchSize;
+        private final BatchDataHandler<T> handler;
+        private List<T> rows;
+        private int batchIndex;
+        private boolean stopped;
+
+        public BatchRowHandler(int batchSize, BatchDataHandler<T> handler) {
+            this.batchSize = batchSize <= 0 ? 1000 : batchSize;
+            this.handler = handler;
+            this.rows = new ArrayList<>(this.batchSize);
+        }
+
+        @Override
+        public boolean handle(T row, int rowNum) {
+            rows.add(row);
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+            return !stopped;
+        }
+
+        public void flush() {
+            if (stopped || rows.isEmpty()) {
+                return;
+            }
+            List<T> current = rows;
+            rows = new ArrayList<>(batchSize);
+            stopped = !handler.handle(current, batchIndex++);
+        }
+    }
+
     @Override
     public int insert(SqlBuffer sb) throws ServiceException {
         VerifyTools.requireNotBlank(sb, "sqlBuffer");
@@ -459,10 +641,10 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql {}:\n{}", desc, logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+        markWritten();
         try {
-            int rows = namedParameterJdbcOperations.update(sql, params);
+            int rows = getJdbcOperations().update(prepared.getSql(), prepared.getValues());
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql {} affected " + rows + " rows, elapsed time {}ms", desc, time);
@@ -482,11 +664,11 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql {}:\n{}", desc, logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
-        SqlParameterSource msps = new MapSqlParameterSource(params);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+        PreparedStatementCreator creator = new SimplePreparedStatementCreator(prepared, true);
+        markWritten();
         try {
-            int rows = namedParameterJdbcOperations.update(sql, msps, generatedKeyHolder);
+            int rows = getJdbcOperations().update(creator, generatedKeyHolder);
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql {} affected {} rows, elapsed time {}ms", desc, rows, time);
@@ -517,10 +699,10 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         if (log.isDebugEnabled()) {
             log.debug("Executing sql batch {}:\n{}", operate, logsql = getFormattedSqlString(sb, 1));
         }
-        String sql = sb.getPreparedSqlString(sqlDialect);
-        Map<String, Object> params = sb.getPreparedVariables(sqlDialect);
+        PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+        markWritten();
         try {
-            int rows = namedParameterJdbcOperations.update(sql, params);
+            int rows = getJdbcOperations().update(prepared.getSql(), prepared.getValues());
             if (log.isDebugEnabled()) {
                 long time = System.currentTimeMillis() - startTime;
                 log.debug("Sql batch {} affected {} rows, elapsed time {}ms.", operate, rows, time);
@@ -533,6 +715,93 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         }
     }
 
+    @Override
+    public int batchInsert(List<SqlBuffer> sbs, int flushSize) throws ServiceException {
+        VerifyTools.requireNotBlank(sbs, "sqlBuffers");
+        return doJdbcBatchExecute(sbs, flushSize, "insert", ResultCode.DB_INSERT_ERROR);
+    }
+
+    @Override
+    public int batchUpdate(List<SqlBuffer> sbs, int flushSize) throws ServiceException {
+        VerifyTools.requireNotBlank(sbs, "sqlBuffers");
+        return doJdbcBatchExecute(sbs, flushSize, "update", ResultCode.DB_UPDATE_ERROR);
+    }
+
+    protected int doJdbcBatchExecute(List<SqlBuffer> sbs, int flushSize, String operate, IResultMessage errorCode)
+            throws ServiceException {
+        long startTime = System.currentTimeMillis();
+        // 按预编译SQL分组, 相同的SQL只需要预编译一次
+        Map<String, List<SqlBuffer>> groups = new LinkedHashMap<>();
+        Map<String, List<Object[]>> groupValues = new LinkedHashMap<>();
+        for (SqlBuffer sb : sbs) {
+            PreparedSql prepared = sb.getPreparedSql(sqlDialect);
+            String sql = prepared.getSql();
+            List<SqlBuffer> group = groups.get(sql);
+            if (group == null) {
+                groups.put(sql, group = new ArrayList<>());
+                groupValues.put(sql, new ArrayList<Object[]>());
+            }
+            group.add(sb);
+            groupValues.get(sql).add(prepared.getValues());
+        }
+        int size = flushSize <= 0 ? Integer.MAX_VALUE : flushSize;
+        int rows = 0;
+        for (Map.Entry<String, List<SqlBuffer>> entry : groups.entrySet()) {
+            String sql = entry.getKey();
+            List<SqlBuffer> group = entry.getValue();
+            List<Object[]> values = groupValues.get(sql);
+            for (int i = 0, total = group.size(); i < total; i += size) {
+                int end = (int) Math.min((long) i + size, total);
+                rows += doJdbcBatchExecute(sql, group.subList(i, end), values.subList(i, end), operate, errorCode);
+            }
+        }
+        if (log.isDebugEnabled() && groups.size() > 1) {
+            long time = System.currentTimeMillis() - startTime;
+            log.debug("Sql batch {} total {} groups affected {} rows, elapsed time {}ms.", operate, groups.size(),
+                rows, time);
+        }
+        return rows;
+    }
+
+    private int doJdbcBatchExecute(String sql, List<SqlBuffer> sbs, List<Object[]> values, String operate,
+            IResultMessage errorCode) throws ServiceException {
+        long startTime = System.currentTimeMillis();
+        String logsql = null;
+        if (log.isDebugEnabled()) {
+            logsql = getFormattedSqlString(sbs.get(0), 1);
+            log.debug("Executing jdbc batch {}, {} entries, the first is:\n{}", operate, sbs.size(), logsql);
+        }
+        markWritten();
+        try {
+            int[] results = getJdbcOperations().batchUpdate(sql, values);
+            int rows = sumBatchAffectedRows(results);
+            if (log.isDebugEnabled()) {
+                long time = System.currentTimeMillis() - startTime;
+                log.debug("Jdbc batch {} affected {} rows, elapsed time {}ms.", operate, rows, time);
+            }
+            return rows;
+        } catch (DataAccessException e) {
+            String details = "Sql:\n" + (logsql != null ? logsql : getFormattedSqlString(sbs.get(0), 1));
+            details = StringTools.concat('\n', details, e.getCause() == null ? null : e.getCause().getMessage());
+            throw new ServiceException(errorCode, details, e);
+        }
+    }
+
+    /** 统计JDBC批处理的受影响行数, 部分驱动返回SUCCESS_NO_INFO(-2), 按1行计 **/
+    protected int sumBatchAffectedRows(int[] results) {
+        int rows = 0;
+        if (results != null) {
+            for (int result : results) {
+                if (result >= 0) {
+                    rows += result;
+                } else if (result == Statement.SUCCESS_NO_INFO) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
     protected String getFormattedSqlString(SqlBuffer sb, int indent) {
         // 未开启到TRACE级别的日志就执行省略模式
         boolean omitMode = !log.isTraceEnabled();
@@ -540,30 +809,42 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         return DbTools.formatSql(sql, 1);
     }
 
-    // key=querySql, value=countSql
-    private static Map<String, SqlAndParams> COUNT_SQL_MAPS = new ConcurrentHashMap<>();
+    /**
+     * 统计语句的缓存, key=预编译的查询语句(?占位符), value=预编译的统计语句<br>
+     * 只缓存SQL的结构, 参数每次都从当前的SqlBuffer重新绑定<br>
+     * IN列表长度不同等原因会使查询语句的结构非常多, 因此需要限定容量
+     */
+    private static final LruCache<String, String> COUNT_SQL_CACHE = new LruCache<>(1000);
+
+    /**
+     * 获取统计语句的缓存, 用于查看命中/未命中/淘汰等统计数据
+     * 
+     * @return 统计语句的缓存
+     */
+    public static LruCache<String, String> getCountSqlCache() {
+        return COUNT_SQL_CACHE;
+    }
+
+    @Override
+    public QueryResultCache getQueryResultCache() {
+        this.init();
+        return queryResultCache;
+    }
 
     @Override
     public int countByQuerySql(SqlBuffer querySql) {
         long startTime = System.currentTimeMillis();
-        String namedQuerySql = querySql.getPreparedSqlString(sqlDialect);
-        String countSql;
-        Object[] paramArray;
-        if (COUNT_SQL_MAPS.containsKey(namedQuerySql)) {
-            SqlAndParams item = COUNT_SQL_MAPS.get(namedQuerySql);
-            countSql = item.sql;
-            paramArray = item.params;
-        } else {
+        PreparedSql prepared = querySql.getPreparedSql(getSqlDialect());
+        String preparedQuerySql = prepared.getSql();
+        Object[] paramArray = prepared.getValues();
+        String countSql = COUNT_SQL_CACHE.get(preparedQuerySql);
+        if (countSql == null) {
             // 解析查询语句生成统计语句
-            Map<String, Object> paramMaps = querySql.getPreparedVariables(sqlDialect);
-            SqlParameterSource paramSource = new MapSqlParameterSource(paramMaps);
-            ParsedSql parsedQuerySql = NamedParameterUtils.parseSqlStatement(namedQuerySql);
-            String actualQuerySql = NamedParameterUtils.substituteNamedParameters(parsedQuerySql, paramSource);
-            paramArray = NamedParameterUtils.buildValueArray(parsedQuerySql, paramSource, null);
-
-            countSql = countSqlParser.getSmartCountSql(actualQuerySql);
-
-            COUNT_SQL_MAPS.put(namedQuerySql, new SqlAndParams(countSql, paramArray));
+            countSql = countSqlParser.getSmartCountSql(preparedQuerySql);
+            // 统计语句的占位符与查询语句的参数一致时才能复用
+            if (StringTools.countCharacter(countSql, '?') == StringTools.countCharacter(preparedQuerySql, '?')) {
+                COUNT_SQL_CACHE.put(preparedQuerySql, countSql);
+            }
         }
 
         // 输出日志
@@ -576,12 +857,13 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         RowMapper<Integer> rowMapper = new FirstColumnMapper<>(Integer.class);
         try {
             // 执行统计语句
-            JdbcOperations jdbc = namedParameterJdbcOperations.getJdbcOperations();
+            JdbcOperations jdbc = getReadJdbcOperations();
             int total = jdbc.queryForObject(countSql, paramArray, rowMapper);
             if (log.isDebugEnabled()) {
                 long parseMills = countTime - startTime;
                 long countMills = System.currentTimeMillis() - countTime;
-                log.debug("Sql count returns {}, parse time {}ms, execute time {}ms.", total, parseMills, countMills);
+                log.debug("Sql count returns {}, parse time {}ms, execute time {}ms, count sql cache: {}.", total,
+                    parseMills, countMills, COUNT_SQL_CACHE);
             }
             return total;
         } catch (DataAccessException e) {
@@ -591,14 +873,49 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
         }
     }
 
-    private static class SqlAndParams {
+    /** 根据?占位符的预编译SQL和参数创建PreparedStatement **/
+    private static class SimplePreparedStatementCreator implements PreparedStatementCreator, SqlProvider {
+
+        private final PreparedSql prepared;
+        private final boolean returnGeneratedKeys;
+        private final boolean forwardOnlyCursor;
+        private final int fetchSize;
 
-        private String sql;
-        private Object[] params;
+        public SimplePreparedStatementCreator(PreparedSql prepared, boolean returnGeneratedKeys) {
+            this.prepared = prepared;
+            this.returnGeneratedKeys = returnGeneratedKeys;
+            this.forwardOnlyCursor = false;
+            this.fetchSize = 0;
+        }
 
-        public SqlAndParams(String sql, Object[] params) {
-            this.sql = sql;
-            this.params = params;
+        /** 游标查询: 只进只读的结果集, 并设置fetchSize **/
+        public SimplePreparedStatementCreator(PreparedSql prepared, int fetchSize) {
+            this.prepared = prepared;
+            this.returnGeneratedKeys = false;
+            this.forwardOnlyCursor = true;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+            PreparedStatement ps;
+            if (returnGeneratedKeys) {
+                ps = con.prepareStatement(prepared.getSql(), Statement.RETURN_GENERATED_KEYS);
+            } else if (forwardOnlyCursor) {
+                ps = con.prepareStatement(prepared.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize != 0) {
+                    ps.setFetchSize(fetchSize);
+                }
+            } else {
+                ps = con.prepareStatement(prepared.getSql());
+            }
+            new ArgumentPreparedStatementSetter(prepared.getValues()).setValues(ps);
+            return ps;
+        }
+
+        @Override
+        public String getSql() {
+            return prepared.getSql();
         }
     }
 
@@ -646,6 +963,7 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
             throw new IllegalStateException("Datasource is null.");
         }
 
+        markWritten();
         Connection connection = DataSourceUtils.getConnection(datasource);
         SqlScriptTools.executeSqlScript(connection, url, true, true, // 遇到错误继续, 忽略失败的DROP语句
             ScriptUtils.DEFAULT_COMMENT_PREFIX, // 行注释前缀: --
@@ -658,4 +976,28 @@ public class SqlBufferJdbcTemplate implements SqlBufferJdbcOperations {
     public JdbcOperations getJdbcOperations() {
         return namedParameterJdbcOperations.getJdbcOperations();
     }
+
+    /**
+     * 获取执行查询语句的JdbcOperations, 配置了只读库时由路由选择, 否则为主库
+     *
+     * @return JdbcOperations
+     * @since 3.2.2
+     */
+    protected JdbcOperations getReadJdbcOperations() {
+        JdbcOperations primary = getJdbcOperations();
+        ReadReplicaRouter router = this.readReplicaRouter;
+        return router == null ? primary : router.select(primary);
+    }
+
+    /**
+     * 记录当前线程执行了增删改, 读己之写窗口期内的查询将使用主库
+     *
+     * @since 3.2.2
+     */
+    protected void markWritten() {
+        ReadReplicaRouter router = this.readReplicaRouter;
+        if (router != null) {
+            router.markWritten();
+        }
+    }
 }
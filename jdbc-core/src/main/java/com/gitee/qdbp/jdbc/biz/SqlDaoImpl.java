@@ -5,20 +5,35 @@ import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.RowMapper;
 import com.gitee.qdbp.able.jdbc.paging.PageList;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.able.jdbc.paging.PartList;
 import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
 import com.gitee.qdbp.jdbc.api.SqlDao;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
 import com.gitee.qdbp.jdbc.plugins.BeanToMapConverter;
 import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.FirstColumnMapper;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.result.RowToBeanMapper;
 import com.gitee.qdbp.jdbc.result.TableRowToBeanMapper;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
 import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.KeysetQuery;
+import com.gitee.qdbp.jdbc.utils.PagingQuery;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache.CacheKey;
 import com.gitee.qdbp.staticize.common.IMetaData;
+import com.gitee.qdbp.tools.utils.ReflectTools;
+import com.gitee.qdbp.tools.utils.StringTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
 
 /**
  * 执行SQL语句的处理类<br>
@@ -54,11 +69,62 @@ public class SqlDaoImpl implements SqlDao {
         return beanToMapConverter.convert(bean, false, true);
     }
 
+    /**
+     * 获取SQL模板涉及的表名, 由qdbc.queryCache.sqlTables.{sqlId}配置, 多个以逗号分隔<br>
+     * 配置了表名的SQL模板才会缓存查询结果, 执行该模板的增删改时也会使这些表的缓存失效
+     * 
+     * @param sqlId SQL编号
+     * @return 表名列表, 未配置时返回null
+     * @since 3.2.2
+     */
+    protected List<String> getSqlTables(String sqlId) {
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), dialect.getDbVersion());
+        String tables = config.getString("qdbc.queryCache.sqlTables." + sqlId);
+        if (VerifyTools.isBlank(tables)) {
+            return null;
+        }
+        List<String> tableNames = new ArrayList<>();
+        for (String item : StringTools.split(tables, ',')) {
+            if (VerifyTools.isNotBlank(item)) {
+                tableNames.add(item.trim());
+            }
+        }
+        return tableNames.isEmpty() ? null : tableNames;
+    }
+
+    /** 生成查询结果缓存的KEY, 不允许缓存时返回null **/
+    protected CacheKey newQueryCacheKey(String sqlId, String category, SqlBuffer sql) {
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        List<String> tables = getSqlTables(sqlId);
+        if (tables == null) {
+            return null;
+        }
+        return cache.newCacheKey(tables, sqlId + ':' + category, sql.getPreparedSql(dialect));
+    }
+
+    /** 修改数据后, 使SQL模板涉及的表的查询结果缓存失效 **/
+    protected void invalidateQueryCache(String sqlId) {
+        List<String> tables = getSqlTables(sqlId);
+        if (tables != null) {
+            jdbc.getQueryResultCache().invalidate(tables);
+        }
+    }
+
     @Override
     public <T> T findForObject(String sqlId, Object params, Class<T> resultType) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.queryForObject(sql, resultType);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey(sqlId, "find:" + resultType.getName(), sql);
+        T result = cache.get(cacheKey);
+        if (result == null) {
+            result = jdbc.queryForObject(sql, resultType);
+            cache.put(cacheKey, result);
+        }
+        return result;
     }
 
     @Override
@@ -72,14 +138,30 @@ public class SqlDaoImpl implements SqlDao {
     public Map<String, Object> findForMap(String sqlId, Object params) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.queryForMap(sql);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey(sqlId, "findMap", sql);
+        Map<String, Object> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, Object> result = jdbc.queryForMap(sql);
+        cache.put(cacheKey, result);
+        return result;
     }
 
     @Override
     public <T> List<T> listForObjects(String sqlId, Object params, Class<T> resultType) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.queryForList(sql, resultType);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey(sqlId, "list:" + resultType.getName(), sql);
+        List<T> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        List<T> list = jdbc.queryForList(sql, resultType);
+        cache.put(cacheKey, list);
+        return list;
     }
 
     @Override
@@ -90,85 +172,90 @@ public class SqlDaoImpl implements SqlDao {
     }
 
     @Override
-    public List<Map<String, Object>> listForMaps(String sqlId, Object params) {
+    public <T> int forEachObjects(String sqlId, Object params, Class<T> resultType, RowDataHandler<T> handler) {
+        return forEachObjects(sqlId, params, newEachRowMapper(resultType), handler);
+    }
+
+    @Override
+    public <T> int forEachObjects(String sqlId, Object params, RowMapper<T> rowMapper, RowDataHandler<T> handler) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.queryForList(sql);
+        return jdbc.forEach(sql, rowMapper, handler);
     }
 
     @Override
-    public <T> PageList<T> pageForObjects(String sqlId, Object params, Paging paging, Class<T> resultType) {
+    public <T> int forEachBatch(String sqlId, Object params, int batchSize, Class<T> resultType,
+            BatchDataHandler<T> handler) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
+        return jdbc.forEachBatch(sql, batchSize, newEachRowMapper(resultType), handler);
+    }
 
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            total = jdbc.countByQuerySql(sql);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<T> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<T>(); // 已知无数据, 不需要再查询
+    /** 逐行读取时的结果转换类: 基本类型取第一列, 其他转换为Bean **/
+    protected <T> RowMapper<T> newEachRowMapper(Class<T> resultType) {
+        if (ReflectTools.isPrimitive(resultType, false)) {
+            return new FirstColumnMapper<>(resultType);
         } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(sql, paging);
-            // 查询数据列表
-            list = jdbc.queryForList(sql, resultType);
+            return newRowToBeanMapper(resultType);
         }
-        return new PageList<>(list, total == null ? list.size() : total);
     }
 
     @Override
-    public <T> PageList<T> pageForObjects(String sqlId, Object params, Paging paging, RowMapper<T> rowMapper) {
+    public List<Map<String, Object>> listForMaps(String sqlId, Object params) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            total = jdbc.countByQuerySql(sql);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<T> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<T>(); // 已知无数据, 不需要再查询
-        } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(sql, paging);
-            // 查询数据列表
-            list = jdbc.query(sql, rowMapper);
+        QueryResultCache cache = jdbc.getQueryResultCache();
+        CacheKey cacheKey = newQueryCacheKey(sqlId, "listMaps", sql);
+        List<Map<String, Object>> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
         }
-        return new PageList<>(list, total == null ? list.size() : total);
+        List<Map<String, Object>> list = jdbc.queryForList(sql);
+        cache.put(cacheKey, list);
+        return list;
+    }
+
+    @Override
+    public <T> PageList<T> pageForObjects(String sqlId, Object params, Paging paging, Class<T> resultType) {
+        Map<String, Object> map = params == null ? null : beanToMap(params);
+        SqlBuffer sql = renderSqlTemplate(sqlId, map);
+        PartList<T> list = PagingQuery.queryForPage(jdbc, sql, null, paging, resultType);
+        return new PageList<>(list, list.getTotal());
+    }
+
+    @Override
+    public <T> PageList<T> pageForObjects(String sqlId, Object params, Paging paging, RowMapper<T> rowMapper) {
+        Map<String, Object> map = params == null ? null : beanToMap(params);
+        SqlBuffer sql = renderSqlTemplate(sqlId, map);
+        PartList<T> list = PagingQuery.queryForPage(jdbc, sql, null, paging, rowMapper);
+        return new PageList<>(list, list.getTotal());
     }
 
     @Override
     public PageList<Map<String, Object>> pageForMaps(String sqlId, Object params, Paging paging) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
+        PartList<Map<String, Object>> list = PagingQuery.queryForPage(jdbc, sql, null, paging);
+        return new PageList<>(list, list.getTotal());
+    }
 
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            total = jdbc.countByQuerySql(sql);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<Map<String, Object>> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<Map<String, Object>>(); // 已知无数据, 不需要再查询
-        } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(sql, paging);
-            // 查询数据列表
-            list = jdbc.queryForList(sql);
-        }
-        return new PageList<>(list, total == null ? list.size() : total);
+    @Override
+    public <T> KeysetPageList<T> pageForObjects(String sqlId, Object params, KeysetPaging paging,
+            Class<T> resultType) {
+        return pageForObjects(sqlId, params, paging, newEachRowMapper(resultType));
+    }
+
+    @Override
+    public <T> KeysetPageList<T> pageForObjects(String sqlId, Object params, KeysetPaging paging,
+            RowMapper<T> rowMapper) {
+        Map<String, Object> map = params == null ? null : beanToMap(params);
+        SqlBuffer sql = renderSqlTemplate(sqlId, map);
+        return KeysetQuery.queryForList(jdbc, sql, paging, rowMapper);
+    }
+
+    @Override
+    public KeysetPageList<Map<String, Object>> pageForMaps(String sqlId, Object params, KeysetPaging paging) {
+        return pageForObjects(sqlId, params, paging, new ColumnMapRowMapper());
     }
 
     @Override
@@ -176,26 +263,9 @@ public class SqlDaoImpl implements SqlDao {
             Class<T> resultType) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer querySql = container.render(queryId, map, dialect);
-
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            SqlBuffer countSql = container.render(countId, map, dialect);
-            total = jdbc.queryForObject(countSql, Integer.class);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<T> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<T>(); // 已知无数据, 不需要再查询
-        } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(querySql, paging);
-            // 查询数据列表
-            list = jdbc.queryForList(querySql, resultType);
-        }
-        return new PageList<>(list, total == null ? list.size() : total);
+        SqlBuffer countSql = paging.isNeedCount() ? container.render(countId, map, dialect) : null;
+        PartList<T> list = PagingQuery.queryForPage(jdbc, querySql, countSql, paging, resultType);
+        return new PageList<>(list, list.getTotal());
     }
 
     @Override
@@ -203,73 +273,51 @@ public class SqlDaoImpl implements SqlDao {
             RowMapper<T> rowMapper) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer querySql = container.render(queryId, map, dialect);
-
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            SqlBuffer countSql = container.render(countId, map, dialect);
-            total = jdbc.queryForObject(countSql, Integer.class);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<T> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<T>(); // 已知无数据, 不需要再查询
-        } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(querySql, paging);
-            // 查询数据列表
-            list = jdbc.query(querySql, rowMapper);
-        }
-        return new PageList<>(list, total == null ? list.size() : total);
+        SqlBuffer countSql = paging.isNeedCount() ? container.render(countId, map, dialect) : null;
+        PartList<T> list = PagingQuery.queryForPage(jdbc, querySql, countSql, paging, rowMapper);
+        return new PageList<>(list, list.getTotal());
     }
 
     @Override
     public PageList<Map<String, Object>> pageForMaps(String queryId, String countId, Object params, Paging paging) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer querySql = container.render(queryId, map, dialect);
-
-        // 先查询总数据量
-        Integer total = paging.getTotal();
-        if (paging.isNeedCount()) {
-            SqlBuffer countSql = container.render(countId, map, dialect);
-            total = jdbc.queryForObject(countSql, Integer.class);
-            paging.setTotal(total);
-        }
-        // 再查询数据列表
-        List<Map<String, Object>> list;
-        if (total != null && total == 0) {
-            list = new ArrayList<Map<String, Object>>(); // 已知无数据, 不需要再查询
-        } else {
-            SqlDialect dialect = jdbc.getSqlDialect();
-            // 处理分页
-            dialect.processPagingSql(querySql, paging);
-            // 查询数据列表
-            list = jdbc.queryForList(querySql);
-        }
-        return new PageList<>(list, total == null ? list.size() : total);
+        SqlBuffer countSql = paging.isNeedCount() ? container.render(countId, map, dialect) : null;
+        PartList<Map<String, Object>> list = PagingQuery.queryForPage(jdbc, querySql, countSql, paging);
+        return new PageList<>(list, list.getTotal());
     }
 
     @Override
     public int insert(String sqlId, Object params) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.insert(sql);
+        try {
+            return jdbc.insert(sql);
+        } finally {
+            invalidateQueryCache(sqlId);
+        }
     }
 
     @Override
     public int update(String sqlId, Object params) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.update(sql);
+        try {
+            return jdbc.update(sql);
+        } finally {
+            invalidateQueryCache(sqlId);
+        }
     }
 
     @Override
     public int delete(String sqlId, Object params) {
         Map<String, Object> map = params == null ? null : beanToMap(params);
         SqlBuffer sql = renderSqlTemplate(sqlId, map);
-        return jdbc.delete(sql);
+        try {
+            return jdbc.delete(sql);
+        } finally {
+            invalidateQueryCache(sqlId);
+        }
     }
 
     @Override
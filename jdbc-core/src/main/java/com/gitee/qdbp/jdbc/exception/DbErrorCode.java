@@ -24,10 +24,16 @@ public enum DbErrorCode implements IResultMessage {
     DB_WHERE_MUST_NOT_BE_EMPTY("WHERE条件内容不能为空"),
     /** 受影响记录数为0 **/
     DB_AFFECTED_ROWS_IS_ZERO("受影响记录数为0"),
+    /** 受影响记录数与预期不一致 **/
+    DB_AFFECTED_ROWS_MISMATCH("受影响记录数与预期不一致"),
     /** 参数有误, 未指定字段列表 **/
     DB_INCLUDE_FIELDS_IS_EMPTY("参数有误, 未指定字段列表"),
     /** 该数据不支持逻辑删除 **/
     DB_UNSUPPORTED_LOGICAL_DELETE("该数据不支持逻辑删除"),
+    /** 无法确定数据所在的分表 **/
+    DB_SHARDING_TABLE_IS_UNRESOLVED("无法确定数据所在的分表"),
+    /** 跨分表时不支持该操作 **/
+    DB_UNSUPPORTED_SHARDING_OPERATION("跨分表时不支持该操作"),
     /** 数据源初始化失败 **/
     DB_DATA_SOURCE_INIT_ERROR("数据源初始化失败"),
     /** SQL片断不存在 **/
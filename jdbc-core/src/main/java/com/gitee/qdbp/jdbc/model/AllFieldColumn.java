@@ -3,9 +3,9 @@ package com.gitee.qdbp.jdbc.model;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import com.gitee.qdbp.tools.utils.VerifyTools;
 
 /**
@@ -20,7 +20,7 @@ public class AllFieldColumn<T extends SimpleFieldColumn> implements Serializable
     private static final long serialVersionUID = 1L;
 
     private List<T> items;
-    private Map<FieldScene, FieldColumns<T>> sceneItems;
+    private ConcurrentMap<FieldScene, FieldColumns<T>> sceneItems;
 
     public AllFieldColumn(List<T> items) {
         VerifyTools.requireNotBlank(items, "items");
@@ -34,7 +34,7 @@ public class AllFieldColumn<T extends SimpleFieldColumn> implements Serializable
             list.add(copied);
         }
         this.items = Collections.unmodifiableList(list);
-        this.sceneItems = new HashMap<>();
+        this.sceneItems = new ConcurrentHashMap<>();
     }
 
     public boolean isEmpty() {
@@ -64,8 +64,9 @@ public class AllFieldColumn<T extends SimpleFieldColumn> implements Serializable
      * @since 3.2.0
      */
     public FieldColumns<T> filter(FieldScene scene) {
-        if (sceneItems.containsKey(scene)) {
-            return sceneItems.get(scene);
+        FieldColumns<T> cached = sceneItems.get(scene);
+        if (cached != null) {
+            return cached;
         }
         List<T> list = new ArrayList<>();
         for (T item : this.items) {
@@ -73,9 +74,10 @@ public class AllFieldColumn<T extends SimpleFieldColumn> implements Serializable
                 list.add(item);
             }
         }
+        // 创建FieldColumns时会生成字段名/列名/列别名索引, 每个场景只生成一次
         FieldColumns<T> part = new FieldColumns<>(list);
-        sceneItems.put(scene, part);
-        return part;
+        FieldColumns<T> existing = sceneItems.putIfAbsent(scene, part);
+        return existing != null ? existing : part;
     }
 
     protected boolean sceneMatches(T item, FieldScene scene) {
@@ -3,15 +3,17 @@ package com.gitee.qdbp.jdbc.model;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import com.gitee.qdbp.tools.utils.VerifyTools;
 
 /**
  * 字段及列信息
  *
  * @author zhaohuihua
- * @version 20200905
+ * @version 20201020
  * @since 3.2.0
  */
 public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, Serializable {
@@ -20,10 +22,62 @@ public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, S
     private static final long serialVersionUID = 1L;
 
     private List<T> items;
+    /** 字段名索引, key=不含表别名的大写字段名 **/
+    private Map<String, List<T>> fieldNameIndex;
+    /** 列名索引, key=不含表别名的大写列名 **/
+    private Map<String, List<T>> columnNameIndex;
+    /** 列别名索引, key=大写列别名(没有列别名时取列名) **/
+    private Map<String, List<T>> columnAliasIndex;
 
     protected FieldColumns(List<T> items) {
         VerifyTools.requireNonNull(items, "items");
         this.items = Collections.unmodifiableList(items);
+        this.buildIndexes();
+    }
+
+    /**
+     * 生成字段名/列名/列别名索引<br>
+     * 索引KEY不含表别名且不区分大小写, 只用于缩小查找范围, 查找时仍然调用matchesByXxx判断是否匹配
+     */
+    private void buildIndexes() {
+        Map<String, List<T>> fieldNames = new HashMap<>();
+        Map<String, List<T>> columnNames = new HashMap<>();
+        Map<String, List<T>> columnAliases = new HashMap<>();
+        for (T item : this.items) {
+            addToIndex(fieldNames, toIndexKey(item.getFieldName()), item);
+            addToIndex(columnNames, toIndexKey(item.getColumnName()), item);
+            String columnAlias = null;
+            if (item instanceof TablesFieldColumn) {
+                columnAlias = ((TablesFieldColumn) item).getColumnAlias();
+            }
+            if (VerifyTools.isBlank(columnAlias)) {
+                columnAlias = item.getColumnName();
+            }
+            addToIndex(columnAliases, columnAlias.toUpperCase(), item);
+        }
+        this.fieldNameIndex = fieldNames;
+        this.columnNameIndex = columnNames;
+        this.columnAliasIndex = columnAliases;
+    }
+
+    private static <T> void addToIndex(Map<String, List<T>> index, String key, T item) {
+        List<T> list = index.get(key);
+        if (list == null) {
+            index.put(key, list = new ArrayList<>(1));
+        }
+        list.add(item);
+    }
+
+    /** 索引KEY: 去掉表别名, 转换为大写 **/
+    private static String toIndexKey(String name) {
+        int dotIndex = name.lastIndexOf('.');
+        String bareName = dotIndex < 0 ? name : name.substring(dotIndex + 1);
+        return bareName.toUpperCase();
+    }
+
+    private List<T> getIndexedItems(Map<String, List<T>> index, String key) {
+        List<T> list = index.get(key);
+        return list == null ? Collections.<T> emptyList() : list;
     }
 
     /** 获取字段对象列表 **/
@@ -82,16 +136,28 @@ public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, S
      * @see TablesFieldColumn#matchesByFieldName(String)
      */
     public boolean containsByFieldName(String fieldName) {
+        return findFirstByFieldName(fieldName) != null;
+    }
+
+    /**
+     * 根据字段名获取第1个匹配的字段对象, 存在重名字段时不抛异常<br>
+     * 判断是否匹配:<br>
+     * 如果当前字段名或目标字段名没有表别名, 只要字段名匹配即为匹配<br>
+     * 如果当前字段名和目标字段名都有表别名, 则需要表别名和字段名同时匹配
+     * 
+     * @param fieldName 目标字段名
+     * @return 字段对象
+     * @since 3.2.2
+     */
+    public T findFirstByFieldName(String fieldName) {
         VerifyTools.requireNotBlank(fieldName, "fieldName");
-        // 遍历查找匹配项
-        Iterator<T> itr = this.items.iterator();
-        while (itr.hasNext()) {
-            T item = itr.next();
+        // 从索引中查找匹配项
+        for (T item : getIndexedItems(fieldNameIndex, toIndexKey(fieldName))) {
             if (item.matchesByFieldName(fieldName)) {
-                return true;
+                return item;
             }
         }
-        return false;
+        return null;
     }
 
     /**
@@ -134,11 +200,9 @@ public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, S
      */
     public List<T> findAllByFieldName(String fieldName) {
         VerifyTools.requireNotBlank(fieldName, "fieldName");
-        // 遍历查找匹配项
+        // 从索引中查找匹配项
         List<T> matched = new ArrayList<>();
-        Iterator<T> itr = this.items.iterator();
-        while (itr.hasNext()) {
-            T item = itr.next();
+        for (T item : getIndexedItems(fieldNameIndex, toIndexKey(fieldName))) {
             if (item.matchesByFieldName(fieldName)) {
                 matched.add(item);
             }
@@ -185,11 +249,9 @@ public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, S
      */
     public List<T> findAllByColumnName(String columnName) {
         VerifyTools.requireNotBlank(columnName, "columnName");
-        // 遍历查找匹配项
+        // 从索引中查找匹配项
         List<T> matched = new ArrayList<>();
-        Iterator<T> itr = this.items.iterator();
-        while (itr.hasNext()) {
-            T item = itr.next();
+        for (T item : getIndexedItems(columnNameIndex, toIndexKey(columnName))) {
             if (item.matchesByColumnName(columnName)) {
                 matched.add(item);
             }
@@ -208,10 +270,8 @@ public class FieldColumns<T extends SimpleFieldColumn> implements Iterable<T>, S
      */
     public T findByColumnAlias(String columnAlias) {
         VerifyTools.requireNotBlank(columnAlias, "columnAlias");
-        // 遍历查找匹配项
-        Iterator<T> itr = this.items.iterator();
-        while (itr.hasNext()) {
-            T item = itr.next();
+        // 从索引中查找匹配项
+        for (T item : getIndexedItems(columnAliasIndex, columnAlias.toUpperCase())) {
             if (item.matchesByColumnAlias(columnAlias)) {
                 return item;
             }
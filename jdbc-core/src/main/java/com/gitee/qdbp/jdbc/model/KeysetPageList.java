@@ -0,0 +1,60 @@
+package com.gitee.qdbp.jdbc.model;
+
+import java.util.List;
+import com.gitee.qdbp.able.jdbc.paging.PageList;
+
+/**
+ * 键集分页的查询结果<br>
+ * 除了列表数据以外, 还包含下一页的定位值(当前页最后一条记录的排序字段值)<br>
+ * 键集分页不统计总记录数, total为当前页的记录数
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class KeysetPageList<T> extends PageList<T> {
+
+    /** serialVersionUID **/
+    private static final long serialVersionUID = 1L;
+
+    /** 当前页的分页条件 **/
+    private KeysetPaging paging;
+    /** 当前页最后一条记录的排序字段值 **/
+    private Object[] nextKeys;
+    /** 是否还有下一页 **/
+    private boolean hasNext;
+
+    /**
+     * 构造函数
+     *
+     * @param list 当前页的列表数据
+     * @param paging 当前页的分页条件
+     * @param nextKeys 当前页最后一条记录的排序字段值
+     * @param hasNext 是否还有下一页
+     */
+    public KeysetPageList(List<T> list, KeysetPaging paging, Object[] nextKeys, boolean hasNext) {
+        super(list, list.size());
+        this.paging = paging;
+        this.nextKeys = nextKeys;
+        this.hasNext = hasNext;
+    }
+
+    /** 当前页最后一条记录的排序字段值, 作为下一页的定位值 **/
+    public Object[] getNextKeys() {
+        return nextKeys;
+    }
+
+    /** 是否还有下一页 **/
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * 下一页的分页条件
+     *
+     * @return 分页条件, 如果没有下一页则返回null
+     */
+    public KeysetPaging nextPaging() {
+        return hasNext ? paging.next(nextKeys) : null;
+    }
+}
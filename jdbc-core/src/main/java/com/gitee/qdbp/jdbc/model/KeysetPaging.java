@@ -0,0 +1,101 @@
+package com.gitee.qdbp.jdbc.model;
+
+import java.io.Serializable;
+import com.gitee.qdbp.able.jdbc.ordering.Orderings;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 键集分页(Keyset/Seek)条件<br>
+ * 与OFFSET分页不同, 不需要扫描并丢弃前面的记录, 而是根据上一页最后一条记录的排序字段值定位:<br>
+ * WHERE (k1,k2) &gt; (?,?) ORDER BY k1,k2 LIMIT n<br>
+ * 排序字段的组合必须能唯一确定一条记录(一般以主键作为最后一个排序字段), 且排序字段的值不能为null<br>
+ * 首页: KeysetPaging.of(20, "createTime DESC, id DESC");<br>
+ * 下一页: KeysetPaging.of(20, "createTime DESC, id DESC", lastCreateTime, lastId); 或 pageList.nextPaging();
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class KeysetPaging implements Serializable {
+
+    /** serialVersionUID **/
+    private static final long serialVersionUID = 1L;
+
+    /** 排序字段 **/
+    private final Orderings orderings;
+    /** 每页行数 **/
+    private final int rows;
+    /** 上一页最后一条记录的排序字段值, 为空表示查询首页 **/
+    private final Object[] lastKeys;
+
+    /**
+     * 构造函数
+     *
+     * @param rows 每页行数
+     * @param orderings 排序字段
+     * @param lastKeys 上一页最后一条记录的排序字段值, 为空表示查询首页
+     */
+    public KeysetPaging(int rows, Orderings orderings, Object... lastKeys) {
+        VerifyTools.requireNotBlank(orderings, "orderings");
+        if (rows <= 0) {
+            throw new IllegalArgumentException("rows must be greater than 0");
+        }
+        this.rows = rows;
+        this.orderings = orderings;
+        this.lastKeys = lastKeys == null || lastKeys.length == 0 ? null : lastKeys;
+    }
+
+    /**
+     * 首页的键集分页条件
+     *
+     * @param rows 每页行数
+     * @param orderings 排序字段, 如: createTime DESC, id DESC
+     * @return 键集分页条件
+     */
+    public static KeysetPaging of(int rows, String orderings) {
+        return new KeysetPaging(rows, Orderings.of(orderings));
+    }
+
+    /**
+     * 指定上一页最后一条记录的键集分页条件
+     *
+     * @param rows 每页行数
+     * @param orderings 排序字段, 如: createTime DESC, id DESC
+     * @param lastKeys 上一页最后一条记录的排序字段值, 与排序字段一一对应
+     * @return 键集分页条件
+     */
+    public static KeysetPaging of(int rows, String orderings, Object... lastKeys) {
+        return new KeysetPaging(rows, Orderings.of(orderings), lastKeys);
+    }
+
+    /** 排序字段 **/
+    public Orderings getOrderings() {
+        return orderings;
+    }
+
+    /** 每页行数 **/
+    public int getRows() {
+        return rows;
+    }
+
+    /** 上一页最后一条记录的排序字段值 **/
+    public Object[] getLastKeys() {
+        return lastKeys;
+    }
+
+    /** 是否查询首页 **/
+    public boolean isFirstPage() {
+        return lastKeys == null;
+    }
+
+    /**
+     * 生成下一页的分页条件
+     *
+     * @param lastKeys 当前页最后一条记录的排序字段值
+     * @return 下一页的分页条件
+     */
+    public KeysetPaging next(Object... lastKeys) {
+        VerifyTools.requireNotBlank(lastKeys, "lastKeys");
+        return new KeysetPaging(rows, orderings, lastKeys);
+    }
+}
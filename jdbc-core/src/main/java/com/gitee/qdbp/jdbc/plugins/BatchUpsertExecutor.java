@@ -0,0 +1,42 @@
+package com.gitee.qdbp.jdbc.plugins;
+
+import java.util.List;
+import java.util.Set;
+import com.gitee.qdbp.able.exception.ServiceException;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+
+/**
+ * 批量新增或更新(根据主键判断记录是否存在)的处理类接口
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public interface BatchUpsertExecutor {
+
+    /**
+     * 是否支持指定数据库
+     *
+     * @param version 数据库类型及版本信息
+     * @return 是否支持
+     */
+    boolean supports(DbVersion version);
+
+    /**
+     * 批量新增或更新实体对象<br>
+     * 主键不存在的记录执行新增, 已存在的记录执行更新
+     *
+     * @param entities 实体对象列表(已填充主键/创建参数/更新参数)
+     * @param insertOnlyFields 只在新增时写入的字段(如创建人/创建时间/数据状态), 记录已存在时不更新这些字段
+     * @param jdbcOperations SqlBuffer数据库操作类
+     * @param sqlBuilder 单表增删改查SQL生成工具
+     * @return 返回主键编号
+     * @throws ServiceException 操作失败
+     */
+    List<String> upserts(List<PkEntity> entities, Set<String> insertOnlyFields,
+            SqlBufferJdbcOperations jdbcOperations, CrudSqlBuilder sqlBuilder) throws ServiceException;
+
+}
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.ConversionService;
@@ -17,11 +18,18 @@ import com.gitee.qdbp.able.jdbc.base.UpdateCondition;
 import com.gitee.qdbp.able.jdbc.base.WhereCondition;
 import com.gitee.qdbp.jdbc.model.DbType;
 import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByCopyExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByLoadDataExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByMultiRowsExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByUnionAllFromDualExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.BatchOperateByForEachExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchOperateByJdbcBatchExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.BatchUpdateByCaseWhenExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.BatchUpdateByJoinUsingExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpdateByValuesJoinExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpsertByMergeExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpsertByOnConflictExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpsertByOnDuplicateKeyExecutor;
 import com.gitee.qdbp.jdbc.plugins.impl.DataSourceDbVersionFinder;
 import com.gitee.qdbp.jdbc.plugins.impl.FastJsonBeanToMapConverter;
 import com.gitee.qdbp.jdbc.plugins.impl.FastJsonDbConditionConverter;
@@ -39,6 +47,7 @@ import com.gitee.qdbp.jdbc.support.ConversionServiceAware;
 import com.gitee.qdbp.jdbc.support.convert.NumberToBooleanConverter;
 import com.gitee.qdbp.jdbc.support.convert.StringToDateConverter;
 import com.gitee.qdbp.jdbc.support.enums.AllEnumConverterRegister;
+import com.gitee.qdbp.jdbc.utils.PagingQuery;
 import com.gitee.qdbp.staticize.tags.base.Taglib;
 import com.gitee.qdbp.tools.utils.Config;
 import com.gitee.qdbp.tools.utils.ConvertTools;
@@ -171,20 +180,39 @@ public class DbPluginContainer {
         if (plugins.getSqlFileScanner() == null) {
             plugins.setSqlFileScanner(new SimpleSqlFileScanner());
         }
+        if (plugins.getPagingQueryExecutor() == null) {
+            plugins.setPagingQueryExecutor(PagingQuery.newDefaultExecutor());
+        }
         if (plugins.getDefaultBatchInsertExecutor() == null) {
             plugins.setDefaultBatchInsertExecutor(new BatchOperateByForEachExecutor());
         }
         if (plugins.getDefaultBatchUpdateExecutor() == null) {
             plugins.setDefaultBatchUpdateExecutor(new BatchOperateByForEachExecutor());
         }
+        if (plugins.getDefaultBatchUpsertExecutor() == null) {
+            plugins.setDefaultBatchUpsertExecutor(new BatchOperateByForEachExecutor());
+        }
         // 初始化公共的批量操作处理器(专用的放前面,通用的放后面)
         if (plugins.getBatchInsertExecutors().isEmpty()) {
+            // 原生批量导入, 记录数少于qdbc.batch.bulkLoad.minSize时交给后面的处理器
+            plugins.addBatchInsertExecutor(new BatchInsertByCopyExecutor());
+            plugins.addBatchInsertExecutor(new BatchInsertByLoadDataExecutor());
             plugins.addBatchInsertExecutor(new BatchInsertByUnionAllFromDualExecutor());
             plugins.addBatchInsertExecutor(new BatchInsertByMultiRowsExecutor());
+            // JDBC批处理默认不启用, 通过qdbc.supports.BatchOperateByJdbcBatchExecutor配置后才生效
+            plugins.addBatchInsertExecutor(new BatchOperateByJdbcBatchExecutor());
         }
         if (plugins.getBatchUpdateExecutors().isEmpty()) {
+            plugins.addBatchUpdateExecutor(new BatchUpdateByValuesJoinExecutor());
             plugins.addBatchUpdateExecutor(new BatchUpdateByJoinUsingExecutor());
             plugins.addBatchUpdateExecutor(new BatchUpdateByCaseWhenExecutor());
+            // 一条SQL更新一批记录的方式优先, JDBC批处理默认不启用
+            plugins.addBatchUpdateExecutor(new BatchOperateByJdbcBatchExecutor());
+        }
+        if (plugins.getBatchUpsertExecutors().isEmpty()) {
+            plugins.addBatchUpsertExecutor(new BatchUpsertByOnDuplicateKeyExecutor());
+            plugins.addBatchUpsertExecutor(new BatchUpsertByOnConflictExecutor());
+            plugins.addBatchUpsertExecutor(new BatchUpsertByMergeExecutor());
         }
 
         // 设置插件的ConversionService
@@ -566,6 +594,65 @@ public class DbPluginContainer {
         this.sqlFileScanner = sqlFileScanner;
     }
 
+    /** 分页查询时并行执行统计语句的执行器 **/
+    private Executor pagingQueryExecutor;
+
+    /**
+     * 获取分页查询时并行执行统计语句的执行器(qdbc.paging.concurrent=true时使用)
+     * 
+     * @return 执行器
+     * @since 3.2.2
+     */
+    public Executor getPagingQueryExecutor() {
+        return pagingQueryExecutor;
+    }
+
+    /**
+     * 设置分页查询时并行执行统计语句的执行器(qdbc.paging.concurrent=true时使用)<br>
+     * 默认运行环境支持虚拟线程时使用虚拟线程, 否则使用守护线程池
+     * 
+     * @param pagingQueryExecutor 执行器
+     * @since 3.2.2
+     */
+    public void setPagingQueryExecutor(Executor pagingQueryExecutor) {
+        this.pagingQueryExecutor = pagingQueryExecutor;
+    }
+
+    /** 实体类的分表策略 **/
+    private Map<Class<?>, TableShardingStrategy> tableShardingStrategies = new HashMap<>();
+
+    /**
+     * 获取实体类的分表策略
+     * 
+     * @param clazz 实体类
+     * @return 分表策略, 未注册时返回null
+     * @since 3.2.2
+     */
+    public TableShardingStrategy getTableShardingStrategy(Class<?> clazz) {
+        return tableShardingStrategies.get(clazz);
+    }
+
+    /**
+     * 设置实体类的分表策略
+     * 
+     * @param tableShardingStrategies 分表策略, key=实体类
+     * @since 3.2.2
+     */
+    public void setTableShardingStrategies(Map<Class<?>, TableShardingStrategy> tableShardingStrategies) {
+        this.tableShardingStrategies = new HashMap<>(tableShardingStrategies);
+    }
+
+    /**
+     * 增加实体类的分表策略(应在创建CrudDao之前注册)
+     * 
+     * @param clazz 实体类
+     * @param strategy 分表策略
+     * @since 3.2.2
+     */
+    public void addTableShardingStrategy(Class<?> clazz, TableShardingStrategy strategy) {
+        this.tableShardingStrategies.put(clazz, strategy);
+    }
+
     /** 默认的批量新增处理类 **/
     private BatchInsertExecutor defaultBatchInsertExecutor;
     /** 默认的批量更新处理类 **/
@@ -574,6 +661,10 @@ public class DbPluginContainer {
     private List<BatchInsertExecutor> batchInsertExecutors = new ArrayList<>();
     /** 批量更新处理类列表 **/
     private List<BatchUpdateExecutor> batchUpdateExecutors = new ArrayList<>();
+    /** 默认的批量新增或更新处理类 **/
+    private BatchUpsertExecutor defaultBatchUpsertExecutor;
+    /** 批量新增或更新处理类列表 **/
+    private List<BatchUpsertExecutor> batchUpsertExecutors = new ArrayList<>();
 
     /** 获取默认的批量新增处理类 **/
     public BatchInsertExecutor getDefaultBatchInsertExecutor() {
@@ -625,6 +716,51 @@ public class DbPluginContainer {
         this.batchUpdateExecutors.add(batchUpdateExecutor);
     }
 
+    /**
+     * 获取默认的批量新增或更新处理类
+     * 
+     * @since 3.2.2
+     */
+    public BatchUpsertExecutor getDefaultBatchUpsertExecutor() {
+        return defaultBatchUpsertExecutor;
+    }
+
+    /**
+     * 设置默认的批量新增或更新处理类
+     * 
+     * @since 3.2.2
+     */
+    public void setDefaultBatchUpsertExecutor(BatchUpsertExecutor batchUpsertExecutor) {
+        this.defaultBatchUpsertExecutor = batchUpsertExecutor;
+    }
+
+    /**
+     * 获取批量新增或更新处理类列表
+     * 
+     * @since 3.2.2
+     */
+    public List<BatchUpsertExecutor> getBatchUpsertExecutors() {
+        return this.batchUpsertExecutors;
+    }
+
+    /**
+     * 设置批量新增或更新处理类列表
+     * 
+     * @since 3.2.2
+     */
+    public void setBatchUpsertExecutors(List<BatchUpsertExecutor> batchUpsertExecutors) {
+        this.batchUpsertExecutors = batchUpsertExecutors;
+    }
+
+    /**
+     * 增加新增或更新处理类
+     * 
+     * @since 3.2.2
+     */
+    public void addBatchUpsertExecutor(BatchUpsertExecutor batchUpsertExecutor) {
+        this.batchUpsertExecutors.add(batchUpsertExecutor);
+    }
+
     /** Where条件的自定义条件构造器 **/
     private List<WhereSqlBuilder<? extends WhereCondition>> whereSqlBuilders = new ArrayList<>();
 
@@ -1,6 +1,8 @@
 package com.gitee.qdbp.jdbc.plugins;
 
 import java.util.Date;
+import java.util.List;
+import com.gitee.qdbp.able.jdbc.ordering.OrderType;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
 import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
@@ -30,6 +32,40 @@ public interface SqlDialect {
     /** 处理分页, 在原SQL前后追加分页语句 **/
     void processPagingSql(SqlBuffer buffer, Paging paging);
 
+    /**
+     * 是否支持通过窗口函数COUNT(*) OVER()在查询分页数据的同时返回总记录数
+     * 
+     * @return 是否支持
+     * @since 3.2.2
+     */
+    boolean supportsWindowCountPaging();
+
+    /**
+     * 生成新的分页SQL对象, 同时以窗口函数返回总记录数, 原对象不受影响<br>
+     * SELECT COUNT(*) OVER() AS {totalColumnLabel}, {columns} FROM ... ORDER BY ... {paging}<br>
+     * 窗口函数必须加在原SQL的查询列中, 不能包装为子查询, 因为子查询的ORDER BY在外层不保证有效
+     * 
+     * @param buffer 原SQL
+     * @param paging 分页条件
+     * @param totalColumnLabel 总记录数的列名
+     * @return 分页SQL, 原SQL不支持加入窗口函数时(如DISTINCT/UNION)返回null
+     * @since 3.2.2
+     */
+    SqlBuffer buildWindowCountPagingSql(SqlBuffer buffer, Paging paging, String totalColumnLabel);
+
+    /**
+     * 生成键集分页(Keyset/Seek)的定位条件, 即排序字段位于上一页最后一条记录之后<br>
+     * 排序方向一致且数据库支持行值比较时: (A,B) &gt; (?,?)<br>
+     * 否则展开为: ( A &gt; ? OR ( A = ? AND B &gt; ? ) ), DESC的字段使用小于号
+     * 
+     * @param columnNames 排序字段的列名
+     * @param orderTypes 排序方式, null视为ASC
+     * @param lastValues 上一页最后一条记录的排序字段值, 不能为null
+     * @return 定位条件, 不含WHERE
+     * @since 3.2.2
+     */
+    SqlBuffer buildKeysetConditionSql(List<String> columnNames, List<OrderType> orderTypes, List<Object> lastValues);
+
     /** 转换为按拼音排序的表达式 **/
     String toPinyinOrderByExpression(String columnName);
 
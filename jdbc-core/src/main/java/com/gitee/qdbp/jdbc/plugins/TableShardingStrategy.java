@@ -0,0 +1,41 @@
+package com.gitee.qdbp.jdbc.plugins;
+
+import java.util.List;
+
+/**
+ * 分表策略接口<br>
+ * 根据分表字段的值计算数据所在的实际表名, 按实体类注册到DbPluginContainer<br>
+ * 注册了分表策略的实体类, QdbcBoot.buildCrudDao()将返回支持分表的CrudDao:<br>
+ * 新增时按实体中分表字段的值确定实际表; 修改/删除/查询时按WHERE条件中分表字段的等于或IN条件确定实际表,
+ * 无法确定时在所有实际表上执行(查询结果在内存中合并排序及分页)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public interface TableShardingStrategy {
+
+    /**
+     * 获取分表字段名
+     *
+     * @return 字段名(实体类的字段名, 不是数据库列名)
+     */
+    String getShardingField();
+
+    /**
+     * 根据分表字段的值计算实际表名
+     *
+     * @param tableName 逻辑表名(实体类对应的表名)
+     * @param fieldValue 分表字段的值
+     * @return 实际表名, 无法确定时返回null
+     */
+    String getShardingTableName(String tableName, Object fieldValue);
+
+    /**
+     * 获取所有实际表名(无法确定实际表时将在这些表上执行)
+     *
+     * @param tableName 逻辑表名(实体类对应的表名)
+     * @return 实际表名列表
+     */
+    List<String> getAllShardingTableNames(String tableName);
+}
@@ -0,0 +1,174 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.model.AllFieldColumn;
+import com.gitee.qdbp.jdbc.model.FieldColumns;
+import com.gitee.qdbp.jdbc.model.FieldScene;
+import com.gitee.qdbp.jdbc.model.OmitStrategy;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.plugins.BatchUpsertExecutor;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.utils.ConvertTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 批量新增或更新的基础实现类(要求字段对齐)<br>
+ * 提供新增字段/更新字段的计算, 以及多行VALUES的生成
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public abstract class BaseBatchUpsertExecutor implements BatchUpsertExecutor {
+
+    /** 合并所有实体的字段名 **/
+    protected Set<String> mergeFields(List<PkEntity> entities) {
+        Set<String> fieldNames = new HashSet<>();
+        for (PkEntity item : entities) {
+            fieldNames.addAll(item.getEntity().keySet());
+        }
+        return fieldNames;
+    }
+
+    /**
+     * 获取新增的字段列表(按列顺序)
+     *
+     * @param sqlHelper SQL片段生成帮助类
+     * @param fieldNames 实体的字段名
+     * @return 新增的字段列表
+     */
+    protected List<SimpleFieldColumn> getInsertColumns(CrudFragmentHelper sqlHelper, Set<String> fieldNames) {
+        // 检查字段名
+        sqlHelper.checkSupportedFields(FieldScene.INSERT, fieldNames, "build batch upsert sql");
+        // 字段名映射表
+        Map<String, ?> fieldMap = ConvertTools.toMap(fieldNames);
+
+        AllFieldColumn<? extends SimpleFieldColumn> all = sqlHelper.getAllFieldColumns();
+        FieldColumns<? extends SimpleFieldColumn> fieldColumns = all.filter(FieldScene.INSERT);
+        List<SimpleFieldColumn> columns = new ArrayList<>();
+        for (SimpleFieldColumn column : fieldColumns) {
+            if (fieldMap.containsKey(column.getFieldName())) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 获取记录已存在时需要更新的字段列表<br>
+     * 排除主键, 不可更新的字段, 以及只在新增时写入的字段
+     *
+     * @param insertColumns 新增的字段列表
+     * @param pk 主键字段
+     * @param insertOnlyFields 只在新增时写入的字段
+     * @return 更新的字段列表
+     */
+    protected List<SimpleFieldColumn> getUpdateColumns(List<SimpleFieldColumn> insertColumns, SimpleFieldColumn pk,
+            Set<String> insertOnlyFields) {
+        List<SimpleFieldColumn> columns = new ArrayList<>();
+        for (SimpleFieldColumn column : insertColumns) {
+            String fieldName = column.getFieldName();
+            if (!column.isColumnUpdatable() || fieldName.equals(pk.getFieldName())) {
+                continue;
+            }
+            if (insertOnlyFields != null && insertOnlyFields.contains(fieldName)) {
+                continue;
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /** 获取新增时的字段值, 字段值为空时取字段默认值 **/
+    protected Object getInsertValue(SimpleFieldColumn column, Map<String, Object> entity) {
+        Object fieldValue = entity.get(column.getFieldName());
+        if (VerifyTools.isBlank(fieldValue) && VerifyTools.isNotBlank(column.getColumnDefault())) {
+            fieldValue = column.getColumnDefault();
+        }
+        // 与BatchUpdateByJoinUsing一致, 不支持DbFieldName/DbFieldValue/DbRawValue, 只支持fieldName=fieldValue
+        return fieldValue;
+    }
+
+    /**
+     * 生成多行VALUES的批量新增语句<br>
+     * INSERT INTO {tableName}({columnNames})<br>
+     * VALUES<br>
+     * ({fieldValues}),<br>
+     * ...<br>
+     * ({fieldValues})
+     *
+     * @param tableName 表名
+     * @param insertColumns 新增的字段列表
+     * @param entities 实体对象列表
+     * @return SQL语句
+     */
+    protected SqlBuilder buildInsertValuesSql(String tableName, List<SimpleFieldColumn> insertColumns,
+            List<PkEntity> entities) {
+        // 获取批量操作语句的省略策略配置项
+        OmitStrategy omits = DbTools.getOmitSizeConfig("qdbc.batch.sql.omitStrategy", "8:3");
+
+        SqlBuilder sql = new SqlBuilder();
+        // INSERT INTO (...)
+        sql.ad("INSERT INTO").ad(tableName).ad('(');
+        appendColumnNames(sql, insertColumns);
+        sql.ad(')').newline();
+        // VALUES (...) (...)
+        sql.ad("VALUES");
+        int size = entities.size();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> entity = entities.get(i).getEntity();
+            if (i > 0) {
+                sql.ad(',');
+            }
+            sql.newline();
+            if (omits.getMinSize() > 0 && size > omits.getMinSize()) {
+                sql.omit(i, size, omits.getKeepSize()); // 插入省略标记
+            }
+            sql.ad('(');
+            for (int j = 0; j < insertColumns.size(); j++) {
+                if (j > 0) {
+                    sql.ad(',');
+                }
+                sql.var(getInsertValue(insertColumns.get(j), entity));
+            }
+            sql.ad(')');
+        }
+        return sql;
+    }
+
+    /** 生成以逗号分隔的列名, 如FIELD1, FIELD2, ..., FIELDn **/
+    protected void appendColumnNames(SqlBuilder sql, List<SimpleFieldColumn> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.ad(',', ' ');
+            }
+            sql.ad(columns.get(i).getColumnName());
+        }
+    }
+
+    /** 生成以逗号分隔的带表别名的列名, 如B.FIELD1, B.FIELD2, ..., B.FIELDn **/
+    protected void appendColumnNames(SqlBuilder sql, List<SimpleFieldColumn> columns, char tableAlias) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.ad(',', ' ');
+            }
+            sql.ad(tableAlias, '.').ad(columns.get(i).getColumnName());
+        }
+    }
+
+    /** 获取主键列表 **/
+    protected List<String> getPrimaryKeys(List<PkEntity> entities) {
+        List<String> ids = new ArrayList<>();
+        for (PkEntity item : entities) {
+            ids.add(item.getPrimaryKey());
+        }
+        return ids;
+    }
+}
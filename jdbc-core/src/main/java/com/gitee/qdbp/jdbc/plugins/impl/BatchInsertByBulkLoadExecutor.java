@@ -0,0 +1,328 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import com.gitee.qdbp.able.exception.ServiceException;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.exception.DbErrorCode;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 利用数据库原生的批量导入功能的批量新增接口实现类(要求字段对齐)<br>
+ * 实体列表逐行转换为文本格式(制表符分隔字段, 换行分隔记录, \N表示NULL, 反斜杠转义), 以InputStream的方式边转换边发送<br>
+ * 不生成临时文件, 也不生成超长SQL, 适用于数据迁移等数据量非常大的场景<br>
+ * 记录数少于qdbc.batch.bulkLoad.minSize(默认1000)时, 交给其他批量新增处理类执行<br>
+ * 注意: CrudDao按QdbcBoot.defaultBatchSize(默认500)分批调用, 需要调大分批数量才会使用批量导入<br>
+ * 注意: 只支持Boolean/Character/Date/Number/String类型的字段值(经VariableToDbValueConverter转换之后), 不支持原生SQL值<br>
+ * 开始导入之前先逐行检查, 存在不支持的字段值时整批交给其他批量新增处理类执行<br>
+ * 导入的记录数与实体数量不一致时(如MySQL的LOAD DATA LOCAL将主键重复视为警告并跳过), 抛出异常
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public abstract class BatchInsertByBulkLoadExecutor implements BatchInsertExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchInsertByBulkLoadExecutor.class);
+
+    @Override
+    public List<String> inserts(List<PkEntity> entities, SqlBufferJdbcOperations jdbc, CrudSqlBuilder sqlBuilder) {
+        DbVersion version = jdbc.getDbVersion();
+        if (entities.size() < getMinSize(version)) {
+            return getFallbackExecutor(version).inserts(entities, jdbc, sqlBuilder);
+        }
+        CrudFragmentHelper sqlHelper = sqlBuilder.helper();
+        SqlDialect dialect = jdbc.getSqlDialect();
+        String tableName = sqlHelper.getTableName();
+        Set<String> fieldNames = mergeFields(entities);
+        // 不支持的字段名在buildInsertFieldsSql时就会报错, 因此列数就是字段数
+        String columns = sqlHelper.buildInsertFieldsSql(fieldNames).getPreparedSqlString(dialect);
+        int columnCount = fieldNames.size();
+        if (!checkBulkLoadValues(entities, fieldNames, columnCount, sqlHelper, dialect)) {
+            return getFallbackExecutor(version).inserts(entities, jdbc, sqlBuilder);
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (PkEntity item : entities) {
+            ids.add(item.getPrimaryKey());
+        }
+        final SqlBuffer sql = buildBulkLoadSql(tableName, columns);
+        final String sqlString = sql.getPreparedSqlString(dialect);
+        final InputStream input = new RowsInputStream(this, entities, fieldNames, columnCount, sqlHelper, dialect);
+        long startTime = System.currentTimeMillis();
+        // 通过SqlBufferJdbcOperations执行, 使用主库连接, 参与当前事务
+        Long rows = jdbc.execute(sql, new PreparedStatementCallback<Long>() {
+
+            @Override
+            public Long doInPreparedStatement(PreparedStatement ps) throws SQLException {
+                return executeBulkLoad(ps, sqlString, input);
+            }
+        });
+        if (log.isDebugEnabled()) {
+            long time = System.currentTimeMillis() - startTime;
+            log.debug("Bulk load {} rows into {}, elapsed time {}ms.", rows, tableName, time);
+        }
+        if (rows == null || rows != entities.size()) {
+            String details = "table=" + tableName + ", expected=" + entities.size() + ", actual=" + rows;
+            throw new ServiceException(DbErrorCode.DB_AFFECTED_ROWS_MISMATCH, details);
+        }
+        return ids;
+    }
+
+    /**
+     * 开始导入之前逐行检查字段值, 避免导入到一半时才因为某一行不支持而整批失败
+     *
+     * @return 全部支持时返回true; 存在原生SQL值或不支持的字段值类型时返回false
+     */
+    private boolean checkBulkLoadValues(List<PkEntity> entities, Set<String> fieldNames, int columnCount,
+            CrudFragmentHelper sqlHelper, SqlDialect dialect) {
+        for (int i = 0; i < entities.size(); i++) {
+            PkEntity item = entities.get(i);
+            SqlBuffer valuesSql = sqlHelper.buildInsertValuesSql(fieldNames, item.getEntity());
+            List<Object> values = valuesSql.getVariableValues();
+            if (values.size() != columnCount) {
+                log.debug("Raw sql values are not supported for bulk load, row {}, primaryKey={}, use fallback.",
+                    i + 1, item.getPrimaryKey());
+                return false;
+            }
+            for (Object value : values) {
+                Object dbValue = DbTools.variableToDbValue(value, dialect);
+                if (!isSupportedValue(dbValue)) {
+                    log.debug("Unsupported value type for bulk load: {}, row {}, primaryKey={}, use fallback.",
+                        dbValue.getClass().getName(), i + 1, item.getPrimaryKey());
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断字段值能否转换为文本格式
+     *
+     * @param value 经VariableToDbValueConverter转换之后的字段值
+     * @return 是否支持
+     */
+    protected boolean isSupportedValue(Object value) {
+        return value == null || value instanceof Boolean || value instanceof Number || value instanceof CharSequence
+                || value instanceof Character || value instanceof Date;
+    }
+
+    /**
+     * 生成批量导入语句
+     *
+     * @param tableName 表名
+     * @param columns 列名, 多个以逗号分隔
+     * @return 批量导入语句
+     */
+    protected abstract SqlBuffer buildBulkLoadSql(String tableName, String columns);
+
+    /**
+     * 执行批量导入
+     *
+     * @param ps 由批量导入语句创建的PreparedStatement
+     * @param sql 批量导入语句
+     * @param input 文本格式的记录数据
+     * @return 导入的记录数
+     * @throws SQLException 导入失败
+     */
+    protected abstract long executeBulkLoad(PreparedStatement ps, String sql, InputStream input) throws SQLException;
+
+    /** 布尔值的文本格式 **/
+    protected abstract String formatBoolean(boolean value);
+
+    /** 触发批量导入的最小记录数(可按数据库类型配置, 如qdbc.batch.bulkLoad.minSize.postgresql=5000) **/
+    protected int getMinSize(DbVersion version) {
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), version);
+        Integer size = config.getInteger("qdbc.batch.bulkLoad.minSize", 1000);
+        return size == null ? 1000 : size;
+    }
+
+    /** 记录数较少时使用的批量新增处理类: 排除批量导入之后的第一个支持当前数据库的处理类 **/
+    protected BatchInsertExecutor getFallbackExecutor(DbVersion version) {
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        for (BatchInsertExecutor item : plugins.getBatchInsertExecutors()) {
+            if (!(item instanceof BatchInsertByBulkLoadExecutor) && item.supports(version)) {
+                return item;
+            }
+        }
+        return plugins.getDefaultBatchInsertExecutor();
+    }
+
+    /**
+     * 将字段值转换为文本格式, 追加到buffer中
+     *
+     * @param buffer 缓冲区
+     * @param value 经VariableToDbValueConverter转换之后的字段值
+     * @throws IOException 不支持的字段值类型
+     */
+    protected void appendValue(StringBuilder buffer, Object value) throws IOException {
+        if (value == null) {
+            buffer.append("\\N");
+            return;
+        }
+        String text;
+        if (value instanceof Boolean) {
+            text = formatBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            text = ((BigDecimal) value).toPlainString();
+        } else if (value instanceof Number || value instanceof CharSequence || value instanceof Character) {
+            text = value.toString();
+        } else if (value instanceof java.sql.Date || value instanceof Time || value instanceof Timestamp) {
+            text = value.toString();
+        } else if (value instanceof Date) {
+            text = new Timestamp(((Date) value).getTime()).toString();
+        } else {
+            throw new IOException("Unsupported value type for bulk load: " + value.getClass().getName());
+        }
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\':
+                buffer.append("\\\\");
+                break;
+            case '\t':
+                buffer.append("\\t");
+                break;
+            case '\n':
+                buffer.append("\\n");
+                break;
+            case '\r':
+                buffer.append("\\r");
+                break;
+            default:
+                buffer.append(c);
+            }
+        }
+    }
+
+    /** 调用驱动的扩展方法, 将反射异常还原为SQLException **/
+    protected static SQLException toSQLException(Exception e) {
+        Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        } else {
+            return new SQLException("Failed to invoke jdbc driver for bulk load.", cause);
+        }
+    }
+
+    /** 判断驱动类是否存在 **/
+    protected static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, BatchInsertByBulkLoadExecutor.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private Set<String> mergeFields(List<PkEntity> entities) {
+        Set<String> fieldNames = new HashSet<>();
+        for (PkEntity item : entities) {
+            fieldNames.addAll(item.getEntity().keySet());
+        }
+        return fieldNames;
+    }
+
+    /** 逐行生成文本格式记录数据的输入流, 读到哪一行才转换哪一行 **/
+    private static class RowsInputStream extends InputStream {
+
+        private final BatchInsertByBulkLoadExecutor executor;
+        private final List<PkEntity> entities;
+        private final Set<String> fieldNames;
+        private final int columnCount;
+        private final CrudFragmentHelper sqlHelper;
+        private final SqlDialect dialect;
+        private final StringBuilder rowBuffer = new StringBuilder();
+        private int rowIndex = 0;
+        private byte[] bytes = new byte[0];
+        private int position = 0;
+
+        public RowsInputStream(BatchInsertByBulkLoadExecutor executor, List<PkEntity> entities,
+                Set<String> fieldNames, int columnCount, CrudFragmentHelper sqlHelper, SqlDialect dialect) {
+            this.executor = executor;
+            this.entities = entities;
+            this.fieldNames = fieldNames;
+            this.columnCount = columnCount;
+            this.sqlHelper = sqlHelper;
+            this.dialect = dialect;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int count = 0;
+            while (count < length && ensureAvailable()) {
+                int size = Math.min(length - count, bytes.length - position);
+                System.arraycopy(bytes, position, target, offset + count, size);
+                position += size;
+                count += size;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position >= bytes.length) {
+                if (rowIndex >= entities.size()) {
+                    return false;
+                }
+                bytes = nextRow().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return true;
+        }
+
+        private String nextRow() throws IOException {
+            PkEntity item = entities.get(rowIndex++);
+            // 复用生成INSERT语句的逻辑, 保证列顺序/默认值/特殊值的处理与INSERT一致
+            SqlBuffer valuesSql = sqlHelper.buildInsertValuesSql(fieldNames, item.getEntity());
+            List<Object> values = valuesSql.getVariableValues();
+            if (values.size() != columnCount) {
+                String msg = "Raw sql values are not supported for bulk load, row " + rowIndex;
+                throw new IOException(msg + ", primaryKey=" + item.getPrimaryKey());
+            }
+            rowBuffer.setLength(0);
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    rowBuffer.append('\t');
+                }
+                executor.appendValue(rowBuffer, DbTools.variableToDbValue(values.get(i), dialect));
+            }
+            return rowBuffer.append('\n').toString();
+        }
+    }
+}
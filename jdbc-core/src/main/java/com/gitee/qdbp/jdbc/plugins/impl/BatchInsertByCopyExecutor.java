@@ -0,0 +1,67 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * PostgreSQL的COPY FROM STDIN批量导入接口实现类<br>
+ * COPY {tableName}({columnNames}) FROM STDIN<br>
+ * 通过驱动的CopyManager发送文本格式的记录数据, 不依赖PostgreSQL驱动的编译期API(运行时通过反射调用)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchInsertByCopyExecutor extends BatchInsertByBulkLoadExecutor {
+
+    private static final String PG_CONNECTION_CLASS = "org.postgresql.PGConnection";
+    private static final boolean DRIVER_PRESENT = isClassPresent(PG_CONNECTION_CLASS);
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        if (!DRIVER_PRESENT) {
+            return false;
+        }
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        String defvalue = "postgresql";
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, defvalue);
+        return version.matchesWith(options);
+    }
+
+    @Override
+    protected SqlBuffer buildBulkLoadSql(String tableName, String columns) {
+        SqlBuilder sql = new SqlBuilder();
+        sql.ad("COPY").ad(tableName).ad('(').ad(columns).ad(')').ad("FROM STDIN");
+        return sql.out();
+    }
+
+    @Override
+    protected long executeBulkLoad(PreparedStatement ps, String sql, InputStream input) throws SQLException {
+        Connection connection = ps.getConnection();
+        try {
+            Class<?> pgConnectionClass = Class.forName(PG_CONNECTION_CLASS);
+            // 连接池返回的是包装过的连接, 需要unwrap
+            Object pgConnection = connection.unwrap(pgConnectionClass);
+            Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+            Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+            return ((Number) copyIn.invoke(copyManager, sql, input)).longValue();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw toSQLException(e);
+        }
+    }
+
+    @Override
+    protected String formatBoolean(boolean value) {
+        return value ? "t" : "f";
+    }
+}
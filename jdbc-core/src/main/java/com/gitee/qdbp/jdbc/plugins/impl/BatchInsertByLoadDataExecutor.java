@@ -0,0 +1,88 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * MySQL/MariaDB的LOAD DATA LOCAL INFILE批量导入接口实现类<br>
+ * LOAD DATA LOCAL INFILE 'qdbc-bulk-load' INTO TABLE {tableName} CHARACTER SET utf8mb4 ({columnNames})<br>
+ * 通过驱动的setLocalInfileInputStream发送文本格式的记录数据, 文件名只是占位, 不会读取本地文件<br>
+ * 默认不启用, 需要同时满足以下条件:<br>
+ * -- 配置qdbc.supports.BatchInsertByLoadDataExecutor = mysql,mariadb<br>
+ * -- 数据库连接参数allowLoadLocalInfile=true, 服务端local_infile=ON<br>
+ * -- 不能开启服务端预编译(useServerPrepStmts=false, 默认值)<br>
+ * 注意: LOCAL模式下服务端无法中止文件传输, 主键或唯一键重复的记录只产生警告并被跳过(相当于IGNORE)<br>
+ * 因此导入后检查受影响记录数, 少于实体数量时抛出异常(DB_AFFECTED_ROWS_MISMATCH), 在事务中执行时整批回滚<br>
+ * 不在事务中时已导入的记录不会回滚, 存在重复数据可能时应在事务中执行或改用其他批量新增方式
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchInsertByLoadDataExecutor extends BatchInsertByBulkLoadExecutor {
+
+    /** 支持setLocalInfileInputStream的Statement接口, 依次为MySQL8/MySQL5/MariaDB驱动 **/
+    private static final String[] STATEMENT_CLASSES = { "com.mysql.cj.jdbc.JdbcStatement",
+            "com.mysql.jdbc.Statement", "org.mariadb.jdbc.MariaDbStatement", "org.mariadb.jdbc.Statement" };
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        // 依赖于连接参数和服务端配置, 默认不启用
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, "");
+        return version.matchesWith(options);
+    }
+
+    @Override
+    protected SqlBuffer buildBulkLoadSql(String tableName, String columns) {
+        SqlBuilder sql = new SqlBuilder();
+        sql.ad("LOAD DATA LOCAL INFILE 'qdbc-bulk-load' INTO TABLE").ad(tableName);
+        sql.ad("CHARACTER SET utf8mb4").ad('(').ad(columns).ad(')');
+        return sql.out();
+    }
+
+    @Override
+    protected long executeBulkLoad(PreparedStatement ps, String sql, InputStream input) throws SQLException {
+        for (String className : STATEMENT_CLASSES) {
+            Class<?> statementClass;
+            try {
+                statementClass = Class.forName(className);
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+            if (!ps.isWrapperFor(statementClass)) {
+                continue;
+            }
+            Object statement = ps.unwrap(statementClass);
+            Method setter;
+            try {
+                setter = statementClass.getMethod("setLocalInfileInputStream", InputStream.class);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            try {
+                setter.invoke(statement, input);
+                try {
+                    return ps.executeUpdate();
+                } finally {
+                    setter.invoke(statement, (Object) null);
+                }
+            } catch (Exception e) {
+                throw e instanceof SQLException ? (SQLException) e : toSQLException(e);
+            }
+        }
+        throw new SQLException("Unsupported jdbc driver for LOAD DATA LOCAL INFILE: " + ps.getClass().getName());
+    }
+
+    @Override
+    protected String formatBoolean(boolean value) {
+        return value ? "1" : "0";
+    }
+}
@@ -1,8 +1,10 @@
 package com.gitee.qdbp.jdbc.plugins.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere;
 import com.gitee.qdbp.able.jdbc.model.PkEntity;
@@ -11,6 +13,7 @@ import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
 import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.plugins.BatchUpsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.DbConditionConverter;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
@@ -23,7 +26,7 @@ import com.gitee.qdbp.jdbc.utils.DbTools;
  * @author zhaohuihua
  * @version 20200706
  */
-public class BatchOperateByForEachExecutor implements BatchInsertExecutor, BatchUpdateExecutor {
+public class BatchOperateByForEachExecutor implements BatchInsertExecutor, BatchUpdateExecutor, BatchUpsertExecutor {
 
     @Override
     public boolean supports(DbVersion version) {
@@ -63,4 +66,37 @@ public class BatchOperateByForEachExecutor implements BatchInsertExecutor, Batch
         return rows;
     }
 
+    /**
+     * 逐一先根据主键更新, 受影响行数为0时再新增
+     *
+     * @since 3.2.2
+     */
+    @Override
+    public List<String> upserts(List<PkEntity> entities, Set<String> insertOnlyFields, SqlBufferJdbcOperations jdbc,
+            CrudSqlBuilder sqlBuilder) {
+        SimpleFieldColumn pk = sqlBuilder.helper().getPrimaryKey();
+        DbConditionConverter converter = DbTools.getDbConditionConverter();
+        List<String> ids = new ArrayList<>();
+        for (PkEntity item : entities) {
+            String pkValue = item.getPrimaryKey();
+            Map<String, Object> entity = item.getEntity();
+            // 更新时排除只在新增时写入的字段(主键保留, 保证至少有一个更新字段)
+            Map<String, Object> updateEntity = new HashMap<>(entity);
+            if (insertOnlyFields != null) {
+                updateEntity.keySet().removeAll(insertOnlyFields);
+            }
+            updateEntity.put(pk.getFieldName(), pkValue);
+            // 生成主键过滤条件
+            DbWhere where = new DbWhere();
+            where.on(pk.getFieldName(), "=", pkValue);
+            DbUpdate ud = converter.parseMapToDbUpdate(updateEntity);
+            int rows = jdbc.update(sqlBuilder.buildUpdateSql(ud, where));
+            if (rows == 0) {
+                jdbc.insert(sqlBuilder.buildInsertSql(entity));
+            }
+            ids.add(pkValue);
+        }
+        return ids;
+    }
+
 }
@@ -0,0 +1,87 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
+import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.plugins.DbConditionConverter;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 利用JDBC批处理(PreparedStatement.addBatch/executeBatch)的批量处理接口实现类<br>
+ * 每个实体生成一条参数化的INSERT/UPDATE语句, 字段相同的语句只预编译一次, 每个实体作为一个批处理参数<br>
+ * 不会像多VALUES/CASE WHEN方式那样生成超长SQL和大量参数, 适用于数据量大的场景<br>
+ * 驱动开启rewriteBatchedStatements(MySQL)/reWriteBatchedInserts(PostgreSQL)时效果更好<br>
+ * 每批提交的记录数由qdbc.batch.jdbc.flushSize配置, 默认500<br>
+ * 默认不启用, 注册在其他批量处理类之后, 不会改变已有的批量新增/更新方式;
+ * 需要在qdbc.supports.BatchOperateByJdbcBatchExecutor中配置数据库类型, 如oracle,postgresql,h2,sqlite<br>
+ * 配置了的数据库类型, 如果前面的批量处理类也支持, 仍然优先使用前面的处理类<br>
+ * MySQL/MariaDB: 驱动未开启rewriteBatchedStatements=true时(默认未开启), 每个批处理参数都是一次网络往返,
+ * 不如一条SQL完成的BatchInsertByMultiRowsExecutor/BatchUpdateByJoinUsingExecutor;
+ * 连接参数开启rewriteBatchedStatements=true后才建议加入mysql,mariadb
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchOperateByJdbcBatchExecutor implements BatchInsertExecutor, BatchUpdateExecutor {
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        // 默认不启用, 需要配置支持的数据库类型
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, "");
+        return version.matchesWith(options);
+    }
+
+    @Override
+    public List<String> inserts(List<PkEntity> entities, SqlBufferJdbcOperations jdbc, CrudSqlBuilder sqlBuilder) {
+        List<String> ids = new ArrayList<>();
+        List<SqlBuffer> sqls = new ArrayList<>();
+        for (PkEntity item : entities) {
+            sqls.add(sqlBuilder.buildInsertSql(item.getEntity()));
+            ids.add(item.getPrimaryKey());
+        }
+        // 执行JDBC批处理
+        jdbc.batchInsert(sqls, getFlushSize(jdbc.getDbVersion()));
+        return ids;
+    }
+
+    @Override
+    public int updates(List<PkEntity> entities, SqlBufferJdbcOperations jdbc, CrudSqlBuilder sqlBuilder) {
+        // 查找主键(批量更新必须要有主键)
+        SimpleFieldColumn pk = sqlBuilder.helper().getPrimaryKey();
+        DbConditionConverter converter = DbTools.getDbConditionConverter();
+        List<SqlBuffer> sqls = new ArrayList<>();
+        for (PkEntity item : entities) {
+            String pkValue = item.getPrimaryKey();
+            Map<String, Object> entity = item.getEntity();
+            // 生成主键过滤条件
+            DbWhere where = new DbWhere();
+            where.on(pk.getFieldName(), "=", pkValue);
+            // entity转换为DbUpdate
+            DbUpdate ud = converter.parseMapToDbUpdate(entity);
+            sqls.add(sqlBuilder.buildUpdateSql(ud, where));
+        }
+        // 执行JDBC批处理
+        return jdbc.batchUpdate(sqls, getFlushSize(jdbc.getDbVersion()));
+    }
+
+    /** 每批提交的记录数(可按数据库类型配置, 如qdbc.batch.jdbc.flushSize.oracle=1000) **/
+    protected int getFlushSize(DbVersion version) {
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), version);
+        Integer size = config.getInteger("qdbc.batch.jdbc.flushSize", 500);
+        return size == null || size <= 0 ? Integer.MAX_VALUE : size;
+    }
+}
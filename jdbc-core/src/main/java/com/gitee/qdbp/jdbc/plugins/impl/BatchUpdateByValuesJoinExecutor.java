@@ -0,0 +1,336 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.AllFieldColumn;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.FieldColumns;
+import com.gitee.qdbp.jdbc.model.FieldScene;
+import com.gitee.qdbp.jdbc.model.OmitStrategy;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache.ColumnType;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.utils.ConvertTools;
+
+/**
+ * 关联VALUES临时表的批量更新接口实现类(要求字段对齐)<br>
+ * 一条SQL更新一批记录, 用于PostgreSQL/SqlServer/H2/SQLite, 各数据库的语法如下:<br>
+ * PostgreSQL: <pre>
+    UPDATE {tableName} A SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn
+    FROM (VALUES (CAST({id1} AS {idType}), CAST({field11} AS {field1Type}), ...), (...)) B(ID, FIELD1, ..., FIELDn)
+    WHERE A.ID=B.ID</pre>
+ * SqlServer(2008以上版本): <pre>
+    UPDATE A SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+    FROM {tableName} A JOIN (VALUES (...), (...)) B(ID, FIELD1, ..., FIELDn) ON A.ID=B.ID</pre>
+ * SQLite(3.33以上版本, VALUES不支持指定列名, 改为SELECT UNION ALL): <pre>
+    UPDATE {tableName} SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn
+    FROM (SELECT {id1} ID, {field11} FIELD1, ... UNION ALL SELECT {id2} ID, {field21} FIELD1, ...) B
+    WHERE {tableName}.ID=B.ID</pre>
+ * H2(1.4.198以上版本, 不支持UPDATE FROM, 改为MERGE): <pre>
+    MERGE INTO {tableName} A USING (SELECT ... FROM DUAL UNION ALL SELECT ... FROM DUAL) B ON (A.ID=B.ID)
+    WHEN MATCHED THEN UPDATE SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn</pre>
+ * 一条SQL的参数个数受数据库限制(如SqlServer最多2100个), 超过qdbc.batch.sql.maxParameters时拆分为多条SQL执行<br>
+ * PostgreSQL中VALUES的列类型由参数推断, 全为NULL的列会被推断为text, 字符串参数也无法直接赋值给uuid/numeric等字段,
+ * 因此每个参数都转换为目标字段的类型(CAST(? AS uuid)); 字段类型首次使用时从表的元数据中读取, 按(数据源, 表名)缓存
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchUpdateByValuesJoinExecutor implements BatchUpdateExecutor {
+
+    /** 字段类型缓存(PostgreSQL) **/
+    private final ColumnTypeCache columnTypeCache = new ColumnTypeCache(1000);
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        // SQL Server 需要2008以上版本, H2需要1.4.198以上版本, SQLite需要3.33以上版本
+        String defvalue = "postgresql,sqlserver.2008,h2.1.4.198,sqlite.3.33";
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, defvalue);
+        return version.matchesWith(options);
+    }
+
+    @Override
+    public int updates(List<PkEntity> entities, SqlBufferJdbcOperations jdbc, CrudSqlBuilder sqlBuilder) {
+        CrudFragmentHelper sqlHelper = sqlBuilder.helper();
+        SimpleFieldColumn pk = sqlHelper.getPrimaryKey();
+        Set<String> fieldNames = mergeFields(entities);
+
+        // 检查字段名
+        sqlHelper.checkSupportedFields(FieldScene.UPDATE, fieldNames, "build batch update sql");
+        // 字段名映射表
+        Map<String, ?> fieldMap = ConvertTools.toMap(fieldNames);
+
+        AllFieldColumn<? extends SimpleFieldColumn> all = sqlHelper.getAllFieldColumns();
+        FieldColumns<? extends SimpleFieldColumn> fieldColumns = all.filter(FieldScene.UPDATE);
+        List<SimpleFieldColumn> columns = new ArrayList<>();
+        for (SimpleFieldColumn column : fieldColumns) {
+            String fieldName = column.getFieldName();
+            if (fieldMap.containsKey(fieldName) && !fieldName.equals(pk.getFieldName())) {
+                columns.add(column);
+            }
+        }
+        if (columns.isEmpty()) {
+            return 0; // 除主键以外没有需要更新的字段
+        }
+
+        // 按参数个数上限拆分, 每行的参数个数是主键加更新字段
+        DbVersion version = jdbc.getDbVersion();
+        String tableName = sqlHelper.getTableName();
+        int batchSize = Math.max(1, getMaxParameters(version) / (columns.size() + 1));
+        int rows = 0;
+        for (int start = 0, size = entities.size(); start < size; start += batchSize) {
+            List<PkEntity> batch = entities.subList(start, Math.min(start + batchSize, size));
+            SqlBuilder sql;
+            if (version.matchesWith("sqlserver")) {
+                sql = buildSqlServerUpdateSql(tableName, pk, columns, batch);
+            } else if (version.matchesWith("h2")) {
+                sql = buildMergeUpdateSql(tableName, pk, columns, batch);
+            } else if (version.matchesWith("sqlite")) {
+                sql = buildSelectJoinUpdateSql(tableName, pk, columns, batch);
+            } else {
+                Map<String, String> columnTypes = getColumnTypes(tableName, jdbc);
+                sql = buildValuesJoinUpdateSql(tableName, pk, columns, batch, columnTypes);
+            }
+            // 执行批量数据库更新
+            rows += jdbc.batchUpdate(sql.out());
+        }
+        return rows;
+    }
+
+    /**
+     * UPDATE {tableName} A SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn<br>
+     * FROM (VALUES (CAST(? AS {type}), ...), (...)) B(ID, FIELD1, ..., FIELDn)<br>
+     * WHERE A.ID=B.ID
+     * 
+     * @param columnTypes 字段类型, key=列名(大写), 找不到类型的字段不做类型转换
+     */
+    protected SqlBuilder buildValuesJoinUpdateSql(String tableName, SimpleFieldColumn pk,
+            List<SimpleFieldColumn> columns, List<PkEntity> entities, Map<String, String> columnTypes) {
+        SqlBuilder sql = new SqlBuilder();
+        // UPDATE {tableName} A SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn
+        // PostgreSQL的SET字段不能带表别名
+        sql.ad("UPDATE").ad(tableName).ad('A').ad("SET");
+        appendSetColumns(sql, columns, false);
+        // FROM (VALUES (...), (...)) B(ID, FIELD1, ..., FIELDn)
+        sql.newline().ad("FROM").ad('(').newline().tab();
+        appendValues(sql, pk, columns, entities, columnTypes);
+        sql.newline().tab(-1).ad(')').ad('B').ad('(');
+        appendColumnNames(sql, pk, columns);
+        sql.ad(')');
+        // WHERE A.ID=B.ID
+        sql.newline().ad("WHERE").ad('A', '.').ad(pk.getColumnName()).ad('=').ad('B', '.').ad(pk.getColumnName());
+        return sql;
+    }
+
+    /**
+     * UPDATE A SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn<br>
+     * FROM {tableName} A JOIN (VALUES (...), (...)) B(ID, FIELD1, ..., FIELDn) ON A.ID=B.ID
+     */
+    protected SqlBuilder buildSqlServerUpdateSql(String tableName, SimpleFieldColumn pk,
+            List<SimpleFieldColumn> columns, List<PkEntity> entities) {
+        SqlBuilder sql = new SqlBuilder();
+        // UPDATE A SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+        sql.ad("UPDATE").ad('A').ad("SET");
+        appendSetColumns(sql, columns, true);
+        // FROM {tableName} A JOIN (VALUES (...), (...)) B(ID, FIELD1, ..., FIELDn)
+        sql.newline().ad("FROM").ad(tableName).ad('A').ad("JOIN").ad('(').newline().tab();
+        appendValues(sql, pk, columns, entities, null);
+        sql.newline().tab(-1).ad(')').ad('B').ad('(');
+        appendColumnNames(sql, pk, columns);
+        sql.ad(')');
+        // ON A.ID=B.ID
+        sql.ad("ON").ad('A', '.').ad(pk.getColumnName()).ad('=').ad('B', '.').ad(pk.getColumnName());
+        return sql;
+    }
+
+    /**
+     * UPDATE {tableName} SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn<br>
+     * FROM (SELECT ... UNION ALL SELECT ...) B<br>
+     * WHERE {tableName}.ID=B.ID
+     */
+    protected SqlBuilder buildSelectJoinUpdateSql(String tableName, SimpleFieldColumn pk,
+            List<SimpleFieldColumn> columns, List<PkEntity> entities) {
+        SqlBuilder sql = new SqlBuilder();
+        // UPDATE {tableName} SET FIELD1=B.FIELD1, ..., FIELDn=B.FIELDn
+        sql.ad("UPDATE").ad(tableName).ad("SET");
+        appendSetColumns(sql, columns, false);
+        // FROM (SELECT ... UNION ALL SELECT ...) B
+        sql.newline().ad("FROM").ad('(').newline().tab();
+        appendSelects(sql, pk, columns, entities, null);
+        sql.newline().tab(-1).ad(')').ad('B');
+        // WHERE {tableName}.ID=B.ID
+        sql.newline().ad("WHERE").ad(tableName).ad('.').ad(pk.getColumnName());
+        sql.ad('=').ad('B', '.').ad(pk.getColumnName());
+        return sql;
+    }
+
+    /**
+     * MERGE INTO {tableName} A USING (SELECT ... FROM DUAL UNION ALL ...) B ON (A.ID=B.ID)<br>
+     * WHEN MATCHED THEN UPDATE SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+     */
+    protected SqlBuilder buildMergeUpdateSql(String tableName, SimpleFieldColumn pk,
+            List<SimpleFieldColumn> columns, List<PkEntity> entities) {
+        SqlBuilder sql = new SqlBuilder();
+        // MERGE INTO {tableName} A USING (SELECT ... FROM DUAL UNION ALL ...) B ON (A.ID=B.ID)
+        sql.ad("MERGE INTO").ad(tableName).ad('A').ad("USING").ad('(').newline().tab();
+        appendSelects(sql, pk, columns, entities, "DUAL");
+        sql.newline().tab(-1).ad(')').ad('B');
+        sql.ad("ON").ad('(').ad('A', '.').ad(pk.getColumnName()).ad('=').ad('B', '.').ad(pk.getColumnName()).ad(')');
+        // WHEN MATCHED THEN UPDATE SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+        sql.newline().ad("WHEN MATCHED THEN UPDATE SET");
+        appendSetColumns(sql, columns, true);
+        return sql;
+    }
+
+    /** FIELD1=B.FIELD1, FIELD2=B.FIELD2, ..., FIELDn=B.FIELDn **/
+    private void appendSetColumns(SqlBuilder sql, List<SimpleFieldColumn> columns, boolean targetAlias) {
+        for (int i = 0; i < columns.size(); i++) {
+            String columnName = columns.get(i).getColumnName();
+            if (i > 0) {
+                sql.ad(',', ' ');
+            }
+            if (targetAlias) {
+                sql.ad('A', '.');
+            }
+            sql.ad(columnName).ad('=').ad('B', '.').ad(columnName);
+        }
+    }
+
+    /** ID, FIELD1, FIELD2, ..., FIELDn **/
+    private void appendColumnNames(SqlBuilder sql, SimpleFieldColumn pk, List<SimpleFieldColumn> columns) {
+        sql.ad(pk.getColumnName());
+        for (SimpleFieldColumn column : columns) {
+            sql.ad(',', ' ').ad(column.getColumnName());
+        }
+    }
+
+    /** VALUES ({id1}, {field11}, ..., {field1n}), ({id2}, {field21}, ..., {field2n}) **/
+    private void appendValues(SqlBuilder sql, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+            List<PkEntity> entities, Map<String, String> columnTypes) {
+        // 获取批量操作语句的省略策略配置项
+        OmitStrategy omits = DbTools.getOmitSizeConfig("qdbc.batch.sql.omitStrategy", "8:3");
+        sql.ad("VALUES");
+        int size = entities.size();
+        for (int i = 0; i < size; i++) {
+            PkEntity item = entities.get(i);
+            if (i > 0) {
+                sql.ad(',');
+            }
+            sql.newline();
+            if (omits.getMinSize() > 0 && size > omits.getMinSize()) {
+                sql.omit(i, size, omits.getKeepSize()); // 插入省略标记
+            }
+            sql.ad('(');
+            appendValue(sql, item.getPrimaryKey(), pk, columnTypes);
+            Map<String, Object> entity = item.getEntity();
+            for (SimpleFieldColumn column : columns) {
+                // 与BatchUpdateByJoinUsing一致, 不支持DbFieldName/DbFieldValue/DbRawValue, 只支持fieldName=fieldValue
+                sql.ad(',');
+                appendValue(sql, entity.get(column.getFieldName()), column, columnTypes);
+            }
+            sql.ad(')');
+        }
+    }
+
+    /** {value} 或 CAST({value} AS {columnType}) **/
+    private void appendValue(SqlBuilder sql, Object value, SimpleFieldColumn column,
+            Map<String, String> columnTypes) {
+        String columnType = columnTypes == null ? null : columnTypes.get(column.getColumnName().toUpperCase());
+        if (columnType == null) {
+            sql.var(value);
+        } else {
+            sql.ad("CAST(").var(value).ad("AS").ad(columnType).ad(')');
+        }
+    }
+
+    /** SELECT {id1} ID, {field11} FIELD1, ..., {field1n} FIELDn [FROM DUAL] UNION ALL ... **/
+    private void appendSelects(SqlBuilder sql, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+            List<PkEntity> entities, String fromTable) {
+        // 获取批量操作语句的省略策略配置项
+        OmitStrategy omits = DbTools.getOmitSizeConfig("qdbc.batch.sql.omitStrategy", "8:3");
+        int size = entities.size();
+        for (int i = 0; i < size; i++) {
+            PkEntity item = entities.get(i);
+            if (i > 0) {
+                sql.newline().ad("UNION ALL").newline();
+            }
+            if (omits.getMinSize() > 0 && size > omits.getMinSize()) {
+                sql.omit(i, size, omits.getKeepSize()); // 插入省略标记
+            }
+            sql.ad("SELECT").var(item.getPrimaryKey()).ad(pk.getColumnName());
+            Map<String, Object> entity = item.getEntity();
+            for (SimpleFieldColumn column : columns) {
+                sql.ad(',', ' ').var(entity.get(column.getFieldName())).ad(column.getColumnName());
+            }
+            if (fromTable != null) {
+                sql.ad("FROM").ad(fromTable);
+            }
+        }
+    }
+
+    /**
+     * 获取字段类型(PostgreSQL), 从表的元数据中读取, 按(数据源, 表名)缓存<br>
+     * 表结构变更后可通过getColumnTypeCache().evict()刷新缓存
+     * 
+     * @param tableName 表名
+     * @param jdbc 数据库操作类
+     * @return 字段类型, key=列名(大写)
+     */
+    protected Map<String, String> getColumnTypes(String tableName, SqlBufferJdbcOperations jdbc) {
+        Map<String, String> columnTypes = new HashMap<>();
+        for (Map.Entry<String, ColumnType> entry : columnTypeCache.getColumnTypes(tableName, jdbc).entrySet()) {
+            columnTypes.put(entry.getKey(), toCastableType(entry.getValue().getTypeName()));
+        }
+        return columnTypes;
+    }
+
+    /** 字段类型缓存 **/
+    public ColumnTypeCache getColumnTypeCache() {
+        return columnTypeCache;
+    }
+
+    /** serial/bigserial/smallserial不是真实的类型, 不能用于CAST, 转换为对应的整数类型 **/
+    private static String toCastableType(String typeName) {
+        if ("serial".equalsIgnoreCase(typeName)) {
+            return "int4";
+        } else if ("bigserial".equalsIgnoreCase(typeName)) {
+            return "int8";
+        } else if ("smallserial".equalsIgnoreCase(typeName)) {
+            return "int2";
+        } else {
+            return typeName;
+        }
+    }
+
+    /** 一条SQL的参数个数上限(可按数据库类型配置, 如qdbc.batch.sql.maxParameters.sqlserver=2000) **/
+    protected int getMaxParameters(DbVersion version) {
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), version);
+        // SqlServer最多2100个参数, PostgreSQL/SQLite最多32767个参数
+        int defaults = version.matchesWith("sqlserver") ? 2000 : 32000;
+        Integer size = config.getInteger("qdbc.batch.sql.maxParameters", defaults);
+        return size == null || size <= 0 ? Integer.MAX_VALUE : size;
+    }
+
+    private Set<String> mergeFields(List<PkEntity> entities) {
+        Set<String> fieldNames = new HashSet<>();
+        for (PkEntity item : entities) {
+            fieldNames.addAll(item.getEntity().keySet());
+        }
+        return fieldNames;
+    }
+}
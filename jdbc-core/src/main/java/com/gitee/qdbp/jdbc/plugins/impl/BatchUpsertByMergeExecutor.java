@@ -0,0 +1,257 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.OmitStrategy;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache.ColumnType;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * MERGE INTO 批量新增或更新接口实现类(要求字段对齐)<br>
+ * Oracle/DB2/SqlServer(2008以上版本)/H2的标准MERGE语法<pre>
+    MERGE INTO {tableName} A USING (
+        SELECT {id1} ID, {field11} FIELD1, ..., {field1n} FIELDn FROM DUAL
+        UNION ALL
+        SELECT {id2} ID, {field21} FIELD1, ..., {field2n} FIELDn FROM DUAL
+    ) B ON (A.ID=B.ID)
+    WHEN MATCHED THEN UPDATE SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+    WHEN NOT MATCHED THEN INSERT (ID, FIELD1, ..., FIELDn) VALUES (B.ID, B.FIELD1, ..., B.FIELDn)</pre>
+ * DB2/SqlServer没有DUAL表, 数据来源改为 USING (VALUES (...), (...)) B(ID, FIELD1, ..., FIELDn)<br>
+ * DB2无法推断VALUES中参数的类型(SQL0418N), SqlServer将全为NULL的列推断为int,
+ * 因此VALUES中的每个参数都转换为目标字段的类型, 如CAST(? AS VARCHAR(50));
+ * 字段类型首次使用时从表的元数据中读取, 按(数据源, 表名)缓存<br>
+ * H2的MERGE INTO ... KEY(ID)语法会覆盖创建人/创建时间等字段, 因此也使用标准MERGE语法(需要1.4.198以上版本)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchUpsertByMergeExecutor extends BaseBatchUpsertExecutor {
+
+    /** 需要指定长度的字符/二进制类型 **/
+    private static final Set<String> LENGTH_TYPES = new HashSet<>(Arrays.asList("char", "character", "varchar",
+        "nchar", "nvarchar", "binary", "varbinary", "graphic", "vargraphic", "clob", "blob", "dbclob"));
+    /** 需要指定精度和小数位数的类型 **/
+    private static final Set<String> DECIMAL_TYPES = new HashSet<>(Arrays.asList("decimal", "numeric", "dec"));
+    /** SqlServer中可以指定为max的类型 **/
+    private static final Set<String> SQLSERVER_MAX_TYPES = new HashSet<>(Arrays.asList("varchar", "nvarchar",
+        "varbinary"));
+
+    /** 字段类型缓存(DB2/SqlServer) **/
+    private final ColumnTypeCache columnTypeCache = new ColumnTypeCache(1000);
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        // SQL Server 需要2008以上版本, H2需要1.4.198以上版本
+        String defvalue = "oracle,db2,sqlserver.2008,h2.1.4.198";
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, defvalue);
+        return version.matchesWith(options);
+    }
+
+    @Override
+    public List<String> upserts(List<PkEntity> entities, Set<String> insertOnlyFields, SqlBufferJdbcOperations jdbc,
+            CrudSqlBuilder sqlBuilder) {
+        CrudFragmentHelper sqlHelper = sqlBuilder.helper();
+        String tableName = sqlHelper.getTableName();
+        SimpleFieldColumn pk = sqlHelper.getPrimaryKey();
+        Set<String> fieldNames = mergeFields(entities);
+        List<SimpleFieldColumn> insertColumns = getInsertColumns(sqlHelper, fieldNames);
+        List<SimpleFieldColumn> updateColumns = getUpdateColumns(insertColumns, pk, insertOnlyFields);
+        DbVersion version = jdbc.getDbVersion();
+        boolean fromDual = isFromDual(version);
+
+        SqlBuilder sql = new SqlBuilder();
+        // MERGE INTO {tableName} A USING (
+        sql.ad("MERGE INTO").ad(tableName).ad('A').ad("USING").ad('(').newline().tab();
+        if (fromDual) {
+            appendSelectFromDual(sql, insertColumns, entities);
+            // ) B ON (A.ID=B.ID)
+            sql.newline().tab(-1).ad(')').ad('B');
+        } else {
+            Map<String, String> castTypes = getCastTypes(tableName, jdbc);
+            appendValues(sql, insertColumns, entities, castTypes);
+            // ) B(ID, FIELD1, ..., FIELDn) ON (A.ID=B.ID)
+            sql.newline().tab(-1).ad(')').ad('B').ad('(');
+            appendColumnNames(sql, insertColumns);
+            sql.ad(')');
+        }
+        String pkColumn = pk.getColumnName();
+        sql.ad("ON").ad('(').ad('A', '.').ad(pkColumn).ad('=').ad('B', '.').ad(pkColumn).ad(')');
+        // WHEN MATCHED THEN UPDATE SET A.FIELD1=B.FIELD1, ..., A.FIELDn=B.FIELDn
+        // 没有需要更新的字段时, 记录已存在时什么也不做
+        if (!updateColumns.isEmpty()) {
+            sql.newline().ad("WHEN MATCHED THEN UPDATE SET");
+            for (int i = 0; i < updateColumns.size(); i++) {
+                String columnName = updateColumns.get(i).getColumnName();
+                if (i > 0) {
+                    sql.ad(',', ' ');
+                }
+                sql.ad('A', '.').ad(columnName).ad('=').ad('B', '.').ad(columnName);
+            }
+        }
+        // WHEN NOT MATCHED THEN INSERT (ID, FIELD1, ..., FIELDn) VALUES (B.ID, B.FIELD1, ..., B.FIELDn)
+        sql.newline().ad("WHEN NOT MATCHED THEN INSERT").ad('(');
+        appendColumnNames(sql, insertColumns);
+        sql.ad(')').ad("VALUES").ad('(');
+        appendColumnNames(sql, insertColumns, 'B');
+        sql.ad(')');
+        if (version.matchesWith("sqlserver")) {
+            // SqlServer的MERGE语句必须以分号结束
+            sql.ad(';');
+        }
+
+        // 执行批量数据库新增或更新
+        jdbc.batchInsert(sql.out());
+        return getPrimaryKeys(entities);
+    }
+
+    /** SELECT {id1} ID, {field11} FIELD1, ..., {field1n} FIELDn FROM DUAL UNION ALL ... **/
+    protected void appendSelectFromDual(SqlBuilder sql, List<SimpleFieldColumn> columns, List<PkEntity> entities) {
+        // 获取批量操作语句的省略策略配置项
+        OmitStrategy omits = DbTools.getOmitSizeConfig("qdbc.batch.sql.omitStrategy", "8:3");
+        int size = entities.size();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> entity = entities.get(i).getEntity();
+            if (i > 0) {
+                sql.newline().ad("UNION ALL").newline();
+            }
+            if (omits.getMinSize() > 0 && size > omits.getMinSize()) {
+                sql.omit(i, size, omits.getKeepSize()); // 插入省略标记
+            }
+            sql.ad("SELECT");
+            for (int j = 0; j < columns.size(); j++) {
+                SimpleFieldColumn column = columns.get(j);
+                if (j > 0) {
+                    sql.ad(',', ' ');
+                }
+                sql.var(getInsertValue(column, entity)).ad(column.getColumnName());
+            }
+            sql.ad("FROM DUAL");
+        }
+    }
+
+    /** 数据来源是否使用SELECT FROM DUAL: Oracle/H2有DUAL表, DB2/SqlServer使用VALUES **/
+    protected boolean isFromDual(DbVersion version) {
+        return version.matchesWith("oracle,h2");
+    }
+
+    /**
+     * VALUES (CAST({id1} AS {idType}), CAST({field11} AS {field1Type}), ...), (...)<br>
+     * 找不到字段类型的参数不做类型转换
+     *
+     * @param sql SQL语句
+     * @param columns 新增的字段列表
+     * @param entities 实体对象列表
+     * @param castTypes 参数的转换类型, key=列名(大写)
+     */
+    protected void appendValues(SqlBuilder sql, List<SimpleFieldColumn> columns, List<PkEntity> entities,
+            Map<String, String> castTypes) {
+        // 获取批量操作语句的省略策略配置项
+        OmitStrategy omits = DbTools.getOmitSizeConfig("qdbc.batch.sql.omitStrategy", "8:3");
+        sql.ad("VALUES");
+        int size = entities.size();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> entity = entities.get(i).getEntity();
+            if (i > 0) {
+                sql.ad(',');
+            }
+            sql.newline();
+            if (omits.getMinSize() > 0 && size > omits.getMinSize()) {
+                sql.omit(i, size, omits.getKeepSize()); // 插入省略标记
+            }
+            sql.ad('(');
+            for (int j = 0; j < columns.size(); j++) {
+                if (j > 0) {
+                    sql.ad(',');
+                }
+                SimpleFieldColumn column = columns.get(j);
+                Object value = getInsertValue(column, entity);
+                String castType = castTypes == null ? null : castTypes.get(column.getColumnName().toUpperCase());
+                if (castType == null) {
+                    sql.var(value);
+                } else {
+                    sql.ad("CAST(").var(value).ad("AS").ad(castType).ad(')');
+                }
+            }
+            sql.ad(')');
+        }
+    }
+
+    /**
+     * 获取VALUES中参数的转换类型, 从表的元数据中读取, 按(数据源, 表名)缓存
+     *
+     * @param tableName 表名
+     * @param jdbc 数据库操作类
+     * @return 转换类型, key=列名(大写)
+     */
+    protected Map<String, String> getCastTypes(String tableName, SqlBufferJdbcOperations jdbc) {
+        DbVersion version = jdbc.getDbVersion();
+        Map<String, String> castTypes = new HashMap<>();
+        for (Map.Entry<String, ColumnType> entry : columnTypeCache.getColumnTypes(tableName, jdbc).entrySet()) {
+            String castType = toCastType(entry.getValue(), version);
+            if (castType != null) {
+                castTypes.put(entry.getKey(), castType);
+            }
+        }
+        return castTypes;
+    }
+
+    /**
+     * 生成CAST的目标类型: 字符/二进制类型带上长度, 小数类型带上精度和小数位数<br>
+     * 如VARCHAR(50), DECIMAL(10,2), DB2的VARCHAR(16) FOR BIT DATA, SqlServer的nvarchar(max)
+     *
+     * @param columnType 字段类型
+     * @param version 数据库版本
+     * @return 转换类型, 无法确定时返回null
+     */
+    protected String toCastType(ColumnType columnType, DbVersion version) {
+        String typeName = columnType.getTypeName();
+        if (typeName == null || typeName.trim().length() == 0) {
+            return null;
+        }
+        typeName = typeName.trim();
+        String lowerName = typeName.toLowerCase();
+        if (lowerName.endsWith(" identity")) {
+            // SqlServer自增字段的类型名称, 如int identity
+            typeName = typeName.substring(0, typeName.length() - " identity".length()).trim();
+            lowerName = typeName.toLowerCase();
+        }
+        int precision = columnType.getPrecision();
+        if (lowerName.contains("()")) {
+            // DB2的二进制字符类型, 如VARCHAR () FOR BIT DATA
+            return precision <= 0 ? null : typeName.replace("()", "(" + precision + ")").replace(" (", "(");
+        }
+        if (LENGTH_TYPES.contains(lowerName)) {
+            if (precision <= 0) {
+                return typeName;
+            }
+            if (version.matchesWith("sqlserver") && precision > 8000 && SQLSERVER_MAX_TYPES.contains(lowerName)) {
+                return typeName + "(max)";
+            }
+            return typeName + '(' + precision + ')';
+        }
+        if (DECIMAL_TYPES.contains(lowerName) && precision > 0) {
+            return typeName + '(' + precision + ',' + Math.max(0, columnType.getScale()) + ')';
+        }
+        return typeName;
+    }
+
+    /** 字段类型缓存 **/
+    public ColumnTypeCache getColumnTypeCache() {
+        return columnTypeCache;
+    }
+}
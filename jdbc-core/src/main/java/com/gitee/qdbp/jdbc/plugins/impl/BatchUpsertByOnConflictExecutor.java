@@ -0,0 +1,73 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.List;
+import java.util.Set;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.CrudFragmentHelper;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * INSERT ON CONFLICT DO UPDATE 批量新增或更新接口实现类(要求字段对齐)<br>
+ * PostgreSQL(9.5以上版本)及SQLite(3.24以上版本)的语法<pre>
+    INSERT INTO {tableName}(ID, FIELD1, FIELD2, ..., FIELDn)
+    VALUES
+    ({id1}, {field11}, {field12}, ..., {field1n}),
+    ({id2}, {field21}, {field22}, ..., {field2n})
+    ON CONFLICT(ID) DO UPDATE SET
+    FIELD1=EXCLUDED.FIELD1, FIELD2=EXCLUDED.FIELD2, ..., FIELDn=EXCLUDED.FIELDn</pre>
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class BatchUpsertByOnConflictExecutor extends BaseBatchUpsertExecutor {
+
+    /** 是否支持指定数据库 **/
+    @Override
+    public boolean supports(DbVersion version) {
+        String key = "qdbc.supports." + this.getClass().getSimpleName();
+        // PostgreSQL需要9.5以上版本, SQLite需要3.24以上版本
+        String defvalue = "postgresql.9.5,sqlite.3.24";
+        String options = DbTools.getDbConfig().getStringUseDefValue(key, defvalue);
+        return version.matchesWith(options);
+    }
+
+    @Override
+    public List<String> upserts(List<PkEntity> entities, Set<String> insertOnlyFields, SqlBufferJdbcOperations jdbc,
+            CrudSqlBuilder sqlBuilder) {
+        CrudFragmentHelper sqlHelper = sqlBuilder.helper();
+        String tableName = sqlHelper.getTableName();
+        SimpleFieldColumn pk = sqlHelper.getPrimaryKey();
+        Set<String> fieldNames = mergeFields(entities);
+        List<SimpleFieldColumn> insertColumns = getInsertColumns(sqlHelper, fieldNames);
+        List<SimpleFieldColumn> updateColumns = getUpdateColumns(insertColumns, pk, insertOnlyFields);
+
+        // INSERT INTO {tableName}(...) VALUES (...), (...)
+        SqlBuilder sql = buildInsertValuesSql(tableName, insertColumns, entities);
+        // ON CONFLICT(ID)
+        sql.newline().ad("ON CONFLICT").ad('(').ad(pk.getColumnName()).ad(')');
+        if (updateColumns.isEmpty()) {
+            // 没有需要更新的字段, 记录已存在时什么也不做
+            sql.ad("DO NOTHING");
+        } else {
+            // DO UPDATE SET FIELD1=EXCLUDED.FIELD1, FIELD2=EXCLUDED.FIELD2, ..., FIELDn=EXCLUDED.FIELDn
+            sql.ad("DO UPDATE SET").newline();
+            for (int i = 0; i < updateColumns.size(); i++) {
+                String columnName = updateColumns.get(i).getColumnName();
+                if (i > 0) {
+                    sql.ad(',', ' ');
+                }
+                sql.ad(columnName).ad('=').ad("EXCLUDED").ad('.').ad(columnName);
+            }
+        }
+
+        // 执行批量数据库新增或更新
+        jdbc.batchInsert(sql.out());
+        return getPrimaryKeys(entities);
+    }
+}
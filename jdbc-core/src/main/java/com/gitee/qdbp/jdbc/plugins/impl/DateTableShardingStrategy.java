@@ -0,0 +1,106 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
+import com.gitee.qdbp.tools.utils.DateTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 按时间分表: 实际表名为{tableName}_{日期格式化结果}, 如ORDER_INFO_202010<br>
+ * 日期格式决定分表周期: 包含d按日, 包含M按月, 否则按年<br>
+ * 所有实际表为起始日期所在周期至当前时间所在周期的表<br>
+ * 注意: 分表字段为未来时间的数据会写入未来周期的表(需提前建表), 但这些表不在所有实际表之中,
+ * 因此无法确定实际表的查询/修改/删除不会涉及这些数据, 直至当前时间进入该周期
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class DateTableShardingStrategy implements TableShardingStrategy {
+
+    private final String shardingField;
+    private final String pattern;
+    private final Date startDate;
+    private final int periodField;
+
+    /**
+     * 构造函数
+     *
+     * @param shardingField 分表字段名
+     * @param pattern 日期格式, 如yyyy/yyyyMM/yyyyMMdd
+     * @param startDate 起始日期(最早的一张表所在的日期)
+     */
+    public DateTableShardingStrategy(String shardingField, String pattern, Date startDate) {
+        VerifyTools.requireNotBlank(shardingField, "shardingField");
+        VerifyTools.requireNotBlank(pattern, "pattern");
+        VerifyTools.requireNonNull(startDate, "startDate");
+        this.shardingField = shardingField;
+        this.pattern = pattern;
+        this.startDate = new Date(startDate.getTime());
+        if (pattern.indexOf('d') >= 0) {
+            this.periodField = Calendar.DAY_OF_MONTH;
+        } else if (pattern.indexOf('M') >= 0) {
+            this.periodField = Calendar.MONTH;
+        } else {
+            this.periodField = Calendar.YEAR;
+        }
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingField() {
+        return shardingField;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingTableName(String tableName, Object fieldValue) {
+        Date date = toDate(fieldValue);
+        if (date == null) {
+            return null;
+        }
+        // SimpleDateFormat不是线程安全的, 每次新建
+        return tableName + '_' + new SimpleDateFormat(pattern).format(date);
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public List<String> getAllShardingTableNames(String tableName) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        String last = format.format(new Date());
+        List<String> tableNames = new ArrayList<>();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(startDate);
+        while (true) {
+            String suffix = format.format(calendar.getTime());
+            tableNames.add(tableName + '_' + suffix);
+            if (suffix.equals(last) || calendar.getTimeInMillis() > System.currentTimeMillis()) {
+                break;
+            }
+            calendar.add(periodField, 1);
+        }
+        return tableNames;
+    }
+
+    private static Date toDate(Object value) {
+        if (VerifyTools.isBlank(value)) {
+            return null;
+        } else if (value instanceof Date) {
+            return (Date) value;
+        } else if (value instanceof Calendar) {
+            return ((Calendar) value).getTime();
+        } else if (value instanceof Number) {
+            return new Date(((Number) value).longValue());
+        } else {
+            try {
+                return DateTools.parse(value.toString());
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 按哈希取模分表: 实际表名为{tableName}_{index}, index=0~(tableCount-1)<br>
+ * 整数(包括整数形式的字符串)按数值取模, 其他值按toString()的hashCode取模
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class HashTableShardingStrategy implements TableShardingStrategy {
+
+    private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+
+    private final String shardingField;
+    private final int tableCount;
+
+    /**
+     * 构造函数
+     *
+     * @param shardingField 分表字段名
+     * @param tableCount 分表数量
+     */
+    public HashTableShardingStrategy(String shardingField, int tableCount) {
+        VerifyTools.requireNotBlank(shardingField, "shardingField");
+        if (tableCount <= 0) {
+            throw new IllegalArgumentException("tableCount must be greater than 0");
+        }
+        this.shardingField = shardingField;
+        this.tableCount = tableCount;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingField() {
+        return shardingField;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingTableName(String tableName, Object fieldValue) {
+        if (VerifyTools.isBlank(fieldValue)) {
+            return null;
+        }
+        long hash;
+        if (fieldValue instanceof Number && !(fieldValue instanceof Double || fieldValue instanceof Float)) {
+            hash = ((Number) fieldValue).longValue();
+        } else if (fieldValue instanceof String && INTEGER.matcher((String) fieldValue).matches()) {
+            // 同一个值可能以数字或字符串的形式传入, 结果必须一致
+            hash = Long.parseLong((String) fieldValue);
+        } else {
+            hash = fieldValue.toString().hashCode();
+        }
+        // 取非负余数
+        long index = (hash % tableCount + tableCount) % tableCount;
+        return tableName + '_' + index;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public List<String> getAllShardingTableNames(String tableName) {
+        List<String> tableNames = new ArrayList<>();
+        for (int i = 0; i < tableCount; i++) {
+            tableNames.add(tableName + '_' + i);
+        }
+        return tableNames;
+    }
+
+    /** 分表数量 **/
+    public int getTableCount() {
+        return tableCount;
+    }
+}
@@ -0,0 +1,239 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.gitee.qdbp.able.instance.ToStringComparator;
+import com.gitee.qdbp.able.matches.StringMatcher;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.FragmentEntry;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.IndexedFile;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.utils.ConvertTools;
+import com.gitee.qdbp.tools.utils.StringTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 优先使用构建时生成的索引的SQL模板文件扫描类<br>
+ * 包含SQL模板文件夹的每个jar包都有索引文件(由SqlFileIndexer生成)时, 直接读取索引<br>
+ * 只要有一处没有索引, 就退回到全量扫描, 避免遗漏未生成索引的模板<br>
+ * 索引中还有每个SQL片断的元数据, SqlFragmentContainer通过scanIndexedSqlFiles()获取,
+ * 直接注册模板而不读取文件, 首次使用时才解析<br>
+ * 本地文件夹(file:)不使用索引, 而是直接列出文件夹中的文件:
+ * 开发时在构建之后新增的模板文件不在索引中, 热加载(SqlFileWatcher)也需要看到新增的文件;
+ * 列出本地文件夹的开销很小, 索引主要省去的是遍历jar包的开销
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class IndexedSqlFileScanner extends SimpleSqlFileScanner {
+
+    private static Logger log = LoggerFactory.getLogger(IndexedSqlFileScanner.class);
+
+    public IndexedSqlFileScanner() {
+    }
+
+    public IndexedSqlFileScanner(String folders, String filters) {
+        super(folders, filters);
+    }
+
+    @Override
+    public List<URL> scanSqlFiles() {
+        List<IndexedFile> files = scanIndexedSqlFiles();
+        if (files == null) {
+            return super.scanSqlFiles();
+        }
+        List<URL> urls = new ArrayList<>();
+        for (IndexedFile item : files) {
+            urls.add(item.getUrl());
+        }
+        return urls;
+    }
+
+    /**
+     * 从索引中读取SQL模板文件及片断元数据(本地文件夹直接列出文件, 没有片断元数据)
+     *
+     * @return SQL模板文件列表, 有任何一处没有索引时返回null
+     */
+    public List<IndexedFile> scanIndexedSqlFiles() {
+        Date startTime = new Date();
+        List<IndexedFile> files = scanIndexedFiles();
+        if (files == null) {
+            return null;
+        }
+        Collections.sort(files, ToStringComparator.INSTANCE);
+        if (log.isInfoEnabled()) {
+            String msg = "Success to load sql template index, elapsed time {}, total of {} files were found.";
+            log.info(msg, ConvertTools.toDuration(startTime, true), files.size());
+        }
+        return files;
+    }
+
+    /** 从索引中读取SQL模板文件(本地文件夹直接列出文件), 有任何一处没有索引时返回null **/
+    protected List<IndexedFile> scanIndexedFiles() {
+        String folder = VerifyTools.nvl(this.getFolders(), "settings/sqls/");
+        String filter = VerifyTools.nvl(this.getFilters(), "*.sql");
+        List<StringMatcher> matchers = SqlFileIndexer.parseFilters(filter);
+        ClassLoader classLoader = getClassLoader();
+        String dbTypes = SqlFileIndex.toDbTypesString(DbTools.getAvailableDbTypes());
+        // key=classpath根路径, value=索引中的文件列表, key=文件路径, value=片断元数据
+        Map<String, Map<String, List<FragmentEntry>>> rootIndexes = new HashMap<>();
+        Map<String, IndexedFile> files = new LinkedHashMap<>();
+        for (String item : StringTools.split(folder, ',')) {
+            String path = SqlFileIndexer.normalizeFolder(item);
+            if (path.length() == 0) {
+                continue;
+            }
+            Enumeration<URL> folderUrls;
+            try {
+                folderUrls = classLoader.getResources(path);
+            } catch (IOException e) {
+                log.warn("Failed to find sql template folder: {}", path, e);
+                return null;
+            }
+            while (folderUrls.hasMoreElements()) {
+                String folderUrl = StringTools.removeSuffix(folderUrls.nextElement().toString(), "/");
+                String folderPath = StringTools.removeSuffix(path, "/");
+                if (!folderUrl.endsWith(folderPath)) {
+                    return null;
+                }
+                String root = folderUrl.substring(0, folderUrl.length() - folderPath.length());
+                Map<String, List<FragmentEntry>> entries = rootIndexes.get(root);
+                if (entries == null) {
+                    if (root.startsWith("file:")) {
+                        entries = listLocalFiles(root, folder, filter);
+                    } else {
+                        entries = readIndex(root, dbTypes);
+                    }
+                    if (entries == null) {
+                        log.info("Sql template index not found, fallback to scan all files: {}", root);
+                        return null;
+                    }
+                    rootIndexes.put(root, entries);
+                }
+                for (Map.Entry<String, List<FragmentEntry>> entry : entries.entrySet()) {
+                    String filePath = entry.getKey();
+                    if (!filePath.startsWith(path) || files.containsKey(root + filePath)) {
+                        continue;
+                    }
+                    String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
+                    if (!SqlFileIndexer.matchesFilters(matchers, fileName)) {
+                        continue;
+                    }
+                    try {
+                        URL url = new URL(root + filePath);
+                        files.put(root + filePath, new IndexedFile(url, entry.getValue()));
+                    } catch (IOException e) {
+                        log.warn("Failed to load sql template index: {}", root, e);
+                        return null;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * 直接列出本地文件夹中的SQL模板文件(不读取索引, 以免索引过期), 无法转换为本地路径时返回null<br>
+     * 本地文件可能随时修改, 因此没有片断元数据
+     */
+    private static Map<String, List<FragmentEntry>> listLocalFiles(String root, String folders, String filters) {
+        File classesDir;
+        try {
+            classesDir = new File(new URL(root).toURI());
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        Map<String, List<FragmentEntry>> entries = new LinkedHashMap<>();
+        for (String filePath : SqlFileIndexer.scanFiles(classesDir, folders, filters)) {
+            entries.put(filePath, null);
+        }
+        return entries;
+    }
+
+    /**
+     * 读取索引文件, 不存在时返回null<br>
+     * 旧格式(只有文件路径)的索引, 或生成索引时的数据库类型与当前不一致时, 片断元数据为null
+     *
+     * @param root classpath根路径
+     * @param dbTypes 当前可用的数据库类型
+     * @return key=文件路径, value=片断元数据
+     */
+    private static Map<String, List<FragmentEntry>> readIndex(String root, String dbTypes) {
+        // key=文件路径, value=片断元数据
+        Map<String, List<FragmentEntry>> entries = new LinkedHashMap<>();
+        boolean formatMatched = false;
+        boolean dbTypesMatched = false;
+        boolean metadataValid = true;
+        URL indexUrl;
+        try {
+            indexUrl = new URL(root + SqlFileIndexer.INDEX_PATH);
+        } catch (IOException e) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(indexUrl.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            List<FragmentEntry> fragments = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SqlFileIndex.FORMAT_PREFIX)) {
+                    String version = line.substring(SqlFileIndex.FORMAT_PREFIX.length()).trim();
+                    formatMatched = SqlFileIndex.FORMAT_VERSION.equals(version);
+                    continue;
+                }
+                if (line.startsWith(SqlFileIndex.DB_TYPES_PREFIX)) {
+                    dbTypesMatched = dbTypes.equals(line.substring(SqlFileIndex.DB_TYPES_PREFIX.length()).trim());
+                    continue;
+                }
+                if (line.startsWith("\t")) {
+                    // 片断元数据, 属于前面的文件
+                    FragmentEntry fragment = FragmentEntry.parse(line);
+                    if (fragment == null || fragments == null) {
+                        metadataValid = false;
+                    } else {
+                        fragments.add(fragment);
+                    }
+                    continue;
+                }
+                String entry = line.trim();
+                if (entry.length() > 0 && !entry.startsWith("#")) {
+                    fragments = new ArrayList<>();
+                    entries.put(entry, fragments);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read sql template index: {}", indexUrl, e);
+            return null;
+        }
+        if (!formatMatched || !dbTypesMatched || !metadataValid) {
+            // 片断元数据不可用, 只使用文件列表
+            for (Map.Entry<String, List<FragmentEntry>> entry : entries.entrySet()) {
+                entry.setValue(null);
+            }
+        }
+        return entries;
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : IndexedSqlFileScanner.class.getClassLoader();
+    }
+}
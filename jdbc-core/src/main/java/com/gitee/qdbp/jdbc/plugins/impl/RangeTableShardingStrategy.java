@@ -0,0 +1,79 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 按数值范围分表: 实际表名为{tableName}_{index}<br>
+ * 例如分界值为[1000000, 2000000]: 小于1000000的在_0表, 小于2000000的在_1表, 其余在_2表
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class RangeTableShardingStrategy implements TableShardingStrategy {
+
+    private final String shardingField;
+    private final long[] bounds;
+
+    /**
+     * 构造函数
+     *
+     * @param shardingField 分表字段名
+     * @param bounds 分界值(必须升序), 分表数量为分界值数量+1
+     */
+    public RangeTableShardingStrategy(String shardingField, long... bounds) {
+        VerifyTools.requireNotBlank(shardingField, "shardingField");
+        if (bounds == null || bounds.length == 0) {
+            throw new IllegalArgumentException("bounds must not be empty");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("bounds must be in ascending order");
+            }
+        }
+        this.shardingField = shardingField;
+        this.bounds = bounds.clone();
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingField() {
+        return shardingField;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String getShardingTableName(String tableName, Object fieldValue) {
+        if (VerifyTools.isBlank(fieldValue)) {
+            return null;
+        }
+        long value;
+        if (fieldValue instanceof Number) {
+            value = ((Number) fieldValue).longValue();
+        } else {
+            try {
+                value = Long.parseLong(fieldValue.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        int index = 0;
+        while (index < bounds.length && value >= bounds[index]) {
+            index++;
+        }
+        return tableName + '_' + index;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public List<String> getAllShardingTableNames(String tableName) {
+        List<String> tableNames = new ArrayList<>();
+        for (int i = 0; i <= bounds.length; i++) {
+            tableNames.add(tableName + '_' + i);
+        }
+        return tableNames;
+    }
+}
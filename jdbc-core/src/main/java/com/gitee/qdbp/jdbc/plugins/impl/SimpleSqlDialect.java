@@ -2,7 +2,9 @@ package com.gitee.qdbp.jdbc.plugins.impl;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import com.gitee.qdbp.able.jdbc.ordering.OrderType;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
 import com.gitee.qdbp.jdbc.model.DbType;
 import com.gitee.qdbp.jdbc.model.DbVersion;
@@ -10,6 +12,7 @@ import com.gitee.qdbp.jdbc.model.MainDbType;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+import com.gitee.qdbp.jdbc.sql.SqlTextTools;
 import com.gitee.qdbp.jdbc.utils.DbTypes;
 import com.gitee.qdbp.tools.utils.DateTools;
 import com.gitee.qdbp.tools.utils.VerifyTools;
@@ -85,6 +88,91 @@ public class SimpleSqlDialect implements SqlDialect {
         }
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * DB2的分页用到了ORDER OF T_T, 暂不支持
+     */
+    @Override
+    public boolean supportsWindowCountPaging() {
+        return dbVersion.matchesWith("oracle,mysql.8.0,mariadb.10.2,postgresql,h2.1.4.198,sqlite.3.25");
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 总记录数的窗口函数直接加在原SQL的查询列中, 原SQL的ORDER BY和分页语句仍然作用于同一层查询<br>
+     * 不能包装为子查询再在外层分页: 子查询的ORDER BY在外层不保证有效(MariaDB会忽略, MySQL物化子查询时会丢弃),
+     * 分页时可能出现乱序, 或在不同页之间出现重复和遗漏的记录
+     */
+    @Override
+    public SqlBuffer buildWindowCountPagingSql(SqlBuffer buffer, Paging paging, String totalColumnLabel) {
+        if (!isWindowCountSupported(buffer.getPreparedSqlString(this))) {
+            return null;
+        }
+        SqlBuffer copied = buffer.copy();
+        // SELECT COUNT(*) OVER() AS {totalColumnLabel}, {columns} FROM ... ORDER BY ... {paging}
+        copied.insertPrefix("SELECT COUNT(*) OVER() AS " + totalColumnLabel + ",", "SELECT");
+        processPagingSql(copied, paging);
+        return copied;
+    }
+
+    /**
+     * 能否在查询列中加入总记录数的窗口函数<br>
+     * 要求以SELECT开头, 不能是SELECT DISTINCT(窗口函数在去重之前计算),
+     * 不能是SELECT *(部分数据库不允许*之前还有其他列), 也不能在最外层有UNION等集合运算
+     *
+     * @param sql SQL语句
+     * @return 是否支持
+     */
+    protected boolean isWindowCountSupported(String sql) {
+        String string = sql.trim();
+        if (!startsWithWord(string, 0, "SELECT")) {
+            return false;
+        }
+        String columns = string.substring("SELECT".length()).trim();
+        if (columns.startsWith("*")) {
+            return false;
+        }
+        for (String keyword : new String[] { "DISTINCT", "UNIQUE", "ALL", "TOP" }) {
+            if (startsWithWord(columns, 0, keyword)) {
+                return false;
+            }
+        }
+        // 查找最外层的集合运算(跳过括号和引号中的内容)
+        String[] setOperators = new String[] { "UNION", "INTERSECT", "EXCEPT", "MINUS" };
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && (i == 0 || !SqlTextTools.isSqlWordChar(string.charAt(i - 1)))) {
+                for (String operator : setOperators) {
+                    if (startsWithWord(string, i, operator)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /** 从指定位置开始是不是指定的单词(不区分大小写) **/
+    private static boolean startsWithWord(String string, int index, String word) {
+        int end = index + word.length();
+        if (!string.regionMatches(true, index, word, 0, word.length())) {
+            return false;
+        }
+        return end == string.length() || !SqlTextTools.isSqlWordChar(string.charAt(end));
+    }
+
     protected void processPagingForMySql(SqlBuffer buffer, Paging paging) {
         SqlBuilder sql = buffer.shortcut();
         if (paging.getStart() <= 0) {
@@ -169,6 +257,87 @@ public class SimpleSqlDialect implements SqlDialect {
         }
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    public SqlBuffer buildKeysetConditionSql(List<String> columnNames, List<OrderType> orderTypes,
+            List<Object> lastValues) {
+        VerifyTools.requireNotBlank(columnNames, "columnNames");
+        int size = columnNames.size();
+        if (orderTypes.size() != size || lastValues.size() != size) {
+            String msg = "The number of keyset values does not match the number of ordering columns.";
+            throw new IllegalArgumentException(msg + " columns=" + columnNames + ", values=" + lastValues);
+        }
+        boolean sameDirection = true;
+        for (int i = 0; i < size; i++) {
+            if (lastValues.get(i) == null) {
+                throw new IllegalArgumentException("Keyset value must not be null: " + columnNames.get(i));
+            }
+            if (isDescending(orderTypes.get(i)) != isDescending(orderTypes.get(0))) {
+                sameDirection = false;
+            }
+        }
+
+        SqlBuilder sql = new SqlBuilder();
+        if (size == 1) {
+            // A > ?
+            String operator = isDescending(orderTypes.get(0)) ? "<" : ">";
+            sql.ad(columnNames.get(0)).ad(operator).var(lastValues.get(0));
+        } else if (sameDirection && supportsRowValueComparison()) {
+            // (A,B) > (?,?)
+            String operator = isDescending(orderTypes.get(0)) ? "<" : ">";
+            sql.ad('(');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sql.ad(',');
+                }
+                sql.ad(columnNames.get(i));
+            }
+            sql.ad(')').ad(operator).ad('(');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sql.ad(',');
+                }
+                sql.var(lastValues.get(i));
+            }
+            sql.ad(')');
+        } else {
+            // ( A > ? OR ( A = ? AND B > ? ) )
+            sql.ad('(');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sql.ad("OR").ad('(');
+                }
+                for (int j = 0; j < i; j++) {
+                    sql.ad(columnNames.get(j)).ad('=').var(lastValues.get(j)).ad("AND");
+                }
+                String operator = isDescending(orderTypes.get(i)) ? "<" : ">";
+                sql.ad(columnNames.get(i)).ad(operator).var(lastValues.get(i));
+                if (i > 0) {
+                    sql.ad(')');
+                }
+            }
+            sql.ad(')');
+        }
+        return sql.out();
+    }
+
+    private static boolean isDescending(OrderType orderType) {
+        return orderType == OrderType.DESC;
+    }
+
+    /** 是否支持行值比较: (A,B) &gt; (?,?) **/
+    protected boolean supportsRowValueComparison() {
+        DbType dbType = dbVersion.getDbType();
+        if (DbTypes.exists(dbType, "MySQL,MariaDB,PostgreSQL,H2,DB2")) {
+            return true;
+        } else if (DbTypes.equals(dbType, MainDbType.SQLite)) {
+            return dbVersion.matchesWith("sqlite.3.15");
+        } else {
+            // Oracle/SqlServer不支持行值的大小比较
+            return false;
+        }
+    }
+
     /** {@inheritDoc} **/
     @Override
     public String toPinyinOrderByExpression(String columnName) {
@@ -0,0 +1,171 @@
+package com.gitee.qdbp.jdbc.plugins.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.gitee.qdbp.able.matches.StringMatcher;
+import com.gitee.qdbp.able.matches.WrapStringMatcher;
+import com.gitee.qdbp.jdbc.model.DbType;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.FragmentEntry;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.utils.StringTools;
+
+/**
+ * SQL模板文件索引生成工具<br>
+ * 在构建时扫描编译输出目录中的SQL模板文件, 将相对路径及每个SQL片断的元数据写入索引文件, 随jar包一起发布<br>
+ * 运行时由IndexedSqlFileScanner直接读取索引, 不必再遍历classpath中的jar包和文件夹,
+ * 也不必读取和解析模板文件, 模板在首次使用时才解析(索引格式见SqlFileIndex)<br>
+ * 通过exec-maven-plugin在process-classes阶段执行:<br>
+ * &lt;mainClass&gt;com.gitee.qdbp.jdbc.plugins.impl.SqlFileIndexer&lt;/mainClass&gt;<br>
+ * &lt;arguments&gt;${project.build.outputDirectory}, settings/sqls/, *.sql&lt;/arguments&gt;
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class SqlFileIndexer {
+
+    private static Logger log = LoggerFactory.getLogger(SqlFileIndexer.class);
+
+    /** 索引文件在classpath中的位置 **/
+    public static final String INDEX_PATH = "META-INF/qdbc/sql-files.idx";
+
+    /**
+     * 生成索引文件
+     *
+     * @param args [编译输出目录, 待扫描的文件夹(多个以逗号分隔, 默认settings/sqls/), 文件名过滤规则(默认*.sql)]
+     * @throws IOException 写索引文件失败
+     */
+    public static void main(String[] args) throws IOException {
+        if (args == null || args.length == 0) {
+            throw new IllegalArgumentException("Usage: SqlFileIndexer outputDirectory [folders] [filters]");
+        }
+        File classesDir = new File(args[0]);
+        String folders = args.length > 1 ? args[1] : "settings/sqls/";
+        String filters = args.length > 2 ? args[2] : "*.sql";
+        List<String> paths = scanFiles(classesDir, folders, filters);
+        File indexFile = writeIndex(classesDir, paths);
+        if (indexFile != null) {
+            log.info("Sql file index generated, total of {} files: {}", paths.size(), indexFile);
+        } else {
+            log.info("Sql file index not generated, because there are no sql template files: {}", classesDir);
+        }
+    }
+
+    /**
+     * 扫描编译输出目录中的SQL模板文件
+     *
+     * @param classesDir 编译输出目录
+     * @param folders 待扫描的文件夹, 多个以逗号分隔
+     * @param filters 文件名过滤规则, 多个以逗号分隔, 如 *.sql,*.stpl
+     * @return 相对于编译输出目录的文件路径, 按路径排序
+     */
+    public static List<String> scanFiles(File classesDir, String folders, String filters) {
+        List<StringMatcher> matchers = parseFilters(filters);
+        List<String> paths = new ArrayList<>();
+        for (String item : StringTools.split(folders, ',')) {
+            String folder = normalizeFolder(item);
+            if (folder.length() == 0) {
+                continue;
+            }
+            File dir = new File(classesDir, folder);
+            if (dir.isDirectory()) {
+                collectFiles(dir, folder, matchers, paths);
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    /**
+     * 写索引文件, 没有SQL模板文件时不生成<br>
+     * 每个文件之后写入拆分出的SQL片断的元数据(SqlId/版本支持声明/行号/是否静态文本)
+     *
+     * @param classesDir 编译输出目录
+     * @param paths 相对于编译输出目录的文件路径
+     * @return 索引文件
+     * @throws IOException 读取模板文件或写索引文件失败
+     */
+    public static File writeIndex(File classesDir, List<String> paths) throws IOException {
+        File indexFile = new File(classesDir, INDEX_PATH);
+        if (paths.isEmpty()) {
+            Files.deleteIfExists(indexFile.toPath());
+            return null;
+        }
+        List<DbType> dbTypes = DbTools.getAvailableDbTypes();
+        indexFile.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(indexFile.toPath()),
+                StandardCharsets.UTF_8)) {
+            writer.write("# qdbc sql file index, generated by " + SqlFileIndexer.class.getName() + "\n");
+            writer.write(SqlFileIndex.FORMAT_PREFIX + SqlFileIndex.FORMAT_VERSION + "\n");
+            writer.write(SqlFileIndex.DB_TYPES_PREFIX + SqlFileIndex.toDbTypesString(dbTypes) + "\n");
+            for (String path : paths) {
+                writer.write(path);
+                writer.write('\n');
+                byte[] bytes = Files.readAllBytes(new File(classesDir, path).toPath());
+                String content = new String(bytes, StandardCharsets.UTF_8);
+                for (FragmentEntry entry : SqlFileIndex.describeSqlFile(path, content, dbTypes)) {
+                    writer.write(entry.toIndexLine());
+                    writer.write('\n');
+                }
+            }
+        }
+        return indexFile;
+    }
+
+    private static void collectFiles(File dir, String relativePath, List<StringMatcher> matchers,
+            List<String> paths) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectFiles(file, relativePath + file.getName() + '/', matchers, paths);
+            } else if (matchesFilters(matchers, file.getName())) {
+                paths.add(relativePath + file.getName());
+            }
+        }
+    }
+
+    /** 解析文件名过滤规则, 未指定匹配方式的按ant规则匹配, 如 *.sql **/
+    static List<StringMatcher> parseFilters(String filters) {
+        List<StringMatcher> matchers = new ArrayList<>();
+        for (String item : StringTools.split(filters, ',')) {
+            String filter = item.trim();
+            if (filter.length() == 0) {
+                continue;
+            }
+            if (filter.indexOf(':') < 0) {
+                filter = "ant:" + filter;
+            }
+            matchers.add(WrapStringMatcher.parseMatcher(filter, true));
+        }
+        return matchers;
+    }
+
+    static boolean matchesFilters(List<StringMatcher> matchers, String fileName) {
+        for (StringMatcher matcher : matchers) {
+            if (matcher.matches(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 文件夹统一为不以/开头, 以/结尾的相对路径, 如 settings/sqls/ **/
+    static String normalizeFolder(String folder) {
+        String path = StringTools.removePrefix(folder.trim(), "classpath:");
+        path = StringTools.removeLeftRight(path.replace('\\', '/'), '/');
+        return path.length() == 0 ? path : path + '/';
+    }
+}
@@ -0,0 +1,23 @@
+package com.gitee.qdbp.jdbc.result;
+
+import java.util.List;
+
+/**
+ * 分批处理查询结果的回调接口<br>
+ * 用于大数据量的查询, 每读取一批数据就交给回调处理, 内存中最多只保留一批数据
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public interface BatchDataHandler<T> {
+
+    /**
+     * 处理一批数据
+     * 
+     * @param rows 本批次的数据(每批都是新的列表对象)
+     * @param batchIndex 批次序号(从0开始)
+     * @return 是否继续读取, 返回false将停止读取后续数据
+     */
+    boolean handle(List<T> rows, int batchIndex);
+}
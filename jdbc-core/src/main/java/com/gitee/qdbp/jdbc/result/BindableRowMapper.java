@@ -0,0 +1,26 @@
+package com.gitee.qdbp.jdbc.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 可按结果集预先确定映射方式的结果转换接口<br>
+ * RowMapper一般是多个查询共用的实例, 不能在字段中保存某个结果集的状态<br>
+ * 查询时先调用bind(rs)得到只用于当前结果集的RowMapper, 由调用方作为局部变量持有, 后续各行直接使用
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public interface BindableRowMapper<T> extends RowMapper<T> {
+
+    /**
+     * 根据结果集的列信息生成只用于当前结果集的RowMapper
+     *
+     * @param rs 结果集
+     * @return 当前结果集的RowMapper
+     * @throws SQLException 读取结果集元数据失败
+     */
+    RowMapper<T> bind(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,21 @@
+package com.gitee.qdbp.jdbc.result;
+
+/**
+ * 逐行处理查询结果的回调接口<br>
+ * 用于大数据量的查询, 每读取一行就转换并交给回调处理, 不会将全部结果加载到内存
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public interface RowDataHandler<T> {
+
+    /**
+     * 处理一行数据
+     * 
+     * @param row 行数据
+     * @param rowNum 行号(从0开始)
+     * @return 是否继续读取, 返回false将停止读取后续数据
+     */
+    boolean handle(T row, int rowNum);
+}
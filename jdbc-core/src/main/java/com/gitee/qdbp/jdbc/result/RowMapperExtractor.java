@@ -0,0 +1,68 @@
+package com.gitee.qdbp.jdbc.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 逐行转换结果集的ResultSetExtractor<br>
+ * 与Spring的RowMapperResultSetExtractor一致, 区别是对于BindableRowMapper,
+ * 每次查询先绑定结果集得到当前查询的RowMapper, 映射方式只计算一次
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class RowMapperExtractor<T> implements ResultSetExtractor<List<T>> {
+
+    private final RowMapper<T> rowMapper;
+    private final int rowsExpected;
+
+    public RowMapperExtractor(RowMapper<T> rowMapper) {
+        this(rowMapper, 0);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param rowMapper 结果转换接口
+     * @param rowsExpected 预计的行数, 用于初始化结果列表的容量
+     */
+    public RowMapperExtractor(RowMapper<T> rowMapper, int rowsExpected) {
+        this.rowMapper = rowMapper;
+        this.rowsExpected = rowsExpected;
+    }
+
+    @Override
+    public List<T> extractData(ResultSet rs) throws SQLException {
+        List<T> results = rowsExpected > 0 ? new ArrayList<T>(rowsExpected) : new ArrayList<T>();
+        RowMapper<T> mapper = null;
+        int rowNum = 0;
+        while (rs.next()) {
+            if (mapper == null) {
+                mapper = bind(rowMapper, rs);
+            }
+            results.add(mapper.mapRow(rs, rowNum++));
+        }
+        return results;
+    }
+
+    /**
+     * 如果是BindableRowMapper则绑定结果集, 否则直接返回原RowMapper
+     *
+     * @param rowMapper 结果转换接口
+     * @param rs 结果集
+     * @return 当前结果集的RowMapper
+     * @throws SQLException 读取结果集元数据失败
+     */
+    public static <T> RowMapper<T> bind(RowMapper<T> rowMapper, ResultSet rs) throws SQLException {
+        if (rowMapper instanceof BindableRowMapper) {
+            return ((BindableRowMapper<T>) rowMapper).bind(rs);
+        } else {
+            return rowMapper;
+        }
+    }
+}
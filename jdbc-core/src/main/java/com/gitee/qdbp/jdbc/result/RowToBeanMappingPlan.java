@@ -0,0 +1,505 @@
+package com.gitee.qdbp.jdbc.result;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.gitee.qdbp.jdbc.model.FieldColumns;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.model.TablesFieldColumn;
+import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
+import com.gitee.qdbp.jdbc.plugins.impl.SpringMapToBeanConverter;
+import com.gitee.qdbp.jdbc.utils.LruCache;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 结果集行数据到JavaBean的映射计划<br>
+ * 根据ResultSetMetaData将列序号一次性解析为字段的Setter方法, 按(结果类型, 列名列表)缓存在限定容量的LRU缓存中<br>
+ * 之后的每一行都直接通过rs.getXxx(index)读取列值并调用Setter方法,
+ * 不再经过ColumnMapRowMapper的Map和字段名Map, 也不再逐列查找字段<br>
+ * 类型转换使用SpringMapToBeanConverter的ConversionService, 与Map转换方式的结果保持一致<br>
+ * 支持TableJoin的resultField子对象: resultField=this的列填充到主对象, 其他列填充到对应的子对象
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class RowToBeanMappingPlan<T> {
+
+    /** 读取方式: 通用的getObject **/
+    private static final int READ_OBJECT = 0;
+    /** 读取方式: getString **/
+    private static final int READ_STRING = 1;
+    /** 读取方式: getInt **/
+    private static final int READ_INT = 2;
+    /** 读取方式: getLong **/
+    private static final int READ_LONG = 3;
+    /** 读取方式: getFloat **/
+    private static final int READ_FLOAT = 4;
+    /** 读取方式: getDouble **/
+    private static final int READ_DOUBLE = 5;
+    /** 读取方式: getBigDecimal **/
+    private static final int READ_BIG_DECIMAL = 6;
+    /** 读取方式: getBoolean **/
+    private static final int READ_BOOLEAN = 7;
+
+    /**
+     * 映射计划的缓存, key=结果类型+列名及列类型<br>
+     * 自定义SQL的查询列各不相同, 因此需要限定容量, 由qdbc.result.mappingPlanCache.maxSize配置
+     */
+    private static final LruCache<String, RowToBeanMappingPlan<?>> PLAN_CACHE = new LruCache<>(1000);
+
+    /** 结果类型 **/
+    private final Class<T> resultType;
+    /** 结果类型的构造函数(为null表示不支持映射计划, 需要使用Map转换方式) **/
+    private final Constructor<T> constructor;
+    /** 主对象的字段映射 **/
+    private final PropertyMapping[] properties;
+    /** 子对象的映射 **/
+    private final NestedMapping[] nesteds;
+
+    private RowToBeanMappingPlan(Class<T> resultType, Constructor<T> constructor, PropertyMapping[] properties,
+            NestedMapping[] nesteds) {
+        this.resultType = resultType;
+        this.constructor = constructor;
+        this.properties = properties;
+        this.nesteds = nesteds;
+    }
+
+    /** 是否支持映射计划(结果类型或子对象类型没有无参构造函数时不支持) **/
+    public boolean isSupported() {
+        return this.constructor != null;
+    }
+
+    /**
+     * 生成使用当前映射计划的RowMapper(用于BindableRowMapper.bind)
+     *
+     * @param converter 类型转换处理类
+     * @return RowMapper
+     */
+    public RowMapper<T> newRowMapper(final SpringMapToBeanConverter converter) {
+        return new RowMapper<T>() {
+
+            @Override
+            public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+                return RowToBeanMappingPlan.this.mapRow(rs, converter);
+            }
+        };
+    }
+
+    /**
+     * 将当前行数据映射为JavaBean
+     *
+     * @param rs 结果集
+     * @param converter 类型转换处理类
+     * @return JavaBean
+     * @throws SQLException 读取结果集失败
+     */
+    public T mapRow(ResultSet rs, SpringMapToBeanConverter converter) throws SQLException {
+        ConversionService conversionService = converter.getConversionService();
+        boolean invokeSetterWhenNullValue = converter.isInvokeSetterWhenNullValue();
+        T bean = BeanUtils.instantiateClass(constructor);
+        fillProperties(rs, bean, properties, conversionService, invokeSetterWhenNullValue);
+        for (NestedMapping nested : nesteds) {
+            Object child = BeanUtils.instantiateClass(nested.constructor);
+            fillProperties(rs, child, nested.properties, conversionService, invokeSetterWhenNullValue);
+            invokeSetter(bean, nested.propertyName, nested.writeMethod, child);
+        }
+        return bean;
+    }
+
+    private void fillProperties(ResultSet rs, Object bean, PropertyMapping[] mappings,
+            ConversionService conversionService, boolean invokeSetterWhenNullValue) throws SQLException {
+        for (PropertyMapping mapping : mappings) {
+            Object value = readColumnValue(rs, mapping.columnIndex, mapping.readType);
+            if (value == null) {
+                if (!invokeSetterWhenNullValue) {
+                    continue; // 空值时是否调用Setter方法
+                }
+                // NullValue设置给基本类型会报错: boolean, byte, char, short, int, long, float, double
+                if (mapping.propertyType.isPrimitive()) {
+                    value = TypeUtils.cast(null, mapping.propertyType, ParserConfig.getGlobalInstance());
+                }
+            } else if (!mapping.objectType.isInstance(value)) {
+                // 列值与目标类型不匹配, 需要转换
+                value = conversionService.convert(value, TypeDescriptor.forObject(value), mapping.targetType);
+            }
+            invokeSetter(bean, mapping.propertyName, mapping.writeMethod, value);
+        }
+    }
+
+    private static Object readColumnValue(ResultSet rs, int index, int readType) throws SQLException {
+        Object value;
+        switch (readType) {
+        case READ_STRING:
+            return rs.getString(index);
+        case READ_BIG_DECIMAL:
+            return rs.getBigDecimal(index);
+        case READ_INT:
+            value = rs.getInt(index);
+            break;
+        case READ_LONG:
+            value = rs.getLong(index);
+            break;
+        case READ_FLOAT:
+            value = rs.getFloat(index);
+            break;
+        case READ_DOUBLE:
+            value = rs.getDouble(index);
+            break;
+        case READ_BOOLEAN:
+            value = rs.getBoolean(index);
+            break;
+        default:
+            // 与ColumnMapRowMapper的取值方式保持一致
+            return JdbcUtils.getResultSetValue(rs, index);
+        }
+        return rs.wasNull() ? null : value;
+    }
+
+    private void invokeSetter(Object bean, String propertyName, Method writeMethod, Object value) {
+        try {
+            writeMethod.invoke(bean, value);
+        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            String m = "Unable to set property '%s.%s'";
+            String className = bean.getClass().getSimpleName();
+            throw new DataRetrievalFailureException(String.format(m, className, propertyName), e);
+        }
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String toString() {
+        return "RowToBeanMappingPlan[" + resultType.getName() + ']';
+    }
+
+    /**
+     * 判断转换工具能否使用映射计划<br>
+     * 只有SpringMapToBeanConverter本身才能使用; 子类可能重写了convert(), 必须经过Map转换才能生效
+     *
+     * @param converter 转换工具
+     * @return 是否能使用映射计划
+     */
+    public static boolean supports(MapToBeanConverter converter) {
+        return converter != null && converter.getClass() == SpringMapToBeanConverter.class;
+    }
+
+    /**
+     * 生成映射计划的缓存KEY: 前缀+列名及列类型
+     *
+     * @param prefix 前缀, 一般是结果类型(关联查询还要加上TableJoin的缓存KEY)
+     * @param metadata 结果集元数据
+     * @return 缓存KEY
+     * @throws SQLException 读取结果集元数据失败
+     */
+    public static String buildCacheKey(String prefix, ResultSetMetaData metadata) throws SQLException {
+        int columnCount = metadata.getColumnCount();
+        StringBuilder buffer = new StringBuilder(prefix.length() + columnCount * 16);
+        buffer.append(prefix);
+        for (int i = 1; i <= columnCount; i++) {
+            buffer.append('|').append(JdbcUtils.lookupColumnName(metadata, i));
+            buffer.append(':').append(metadata.getColumnType(i));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * 从缓存中获取映射计划, 不存在时生成并存入缓存
+     *
+     * @param cacheKey 缓存KEY, 参见buildCacheKey()
+     * @param resultType 结果类型
+     * @param metadata 结果集元数据
+     * @param fieldColumns 字段列表
+     * @param nestedFields 子对象字段名(来自TableJoin的resultField, 不含this)
+     * @return 映射计划
+     * @throws SQLException 读取结果集元数据失败
+     */
+    public static <T> RowToBeanMappingPlan<T> getOrCompile(String cacheKey, Class<T> resultType,
+            ResultSetMetaData metadata, FieldColumns<? extends SimpleFieldColumn> fieldColumns,
+            Collection<String> nestedFields) throws SQLException {
+        @SuppressWarnings("unchecked")
+        RowToBeanMappingPlan<T> plan = (RowToBeanMappingPlan<T>) PLAN_CACHE.get(cacheKey);
+        if (plan == null) {
+            plan = compile(resultType, metadata, fieldColumns, nestedFields);
+            PLAN_CACHE.put(cacheKey, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 获取映射计划的缓存, 用于查看命中/未命中/淘汰等统计数据及调整容量
+     *
+     * @return 映射计划的缓存
+     */
+    public static LruCache<String, RowToBeanMappingPlan<?>> getPlanCache() {
+        return PLAN_CACHE;
+    }
+
+    /**
+     * 生成映射计划<br>
+     * 根据列别名查找字段信息, 如果是TablesFieldColumn则根据resultField确定填充到主对象还是子对象
+     *
+     * @param resultType 结果类型
+     * @param metadata 结果集元数据
+     * @param fieldColumns 字段列表
+     * @param nestedFields 子对象字段名(来自TableJoin的resultField, 不含this)
+     * @return 映射计划
+     * @throws SQLException 读取结果集元数据失败
+     */
+    public static <T> RowToBeanMappingPlan<T> compile(Class<T> resultType, ResultSetMetaData metadata,
+            FieldColumns<? extends SimpleFieldColumn> fieldColumns, Collection<String> nestedFields)
+            throws SQLException {
+        Constructor<T> constructor = findConstructor(resultType);
+        if (constructor == null) {
+            return new RowToBeanMappingPlan<>(resultType, null, null, null);
+        }
+        Map<String, PropertyDescriptor> resultProperties = getWritableProperties(resultType);
+        // 子对象, key=resultField
+        Map<String, NestedBuilder> nestedBuilders = new LinkedHashMap<>();
+        if (nestedFields != null) {
+            for (String nestedField : nestedFields) {
+                PropertyDescriptor pd = resultProperties.get(nestedField);
+                if (pd == null) {
+                    continue; // 结果类中没有这个子对象字段
+                }
+                Constructor<?> nestedConstructor = findConstructor(pd.getPropertyType());
+                if (nestedConstructor == null) {
+                    // 子对象无法实例化, 不支持映射计划
+                    return new RowToBeanMappingPlan<>(resultType, null, null, null);
+                }
+                nestedBuilders.put(nestedField, new NestedBuilder(pd, nestedConstructor));
+            }
+        }
+
+        List<PropertyMapping> properties = new ArrayList<>();
+        int columnCount = metadata.getColumnCount();
+        for (int index = 1; index <= columnCount; index++) {
+            String columnAlias = JdbcUtils.lookupColumnName(metadata, index);
+            if (VerifyTools.isBlank(columnAlias)) {
+                continue;
+            }
+            SimpleFieldColumn field = fieldColumns.findByColumnAlias(columnAlias);
+            if (field == null) {
+                continue; // 结果集的列在结果容器类中找不到对应的字段
+            }
+            String resultField = "this";
+            if (field instanceof TablesFieldColumn) {
+                resultField = ((TablesFieldColumn) field).getResultField();
+                if (VerifyTools.isBlank(resultField)) {
+                    continue; // 如果没有指定resultField, 说明不需要保存结果
+                }
+            }
+            int sqlType = metadata.getColumnType(index);
+            if (resultField.equals("this")) {
+                PropertyDescriptor pd = resultProperties.get(field.getFieldName());
+                if (pd != null) {
+                    properties.add(new PropertyMapping(index, sqlType, pd));
+                }
+            } else {
+                NestedBuilder nested = nestedBuilders.get(resultField);
+                if (nested != null) {
+                    PropertyDescriptor pd = nested.properties.get(field.getFieldName());
+                    if (pd != null) {
+                        nested.mappings.add(new PropertyMapping(index, sqlType, pd));
+                    }
+                }
+            }
+        }
+
+        List<NestedMapping> nesteds = new ArrayList<>();
+        for (NestedBuilder builder : nestedBuilders.values()) {
+            nesteds.add(builder.build());
+        }
+        PropertyMapping[] propertyArray = properties.toArray(new PropertyMapping[0]);
+        NestedMapping[] nestedArray = nesteds.toArray(new NestedMapping[0]);
+        return new RowToBeanMappingPlan<>(resultType, constructor, propertyArray, nestedArray);
+    }
+
+    private static <C> Constructor<C> findConstructor(Class<C> clazz) {
+        if (clazz.isInterface() || clazz.isPrimitive() || clazz.isArray() || clazz.isEnum()
+                || Modifier.isAbstract(clazz.getModifiers()) || clazz.getName().startsWith("java.")) {
+            return null;
+        }
+        try {
+            Constructor<C> constructor = clazz.getDeclaredConstructor();
+            ReflectionUtils.makeAccessible(constructor);
+            return constructor;
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, PropertyDescriptor> getWritableProperties(Class<?> clazz) {
+        Map<String, PropertyDescriptor> properties = new HashMap<>();
+        PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(clazz);
+        for (PropertyDescriptor pd : pds) {
+            if (pd.getWriteMethod() != null) {
+                properties.put(pd.getName(), pd);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * 根据属性类型和列类型确定读取方式<br>
+     * 只有列类型与属性类型天然匹配时才使用类型化的getXxx方法, 其他情况与ColumnMapRowMapper一样使用getObject
+     *
+     * @param propertyType 属性类型
+     * @param sqlType 列类型, 参见java.sql.Types
+     * @return 读取方式
+     */
+    private static int resolveReadType(Class<?> propertyType, int sqlType) {
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(propertyType);
+        if (type == String.class) {
+            switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return READ_STRING;
+            default:
+                return READ_OBJECT;
+            }
+        } else if (type == Integer.class) {
+            return sqlType == Types.SMALLINT || sqlType == Types.INTEGER ? READ_INT : READ_OBJECT;
+        } else if (type == Long.class) {
+            boolean matches = sqlType == Types.SMALLINT || sqlType == Types.INTEGER || sqlType == Types.BIGINT;
+            return matches ? READ_LONG : READ_OBJECT;
+        } else if (type == Float.class) {
+            return sqlType == Types.REAL ? READ_FLOAT : READ_OBJECT;
+        } else if (type == Double.class) {
+            boolean matches = sqlType == Types.DOUBLE || sqlType == Types.FLOAT || sqlType == Types.REAL;
+            return matches ? READ_DOUBLE : READ_OBJECT;
+        } else if (type == BigDecimal.class) {
+            return sqlType == Types.DECIMAL || sqlType == Types.NUMERIC ? READ_BIG_DECIMAL : READ_OBJECT;
+        } else if (type == Boolean.class) {
+            return sqlType == Types.BOOLEAN ? READ_BOOLEAN : READ_OBJECT;
+        } else {
+            return READ_OBJECT;
+        }
+    }
+
+    /** 列与字段的映射关系 **/
+    private static class PropertyMapping {
+
+        /** 列序号(从1开始) **/
+        private final int columnIndex;
+        /** 读取方式 **/
+        private final int readType;
+        /** 字段名 **/
+        private final String propertyName;
+        /** 字段类型 **/
+        private final Class<?> propertyType;
+        /** 字段类型(基本类型转换为包装类型, 用于判断列值是否需要转换) **/
+        private final Class<?> objectType;
+        /** 转换的目标类型 **/
+        private final TypeDescriptor targetType;
+        /** Setter方法 **/
+        private final Method writeMethod;
+
+        public PropertyMapping(int columnIndex, int sqlType, PropertyDescriptor pd) {
+            this.columnIndex = columnIndex;
+            this.propertyName = pd.getName();
+            this.propertyType = pd.getPropertyType();
+            this.objectType = ClassUtils.resolvePrimitiveIfNecessary(propertyType);
+            this.targetType = TypeDescriptor.valueOf(propertyType);
+            this.readType = resolveReadType(propertyType, sqlType);
+            this.writeMethod = pd.getWriteMethod();
+            ReflectionUtils.makeAccessible(this.writeMethod);
+        }
+    }
+
+    /** 子对象的映射关系 **/
+    private static class NestedMapping {
+
+        /** 子对象字段名 **/
+        private final String propertyName;
+        /** 子对象的Setter方法 **/
+        private final Method writeMethod;
+        /** 子对象的构造函数 **/
+        private final Constructor<?> constructor;
+        /** 子对象的字段映射 **/
+        private final PropertyMapping[] properties;
+
+        public NestedMapping(String propertyName, Method writeMethod, Constructor<?> constructor,
+                PropertyMapping[] properties) {
+            this.propertyName = propertyName;
+            this.writeMethod = writeMethod;
+            this.constructor = constructor;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * 与结果集绑定的映射计划<br>
+     * 未经bind(rs)直接调用mapRow()时, 由转换类保存最近一次查询的结果集(弱引用)及映射计划,
+     * 同一结果集的后续行直接使用, 每次查询只生成一次缓存KEY
+     */
+    static class Bound<T> {
+
+        private final WeakReference<ResultSet> resultSet;
+        /** 映射计划, 不支持时为null **/
+        private final RowToBeanMappingPlan<T> plan;
+
+        public Bound(ResultSet resultSet, RowToBeanMappingPlan<T> plan) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.plan = plan;
+        }
+
+        /** 是否是同一结果集 **/
+        public boolean matches(ResultSet rs) {
+            return resultSet.get() == rs;
+        }
+
+        public RowToBeanMappingPlan<T> getPlan() {
+            return plan;
+        }
+    }
+
+    /** 子对象映射关系的生成器 **/
+    private static class NestedBuilder {
+
+        private final PropertyDescriptor descriptor;
+        private final Constructor<?> constructor;
+        private final Map<String, PropertyDescriptor> properties;
+        private final List<PropertyMapping> mappings = new ArrayList<>();
+
+        public NestedBuilder(PropertyDescriptor descriptor, Constructor<?> constructor) {
+            this.descriptor = descriptor;
+            this.constructor = constructor;
+            this.properties = getWritableProperties(descriptor.getPropertyType());
+        }
+
+        public NestedMapping build() {
+            Method writeMethod = descriptor.getWriteMethod();
+            ReflectionUtils.makeAccessible(writeMethod);
+            PropertyMapping[] array = mappings.toArray(new PropertyMapping[0]);
+            return new NestedMapping(descriptor.getName(), writeMethod, constructor, array);
+        }
+    }
+}
@@ -5,25 +5,34 @@ import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapper;
 import com.gitee.qdbp.jdbc.model.AllFieldColumn;
 import com.gitee.qdbp.jdbc.model.FieldColumns;
 import com.gitee.qdbp.jdbc.model.FieldScene;
 import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
 import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
+import com.gitee.qdbp.jdbc.plugins.impl.SpringMapToBeanConverter;
+import com.gitee.qdbp.jdbc.result.RowToBeanMappingPlan.Bound;
 import com.gitee.qdbp.jdbc.utils.DbTools;
 
 /**
  * 单表查询结果集行数据到JavaBean的转换处理类<br>
- * ResultSet是列名与字段值的对应关系, 需要转换为字段名与字段值的对应关系
+ * ResultSet是列名与字段值的对应关系, 需要转换为字段名与字段值的对应关系<br>
+ * 如果转换工具是SpringMapToBeanConverter(不含子类), 将使用按(结果类型, 列名列表)缓存的映射计划直接填充JavaBean,
+ * 否则先转换为Map再交给转换工具处理<br>
+ * 本类的实例由多个查询共用; 通过bind(rs)在每次查询时确定一次映射计划,
+ * 未经bind(rs)直接调用mapRow()时, 只保存最近一次查询的结果集(弱引用)及映射计划
  *
  * @author zhaohuihua
  * @version 190617
  */
-public class TableRowToBeanMapper<T> implements RowToBeanMapper<T> {
+public class TableRowToBeanMapper<T> implements RowToBeanMapper<T>, BindableRowMapper<T> {
 
     private Class<T> resultType;
     private MapToBeanConverter converter;
     private ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+    /** 未经bind(rs)时最近一次查询的映射计划 **/
+    private volatile Bound<T> lastBound;
 
     public TableRowToBeanMapper(Class<T> resultType, MapToBeanConverter converter) {
         this.resultType = resultType;
@@ -31,17 +40,35 @@ public class TableRowToBeanMapper<T> implements RowToBeanMapper<T> {
     }
 
     @Override
-    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Map<String, Object> map = mapper.mapRow(rs, rowNum);
+    public RowMapper<T> bind(ResultSet rs) throws SQLException {
+        FieldColumns<SimpleFieldColumn> fieldColumns = getFieldColumns();
+        if (fieldColumns == null) {
+            return this;
+        }
+        RowToBeanMappingPlan<T> plan = getMappingPlan(rs, fieldColumns);
+        return plan == null ? this : plan.newRowMapper((SpringMapToBeanConverter) converter);
+    }
 
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
         // 1. 获取列名与字段名的对应关系
-        AllFieldColumn<SimpleFieldColumn> all = DbTools.parseAllFieldColumns(resultType);
-        if (all == null || all.isEmpty()) {
+        FieldColumns<SimpleFieldColumn> fieldColumns = getFieldColumns();
+        if (fieldColumns == null) {
             return null;
         }
 
-        // 2. ResultSet是列名与字段值的对应关系, 转换为字段名与字段值的对应关系
-        FieldColumns<SimpleFieldColumn> fieldColumns = all.filter(FieldScene.RESULT);
+        // 2. 查找或生成映射计划, 直接填充JavaBean; 同一结果集只查找一次
+        Bound<T> bound = this.lastBound;
+        if (bound == null || !bound.matches(rs)) {
+            this.lastBound = bound = new Bound<>(rs, getMappingPlan(rs, fieldColumns));
+        }
+        RowToBeanMappingPlan<T> plan = bound.getPlan();
+        if (plan != null) {
+            return plan.mapRow(rs, (SpringMapToBeanConverter) converter);
+        }
+
+        // 3. 不支持映射计划的, ResultSet是列名与字段值的对应关系, 转换为字段名与字段值的对应关系
+        Map<String, Object> map = mapper.mapRow(rs, rowNum);
         Map<String, Object> result = new HashMap<String, Object>();
         for (Map.Entry<String, Object> entry : map.entrySet()) {
             String columnName = entry.getKey();
@@ -50,8 +77,28 @@ public class TableRowToBeanMapper<T> implements RowToBeanMapper<T> {
                 result.put(field.getFieldName(), entry.getValue());
             }
         }
-        // 3. 利用工具类进行Map到JavaBean的转换
+        // 4. 利用工具类进行Map到JavaBean的转换
         return converter.convert(result, resultType);
     }
 
+    private FieldColumns<SimpleFieldColumn> getFieldColumns() {
+        AllFieldColumn<SimpleFieldColumn> all = DbTools.parseAllFieldColumns(resultType);
+        if (all == null || all.isEmpty()) {
+            return null;
+        }
+        return all.filter(FieldScene.RESULT);
+    }
+
+    /** 获取映射计划, 转换工具不是SpringMapToBeanConverter或结果类型不支持映射计划时返回null **/
+    private RowToBeanMappingPlan<T> getMappingPlan(ResultSet rs, FieldColumns<SimpleFieldColumn> fieldColumns)
+            throws SQLException {
+        if (!RowToBeanMappingPlan.supports(converter)) {
+            return null;
+        }
+        String cacheKey = RowToBeanMappingPlan.buildCacheKey(resultType.getName(), rs.getMetaData());
+        RowToBeanMappingPlan<T> plan;
+        plan = RowToBeanMappingPlan.getOrCompile(cacheKey, resultType, rs.getMetaData(), fieldColumns, null);
+        return plan.isSupported() ? plan : null;
+    }
+
 }
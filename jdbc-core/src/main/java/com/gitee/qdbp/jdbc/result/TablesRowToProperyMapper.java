@@ -2,9 +2,12 @@ package com.gitee.qdbp.jdbc.result;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapper;
 import com.gitee.qdbp.able.jdbc.condition.TableJoin;
 import com.gitee.qdbp.able.jdbc.condition.TableJoin.TableItem;
 import com.gitee.qdbp.jdbc.model.AllFieldColumn;
@@ -12,6 +15,8 @@ import com.gitee.qdbp.jdbc.model.FieldColumns;
 import com.gitee.qdbp.jdbc.model.FieldScene;
 import com.gitee.qdbp.jdbc.model.TablesFieldColumn;
 import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
+import com.gitee.qdbp.jdbc.plugins.impl.SpringMapToBeanConverter;
+import com.gitee.qdbp.jdbc.result.RowToBeanMappingPlan.Bound;
 import com.gitee.qdbp.jdbc.utils.DbTools;
 import com.gitee.qdbp.tools.utils.VerifyTools;
 
@@ -24,16 +29,21 @@ import com.gitee.qdbp.tools.utils.VerifyTools;
  * TableJoin有参数resultField, 用于指定表数据保存至结果类的哪个字段(子对象)<br>
  * 生成的查询语句的查询字段, 对于重名字段加上表别名作为前缀, 生成列别名, 如U_ID, U_REMARK, UR_ID, UR_REMARK, R_ID, R_REMARK<br>
  * 查询结果根据列别名找到字段名和表别名; 再根据表别名找到resultField, 根据字段名填充数据<br>
+ * 如果转换工具是SpringMapToBeanConverter(不含子类), 将使用按(TableJoin, 结果类型, 列名列表)缓存的映射计划直接填充JavaBean及子对象<br>
+ * 本类的实例由多个查询共用; 通过bind(rs)在每次查询时确定一次映射计划,
+ * 未经bind(rs)直接调用mapRow()时, 只保存最近一次查询的结果集(弱引用)及映射计划<br>
  *
  * @author zhaohuihua
  * @version 190617
  */
-public class TablesRowToProperyMapper<T> implements RowToBeanMapper<T> {
+public class TablesRowToProperyMapper<T> implements RowToBeanMapper<T>, BindableRowMapper<T> {
 
     private TableJoin tables;
     private Class<T> resultType;
     private MapToBeanConverter converter;
     private ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+    /** 未经bind(rs)时最近一次查询的映射计划 **/
+    private volatile Bound<T> lastBound;
 
     public TablesRowToProperyMapper(TableJoin tables, Class<T> resultType, MapToBeanConverter converter) {
         this.tables = tables;
@@ -42,31 +52,42 @@ public class TablesRowToProperyMapper<T> implements RowToBeanMapper<T> {
     }
 
     @Override
-    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Map<String, Object> map = mapper.mapRow(rs, rowNum);
+    public RowMapper<T> bind(ResultSet rs) throws SQLException {
+        FieldColumns<TablesFieldColumn> fieldColumns = getFieldColumns();
+        if (fieldColumns == null) {
+            return this;
+        }
+        RowToBeanMappingPlan<T> plan = getMappingPlan(rs, fieldColumns);
+        return plan == null ? this : plan.newRowMapper((SpringMapToBeanConverter) converter);
+    }
 
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
         // 1. 获取列名与字段名的对应关系
-        AllFieldColumn<TablesFieldColumn> all = DbTools.parseAllFieldColumns(tables);
-        if (all == null || all.isEmpty()) {
+        FieldColumns<TablesFieldColumn> fieldColumns = getFieldColumns();
+        if (fieldColumns == null) {
             return null;
         }
 
+        // 2. 查找或生成映射计划, 直接填充JavaBean及子对象; 同一结果集只查找一次
+        Bound<T> bound = this.lastBound;
+        if (bound == null || !bound.matches(rs)) {
+            this.lastBound = bound = new Bound<>(rs, getMappingPlan(rs, fieldColumns));
+        }
+        RowToBeanMappingPlan<T> plan = bound.getPlan();
+        if (plan != null) {
+            return plan.mapRow(rs, (SpringMapToBeanConverter) converter);
+        }
+
+        Map<String, Object> map = mapper.mapRow(rs, rowNum);
         Map<String, Object> result = new HashMap<>(); // 结果容器
         Map<String, Map<String, Object>> subs = new HashMap<>(); // 子对象容器
-        // 2. 根据TableJoin的resultField生成子Map对象
-        String majorField = tables.getMajor().getResultField();
-        if (VerifyTools.isNotBlank(majorField) && !majorField.equals("this")) {
-            subs.put(majorField, new HashMap<String, Object>());
-        }
-        for (TableItem item : tables.getJoins()) {
-            String itemField = item.getResultField();
-            if (VerifyTools.isNotBlank(itemField) && !itemField.equals("this")) {
-                subs.put(itemField, new HashMap<String, Object>());
-            }
+        // 3. 根据TableJoin的resultField生成子Map对象
+        for (String resultField : getNestedFields()) {
+            subs.put(resultField, new HashMap<String, Object>());
         }
 
-        FieldColumns<TablesFieldColumn> fieldColumns = all.filter(FieldScene.RESULT);
-        // 3. 根据列别名查找字段信息, 再找到resultField, 根据字段名填充数据
+        // 4. 根据列别名查找字段信息, 再找到resultField, 根据字段名填充数据
         for (Map.Entry<String, Object> entry : map.entrySet()) {
             // 根据列别名查找字段信息
             String columnAlias = entry.getKey();
@@ -90,8 +111,46 @@ public class TablesRowToProperyMapper<T> implements RowToBeanMapper<T> {
         if (!subs.isEmpty()) {
             result.putAll(subs);
         }
-        // 4. 利用工具类进行Map到JavaBean的转换
+        // 5. 利用工具类进行Map到JavaBean的转换
         return converter.convert(result, resultType);
     }
 
+    /** 获取TableJoin中指定的子对象字段名(resultField, 不含this) **/
+    private List<String> getNestedFields() {
+        List<String> resultFields = new ArrayList<>();
+        String majorField = tables.getMajor().getResultField();
+        if (VerifyTools.isNotBlank(majorField) && !majorField.equals("this")) {
+            resultFields.add(majorField);
+        }
+        for (TableItem item : tables.getJoins()) {
+            String itemField = item.getResultField();
+            if (VerifyTools.isNotBlank(itemField) && !itemField.equals("this")) {
+                resultFields.add(itemField);
+            }
+        }
+        return resultFields;
+    }
+
+    private FieldColumns<TablesFieldColumn> getFieldColumns() {
+        AllFieldColumn<TablesFieldColumn> all = DbTools.parseAllFieldColumns(tables);
+        if (all == null || all.isEmpty()) {
+            return null;
+        }
+        return all.filter(FieldScene.RESULT);
+    }
+
+    /** 获取映射计划, 转换工具不是SpringMapToBeanConverter或结果类型不支持映射计划时返回null **/
+    private RowToBeanMappingPlan<T> getMappingPlan(ResultSet rs, FieldColumns<TablesFieldColumn> fieldColumns)
+            throws SQLException {
+        if (!RowToBeanMappingPlan.supports(converter)) {
+            return null;
+        }
+        String prefix = resultType.getName() + '@' + TableJoin.buildCacheKey(tables, false);
+        String cacheKey = RowToBeanMappingPlan.buildCacheKey(prefix, rs.getMetaData());
+        List<String> nestedFields = getNestedFields();
+        RowToBeanMappingPlan<T> plan;
+        plan = RowToBeanMappingPlan.getOrCompile(cacheKey, resultType, rs.getMetaData(), fieldColumns, nestedFields);
+        return plan.isSupported() ? plan : null;
+    }
+
 }
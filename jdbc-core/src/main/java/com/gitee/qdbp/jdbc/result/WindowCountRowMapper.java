@@ -0,0 +1,160 @@
+package com.gitee.qdbp.jdbc.result;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * 窗口函数分页的结果转换<br>
+ * 分页SQL通过COUNT(*) OVER()多返回了一列总记录数, 这里读取总记录数, 并对原始的RowMapper隐藏这一列<br>
+ * 隐藏的方式是代理ResultSet和ResultSetMetaData, 将列序号跳过总记录数所在的列, 因此原始的RowMapper不需要做任何修改
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class WindowCountRowMapper<T> implements RowMapper<T> {
+
+    private final RowMapper<T> delegate;
+    private final String totalColumnLabel;
+    private ResultSet source;
+    private ResultSet target;
+    private RowMapper<T> mapper;
+    private Integer total;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 原始的结果转换接口
+     * @param totalColumnLabel 总记录数的列名
+     */
+    public WindowCountRowMapper(RowMapper<T> delegate, String totalColumnLabel) {
+        this.delegate = delegate;
+        this.totalColumnLabel = totalColumnLabel;
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (rs != source) {
+            int totalIndex = findColumnIndex(rs.getMetaData(), totalColumnLabel);
+            this.source = rs;
+            this.target = newHiddenColumnResultSet(rs, totalIndex);
+            this.mapper = RowMapperExtractor.bind(delegate, target);
+            this.total = rs.getInt(totalIndex);
+        }
+        return mapper.mapRow(target, rowNum);
+    }
+
+    /**
+     * 获取总记录数
+     *
+     * @return 总记录数, 如果结果集为空则返回null
+     */
+    public Integer getTotal() {
+        return total;
+    }
+
+    private static int findColumnIndex(ResultSetMetaData metadata, String columnLabel) throws SQLException {
+        int columnCount = metadata.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            if (columnLabel.equalsIgnoreCase(JdbcUtils.lookupColumnName(metadata, i))) {
+                return i;
+            }
+        }
+        throw new SQLException("Total column not found in result set: " + columnLabel);
+    }
+
+    private static ResultSet newHiddenColumnResultSet(ResultSet rs, int hiddenIndex) {
+        ClassLoader classLoader = WindowCountRowMapper.class.getClassLoader();
+        Class<?>[] interfaces = new Class<?>[] { ResultSet.class };
+        return (ResultSet) Proxy.newProxyInstance(classLoader, interfaces, new ResultSetHandler(rs, hiddenIndex));
+    }
+
+    /** 列序号跳过隐藏列 **/
+    private static Object[] shiftColumnIndex(Method method, Object[] args, int hiddenIndex) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length == 0 || types[0] != int.class) {
+            return args;
+        }
+        int index = (Integer) args[0];
+        if (index < hiddenIndex) {
+            return args;
+        }
+        Object[] shifted = args.clone();
+        shifted[0] = index + 1;
+        return shifted;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /** 隐藏指定列的ResultSet **/
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final int hiddenIndex;
+        private ResultSetMetaData metadata;
+
+        public ResultSetHandler(ResultSet target, int hiddenIndex) {
+            this.target = target;
+            this.hiddenIndex = hiddenIndex;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getMetaData".equals(name)) {
+                if (metadata == null) {
+                    ClassLoader classLoader = WindowCountRowMapper.class.getClassLoader();
+                    Class<?>[] interfaces = new Class<?>[] { ResultSetMetaData.class };
+                    MetaDataHandler handler = new MetaDataHandler(target.getMetaData(), hiddenIndex);
+                    metadata = (ResultSetMetaData) Proxy.newProxyInstance(classLoader, interfaces, handler);
+                }
+                return metadata;
+            } else if ("findColumn".equals(name)) {
+                int index = (Integer) WindowCountRowMapper.invoke(target, method, args);
+                return index > hiddenIndex ? index - 1 : index;
+            } else if (name.startsWith("get") || name.startsWith("update")) {
+                // getXxx(int columnIndex), updateXxx(int columnIndex, ...)
+                Object[] shifted = shiftColumnIndex(method, args, hiddenIndex);
+                return WindowCountRowMapper.invoke(target, method, shifted);
+            } else {
+                return WindowCountRowMapper.invoke(target, method, args);
+            }
+        }
+    }
+
+    /** 隐藏指定列的ResultSetMetaData **/
+    private static class MetaDataHandler implements InvocationHandler {
+
+        private final ResultSetMetaData target;
+        private final int hiddenIndex;
+
+        public MetaDataHandler(ResultSetMetaData target, int hiddenIndex) {
+            this.target = target;
+            this.hiddenIndex = hiddenIndex;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getColumnCount".equals(method.getName())) {
+                return target.getColumnCount() - 1;
+            } else {
+                // getColumnName(int column), getColumnType(int column), ...
+                Object[] shifted = shiftColumnIndex(method, args, hiddenIndex);
+                return WindowCountRowMapper.invoke(target, method, shifted);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.gitee.qdbp.jdbc.sql;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 使用?占位符的预编译SQL语句及参数<br>
+ * 可直接交给JdbcOperations/PreparedStatement执行, 无需再由NamedParameterJdbcTemplate解析命名参数
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class PreparedSql implements Serializable {
+
+    /** serialVersionUID **/
+    private static final long serialVersionUID = 1L;
+
+    /** 预编译SQL语句 **/
+    private final String sql;
+    /** 预编译SQL参数(已转换为数据库类型) **/
+    private final Object[] values;
+
+    /** 构造函数 **/
+    public PreparedSql(String sql, Object[] values) {
+        this.sql = sql;
+        this.values = values;
+    }
+
+    /** 预编译SQL语句 **/
+    public String getSql() {
+        return sql;
+    }
+
+    /** 预编译SQL参数(已转换为数据库类型) **/
+    public Object[] getValues() {
+        return values;
+    }
+
+    /** {@inheritDoc} **/
+    @Override
+    public String toString() {
+        return sql + '\n' + Arrays.toString(values);
+    }
+}
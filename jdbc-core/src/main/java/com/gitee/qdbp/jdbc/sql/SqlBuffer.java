@@ -30,7 +30,11 @@ public class SqlBuffer implements Serializable {
     /** SerialVersionUID **/
     private static final long serialVersionUID = 1L;
 
-    /** 占位符当前序号 **/
+    /**
+     * 占位符数量<br>
+     * 占位符序号不保存在VariableItem中, 而是在生成SQL时按出现顺序生成<br>
+     * 因此prepend/append时不需要遍历重新编号, 嵌套拼接SQL片段时不会出现O(n²)的开销
+     */
     private int index;
     /** SQL缓存容器 **/
     private List<Item> buffer;
@@ -72,6 +76,7 @@ public class SqlBuffer implements Serializable {
     /** 清除内容 **/
     public void clear() {
         this.buffer.clear();
+        this.index = 0;
     }
 
     /**
@@ -288,18 +293,14 @@ public class SqlBuffer implements Serializable {
         }
     }
 
-    /** 序号递增, 空出前面的位置 **/
+    /**
+     * 序号递增, 空出前面的位置<br>
+     * 占位符序号是在生成SQL时按出现顺序生成的, 这里只需要累加占位符数量
+     * 
+     * @param offset 增加的占位符数量
+     */
     protected void raiseIndex(int offset) {
-        if (offset == 0) {
-            return;
-        }
         this.index += offset;
-        for (Item item : this.buffer) {
-            if (item instanceof VariableItem) {
-                VariableItem variable = ((VariableItem) item);
-                variable.index += offset;
-            }
-        }
     }
 
     /**
@@ -310,7 +311,8 @@ public class SqlBuffer implements Serializable {
      */
     public SqlBuffer addVariable(Object value) {
         if (value == null) {
-            this.buffer.add(new VariableItem(index++, value));
+            this.buffer.add(new VariableItem(value));
+            this.index++;
         } else if (value instanceof SqlBuffer) {
             append((SqlBuffer) value);
         } else if (value instanceof SqlBuilder) {
@@ -327,7 +329,8 @@ public class SqlBuffer implements Serializable {
             // 缺少环境数据, 无法将字段名转换为列名
             throw new IllegalArgumentException("CanNotSupportedVariableType: DbFieldName");
         } else {
-            this.buffer.add(new VariableItem(index++, value));
+            this.buffer.add(new VariableItem(value));
+            this.index++;
         }
         return this;
     }
@@ -343,7 +346,8 @@ public class SqlBuffer implements Serializable {
             if (omits.getMinSize() > 0 && count > omits.getMinSize()) {
                 this.tryOmit(i, count, omits.getKeepSize());
             }
-            this.buffer.add(new VariableItem(index++, value));
+            this.buffer.add(new VariableItem(value));
+            this.index++;
         }
     }
 
@@ -618,23 +622,70 @@ public class SqlBuffer implements Serializable {
      */
     public void copyTo(SqlBuffer target) {
         for (Item item : this.buffer) {
-            if (item instanceof StringItem) {
-                StringItem stringItem = (StringItem) item;
-                target.getLastStringItem().append(stringItem.getValue().toString());
-            } else if (item instanceof VariableItem) {
-                VariableItem variable = ((VariableItem) item);
-                target.buffer.add(new VariableItem(target.index++, variable.getValue()));
-            } else if (item instanceof RawValueItem) {
-                RawValueItem rawItem = (RawValueItem) item;
-                target.buffer.add(new RawValueItem(rawItem.getValue()));
-            } else if (item instanceof OmitItem) {
-                OmitItem omitItem = (OmitItem) item;
-                target.buffer.add(new OmitItem(omitItem.enabled(), omitItem.index()));
+            copyItemTo(item, target);
+        }
+    }
+
+    /**
+     * 复制当前SQL, 并按顺序替换占位符的参数值<br>
+     * 用于SQL结构固定, 只有参数值不同的场景, 如按条件结构缓存的WHERE语句
+     * 
+     * @param values 参数值, 数量必须与占位符数量一致
+     * @return 副本
+     * @since 3.2.2
+     */
+    public SqlBuffer copyWithVariables(List<?> values) {
+        if (values.size() != this.index) {
+            String msg = "Variable count mismatch, expected " + this.index + ", actual " + values.size();
+            throw new IllegalArgumentException(msg);
+        }
+        SqlBuffer target = new SqlBuffer();
+        int i = 0;
+        for (Item item : this.buffer) {
+            if (item instanceof VariableItem) {
+                target.buffer.add(new VariableItem(values.get(i++)));
+                target.index++;
             } else {
-                throw new UnsupportedOperationException("Unsupported item: " + item.getClass());
+                copyItemTo(item, target);
             }
         }
+        return target;
+    }
 
+    /**
+     * 获取所有占位符的参数值(按出现顺序)
+     * 
+     * @return 参数值列表
+     * @since 3.2.2
+     */
+    public List<Object> getVariableValues() {
+        List<Object> values = new ArrayList<>(this.index);
+        for (Item item : this.buffer) {
+            if (item instanceof VariableItem) {
+                values.add(((VariableItem) item).getValue());
+            }
+        }
+        return values;
+    }
+
+    private static void copyItemTo(Item item, SqlBuffer target) {
+        if (item instanceof StringItem) {
+            StringItem stringItem = (StringItem) item;
+            // 直接追加StringBuilder, 省去toString()的中间副本
+            target.getLastStringItem().getValue().append(stringItem.getValue());
+        } else if (item instanceof VariableItem) {
+            VariableItem variable = ((VariableItem) item);
+            target.buffer.add(new VariableItem(variable.getValue()));
+            target.index++;
+        } else if (item instanceof RawValueItem) {
+            RawValueItem rawItem = (RawValueItem) item;
+            target.buffer.add(new RawValueItem(rawItem.getValue()));
+        } else if (item instanceof OmitItem) {
+            OmitItem omitItem = (OmitItem) item;
+            target.buffer.add(new OmitItem(omitItem.enabled(), omitItem.index()));
+        } else {
+            throw new UnsupportedOperationException("Unsupported item: " + item.getClass());
+        }
     }
 
     /** 获取预编译SQL语句 **/
@@ -645,12 +696,13 @@ public class SqlBuffer implements Serializable {
     /** 获取预编译SQL语句 **/
     public String getPreparedSqlString(SqlDialect dialect) {
         StringBuilder sql = new StringBuilder();
+        int variableIndex = 0;
         for (Item item : this.buffer) {
             if (item instanceof StringItem) {
                 StringItem stringItem = (StringItem) item;
                 sql.append(stringItem.getValue());
             } else if (item instanceof VariableItem) {
-                sql.append(':').append(((VariableItem) item).getKey());
+                sql.append(':').append(VariableItem.toKey(variableIndex++));
             } else if (item instanceof RawValueItem) {
                 RawValueItem rawValueItem = (RawValueItem) item;
                 sql.append(DbTools.resolveRawValue(rawValueItem.getValue(), dialect));
@@ -671,15 +723,86 @@ public class SqlBuffer implements Serializable {
     /** 获取预编译SQL参数 **/
     public Map<String, Object> getPreparedVariables(SqlDialect dialect) {
         Map<String, Object> map = new HashMap<>();
+        int variableIndex = 0;
         for (Item item : this.buffer) {
             if (item instanceof VariableItem) {
                 VariableItem variable = ((VariableItem) item);
-                map.put(variable.getKey(), DbTools.variableToDbValue(variable.getValue(), dialect));
+                String key = VariableItem.toKey(variableIndex++);
+                map.put(key, DbTools.variableToDbValue(variable.getValue(), dialect));
             }
         }
         return map;
     }
 
+    /** 获取使用?占位符的预编译SQL语句及参数 **/
+    public PreparedSql getPreparedSql(DbVersion version) {
+        return getPreparedSql(DbTools.buildSqlDialect(version));
+    }
+
+    /**
+     * 获取使用?占位符的预编译SQL语句及参数<br>
+     * 一次遍历同时生成SQL语句和参数数组, 可直接交给JdbcOperations执行, 省去命名参数的二次解析<br>
+     * 集合类型的参数会展开为多个占位符, 与NamedParameterJdbcTemplate的处理方式保持一致
+     * 
+     * @param dialect 数据库方言
+     * @return 预编译SQL语句及参数
+     * @since 3.2.2
+     */
+    public PreparedSql getPreparedSql(SqlDialect dialect) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        for (Item item : this.buffer) {
+            if (item instanceof StringItem) {
+                StringItem stringItem = (StringItem) item;
+                sql.append(stringItem.getValue());
+            } else if (item instanceof VariableItem) {
+                VariableItem variable = ((VariableItem) item);
+                Object value = DbTools.variableToDbValue(variable.getValue(), dialect);
+                appendPlaceholder(sql, values, value);
+            } else if (item instanceof RawValueItem) {
+                RawValueItem rawValueItem = (RawValueItem) item;
+                sql.append(DbTools.resolveRawValue(rawValueItem.getValue(), dialect));
+            } else if (item instanceof OmitItem) {
+                continue;
+            } else {
+                throw new UnsupportedOperationException("Unsupported item: " + item.getClass());
+            }
+        }
+        return new PreparedSql(sqlFormatToString(sql), values.toArray());
+    }
+
+    /** 追加占位符, 集合参数展开为多个占位符, 如IN (?, ?, ?) **/
+    private static void appendPlaceholder(StringBuilder sql, List<Object> values, Object value) {
+        if (!(value instanceof Collection)) {
+            sql.append('?');
+            values.add(value);
+            return;
+        }
+        boolean first = true;
+        for (Object item : (Collection<?>) value) {
+            if (first) {
+                first = false;
+            } else {
+                sql.append(',').append(' ');
+            }
+            if (item instanceof Object[]) { // 多列组合, 如(?, ?)
+                Object[] array = (Object[]) item;
+                sql.append('(');
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        sql.append(',').append(' ');
+                    }
+                    sql.append('?');
+                    values.add(array[i]);
+                }
+                sql.append(')');
+            } else {
+                sql.append('?');
+                values.add(item);
+            }
+        }
+    }
+
     /** 获取可执行SQL语句(预编译参数替换为拼写式参数) **/
     public String getExecutableSqlString(DbVersion version) {
         return getExecutableSqlString(DbTools.buildSqlDialect(version));
@@ -759,6 +882,7 @@ public class SqlBuffer implements Serializable {
         StringBuilder sql = new StringBuilder();
         int charCount = 0;
         int lineCount = 0;
+        int variableIndex = 0;
         // 解决OmitItem嵌套的问题
         Stack<OmitItem> omitStacks = new Stack<>();
         for (Item item : this.buffer) {
@@ -773,6 +897,7 @@ public class SqlBuffer implements Serializable {
                 }
             } else if (item instanceof VariableItem) {
                 VariableItem variable = ((VariableItem) item);
+                String variableKey = VariableItem.toKey(variableIndex++);
                 String stringValue = DbTools.variableToString(variable.value, dialect);
                 if (omitMode && !omitStacks.isEmpty()) { // 省略模式下, 只需要统计数量
                     charCount += stringValue == null ? 4 : stringValue.length();
@@ -782,7 +907,7 @@ public class SqlBuffer implements Serializable {
                         stringValue = tryCutStringOverlength(stringValue, valueLimit);
                     }
                     sql.append(stringValue);
-                    sql.append("/*").append(variable.getKey()).append("*/");
+                    sql.append("/*").append(variableKey).append("*/");
                 }
             } else if (item instanceof RawValueItem) {
                 RawValueItem rawValueItem = (RawValueItem) item;
@@ -1345,15 +1470,19 @@ public class SqlBuffer implements Serializable {
         /** SerialVersionUID **/
         private static final long serialVersionUID = 1L;
 
-        private int index;
         private Object value;
 
-        public VariableItem(int index, Object value) {
-            this.index = index;
+        public VariableItem(Object value) {
             this.value = value;
         }
 
-        public String getKey() {
+        /**
+         * 根据占位符序号生成参数名
+         * 
+         * @param index 占位符序号(从0开始)
+         * @return 参数名, 如$1
+         */
+        public static String toKey(int index) {
             return "$" + (index + 1);
         }
 
@@ -1362,7 +1491,7 @@ public class SqlBuffer implements Serializable {
         }
 
         public String toString() {
-            return this.getKey();
+            return String.valueOf(this.value);
         }
     }
 }
@@ -1,7 +1,9 @@
 package com.gitee.qdbp.jdbc.sql.build;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
@@ -18,6 +20,11 @@ import com.gitee.qdbp.tools.utils.VerifyTools;
  */
 public class CrudSqlBuilder extends QuerySqlBuilder {
 
+    /** 缓存的字段组合数量上限, 超出后不再缓存新的组合 **/
+    private static final int INSERT_SQL_CACHE_LIMIT = 64;
+    /** INSERT INTO ... VALUES语句(不含变量), KEY=字段名集合 **/
+    private final Map<Set<String>, SqlBuffer> insertSqlCache = new ConcurrentHashMap<>();
+
     public CrudSqlBuilder(CrudFragmentHelper sqlHelper) {
         super(sqlHelper);
     }
@@ -27,19 +34,47 @@ public class CrudSqlBuilder extends QuerySqlBuilder {
     }
 
     public SqlBuffer buildInsertSql(Map<String, Object> entity) {
+        CrudFragmentHelper sqlHelper = helper();
+        // INSERT INTO (...) VALUES
+        SqlBuilder buffer = newInsertIntoSql(entity.keySet());
+        // (...)
+        SqlBuffer valuesSqlBuffer = sqlHelper.buildInsertValuesSql(entity);
+        buffer.ad('(').ad(valuesSqlBuffer).ad(')');
+        return buffer.out();
+    }
+
+    /**
+     * 生成INSERT INTO (...) VALUES语句<br>
+     * 同一组字段生成的语句是固定的, 按字段组合缓存, 之后每次复制缓存的语句, 只需绑定参数值
+     * 
+     * @param fieldNames 字段名集合
+     * @return SQL生成工具, 可以继续追加参数值
+     * @since 3.2.2
+     */
+    protected SqlBuilder newInsertIntoSql(Set<String> fieldNames) {
+        SqlBuffer cached = insertSqlCache.get(fieldNames);
+        if (cached == null) {
+            cached = doBuildInsertIntoSql(fieldNames).out();
+            if (insertSqlCache.size() < INSERT_SQL_CACHE_LIMIT) {
+                // KEY必须复制一份, 不能引用实体的keySet
+                insertSqlCache.put(new HashSet<>(fieldNames), cached);
+            }
+        }
+        return new SqlBuilder(cached.copy());
+    }
+
+    private SqlBuilder doBuildInsertIntoSql(Set<String> fieldNames) {
         CrudFragmentHelper sqlHelper = helper();
         String tableName = sqlHelper.getTableName();
-        Set<String> fieldNames = entity.keySet();
         SqlBuffer fieldsSqlBuffer = sqlHelper.buildInsertFieldsSql(fieldNames);
-        SqlBuffer valuesSqlBuffer = sqlHelper.buildInsertValuesSql(entity);
 
         SqlBuilder buffer = new SqlBuilder();
         // INSERT INTO (...)
         buffer.ad("INSERT INTO").ad(tableName);
         buffer.ad('(').ad(fieldsSqlBuffer).ad(')');
-        // VALUES (...)
-        buffer.newline().ad("VALUES").ad('(').ad(valuesSqlBuffer).ad(')');
-        return buffer.out();
+        // VALUES
+        buffer.newline().ad("VALUES");
+        return buffer;
     }
 
     public SqlBuffer buildUpdateSql(DbUpdate entity, DbWhere where) {
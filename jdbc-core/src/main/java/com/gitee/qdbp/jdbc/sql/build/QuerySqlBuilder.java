@@ -2,6 +2,7 @@ package com.gitee.qdbp.jdbc.sql.build;
 
 import com.gitee.qdbp.able.exception.ServiceException;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.fields.AllFields;
 import com.gitee.qdbp.able.jdbc.fields.Fields;
 import com.gitee.qdbp.able.jdbc.fields.IncludeFields;
 import com.gitee.qdbp.able.jdbc.ordering.Orderings;
@@ -20,6 +21,8 @@ import com.gitee.qdbp.tools.utils.VerifyTools;
 public class QuerySqlBuilder {
 
     protected QueryFragmentHelper sqlHelper;
+    /** 全部字段的SELECT ... FROM语句(不含变量, 只生成一次, 使用时复制一份) **/
+    private volatile SqlBuffer selectAllFromSql;
 
     public QuerySqlBuilder(QueryFragmentHelper sqlHelper) {
         this.sqlHelper = sqlHelper;
@@ -34,10 +37,8 @@ public class QuerySqlBuilder {
     }
 
     public SqlBuffer buildFindSql(Fields fields, DbWhere where) {
-        SqlBuilder buffer = new SqlBuilder();
         // SELECT ... FROM
-        buffer.ad("SELECT").ad(sqlHelper.buildSelectFieldsSql(fields));
-        buffer.newline().ad(sqlHelper.buildFromSql());
+        SqlBuilder buffer = newSelectFromSql(fields);
         // WHERE ...
         if (VerifyTools.isNotBlank(where)) {
             buffer.newline().ad(sqlHelper.buildWhereSql(where, true));
@@ -60,10 +61,8 @@ public class QuerySqlBuilder {
     }
 
     public SqlBuffer buildListSql(Fields fields, SqlBuffer whereSql, Orderings orderings) {
-        SqlBuilder buffer = new SqlBuilder();
         // SELECT ... FROM
-        buffer.ad("SELECT").ad(sqlHelper.buildSelectFieldsSql(fields));
-        buffer.newline().ad(sqlHelper.buildFromSql());
+        SqlBuilder buffer = newSelectFromSql(fields);
         // WHERE ...
         if (VerifyTools.isNotBlank(whereSql)) {
             buffer.newline().ad(whereSql);
@@ -74,6 +73,33 @@ public class QuerySqlBuilder {
         return buffer.out();
     }
 
+    /**
+     * 生成SELECT ... FROM语句<br>
+     * 查询全部字段时, 字段列表和表名都是固定的, 只生成一次, 之后每次复制缓存的语句
+     * 
+     * @param fields 字段列表
+     * @return SQL生成工具, 可以继续追加WHERE等子句
+     * @since 3.2.2
+     */
+    protected SqlBuilder newSelectFromSql(Fields fields) {
+        if (fields != null && !(fields instanceof AllFields)) {
+            return doBuildSelectFromSql(fields);
+        }
+        SqlBuffer cached = this.selectAllFromSql;
+        if (cached == null) {
+            // 并发时可能重复生成, 结果相同, 无需加锁
+            this.selectAllFromSql = cached = doBuildSelectFromSql(fields).out();
+        }
+        return new SqlBuilder(cached.copy());
+    }
+
+    private SqlBuilder doBuildSelectFromSql(Fields fields) {
+        SqlBuilder buffer = new SqlBuilder();
+        buffer.ad("SELECT").ad(sqlHelper.buildSelectFieldsSql(fields));
+        buffer.newline().ad(sqlHelper.buildFromSql());
+        return buffer;
+    }
+
     public SqlBuffer buildCountSql(DbWhere where) {
         SqlBuffer wsb = sqlHelper.buildWhereSql(where, true);
         return buildCountSql(wsb);
@@ -162,6 +162,14 @@ public interface QueryFragmentHelper {
      */
     SqlBuffer buildFromSql(boolean whole);
 
+    /**
+     * 获取涉及的所有表名(包括关联表), 用于查询结果缓存
+     * 
+     * @return 表名列表
+     * @since 3.2.2
+     */
+    List<String> getTableNames();
+
     /**
      * 获取所有列信息
      * 
@@ -2,6 +2,7 @@ package com.gitee.qdbp.jdbc.sql.fragment;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +44,22 @@ public class TableCrudFragmentHelper extends TableQueryFragmentHelper implements
         this.primaryKey = DbTools.parsePrimaryKey(clazz);
     }
 
+    /**
+     * 构造函数, 指定实际操作的表名(用于分表)
+     * 
+     * @param clazz 实体类
+     * @param tableName 实际操作的表名
+     * @param dialect 数据库方言
+     * @since 3.2.2
+     */
+    public TableCrudFragmentHelper(Class<?> clazz, String tableName, SqlDialect dialect) {
+        super(DbTools.parseAllFieldColumns(clazz), dialect);
+        VerifyTools.requireNotBlank(tableName, "tableName");
+        this.clazz = clazz;
+        this.tableName = tableName;
+        this.primaryKey = DbTools.parsePrimaryKey(clazz);
+    }
+
     /** {@inheritDoc} **/
     @Override
     public SqlBuffer buildInsertValuesSql(Map<String, Object> entity) throws UnsupportedFieldException {
@@ -187,6 +204,12 @@ public class TableCrudFragmentHelper extends TableQueryFragmentHelper implements
         return tableName;
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    public List<String> getTableNames() {
+        return Collections.singletonList(tableName);
+    }
+
     /** {@inheritDoc} **/
     @Override
     public SimpleFieldColumn getPrimaryKey() {
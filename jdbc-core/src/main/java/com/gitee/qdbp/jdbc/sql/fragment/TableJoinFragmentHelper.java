@@ -178,6 +178,23 @@ public class TableJoinFragmentHelper extends TableQueryFragmentHelper {
         return buffer.out();
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    public List<String> getTableNames() {
+        List<String> tableNames = new ArrayList<>();
+        tableNames.add(DbTools.parseTableName(tables.getMajor().getTableType()));
+        List<JoinItem> joins = tables.getJoins();
+        if (VerifyTools.isNotBlank(joins)) {
+            for (JoinItem item : joins) {
+                String tableName = DbTools.parseTableName(item.getTableType());
+                if (!tableNames.contains(tableName)) {
+                    tableNames.add(tableName);
+                }
+            }
+        }
+        return tableNames;
+    }
+
     private String tablesDescString;
 
     @Override
@@ -3,6 +3,7 @@ package com.gitee.qdbp.jdbc.sql.fragment;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +42,9 @@ import com.gitee.qdbp.jdbc.plugins.WhereSqlBuilder;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.sql.SqlBuilder;
 import com.gitee.qdbp.jdbc.sql.SqlTools;
+import com.gitee.qdbp.jdbc.utils.DbConfig;
 import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.LruCache;
 import com.gitee.qdbp.tools.utils.ConvertTools;
 import com.gitee.qdbp.tools.utils.StringTools;
 import com.gitee.qdbp.tools.utils.VerifyTools;
@@ -56,12 +59,24 @@ public abstract class TableQueryFragmentHelper implements QueryFragmentHelper {
 
     protected final AllFieldColumn<? extends SimpleFieldColumn> columns;
     protected final SqlDialect dialect;
+    /** 按条件结构缓存的WHERE语句, KEY=条件结构(字段名/运算符/嵌套关系/参数类型/IN列表项数) **/
+    private final LruCache<String, CompiledWhereSql> whereSqlCache;
 
     /** 构造函数 **/
     public TableQueryFragmentHelper(AllFieldColumn<? extends SimpleFieldColumn> columns, SqlDialect dialect) {
         VerifyTools.requireNotBlank(columns, "columns");
         this.columns = columns;
         this.dialect = dialect;
+        this.whereSqlCache = new LruCache<>(getWhereSqlCacheSize(dialect));
+    }
+
+    /** WHERE语句缓存的容量, 取自qdbc.where.sqlCache.maxSize配置(可按数据库类型配置) **/
+    private static int getWhereSqlCacheSize(SqlDialect dialect) {
+        if (dialect == null) {
+            return 0;
+        }
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), dialect.getDbVersion());
+        return config.getInteger("qdbc.where.sqlCache.maxSize", 200);
     }
 
     /**
@@ -80,6 +95,146 @@ public abstract class TableQueryFragmentHelper implements QueryFragmentHelper {
         if (where == null || where.isEmpty()) {
             return null;
         }
+        if (whereSqlCache.getMaxSize() <= 0) {
+            return doBuildWhereSql(where, whole);
+        }
+        // 大部分查询的条件结构是固定的, 只有参数值不同
+        // 按条件结构查找已生成的WHERE语句, 命中时只需复制并绑定参数值
+        StringBuilder shape = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        if (!collectWhereShape(where, shape, values)) {
+            return doBuildWhereSql(where, whole);
+        }
+        String key = (whole ? "WHERE" : "") + shape;
+        CompiledWhereSql compiled = whereSqlCache.get(key);
+        if (compiled != null) {
+            return compiled.isCacheable() ? compiled.bind(values) : doBuildWhereSql(where, whole);
+        }
+        SqlBuffer buffer = doBuildWhereSql(where, whole);
+        whereSqlCache.put(key, CompiledWhereSql.compile(buffer, values));
+        return buffer;
+    }
+
+    /**
+     * 收集条件结构和参数值<br>
+     * 参数值会影响SQL结构的情况(如字段名/原生值/自定义条件等)返回false, 不使用缓存
+     * 
+     * @param where 查询条件
+     * @param shape 条件结构
+     * @param values 参数值, 顺序与WHERE语句中的占位符一致
+     * @return 是否能够使用缓存
+     */
+    private boolean collectWhereShape(DbWhere where, StringBuilder shape, List<Object> values) {
+        if (where instanceof SubWhere) {
+            SubWhere subWhere = (SubWhere) where;
+            shape.append(subWhere.isPositive() ? "" : "NOT").append(subWhere.getLogicType());
+        }
+        shape.append('(');
+        Iterator<DbCondition> iterator = where.iterator();
+        while (iterator.hasNext()) {
+            DbCondition condition = iterator.next();
+            if (condition.isEmpty()) {
+                continue;
+            }
+            if (condition instanceof WhereCondition) {
+                return false; // 自定义条件由插件生成SQL, 结构未知
+            } else if (condition instanceof SubWhere) {
+                if (!collectWhereShape((SubWhere) condition, shape, values)) {
+                    return false;
+                }
+            } else if (condition instanceof DbField) {
+                if (!collectFieldShape((DbField) condition, shape, values)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        shape.append(')');
+        return true;
+    }
+
+    private boolean collectFieldShape(DbField condition, StringBuilder shape, List<Object> values) {
+        String fieldName = condition.getFieldName();
+        if (VerifyTools.isBlank(fieldName)) {
+            return false;
+        }
+        shape.append(fieldName).append(' ').append(condition.getOperateType()).append(' ');
+        Object fieldValue = condition.getFieldValue();
+        if (fieldValue instanceof Collection || fieldValue != null && fieldValue.getClass().isArray()) {
+            // 多个参数值, IN语句会去掉重复项, 因此按去重后的数量区分结构
+            List<?> list = ConvertTools.parseList(fieldValue);
+            Set<Object> distinct = new HashSet<>();
+            String lastType = null;
+            int count = 0;
+            for (Object item : list) {
+                if (!isPlainWhereValue(item) || item instanceof Collection || item instanceof Map
+                        || item.getClass().isArray()) {
+                    return false;
+                }
+                if (distinct.add(item)) {
+                    values.add(item);
+                    count++;
+                }
+                String type = getWhereValueType(item);
+                if (!type.equals(lastType)) {
+                    shape.append(type).append(';');
+                    lastType = type;
+                }
+            }
+            shape.append('*').append(count).append(',');
+        } else {
+            if (fieldValue != null && (!isPlainWhereValue(fieldValue) || fieldValue instanceof Map)) {
+                return false;
+            }
+            String type = getWhereValueType(fieldValue);
+            shape.append(type).append(',');
+            // null和空字符串会生成IS NULL之类的语句, 没有占位符
+            if (fieldValue != null && !"".equals(fieldValue)) {
+                values.add(fieldValue);
+            }
+        }
+        return true;
+    }
+
+    /** 是不是普通的参数值(字段名/原生值/表别名.字段名等会被转换为SQL片段, 不是普通的参数值) **/
+    private boolean isPlainWhereValue(Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof String) {
+            // 与convertSpecialFieldValue()的判断保持一致
+            String string = (String) value;
+            return string.indexOf('.') <= 0 || getColumnName(FieldScene.CONDITION, string, false) == null;
+        } else {
+            return !(value instanceof DbFieldName || value instanceof DbFieldValue || value instanceof DbRawValue
+                    || value instanceof SqlBuffer || value instanceof SqlBuilder);
+        }
+    }
+
+    private static String getWhereValueType(Object value) {
+        if (value == null) {
+            return "N";
+        } else if (value instanceof String) {
+            String string = (String) value;
+            return string.isEmpty() ? "E" : string.trim().isEmpty() ? "B" : "S";
+        } else {
+            return value.getClass().getName();
+        }
+    }
+
+    /**
+     * 生成WHERE语句(不使用缓存)
+     * 
+     * @param where 查询条件
+     * @param whole 是否输出完整的WHERE语句, true=包含WHERE, false=只输出条件
+     * @return WHERE语句
+     * @throws UnsupportedFieldException 存在不支持的字段
+     * @since 3.2.2
+     */
+    protected SqlBuffer doBuildWhereSql(DbWhere where, boolean whole) throws UnsupportedFieldException {
+        if (where == null || where.isEmpty()) {
+            return null;
+        }
 
         String logicType = "AND";
         if (where instanceof SubWhere) {
@@ -112,7 +267,7 @@ public abstract class TableQueryFragmentHelper implements QueryFragmentHelper {
                     }
                 } else if (condition instanceof SubWhere) { // 子条件
                     SubWhere subWhere = (SubWhere) condition;
-                    SqlBuffer subSql = buildWhereSql(subWhere, false);
+                    SqlBuffer subSql = doBuildWhereSql(subWhere, false);
                     if (!subSql.isEmpty()) {
                         buffer.ad(subSql);
                     }
@@ -628,9 +783,10 @@ public abstract class TableQueryFragmentHelper implements QueryFragmentHelper {
     @Override
     public String getColumnName(FieldScene scene, String fieldName, boolean throwOnUnsupportedField)
             throws UnsupportedFieldException {
-        FieldColumns<? extends SimpleFieldColumn> fieldColumns = this.columns.filter(scene);
-        for (SimpleFieldColumn item : fieldColumns) {
-            if (item.matchesByFieldName(fieldName)) {
+        if (VerifyTools.isNotBlank(fieldName)) {
+            FieldColumns<? extends SimpleFieldColumn> fieldColumns = this.columns.filter(scene);
+            SimpleFieldColumn item = fieldColumns.findFirstByFieldName(fieldName);
+            if (item != null) {
                 return item.toTableColumnName();
             }
         }
@@ -651,4 +807,49 @@ public abstract class TableQueryFragmentHelper implements QueryFragmentHelper {
     protected final UnsupportedFieldException ufe(String message, List<String> fields) {
         return new UnsupportedFieldException(getOwnerDescString(), message, fields);
     }
+
+    /**
+     * 按条件结构缓存的WHERE语句<br>
+     * 首次生成时校验占位符的参数值与收集到的参数值完全一致, 才能在之后只替换参数值<br>
+     * 不一致说明运算符会根据参数值调整SQL结构, 记录为不可缓存
+     *
+     * @author zhaohuihua
+     * @version 20201020
+     * @since 3.2.2
+     */
+    private static class CompiledWhereSql {
+
+        private static final CompiledWhereSql UNCACHEABLE = new CompiledWhereSql(null);
+
+        private final SqlBuffer sql;
+
+        private CompiledWhereSql(SqlBuffer sql) {
+            this.sql = sql;
+        }
+
+        public static CompiledWhereSql compile(SqlBuffer sql, List<Object> values) {
+            if (sql == null) {
+                return UNCACHEABLE;
+            }
+            List<Object> variables = sql.getVariableValues();
+            if (variables.size() != values.size()) {
+                return UNCACHEABLE;
+            }
+            for (int i = 0; i < values.size(); i++) {
+                if (variables.get(i) != values.get(i)) {
+                    return UNCACHEABLE;
+                }
+            }
+            // 复制一份, 返回给调用者的SQL可能会被修改
+            return new CompiledWhereSql(sql.copy());
+        }
+
+        public boolean isCacheable() {
+            return sql != null;
+        }
+
+        public SqlBuffer bind(List<Object> values) {
+            return sql.copyWithVariables(values);
+        }
+    }
 }
@@ -46,32 +46,50 @@ class SqlBufferContext extends BaseContext {
     public Object doGetValue(String prefix, String expression) throws TagException {
         if ("#".equals(prefix)) { // 预编译参数
             Object value = OgnlTools.getValue(stack(), expression);
-            return value == null ? null : new SqlBuffer().addVariable(value);
+            return toVariableOutput(value);
         } else if ("$".equals(prefix)) { // 拼写式参数
             if (expression.trim().startsWith("sql:")) {
                 String exp = StringTools.removePrefix(expression.trim(), "sql:");
                 Object value = OgnlTools.getValue(stack(), exp);
-                if (value instanceof SqlBuffer) {
-                    return ((SqlBuffer) value).getExecutableSqlString(dialect);
-                } else if (value instanceof SqlBuilder) {
-                    return ((SqlBuilder) value).out().getExecutableSqlString(dialect);
-                } else {
-                    return DbTools.variableToString(value, dialect);
-                }
+                return toSpellingOutput(value, true, dialect);
             } else {
                 Object value = OgnlTools.getValue(stack(), expression);
-                if (value == null) {
-                    return null;
-                } else if (value instanceof SqlBuffer) {
-                    return ((SqlBuffer) value).getExecutableSqlString(dialect);
-                } else if (value instanceof SqlBuilder) {
-                    return ((SqlBuilder) value).out().getExecutableSqlString(dialect);
-                } else {
-                    return value;
-                }
+                return toSpellingOutput(value, false, dialect);
             }
         } else {
             throw new TagException("表达式前缀有误");
         }
     }
+
+    /**
+     * 预编译参数#{xxx}的输出内容
+     *
+     * @param value 表达式的值
+     * @return 输出内容
+     * @since 3.2.2
+     */
+    static Object toVariableOutput(Object value) {
+        return value == null ? null : new SqlBuffer().addVariable(value);
+    }
+
+    /**
+     * 拼写式参数${xxx}的输出内容
+     *
+     * @param value 表达式的值
+     * @param sqlPrefix 是不是${sql:xxx}, 是的话非SQL对象的值转换为SQL字符串
+     * @param dialect 数据库方言处理类
+     * @return 输出内容
+     * @since 3.2.2
+     */
+    static Object toSpellingOutput(Object value, boolean sqlPrefix, SqlDialect dialect) {
+        if (value instanceof SqlBuffer) {
+            return ((SqlBuffer) value).getExecutableSqlString(dialect);
+        } else if (value instanceof SqlBuilder) {
+            return ((SqlBuilder) value).out().getExecutableSqlString(dialect);
+        } else if (sqlPrefix) {
+            return DbTools.variableToString(value, dialect);
+        } else {
+            return value;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.gitee.qdbp.jdbc.sql.parse;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
@@ -57,6 +58,17 @@ public class SqlBufferPublisher extends BasePublisher {
     }
 
     protected void presetGlobalVariable(SqlBufferContext context, SqlDialect dialect) {
+        context.preset().put("db", buildGlobalVariables(dialect));
+    }
+
+    /**
+     * 生成全局预置变量, 模板中通过db.xxx访问
+     *
+     * @param dialect 数据库方言处理类
+     * @return 全局预置变量
+     * @since 3.2.2
+     */
+    static Map<String, Object> buildGlobalVariables(SqlDialect dialect) {
         Map<String, Object> global = new HashMap<>();
         global.put("dialect", dialect);
         global.put("dbVersion", dialect.getDbVersion());
@@ -64,21 +76,20 @@ public class SqlBufferPublisher extends BasePublisher {
         global.put("DbType", dialect.getDbVersion().getDbType().name());
 
         global.put("config", getDbConfig(dialect.getDbVersion()));
-
-        context.preset().put("db", global);
+        return global;
     }
 
-    private static Map<String, DbConfig> DB_CONFIG_MAPS = new HashMap<>();
+    private static Map<String, DbConfig> DB_CONFIG_MAPS = new ConcurrentHashMap<>();
 
     /** 获取与版本相关的数据库配置选项 **/
     public static DbConfig getDbConfig(DbVersion version) {
         String versionCode = version.toVersionString();
-        if (DB_CONFIG_MAPS.containsKey(versionCode)) {
-            return DB_CONFIG_MAPS.get(versionCode);
-        } else {
-            DbConfig config = new DbConfig(DbTools.getDbConfig(), version);
+        DbConfig config = DB_CONFIG_MAPS.get(versionCode);
+        if (config == null) {
+            // 多个线程同时渲染模板, 必须使用线程安全的Map
+            config = new DbConfig(DbTools.getDbConfig(), version);
             DB_CONFIG_MAPS.put(versionCode, config);
-            return config;
         }
+        return config;
     }
 }
@@ -0,0 +1,169 @@
+package com.gitee.qdbp.jdbc.sql.parse;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import com.gitee.qdbp.jdbc.model.DbType;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentParser.SqlFragment;
+import com.gitee.qdbp.tools.utils.ConvertTools;
+import com.gitee.qdbp.tools.utils.StringTools;
+
+/**
+ * SQL模板文件索引中的片断元数据<br>
+ * 构建时拆分SQL模板文件, 将每个片断的SqlId/版本支持声明/行号/是否静态文本写入索引,
+ * 运行时直接按索引注册模板(版本顺序由版本支持声明决定), 不必读取文件; 首次使用某个模板时才读取文件并解析标签<br>
+ * 索引格式: 文件路径独占一行, 其后每个片断一行, 以TAB开头, 字段以TAB分隔:<pre>
+    # qdbc sql file index, generated by ...
+    # format=2
+    # dbTypes=db2,h2,mysql,...
+    settings/sqls/xxx.sql
+    \t{line}\t{fileId}\t{fragmentId}\t{supports}\t{static}</pre>
+ * 没有format声明的是只有文件路径的旧索引, 生成索引时的数据库类型与运行时不一致的, 片断元数据都不使用(需要读取文件)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class SqlFileIndex {
+
+    /** 索引格式版本 **/
+    public static final String FORMAT_VERSION = "2";
+    /** 索引格式版本的声明 **/
+    public static final String FORMAT_PREFIX = "# format=";
+    /** 数据库类型的声明(文件名中的数据库类型影响SqlId和版本支持声明) **/
+    public static final String DB_TYPES_PREFIX = "# dbTypes=";
+
+    /**
+     * 拆分SQL模板文件, 生成片断元数据(不解析标签)
+     *
+     * @param sqlPath 文件路径
+     * @param sqlContent 文件内容
+     * @param dbTypes 可用的数据库类型
+     * @return 片断元数据
+     */
+    public static List<FragmentEntry> describeSqlFile(String sqlPath, String sqlContent, List<DbType> dbTypes) {
+        SqlFragmentParser parser = new SqlFragmentParser(null, dbTypes);
+        List<SqlFragment> sqlFragments = parser.splitSqlContent(sqlPath, sqlContent);
+        return parser.describeSqlFragments(sqlPath, sqlFragments);
+    }
+
+    /**
+     * 生成数据库类型的声明内容, 按名称排序, 如 db2,h2,mysql
+     *
+     * @param dbTypes 可用的数据库类型
+     * @return 声明内容
+     */
+    public static String toDbTypesString(List<DbType> dbTypes) {
+        List<String> names = new ArrayList<>();
+        for (DbType dbType : dbTypes) {
+            names.add(dbType.name().toLowerCase());
+        }
+        Collections.sort(names);
+        return ConvertTools.joinToString(names, ',');
+    }
+
+    /** 索引中的SQL模板文件 **/
+    public static class IndexedFile {
+
+        private final URL url;
+        private final List<FragmentEntry> fragments;
+
+        public IndexedFile(URL url, List<FragmentEntry> fragments) {
+            this.url = url;
+            this.fragments = fragments;
+        }
+
+        /** 文件路径 **/
+        public URL getUrl() {
+            return url;
+        }
+
+        /** 片断元数据, 为null表示索引中没有元数据(本地文件夹或旧索引), 需要读取文件 **/
+        public List<FragmentEntry> getFragments() {
+            return fragments;
+        }
+
+        @Override
+        public String toString() {
+            return url.toString();
+        }
+    }
+
+    /** SQL片断的元数据 **/
+    public static class FragmentEntry {
+
+        private final int line;
+        private final String fileId;
+        private final String fragmentId;
+        private final String supports;
+        private final boolean staticContent;
+
+        public FragmentEntry(int line, String fileId, String fragmentId, String supports, boolean staticContent) {
+            this.line = line;
+            this.fileId = fileId;
+            this.fragmentId = fragmentId;
+            this.supports = supports;
+            this.staticContent = staticContent;
+        }
+
+        /** SqlId所在的行号(从1开始), 没有SqlId的片断为0 **/
+        public int getLine() {
+            return line;
+        }
+
+        /** 文件ID, 如user.manage **/
+        public String getFileId() {
+            return fileId;
+        }
+
+        /** 片断ID, 如user.resource.query, 可能为空 **/
+        public String getFragmentId() {
+            return fragmentId;
+        }
+
+        /** 版本支持声明, 如mysql.8,postgresql, 可能为空 **/
+        public String getSupports() {
+            return supports;
+        }
+
+        /** 是不是静态文本(不含标签和表达式) **/
+        public boolean isStaticContent() {
+            return staticContent;
+        }
+
+        /** 生成索引行, 以TAB开头, 空值写为空字符串 **/
+        public String toIndexLine() {
+            StringBuilder buffer = new StringBuilder();
+            buffer.append('\t').append(line);
+            buffer.append('\t').append(fileId);
+            buffer.append('\t').append(fragmentId == null ? "" : fragmentId);
+            buffer.append('\t').append(supports == null ? "" : supports);
+            buffer.append('\t').append(staticContent ? 1 : 0);
+            return buffer.toString();
+        }
+
+        /**
+         * 解析索引行
+         *
+         * @param indexLine 索引行
+         * @return 片断元数据, 格式错误时返回null
+         */
+        public static FragmentEntry parse(String indexLine) {
+            // 保留空字段
+            String[] fields = StringTools.removePrefix(indexLine, "\t").split("\t", -1);
+            if (fields.length != 5 || fields[1].length() == 0) {
+                return null;
+            }
+            int line;
+            try {
+                line = Integer.parseInt(fields[0]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            String fragmentId = fields[2].length() == 0 ? null : fields[2];
+            String supports = fields[3].length() == 0 ? null : fields[3];
+            return new FragmentEntry(line, fields[1], fragmentId, supports, "1".equals(fields[4]));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.gitee.qdbp.jdbc.sql.parse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.files.PathTools;
+
+/**
+ * SQL模板文件监视器<br>
+ * 通过WatchService监视SQL模板文件所在的文件夹, 文件变化时通知容器热加载<br>
+ * 收到事件后重新列出SQL模板文件, 按最后修改时间找出新增/修改/删除的文件<br>
+ * 只监视本地文件(file:), 不监视jar包; 不监视启动后新建的子文件夹<br>
+ * IndexedSqlFileScanner对本地文件夹不读取索引, 因此构建之后新增的文件也能被发现
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+class SqlFileWatcher implements Runnable {
+
+    private static Logger log = LoggerFactory.getLogger(SqlFileWatcher.class);
+
+    /** 收到事件后等待一段时间再处理, 合并编辑器保存文件时连续产生的多个事件 **/
+    private static final long MERGE_EVENTS_MILLIS = 300;
+
+    private final SqlFragmentContainer container;
+    /** 已知的SQL模板文件, key=文件路径 **/
+    private final Map<String, URL> knownFiles = new HashMap<>();
+    /** 已知的SQL模板文件的最后修改时间, key=文件路径 **/
+    private final Map<String, Long> lastModifiedTimes = new HashMap<>();
+    private volatile WatchService watchService;
+    private volatile boolean running;
+
+    public SqlFileWatcher(SqlFragmentContainer container) {
+        this.container = container;
+    }
+
+    /** 启动监视线程 **/
+    public void start() {
+        this.running = true;
+        Thread thread = new Thread(this, "qdbc-sql-template-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 停止监视 **/
+    public void stop() {
+        this.running = false;
+        WatchService service = this.watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.debug("Failed to close sql template watch service.", e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // 先等待首次扫描完成, 再记录文件的初始状态
+            container.scanSqlFiles();
+            if (!registerFolders()) {
+                return;
+            }
+            while (running) {
+                WatchKey key = watchService.take();
+                Thread.sleep(MERGE_EVENTS_MILLIS);
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watchService.poll()) != null);
+                try {
+                    checkChangedFiles();
+                } catch (Exception e) {
+                    log.warn("Failed to reload sql templates.", e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stop()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Sql template watcher stopped with an error.", e);
+        }
+    }
+
+    private boolean registerFolders() throws IOException {
+        Set<File> folders = new LinkedHashSet<>();
+        for (URL url : DbTools.getSqlFileScanner().scanSqlFiles()) {
+            File file = toLocalFile(url);
+            if (file != null) {
+                String path = PathTools.toUriPath(url);
+                knownFiles.put(path, url);
+                lastModifiedTimes.put(path, file.lastModified());
+                folders.add(file.getParentFile());
+            }
+        }
+        if (folders.isEmpty()) {
+            log.info("Sql template watcher not started, because there are no local sql template files.");
+            return false;
+        }
+        WatchService service = FileSystems.getDefault().newWatchService();
+        for (File folder : folders) {
+            folder.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        this.watchService = service;
+        if (!running) { // 注册期间调用了stop()
+            service.close();
+            return false;
+        }
+        log.info("Sql template watcher started, watching {} folders.", folders.size());
+        return true;
+    }
+
+    private void checkChangedFiles() {
+        List<URL> changedFiles = new ArrayList<>();
+        Set<String> currentPaths = new LinkedHashSet<>();
+        for (URL url : DbTools.getSqlFileScanner().scanSqlFiles()) {
+            File file = toLocalFile(url);
+            if (file == null) {
+                continue;
+            }
+            String path = PathTools.toUriPath(url);
+            currentPaths.add(path);
+            Long oldModified = lastModifiedTimes.get(path);
+            long newModified = file.lastModified();
+            if (oldModified == null || oldModified.longValue() != newModified) {
+                changedFiles.add(url);
+                knownFiles.put(path, url);
+                lastModifiedTimes.put(path, newModified);
+            }
+        }
+        List<URL> deletedFiles = new ArrayList<>();
+        Iterator<Map.Entry<String, URL>> iterator = knownFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, URL> entry = iterator.next();
+            if (!currentPaths.contains(entry.getKey())) {
+                deletedFiles.add(entry.getValue());
+                lastModifiedTimes.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+        if (!changedFiles.isEmpty() || !deletedFiles.isEmpty()) {
+            container.reloadSqlFiles(changedFiles, deletedFiles);
+        }
+    }
+
+    private static File toLocalFile(URL url) {
+        if (!"file".equalsIgnoreCase(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -5,8 +5,18 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.gitee.qdbp.able.beans.KeyString;
@@ -16,8 +26,13 @@ import com.gitee.qdbp.jdbc.model.DbType;
 import com.gitee.qdbp.jdbc.model.DbVersion;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
 import com.gitee.qdbp.jdbc.plugins.SqlFileScanner;
+import com.gitee.qdbp.jdbc.plugins.impl.IndexedSqlFileScanner;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.FragmentEntry;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.IndexedFile;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentParser.SqlFragment;
 import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.LruCache;
 import com.gitee.qdbp.staticize.common.IMetaData;
 import com.gitee.qdbp.staticize.exception.TagException;
 import com.gitee.qdbp.staticize.tags.base.Taglib;
@@ -45,10 +60,20 @@ public class SqlFragmentContainer {
 
     /** 未指定数据库类型的SQL模板 **/
     // key=sqlId
-    private Map<String, IMetaData> untypedCache = new HashMap<>();
+    // 热加载时整体替换为重新注册的新容器, 不修改正在被读取的旧容器
+    // 索引中的模板在首次使用时才解析标签, 因此容器中存放的是片断, 查找时才获取标签元数据树
+    private volatile Map<String, ParsedFragment> untypedCache = new HashMap<>();
     /** 指定了数据库类型的SQL模板 **/
-    // key=sqlId(dbType), value=[{version,IMetaData}], value按版本号从大到小排列, 无版本号的放最后
-    private Map<String, List<TagData>> typedCache = new HashMap<>();
+    // key=sqlId(dbType), value=[{version,ParsedFragment}], value按版本号从大到小排列, 无版本号的放最后
+    private volatile Map<String, List<TagData>> typedCache = new HashMap<>();
+    /** 各个SQL模板文件解析后的片断, 用于热加载时只重新解析变化的文件 **/
+    // key=文件路径, 按扫描顺序排列, 新增的文件放最后
+    private Map<String, List<ParsedFragment>> fileFragments = new LinkedHashMap<>();
+    /** 热加载的次数, 用于避免查找模板的线程将热加载之前的旧模板放入缓存 **/
+    private final AtomicLong reloadTimes = new AtomicLong();
+    /** SQL模板文件监视器 **/
+    private SqlFileWatcher watcher;
+    private final Object watcherLock = new Object();
 
     private SqlFragmentContainer() {
     }
@@ -61,6 +86,12 @@ public class SqlFragmentContainer {
      * @param data 解析后的模板标签元数据树
      */
     protected void register(String sqlId, String supports, IMetaData data) {
+        ParsedFragment fragment = new ParsedFragment(sqlId, null, supports, data);
+        register(this.untypedCache, this.typedCache, sqlId, supports, fragment);
+    }
+
+    private static void register(Map<String, ParsedFragment> untypedCache, Map<String, List<TagData>> typedCache,
+            String sqlId, String supports, ParsedFragment data) {
         if (supports == null || "*".equals(supports)) {
             if (!untypedCache.containsKey(sqlId)) {
                 // 存入未指定数据库类型的SQL模板容器
@@ -86,12 +117,12 @@ public class SqlFragmentContainer {
                 }
                 String sqlKey = sqlId + '(' + dbType + ')';
                 TagData value = new TagData(version, data);
-                if (this.typedCache.containsKey(sqlKey)) {
-                    mergeTagDatas(value, this.typedCache.get(sqlKey));
+                if (typedCache.containsKey(sqlKey)) {
+                    mergeTagDatas(value, typedCache.get(sqlKey));
                 } else {
                     List<TagData> list = new ArrayList<>();
                     list.add(value);
-                    this.typedCache.put(sqlKey, list);
+                    typedCache.put(sqlKey, list);
                 }
             }
 
@@ -136,9 +167,9 @@ public class SqlFragmentContainer {
     }
 
     // key=sqlId(dbType.version)
-    private Map<String, IMetaData> tmplFondCache = new HashMap<>();
+    private Map<String, IMetaData> tmplFondCache = new ConcurrentHashMap<>();
     // key=sqlId(dbType.version), value=details message
-    private Map<String, String> tmplErrorCache = new HashMap<>();
+    private Map<String, String> tmplErrorCache = new ConcurrentHashMap<>();
 
     protected IMetaData find(String sqlId, DbVersion dbVersion, boolean throwOnNotFound) {
 
@@ -146,37 +177,42 @@ public class SqlFragmentContainer {
         String currVersion = dbVersion.getVersionCode();
 
         String cacheKey = sqlId + '(' + dbType + '.' + currVersion + ')';
-        if (tmplFondCache.containsKey(cacheKey)) {
-            return tmplFondCache.get(cacheKey);
+        IMetaData cached = tmplFondCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
         }
-        if (tmplErrorCache.containsKey(cacheKey)) {
+        String errorDetails = tmplErrorCache.get(cacheKey);
+        if (errorDetails != null) {
             if (throwOnNotFound) {
-                String details = tmplErrorCache.get(cacheKey);
-                throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_NOT_FOUND, details);
+                throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_NOT_FOUND, errorDetails);
             } else {
                 return null;
             }
         }
 
-        IMetaData found = null;
+        ParsedFragment found = null;
         // 记录下尝试过哪些模板, 用于匹配失败时输出日志
         // key=dbType+dbVersion, value=location
         List<KeyString> tryedLocations = new ArrayList<>();
+        long reloadVersion;
         { // 开始查找模板
             this.scanSqlFiles();
+            reloadVersion = reloadTimes.get();
+            Map<String, List<TagData>> typedCache = this.typedCache;
+            Map<String, ParsedFragment> untypedCache = this.untypedCache;
             String sqlKey = sqlId + '(' + dbType + ')';
             List<TagData> typedList = typedCache.get(sqlKey);
             if (typedList != null && !typedList.isEmpty()) {
                 for (TagData item : typedList) {
                     // 此模板的最低版本要求
                     String minVersion = item.getMinVersion();
-                    tryedLocations.add(new KeyString(dbType + '.' + minVersion, item.getMetaData().getRealPath()));
+                    tryedLocations.add(new KeyString(dbType + '.' + minVersion, item.getFragment().getLocation()));
                     if (minVersion == null || "*".equals(minVersion)) {
-                        found = item.getMetaData(); // 没有最低要求, 则当前数据库为匹配
+                        found = item.getFragment(); // 没有最低要求, 则当前数据库为匹配
                         break;
                     }
                     if (VersionCodeTools.compare(currVersion, minVersion) >= 0) {
-                        found = item.getMetaData(); // 满足最低要求, 匹配成功
+                        found = item.getFragment(); // 满足最低要求, 匹配成功
                         break;
                     }
                 }
@@ -189,8 +225,19 @@ public class SqlFragmentContainer {
         }
 
         if (found != null) {
-            tmplFondCache.put(cacheKey, found);
-            return found;
+            // 索引中的模板在这里首次解析
+            IMetaData metadata = found.getMetaData();
+            if (found.isStaticContent()) {
+                this.staticTemplates.put(metadata, Boolean.TRUE);
+            } else if (found.getRenderPlan() != null) {
+                this.renderPlans.put(metadata, found.getRenderPlan());
+            }
+            tmplFondCache.put(cacheKey, metadata);
+            if (reloadTimes.get() != reloadVersion) {
+                // 查找期间发生了热加载, 找到的可能是旧模板, 不能留在缓存中
+                tmplFondCache.remove(cacheKey);
+            }
+            return metadata;
         }
 
         // 未匹配成功
@@ -202,6 +249,9 @@ public class SqlFragmentContainer {
             details.append("\nmatches tryed locations:\n").append(locationsToString(tryedLocations));
         }
         tmplErrorCache.put(cacheKey, details.toString());
+        if (reloadTimes.get() != reloadVersion) {
+            tmplErrorCache.remove(cacheKey);
+        }
         if (throwOnNotFound) {
             throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_NOT_FOUND, details.toString());
         } else {
@@ -250,14 +300,104 @@ public class SqlFragmentContainer {
         return publish(tags, data, dialect);
     }
 
+    /**
+     * SQL字符串的解析结果缓存, key=SQL字符串<br>
+     * 代码中传入的SQL字符串一般是常量, 同一个字符串只需解析一次, 之后每次只需渲染<br>
+     * 动态拼接的SQL字符串可能非常多, 因此需要限定容量<br>
+     * 每次执行SQL字符串都要访问, 因此分为16段独立加锁, 避免所有线程竞争同一个锁
+     */
+    private final LruCache<String, IMetaData> parsedSqlCache = new LruCache<>(500, 16);
+
+    /**
+     * 获取SQL字符串的解析结果缓存, 用于查看命中/未命中/淘汰等统计数据或调整容量
+     * 
+     * @return 解析结果缓存
+     * @since 3.2.2
+     */
+    public LruCache<String, IMetaData> getParsedSqlCache() {
+        return parsedSqlCache;
+    }
+
+    /** SQL字符串的渲染计划缓存, key=SQL字符串, 与解析结果同时生成; 不能编译的SQL字符串不在缓存中 **/
+    private final LruCache<String, SqlRenderPlan> compiledSqlCache = new LruCache<>(500, 16);
+
     /** 解析SQL模板内容, 渲染为SqlBuffer对象 **/
     public SqlBuffer parse(String sqlString, Map<String, Object> data, SqlDialect dialect) {
-        IMetaData tags = SqlStringParser.parseSqlString(sqlString);
-        return publish(tags, data, dialect);
+        IMetaData tags = parsedSqlCache.get(sqlString);
+        SqlRenderPlan plan;
+        if (tags == null) {
+            tags = SqlStringParser.parseSqlString(sqlString);
+            parsedSqlCache.put(sqlString, tags);
+            // SQL字符串中的sql:include找不到被引用的模板, 因此不需要IncludeResolver
+            plan = renderPlanEnabled ? SqlRenderPlan.compile(sqlString) : null;
+            if (plan != null) {
+                compiledSqlCache.put(sqlString, plan);
+            }
+        } else {
+            plan = compiledSqlCache.get(sqlString);
+        }
+        return publish(tags, plan, data, dialect);
     }
 
-    /** 将SQL模板渲染为SqlBuffer对象 **/
+    /** 不含标签和表达式的静态SQL模板 **/
+    private Map<IMetaData, Boolean> staticTemplates = new ConcurrentHashMap<>();
+    /** 静态SQL模板的渲染结果, 与参数无关, 首次渲染后缓存, 之后每次复制一份 **/
+    private Map<IMetaData, SqlBuffer> staticRenderedCache = new ConcurrentHashMap<>();
+    /** SQL模板文件中的动态模板的渲染计划 **/
+    private Map<IMetaData, SqlRenderPlan> renderPlans = new ConcurrentHashMap<>();
+    /** 是否使用渲染计划(为false时全部由标签解释器渲染) **/
+    private boolean renderPlanEnabled = true;
+
+    /**
+     * 将SQL模板渲染为SqlBuffer对象<br>
+     * 静态SQL模板只渲染一次, 之后复制缓存的渲染结果; 动态模板优先使用渲染计划, 不能编译的由标签解释器逐次渲染
+     * 
+     * @param tags 解析后的模板标签元数据树
+     * @param data 模板参数
+     * @param dialect 数据库方言
+     * @return SQL语句
+     */
     public SqlBuffer publish(IMetaData tags, Map<String, Object> data, SqlDialect dialect) {
+        return publish(tags, renderPlans.get(tags), data, dialect);
+    }
+
+    private SqlBuffer publish(IMetaData tags, SqlRenderPlan plan, Map<String, Object> data, SqlDialect dialect) {
+        if (!staticTemplates.containsKey(tags)) {
+            return renderDynamic(tags, plan, data, dialect);
+        }
+        SqlBuffer cached = staticRenderedCache.get(tags);
+        if (cached != null) {
+            return cached.copy();
+        }
+        SqlBuffer buffer = doPublish(tags, data, dialect);
+        // 返回给调用者的SQL可能会被修改, 缓存一份副本
+        staticRenderedCache.put(tags, buffer.copy());
+        return buffer;
+    }
+
+    /**
+     * 渲染动态模板<br>
+     * 渲染计划首次渲染时同时执行标签解释器, 结果一致之后才直接使用渲染计划的结果;
+     * 渲染计划停用或本次不能处理时由标签解释器渲染
+     */
+    private SqlBuffer renderDynamic(IMetaData tags, SqlRenderPlan plan, Map<String, Object> data,
+            SqlDialect dialect) {
+        if (plan == null || !renderPlanEnabled || !plan.isEnabled()) {
+            return doPublish(tags, data, dialect);
+        }
+        SqlBuffer compiled = plan.render(data, dialect);
+        if (compiled == null) {
+            return doPublish(tags, data, dialect);
+        }
+        if (plan.isVerified()) {
+            return compiled;
+        }
+        SqlBuffer interpreted = doPublish(tags, data, dialect);
+        plan.verify(compiled, interpreted, dialect);
+        return interpreted;
+    }
+
+    private SqlBuffer doPublish(IMetaData tags, Map<String, Object> data, SqlDialect dialect) {
         SqlBufferPublisher publisher = new SqlBufferPublisher(tags);
         try {
             SqlBuffer buffer = publisher.publish(data, dialect);
@@ -269,7 +409,9 @@ public class SqlFragmentContainer {
         }
     }
 
-    private boolean scaned = false;
+    private volatile boolean scaned = false;
+    /** 扫描SQL模板文件的并行线程数(小于等于0时取CPU核数, 1表示单线程) **/
+    private int scanThreads = 0;
 
     /** 扫描SQL模板文件 **/
     public void scanSqlFiles() {
@@ -279,53 +421,331 @@ public class SqlFragmentContainer {
         this.doScanSqlFiles();
     }
 
+    /**
+     * 在后台线程中扫描SQL模板文件, 不阻塞系统启动<br>
+     * 扫描完成之前获取SQL模板的线程会等待扫描结束
+     * 
+     * @since 3.2.2
+     */
+    public void scanSqlFilesInBackground() {
+        if (this.scaned) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    scanSqlFiles();
+                } catch (Exception e) {
+                    log.warn("Failed to scan sql templates in background.", e);
+                }
+            }
+        }, "qdbc-sql-template-scanner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 扫描SQL模板文件的并行线程数(小于等于0时取CPU核数, 1表示单线程) **/
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    /** 扫描SQL模板文件的并行线程数(小于等于0时取CPU核数, 1表示单线程) **/
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+
+    /** 是否使用渲染计划(为false时全部由标签解释器渲染) **/
+    public boolean isRenderPlanEnabled() {
+        return renderPlanEnabled;
+    }
+
+    /** 是否使用渲染计划(为false时全部由标签解释器渲染) **/
+    public void setRenderPlanEnabled(boolean renderPlanEnabled) {
+        this.renderPlanEnabled = renderPlanEnabled;
+    }
+
     /** 扫描SQL模板文件 **/
     private synchronized void doScanSqlFiles() {
         if (this.scaned) {
             return;
         }
-        this.scaned = true;
+        try {
+            this.doScanAndRegisterSqlFiles();
+        } finally {
+            // 全部注册完成之后才设置扫描标记, 避免其他线程读取到注册了一半的模板
+            this.scaned = true;
+        }
+    }
+
+    private void doScanAndRegisterSqlFiles() {
         SqlFileScanner scanner = DbTools.getSqlFileScanner();
-        List<URL> urls = scanner.scanSqlFiles();
+        // 索引中有片断元数据的文件不需要读取, 直接注册, 首次使用时才解析
+        // key=文件路径, value=片断元数据
+        Map<String, List<FragmentEntry>> indexedFragments = new HashMap<>();
+        List<URL> urls = new ArrayList<>();
+        List<IndexedFile> indexedFiles = null;
+        if (scanner instanceof IndexedSqlFileScanner) {
+            indexedFiles = ((IndexedSqlFileScanner) scanner).scanIndexedSqlFiles();
+        }
+        if (indexedFiles == null) {
+            urls.addAll(scanner.scanSqlFiles());
+        } else {
+            for (IndexedFile item : indexedFiles) {
+                urls.add(item.getUrl());
+                if (item.getFragments() != null) {
+                    indexedFragments.put(PathTools.toUriPath(item.getUrl()), item.getFragments());
+                }
+            }
+        }
+        // 需要读取并拆分的文件
+        List<URL> readUrls = new ArrayList<>();
+        for (URL url : urls) {
+            if (!indexedFragments.containsKey(PathTools.toUriPath(url))) {
+                readUrls.add(url);
+            }
+        }
 
         Date startTime = new Date();
         List<DbType> dbTypes = DbTools.getAvailableDbTypes();
         Taglib taglib = DbTools.getSqlTaglib();
         SqlFragmentParser parser = new SqlFragmentParser(taglib, dbTypes);
-        for (URL url : urls) {
-            String absolutePath = PathTools.toUriPath(url);
+        int poolSize = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        List<ParsedFragment> tagDatas;
+        if (poolSize <= 1 || readUrls.size() <= 1) {
+            for (URL url : urls) {
+                String absolutePath = PathTools.toUriPath(url);
+                List<FragmentEntry> entries = indexedFragments.get(absolutePath);
+                if (entries != null) {
+                    parser.registerIndexedFragments(url, absolutePath, entries);
+                } else {
+                    List<SqlFragment> sqlFragments = readSqlFragments(parser, url, absolutePath);
+                    parser.registerSqlFragments(absolutePath, sqlFragments);
+                }
+            }
+            tagDatas = parser.parseCachedSqlFragments();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(poolSize);
             try {
-                String sqlContent = PathTools.downloadString(url);
-                parser.parseSqlContent(absolutePath, sqlContent);
-            } catch (IOException e) {
-                log.warn("Failed to read sql template: {}", absolutePath, e);
-            } catch (Exception e) {
-                log.warn("Failed to parse sql template: {}", absolutePath, e);
+                // 并行读取文件并拆分SQL片断, 然后按文件顺序注册, 保证冲突时总是先扫描到的文件优先
+                List<Future<List<SqlFragment>>> futures = pool.invokeAll(newReadTasks(parser, readUrls));
+                int readIndex = 0;
+                for (URL url : urls) {
+                    String absolutePath = PathTools.toUriPath(url);
+                    List<FragmentEntry> entries = indexedFragments.get(absolutePath);
+                    if (entries != null) {
+                        parser.registerIndexedFragments(url, absolutePath, entries);
+                    } else {
+                        List<SqlFragment> sqlFragments = futures.get(readIndex++).get();
+                        parser.registerSqlFragments(absolutePath, sqlFragments);
+                    }
+                }
+                // 并行解析SQL片断
+                tagDatas = parser.parseCachedSqlFragments(pool);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning sql templates.", e);
+            } catch (ExecutionException e) {
+                // readSqlFragments已捕获全部异常, 不会走到这里
+                throw new IllegalStateException("Failed to scan sql templates.", e.getCause());
+            } finally {
+                pool.shutdown();
             }
         }
-
-        List<ParsedFragment> tagDatas = parser.parseCachedSqlFragments();
         if (log.isInfoEnabled()) {
-            String msg = "Success to parse sql templates, elapsed time {}, total of {} files and {} fragments.";
-            log.info(msg, ConvertTools.toDuration(startTime, true), urls.size(), tagDatas.size());
+            String msg = "Success to parse sql templates, elapsed time {}, total of {} files and {} fragments"
+                    + " ({} files loaded from index, parsed on first use).";
+            log.info(msg, ConvertTools.toDuration(startTime, true), urls.size(), tagDatas.size(),
+                    indexedFragments.size());
+        }
+        for (URL url : urls) {
+            this.fileFragments.put(PathTools.toUriPath(url), new ArrayList<ParsedFragment>());
         }
         for (ParsedFragment item : tagDatas) {
-            this.register(item.getSqlId(), item.getSupports(), item.getMetaData());
+            register(this.untypedCache, this.typedCache, item.getSqlId(), item.getSupports(), item);
             if (item.getAlias() != null) {
-                this.register(item.getAlias(), item.getSupports(), item.getMetaData());
+                register(this.untypedCache, this.typedCache, item.getAlias(), item.getSupports(), item);
+            }
+            List<ParsedFragment> fragments = this.fileFragments.get(item.getSqlPath());
+            if (fragments != null) {
+                fragments.add(item);
             }
         }
     }
 
+    /**
+     * 启动SQL模板文件监视器, 文件变化时自动热加载<br>
+     * 只监视本地文件(file:), jar包中的文件不会变化, 不需要监视; 重复调用只会启动一个监视器
+     * 
+     * @since 3.2.2
+     */
+    public void startWatching() {
+        // 不能使用扫描模板的锁, 否则后台扫描时会阻塞启动
+        synchronized (this.watcherLock) {
+            if (this.watcher != null) {
+                return;
+            }
+            this.watcher = new SqlFileWatcher(this);
+            this.watcher.start();
+        }
+    }
+
+    /** 停止SQL模板文件监视器 **/
+    public void stopWatching() {
+        synchronized (this.watcherLock) {
+            if (this.watcher != null) {
+                this.watcher.stop();
+                this.watcher = null;
+            }
+        }
+    }
+
+    /**
+     * 热加载SQL模板文件<br>
+     * 只重新解析变化的文件, 其余文件沿用已解析的结果, 重新注册后整体替换模板容器<br>
+     * 正在渲染的线程继续使用旧模板, 不会被阻塞; 只清除受影响的SqlId的查找缓存<br>
+     * 冲突时仍按扫描顺序先到先得, 新增的文件排在最后
+     * 
+     * @param changedFiles 新增或修改的文件
+     * @param deletedFiles 删除的文件
+     * @since 3.2.2
+     */
+    public synchronized void reloadSqlFiles(List<URL> changedFiles, List<URL> deletedFiles) {
+        this.scanSqlFiles();
+        Date startTime = new Date();
+        List<DbType> dbTypes = DbTools.getAvailableDbTypes();
+        Taglib taglib = DbTools.getSqlTaglib();
+        SqlFragmentParser parser = new SqlFragmentParser(taglib, dbTypes);
+        Map<String, List<ParsedFragment>> newFileFragments = new LinkedHashMap<>(this.fileFragments);
+        Map<String, List<ParsedFragment>> changedFragments = new LinkedHashMap<>();
+        if (changedFiles != null) {
+            for (URL url : changedFiles) {
+                String absolutePath = PathTools.toUriPath(url);
+                parser.registerSqlFragments(absolutePath, readSqlFragments(parser, url, absolutePath));
+                changedFragments.put(absolutePath, new ArrayList<ParsedFragment>());
+            }
+        }
+        for (ParsedFragment item : parser.parseCachedSqlFragments()) {
+            List<ParsedFragment> fragments = changedFragments.get(item.getSqlPath());
+            if (fragments != null) {
+                fragments.add(item);
+            }
+        }
+
+        // 受影响的SqlId: 变化的文件修改前后的全部SqlId
+        Set<String> affectedSqlIds = new HashSet<>();
+        List<ParsedFragment> removedFragments = new ArrayList<>();
+        if (deletedFiles != null) {
+            for (URL url : deletedFiles) {
+                List<ParsedFragment> old = newFileFragments.remove(PathTools.toUriPath(url));
+                if (old != null) {
+                    removedFragments.addAll(old);
+                }
+            }
+        }
+        for (Map.Entry<String, List<ParsedFragment>> entry : changedFragments.entrySet()) {
+            List<ParsedFragment> old = newFileFragments.put(entry.getKey(), entry.getValue());
+            if (old != null) {
+                removedFragments.addAll(old);
+            }
+            collectSqlIds(entry.getValue(), affectedSqlIds);
+        }
+        collectSqlIds(removedFragments, affectedSqlIds);
+
+        // 按扫描顺序重新注册全部模板(已解析的直接复用), 然后整体替换
+        Map<String, ParsedFragment> newUntypedCache = new HashMap<>();
+        Map<String, List<TagData>> newTypedCache = new HashMap<>();
+        for (List<ParsedFragment> fragments : newFileFragments.values()) {
+            for (ParsedFragment item : fragments) {
+                register(newUntypedCache, newTypedCache, item.getSqlId(), item.getSupports(), item);
+                if (item.getAlias() != null) {
+                    register(newUntypedCache, newTypedCache, item.getAlias(), item.getSupports(), item);
+                }
+            }
+        }
+        this.fileFragments = newFileFragments;
+        this.untypedCache = newUntypedCache;
+        this.typedCache = newTypedCache;
+        this.reloadTimes.incrementAndGet();
+
+        // 先替换容器再清除缓存, 查找线程通过reloadTimes判断是否需要丢弃刚放入缓存的旧模板
+        removeCachedSqlIds(this.tmplFondCache, affectedSqlIds);
+        removeCachedSqlIds(this.tmplErrorCache, affectedSqlIds);
+        for (ParsedFragment item : removedFragments) {
+            // 未使用过的索引模板还没有解析, 也就不在缓存中
+            IMetaData metadata = item.getParsedMetaData();
+            if (metadata != null) {
+                this.staticTemplates.remove(metadata);
+                this.staticRenderedCache.remove(metadata);
+                this.renderPlans.remove(metadata);
+            }
+        }
+        if (log.isInfoEnabled()) {
+            String msg = "Success to reload sql templates, elapsed time {}, {} files changed, {} files deleted.";
+            int changedSize = changedFiles == null ? 0 : changedFiles.size();
+            int deletedSize = deletedFiles == null ? 0 : deletedFiles.size();
+            log.info(msg, ConvertTools.toDuration(startTime, true), changedSize, deletedSize);
+        }
+    }
+
+    private static void collectSqlIds(List<ParsedFragment> fragments, Set<String> sqlIds) {
+        for (ParsedFragment item : fragments) {
+            sqlIds.add(item.getSqlId());
+            if (item.getAlias() != null) {
+                sqlIds.add(item.getAlias());
+            }
+        }
+    }
+
+    // key=sqlId(dbType.version)
+    private static void removeCachedSqlIds(Map<String, ?> cache, Set<String> sqlIds) {
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (iterator.hasNext()) {
+            String cacheKey = iterator.next();
+            int index = cacheKey.lastIndexOf('(');
+            if (index > 0 && sqlIds.contains(cacheKey.substring(0, index))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private List<Callable<List<SqlFragment>>> newReadTasks(final SqlFragmentParser parser, List<URL> urls) {
+        List<Callable<List<SqlFragment>>> tasks = new ArrayList<>();
+        for (final URL url : urls) {
+            tasks.add(new Callable<List<SqlFragment>>() {
+
+                @Override
+                public List<SqlFragment> call() {
+                    return readSqlFragments(parser, url, PathTools.toUriPath(url));
+                }
+            });
+        }
+        return tasks;
+    }
+
+    /** 读取SQL模板文件并拆分为SQL片断, 失败时记录日志并返回空列表 **/
+    private static List<SqlFragment> readSqlFragments(SqlFragmentParser parser, URL url, String absolutePath) {
+        try {
+            String sqlContent = PathTools.downloadString(url);
+            return parser.splitSqlContent(absolutePath, sqlContent);
+        } catch (IOException e) {
+            log.warn("Failed to read sql template: {}", absolutePath, e);
+        } catch (Exception e) {
+            log.warn("Failed to parse sql template: {}", absolutePath, e);
+        }
+        return new ArrayList<>();
+    }
+
     protected static class TagData {
 
         /** 最低版本要求 **/
         private final String minVersion;
-        private final IMetaData metadata;
+        private final ParsedFragment fragment;
 
-        public TagData(String minVersion, IMetaData data) {
+        public TagData(String minVersion, ParsedFragment fragment) {
             this.minVersion = minVersion;
-            this.metadata = data;
+            this.fragment = fragment;
         }
 
         /** 最低版本要求 **/
@@ -333,8 +753,9 @@ public class SqlFragmentContainer {
             return minVersion;
         }
 
-        public IMetaData getMetaData() {
-            return metadata;
+        /** SQL片断, 标签元数据树可能在首次使用时才解析 **/
+        public ParsedFragment getFragment() {
+            return fragment;
         }
     }
 
@@ -344,12 +765,43 @@ public class SqlFragmentContainer {
         private final String alias;
         private final String supports;
         private final IMetaData metadata;
+        private final String location;
+        private final String sqlPath;
+        private final boolean staticContent;
+        private final SqlRenderPlan renderPlan;
 
         public ParsedFragment(String sqlId, String alias, String supports, IMetaData data) {
+            this(sqlId, alias, supports, data, null, false);
+        }
+
+        public ParsedFragment(String sqlId, String alias, String supports, IMetaData data, String sqlPath,
+                boolean staticContent) {
+            this(sqlId, alias, supports, data, sqlPath, staticContent, null);
+        }
+
+        public ParsedFragment(String sqlId, String alias, String supports, IMetaData data, String sqlPath,
+                boolean staticContent, SqlRenderPlan renderPlan) {
             this.sqlId = sqlId;
             this.alias = alias;
             this.supports = supports;
             this.metadata = data;
+            this.location = data.getRealPath();
+            this.sqlPath = sqlPath;
+            this.staticContent = staticContent;
+            this.renderPlan = renderPlan;
+        }
+
+        /** 尚未解析的片断, 由子类在首次使用时解析 **/
+        protected ParsedFragment(String sqlId, String alias, String supports, String location, String sqlPath,
+                boolean staticContent) {
+            this.sqlId = sqlId;
+            this.alias = alias;
+            this.supports = supports;
+            this.metadata = null;
+            this.location = location;
+            this.sqlPath = sqlPath;
+            this.staticContent = staticContent;
+            this.renderPlan = null;
         }
 
         public String getSqlId() {
@@ -360,13 +812,39 @@ public class SqlFragmentContainer {
             return alias;
         }
 
+        /** 标签元数据树, 索引中的片断首次调用时解析 **/
         public IMetaData getMetaData() {
             return metadata;
         }
 
+        /** 已解析的标签元数据树, 尚未解析时返回null **/
+        public IMetaData getParsedMetaData() {
+            return metadata;
+        }
+
+        /** 模板位置, 用于日志及错误信息 **/
+        public String getLocation() {
+            return location;
+        }
+
         public String getSupports() {
             return supports;
         }
 
+        /** SQL模板文件路径 **/
+        public String getSqlPath() {
+            return sqlPath;
+        }
+
+        /** 是不是静态文本(不含标签和表达式) **/
+        public boolean isStaticContent() {
+            return staticContent;
+        }
+
+        /** 渲染计划, 静态模板或含有不支持的标签时为null **/
+        public SqlRenderPlan getRenderPlan() {
+            return renderPlan;
+        }
+
     }
 }
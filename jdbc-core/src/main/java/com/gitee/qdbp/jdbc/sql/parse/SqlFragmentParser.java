@@ -1,5 +1,7 @@
 package com.gitee.qdbp.jdbc.sql.parse;
 
+import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -7,11 +9,18 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.gitee.qdbp.able.beans.KeyString;
 import com.gitee.qdbp.able.exception.ResourceNotFoundException;
+import com.gitee.qdbp.able.exception.ServiceException;
+import com.gitee.qdbp.jdbc.exception.DbErrorCode;
 import com.gitee.qdbp.jdbc.model.DbType;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.FragmentEntry;
 import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer.ParsedFragment;
 import com.gitee.qdbp.staticize.common.IMetaData;
 import com.gitee.qdbp.staticize.common.IReader;
@@ -60,36 +69,172 @@ class SqlFragmentParser {
     }
 
     public void parseSqlContent(String sqlPath, String sqlContent) {
+        List<SqlFragment> sqlFragments = splitSqlContent(sqlPath, sqlContent);
+        registerSqlFragments(sqlPath, sqlFragments);
+    }
+
+    /**
+     * 清除注释并拆分SQL片断<br>
+     * 只读取解析器的配置, 不修改状态, 可以多线程并行执行
+     * 
+     * @param sqlPath 文件路径
+     * @param sqlContent 文本内容
+     * @return SQL片断列表
+     * @since 3.2.2
+     */
+    public List<SqlFragment> splitSqlContent(String sqlPath, String sqlContent) {
         StringBuilder buffer = new StringBuilder(sqlContent);
         clearCommentContent(buffer, '<' + commentTagName + '>', '<' + '/' + commentTagName + '>', true);
         clearCommentContent(buffer, "/*--", "--*/", true);
         clearCommentContent(buffer, "<%--", "--%>", true);
+        return splitSqlFile(sqlPath, buffer.toString());
+    }
 
-        List<SqlFragment> sqlFragments = splitSqlFile(sqlPath, buffer.toString());
+    /**
+     * 注册SQL片断<br>
+     * 先注册的优先, 后注册的记为冲突, 所以必须在同一线程中按文件顺序调用
+     * 
+     * @param sqlPath 文件路径
+     * @param sqlFragments SQL片断列表
+     * @since 3.2.2
+     */
+    public void registerSqlFragments(String sqlPath, List<SqlFragment> sqlFragments) {
         for (SqlFragment sqlFragment : sqlFragments) {
             registerSqlFragment(sqlPath, sqlFragment);
         }
     }
 
+    /**
+     * 注册索引中的SQL片断, 与registerSqlFragments相同, 先注册的优先<br>
+     * 不读取文件内容, 解析时生成的是首次使用才读取文件并解析标签的片断
+     * 
+     * @param url 文件路径
+     * @param sqlPath 文件路径
+     * @param entries 索引中的片断元数据
+     * @since 3.2.2
+     */
+    public void registerIndexedFragments(URL url, String sqlPath, List<FragmentEntry> entries) {
+        for (FragmentEntry entry : entries) {
+            SqlId result = new SqlId(entry.getFileId(), entry.getFragmentId(), entry.getSupports());
+            registerSqlFragment(sqlPath, result, entry.getLine(), null, entry.isStaticContent(), url);
+        }
+    }
+
+    /**
+     * 生成SQL片断的元数据, 用于构建时写入索引文件<br>
+     * 只计算SqlId/版本支持声明/是否静态文本, 不解析标签; 冲突在运行时注册时处理
+     * 
+     * @param sqlPath 文件路径
+     * @param sqlFragments SQL片断列表
+     * @return 片断元数据
+     * @since 3.2.2
+     */
+    public List<FragmentEntry> describeSqlFragments(String sqlPath, List<SqlFragment> sqlFragments) {
+        List<FragmentEntry> entries = new ArrayList<>();
+        for (SqlFragment sqlFragment : sqlFragments) {
+            SqlId result = parseSqlId(sqlPath, sqlFragment);
+            boolean staticContent = isStaticContent(sqlFragment.getContent());
+            entries.add(new FragmentEntry(sqlFragment.getLine(), result.getFileId(), result.getFragmentId(),
+                    result.getSupports(), staticContent));
+        }
+        return entries;
+    }
+
     public List<ParsedFragment> parseCachedSqlFragments() {
+        return parseCachedSqlFragments(null);
+    }
+
+    /**
+     * 解析已注册的SQL片断<br>
+     * 每个片断使用各自的TagParser, 互不影响; 指定了executor时并行解析, 结果仍按注册顺序返回
+     * 
+     * @param executor 执行器, 为空时在当前线程顺序解析
+     * @return 解析后的SQL片断
+     * @since 3.2.2
+     */
+    public List<ParsedFragment> parseCachedSqlFragments(ExecutorService executor) {
         this.printConflictLogs();
         // sqlKey=fileId:fragmentId(supports)
         List<String> sqlKeys = cacheBox.getSqlKeys();
         List<ParsedFragment> tagDatas = new ArrayList<>();
-        for (String sqlKey : sqlKeys) {
-            TmplData data = cacheBox.getSqlFragment(sqlKey);
-            TagParser parser = new TagParser(taglib, cacheBox);
+        if (executor == null) {
+            for (String sqlKey : sqlKeys) {
+                ParsedFragment fragment = parseCachedSqlFragment(sqlKey);
+                if (fragment != null) {
+                    tagDatas.add(fragment);
+                }
+            }
+            return tagDatas;
+        }
+
+        List<Callable<ParsedFragment>> tasks = new ArrayList<>();
+        for (final String sqlKey : sqlKeys) {
+            tasks.add(new Callable<ParsedFragment>() {
+
+                @Override
+                public ParsedFragment call() {
+                    return parseCachedSqlFragment(sqlKey);
+                }
+            });
+        }
+        List<Future<ParsedFragment>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while parsing sql templates.");
+            return tagDatas;
+        }
+        for (Future<ParsedFragment> future : futures) {
             try {
-                IMetaData metadata = parser.parse(sqlKey);
-                tagDatas.add(new ParsedFragment(data.getSqlId(), data.getSqlAlias(), data.getSupports(), metadata));
-            } catch (Exception e) {
-                log.warn("Sql template parse error: {}", data.getReader().getRealPath(), e);
-                continue;
+                ParsedFragment fragment = future.get();
+                if (fragment != null) {
+                    tagDatas.add(fragment);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while parsing sql templates.");
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Sql template parse error.", e.getCause());
             }
         }
         return tagDatas;
     }
 
+    private ParsedFragment parseCachedSqlFragment(String sqlKey) {
+        TmplData data = cacheBox.getSqlFragment(sqlKey);
+        if (data.getContent() == null) {
+            // 索引中的片断, 首次使用时才读取文件并解析
+            return new IndexedFragment(data, taglib);
+        }
+        TagParser parser = new TagParser(taglib, cacheBox);
+        try {
+            IMetaData metadata = parser.parse(sqlKey);
+            SqlRenderPlan plan = compileRenderPlan(data, cacheBox);
+            return new ParsedFragment(data.getSqlId(), data.getSqlAlias(), data.getSupports(), metadata,
+                    data.getSqlPath(), data.isStaticContent(), plan);
+        } catch (Exception e) {
+            log.warn("Sql template parse error: {}", data.getLocation(), e);
+            return null;
+        }
+    }
+
+    /** 编译渲染计划, 静态模板不需要; sql:include与标签解析时一样从CacheBox中获取被引用的模板 **/
+    private static SqlRenderPlan compileRenderPlan(TmplData data, final CacheBox cacheBox) {
+        if (data.isStaticContent()) {
+            return null;
+        }
+        return SqlRenderPlan.compile(data.getContent(), new SqlRenderPlan.IncludeResolver() {
+
+            @Override
+            public String getSource(String src) {
+                TmplData included = cacheBox.getSqlFragment(src);
+                return included == null ? null : included.getContent();
+            }
+        });
+    }
+
     public CacheBox getCacheBox() {
         return this.cacheBox;
     }
@@ -125,6 +270,13 @@ class SqlFragmentParser {
 
     private void registerSqlFragment(String sqlPath, SqlFragment sqlFragment) {
         SqlId result = parseSqlId(sqlPath, sqlFragment);
+        String content = sqlFragment.getContent();
+        registerSqlFragment(sqlPath, result, sqlFragment.getLine(), content, null, null);
+    }
+
+    // content为空时是索引中的片断, 由url和line定位; staticContent为空时根据content判断
+    private void registerSqlFragment(String sqlPath, SqlId result, int line, String content, Boolean staticContent,
+            URL url) {
         // 如 fileId=user.manage, fragmentId=user.resource.query, supports=mysql
         // fragmentId和supports都有可能为空
         // sqlId=fileId:fragmentId
@@ -138,22 +290,24 @@ class SqlFragmentParser {
             String sqlId = fileId;
             String sqlKey = sqlId + '(' + supports + ')';
             String sqlLocation = sqlRelativePath;
-            IReader reader = new SimpleReader(sqlLocation, sqlFragment.getContent());
             if (checkCachedSqlFragment(sqlId, supports, sqlLocation)) {
-                cacheBox.register(sqlKey, new TmplData(sqlId, null, supports, reader));
+                boolean isStatic = staticContent != null ? staticContent : isStaticContent(content);
+                TmplData data = new TmplData(sqlId, null, supports, sqlLocation, content, sqlPath, isStatic);
+                cacheBox.register(sqlKey, data.setIndexedSource(url, line));
             }
         } else {
             // 注册fileId:fragmentId(supports)
             String sqlId = fileId + ':' + fragmentId;
             String sqlKey = sqlId + '(' + supports + ')';
-            String sqlLocation = fragmentId + '@' + sqlRelativePath + ':' + sqlFragment.getLine();
-            IReader reader = new SimpleReader(sqlLocation, sqlFragment.getContent());
+            String sqlLocation = fragmentId + '@' + sqlRelativePath + ':' + line;
             if (checkCachedSqlFragment(sqlId, supports, sqlLocation)) {
                 String sqlAlias = null;
                 if (useFragmentIdQuery && checkCachedSqlFragment(fragmentId, supports, sqlLocation)) {
                     sqlAlias = fragmentId;
                 }
-                cacheBox.register(sqlKey, new TmplData(sqlId, sqlAlias, supports, reader));
+                boolean isStatic = staticContent != null ? staticContent : isStaticContent(content);
+                TmplData data = new TmplData(sqlId, sqlAlias, supports, sqlLocation, content, sqlPath, isStatic);
+                cacheBox.register(sqlKey, data.setIndexedSource(url, line));
             }
         }
     }
@@ -526,6 +680,34 @@ class SqlFragmentParser {
         return countAsciiChars(buffer) > 0;
     }
 
+    /**
+     * 判断SQL模板是不是静态文本: 除了import/comment/supports之外, 不含任何标签和表达式<br>
+     * 静态模板的渲染结果与参数无关, 只需渲染一次<br>
+     * 判断是保守的, 如a&lt;b这样的比较运算也会当作标签, 按动态模板处理
+     * 
+     * @param string SQL模板内容
+     * @return 是不是静态文本
+     * @since 3.2.2
+     */
+    protected boolean isStaticContent(String string) {
+        StringBuilder buffer = new StringBuilder(string);
+        clearCommentContent(buffer, '<' + importTagName + '>', '<' + '/' + importTagName + '>', false);
+        clearCommentContent(buffer, '<' + commentTagName + '>', '<' + '/' + commentTagName + '>', false);
+        clearCommentContent(buffer, '<' + supportsTagName + '>', '<' + '/' + supportsTagName + '>', false);
+        clearCommentContent(buffer, "<%--", "--%>", false);
+        for (int i = 0, last = buffer.length() - 1; i < last; i++) {
+            char c = buffer.charAt(i);
+            char next = buffer.charAt(i + 1);
+            if (next == '{' && (c == '$' || c == '#' || c == '@')) {
+                return false; // 表达式, 如#{userId}, ${tableName}
+            }
+            if (c == '<' && (Character.isLetter(next) || next == '/' || next == '!' || next == '%')) {
+                return false; // 标签, 如<where>, <include>
+            }
+        }
+        return true;
+    }
+
     protected int countAsciiChars(StringBuilder string) {
         int count = 0;
         for (int i = 0; i < string.length(); i++) {
@@ -639,14 +821,32 @@ class SqlFragmentParser {
         private final String sqlId;
         private final String sqlAlias;
         private final String supports;
-        private final IReader reader;
-
-        public TmplData(String sqlId, String sqlAlias, String supports, IReader reader) {
+        private final String location;
+        private final String content;
+        private final String sqlPath;
+        private final boolean staticContent;
+        /** 索引中的片断所在的文件 **/
+        private URL url;
+        /** 索引中的片断的SqlId所在的行号 **/
+        private int line;
+
+        public TmplData(String sqlId, String sqlAlias, String supports, String location, String content,
+                String sqlPath, boolean staticContent) {
             super();
+            this.sqlPath = sqlPath;
             this.sqlId = sqlId;
             this.sqlAlias = sqlAlias;
             this.supports = supports;
-            this.reader = reader;
+            this.location = location;
+            this.content = content;
+            this.staticContent = staticContent;
+        }
+
+        /** 设置索引中的片断的位置, 首次使用时据此读取文件 **/
+        public TmplData setIndexedSource(URL url, int line) {
+            this.url = url;
+            this.line = line;
+            return this;
         }
 
         public String getSqlId() {
@@ -662,11 +862,118 @@ class SqlFragmentParser {
         }
 
         public IReader getReader() {
-            return reader;
+            return new SimpleReader(location, content);
+        }
+
+        /** 模板位置, 用于日志及错误信息 **/
+        public String getLocation() {
+            return location;
+        }
+
+        /** 片断内容, 索引中的片断为null **/
+        public String getContent() {
+            return content;
+        }
+
+        /** 索引中的片断所在的文件 **/
+        public URL getUrl() {
+            return url;
+        }
+
+        /** 索引中的片断的SqlId所在的行号 **/
+        public int getLine() {
+            return line;
+        }
+
+        /** SQL模板文件路径 **/
+        public String getSqlPath() {
+            return sqlPath;
+        }
+
+        /** 是不是静态文本(不含标签和表达式) **/
+        public boolean isStaticContent() {
+            return staticContent;
         }
 
     }
 
+    /**
+     * 索引中的SQL片断<br>
+     * 启动时只注册SqlId/版本支持声明, 首次使用时才读取文件, 拆分出同一行号的片断并解析标签
+     */
+    private static class IndexedFragment extends ParsedFragment {
+
+        private final Taglib taglib;
+        private final URL url;
+        private final int line;
+        private volatile IMetaData metadata;
+        private volatile SqlRenderPlan renderPlan;
+
+        public IndexedFragment(TmplData data, Taglib taglib) {
+            super(data.getSqlId(), data.getSqlAlias(), data.getSupports(), data.getLocation(), data.getSqlPath(),
+                    data.isStaticContent());
+            this.taglib = taglib;
+            this.url = data.getUrl();
+            this.line = data.getLine();
+        }
+
+        @Override
+        public IMetaData getMetaData() {
+            IMetaData result = this.metadata;
+            if (result == null) {
+                synchronized (this) {
+                    result = this.metadata;
+                    if (result == null) {
+                        result = parseMetaData();
+                        this.metadata = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public IMetaData getParsedMetaData() {
+            return this.metadata;
+        }
+
+        @Override
+        public SqlRenderPlan getRenderPlan() {
+            // 在getMetaData()中与标签一起解析
+            return this.renderPlan;
+        }
+
+        private IMetaData parseMetaData() {
+            String sqlContent;
+            try {
+                sqlContent = PathTools.downloadString(url);
+            } catch (IOException e) {
+                throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_PARSE_ERROR, getLocation(), e);
+            }
+            // 只拆分片断, 不需要计算SqlId, 因此不需要数据库类型
+            SqlFragmentParser parser = new SqlFragmentParser(taglib, new ArrayList<DbType>());
+            for (SqlFragment item : parser.splitSqlContent(getSqlPath(), sqlContent)) {
+                if (item.getLine() != line) {
+                    continue;
+                }
+                String sqlKey = getSqlId() + '(' + getSupports() + ')';
+                TmplData data = new TmplData(getSqlId(), getAlias(), getSupports(), getLocation(), item.getContent(),
+                        getSqlPath(), isStaticContent());
+                parser.cacheBox.register(sqlKey, data);
+                try {
+                    IMetaData result = new TagParser(taglib, parser.cacheBox).parse(sqlKey);
+                    this.renderPlan = compileRenderPlan(data, parser.cacheBox);
+                    return result;
+                } catch (Exception e) {
+                    throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_PARSE_ERROR, getLocation(), e);
+                }
+            }
+            // 生成索引之后文件被修改了
+            String details = getLocation() + ", sql fragment not found at line " + line + ", the index is out of date";
+            throw new ServiceException(DbErrorCode.DB_SQL_FRAGMENT_PARSE_ERROR, details);
+        }
+    }
+
     private static class CacheBox implements IReaderCreator {
 
         // key=sqlKey=fileId:fragmentId(supports)
@@ -0,0 +1,780 @@
+package com.gitee.qdbp.jdbc.sql.parse;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.staticize.common.IWriter;
+import com.gitee.qdbp.staticize.utils.OgnlTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * SQL模板的编译结果(渲染计划)<br>
+ * 由SQL模板源码编译而成, 多线程共享, 渲染时不再创建标签对象, 也不再逐个解释标签:<br>
+ * 静态文本预先拆分, 表达式预先编译为取值器(简单的属性路径直接从Map中逐级获取),
+ * include与标签解析时一样在编译时展开(被引用的模板源码由IncludeResolver提供)<br>
+ * 支持的标签: if/elseif/else, each, block, comment, supports, sql:include, append, where, sql:trim;
+ * 含有其他标签(如sql:in/sql:like/update:set/import)或@{}表达式, 以及不能确定结果一致的写法时, 不编译, 仍由标签解释器渲染<br>
+ * 编译结果与标签解释器存在差异的风险, 因此每个渲染计划首次渲染时同时执行标签解释器,
+ * 两者的SQL(忽略空白字符差异)及参数一致才开始使用, 不一致时记录日志并停用该渲染计划<br>
+ * 渲染时遇到不能确定结果一致的数据(如if的test结果不是Boolean), 本次由标签解释器渲染, 并停用该渲染计划
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class SqlRenderPlan {
+
+    private static Logger log = LoggerFactory.getLogger(SqlRenderPlan.class);
+
+    /** 简单的属性路径, 如userId, user.name **/
+    private static final Pattern PROPERTY_PATH = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+    /** OGNL关键字及Map的特殊属性, 不能作为简单的属性路径 **/
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList("null", "true", "false", "this",
+        "and", "or", "not", "in", "eq", "neq", "lt", "lte", "gt", "gte", "bor", "xor", "band", "shl", "shr", "ushr",
+        "instanceof", "new", "size", "keys", "keySet", "values", "isEmpty"));
+
+    private final List<Node> nodes;
+    /** 是否已与标签解释器的结果比较过 **/
+    private volatile boolean verified;
+    /** 是否可用 **/
+    private volatile boolean enabled = true;
+
+    private SqlRenderPlan(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /** include的最大嵌套层数, 超出时不编译 **/
+    private static final int MAX_INCLUDE_DEPTH = 16;
+
+    /**
+     * 编译SQL模板(不支持引用其他模板)
+     *
+     * @param source SQL模板源码
+     * @return 渲染计划, 含有不支持的标签或表达式时返回null
+     */
+    public static SqlRenderPlan compile(String source) {
+        return compile(source, null);
+    }
+
+    /**
+     * 编译SQL模板
+     *
+     * @param source SQL模板源码
+     * @param resolver sql:include引用的模板源码的获取接口, 为空表示不支持引用
+     * @return 渲染计划, 含有不支持的标签或表达式时返回null
+     */
+    public static SqlRenderPlan compile(String source, IncludeResolver resolver) {
+        if (source == null) {
+            return null;
+        }
+        try {
+            return new SqlRenderPlan(new Compiler(source, resolver, 0).compile());
+        } catch (UnsupportedException e) {
+            if (log.isTraceEnabled()) {
+                log.trace("Sql template not compiled, {}, render by tag interpreter.", e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 渲染SQL模板
+     *
+     * @param data 模板参数
+     * @param dialect 数据库方言处理类
+     * @return SQL语句, 本次不能由渲染计划处理时返回null(由标签解释器渲染)
+     */
+    public SqlBuffer render(Map<String, Object> data, SqlDialect dialect) {
+        if (!this.enabled) {
+            return null;
+        }
+        Map<String, Object> root = new HashMap<>();
+        if (data != null) {
+            root.putAll(data);
+        }
+        root.put("db", SqlBufferPublisher.buildGlobalVariables(dialect));
+        SqlCachingWriter writer = new SqlCachingWriter();
+        try {
+            renderNodes(this.nodes, new RenderContext(root, dialect), writer);
+        } catch (UnsupportedException e) {
+            this.enabled = false;
+            log.info("Sql render plan disabled, {}, render by tag interpreter.", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            // 表达式错误等, 由标签解释器渲染, 以便抛出与原来一致的异常
+            return null;
+        }
+        SqlBuffer sql = writer.getContent();
+        sql.insertSuffix(null, ";"); // 删除最后一个分号
+        return sql.trim();
+    }
+
+    /**
+     * 与标签解释器的渲染结果比较, 一致则之后直接使用渲染计划, 否则停用
+     *
+     * @param compiled 渲染计划的渲染结果
+     * @param interpreted 标签解释器的渲染结果
+     * @param dialect 数据库方言处理类
+     * @return 是否一致
+     */
+    public boolean verify(SqlBuffer compiled, SqlBuffer interpreted, SqlDialect dialect) {
+        PreparedSql compiledSql = compiled.getPreparedSql(dialect);
+        PreparedSql interpretedSql = interpreted.getPreparedSql(dialect);
+        boolean same = compactBlank(compiledSql.getSql()).equals(compactBlank(interpretedSql.getSql()))
+                && Arrays.equals(compiledSql.getValues(), interpretedSql.getValues());
+        if (same) {
+            this.verified = true;
+        } else {
+            this.enabled = false;
+            String msg = "Sql render plan disabled, the result is different from tag interpreter:\n{}\n--- vs ---\n{}";
+            log.warn(msg, compiledSql.getSql(), interpretedSql.getSql());
+        }
+        return same;
+    }
+
+    /** 是否已与标签解释器的结果比较过 **/
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /** 是否可用(与标签解释器的结果不一致或遇到不支持的数据时停用) **/
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 空白字符合并为一个空格, 并去掉前后的空白字符 **/
+    private static String compactBlank(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static void renderNodes(List<Node> nodes, RenderContext context, IWriter writer) throws Exception {
+        // if/elseif/else是相邻的标签, 前面的条件满足之后后面的都不再判断
+        boolean matched = false;
+        for (Node node : nodes) {
+            if (node instanceof ConditionNode) {
+                ConditionNode condition = (ConditionNode) node;
+                if (condition.isChainStart()) {
+                    matched = false;
+                }
+                if (!matched && condition.test(context)) {
+                    matched = true;
+                    renderNodes(condition.getChildren(), context, writer);
+                }
+            } else {
+                node.render(context, writer);
+            }
+        }
+    }
+
+    /** sql:include引用的模板源码的获取接口 **/
+    public interface IncludeResolver {
+
+        /**
+         * 获取被引用的模板源码
+         *
+         * @param src sql:include的src属性
+         * @return 模板源码, 未找到时返回null
+         */
+        String getSource(String src);
+    }
+
+    /** 渲染环境 **/
+    private static class RenderContext {
+
+        private final Map<String, Object> root;
+        private final SqlDialect dialect;
+
+        public RenderContext(Map<String, Object> root, SqlDialect dialect) {
+            this.root = root;
+            this.dialect = dialect;
+        }
+
+        public Map<String, Object> getRoot() {
+            return root;
+        }
+
+        public SqlDialect getDialect() {
+            return dialect;
+        }
+
+        /** 增加一个局部变量, 如each的var **/
+        public RenderContext with(String name, Object value) {
+            return new RenderContext(new ScopedMap(root, name, value), dialect);
+        }
+    }
+
+    /** 在上级变量的基础上增加一个局部变量, 不复制上级变量 **/
+    private static class ScopedMap extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> parent;
+        private final String name;
+        private final Object value;
+
+        public ScopedMap(Map<String, Object> parent, String name, Object value) {
+            this.parent = parent;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return name.equals(key) ? value : parent.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return name.equals(key) || parent.containsKey(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            Map<String, Object> merged = new HashMap<>(parent);
+            merged.put(name, value);
+            return merged.entrySet();
+        }
+    }
+
+    /** 渲染计划中不支持的写法或数据 **/
+    private static class UnsupportedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedException(String message) {
+            super(message);
+        }
+    }
+
+    /** 表达式取值器 **/
+    private abstract static class Accessor {
+
+        protected final String expression;
+
+        public Accessor(String expression) {
+            this.expression = expression;
+        }
+
+        public abstract Object getValue(Map<String, Object> root) throws Exception;
+
+        public static Accessor compile(String expression) {
+            String exp = expression.trim();
+            if (exp.indexOf('@') >= 0 || exp.indexOf('#') >= 0 || exp.indexOf('{') >= 0) {
+                // 静态方法/类的别名在标签库中定义, #xxx是OGNL的上下文变量, 都依赖标签解释器的环境
+                throw new UnsupportedException("unsupported expression: " + expression);
+            }
+            if (PROPERTY_PATH.matcher(exp).matches()) {
+                String[] names = exp.split("\\.");
+                boolean simple = true;
+                for (String name : names) {
+                    if (RESERVED_WORDS.contains(name)) {
+                        simple = false;
+                        break;
+                    }
+                }
+                if (simple) {
+                    return new PathAccessor(exp, names);
+                }
+            }
+            return new OgnlAccessor(exp);
+        }
+    }
+
+    /** 简单的属性路径, 从Map中逐级获取, 遇到非Map对象时剩余部分交给OGNL **/
+    private static class PathAccessor extends Accessor {
+
+        private final String[] names;
+
+        public PathAccessor(String expression, String[] names) {
+            super(expression);
+            this.names = names;
+        }
+
+        @Override
+        public Object getValue(Map<String, Object> root) throws Exception {
+            Object current = root;
+            for (int i = 0; i < names.length; i++) {
+                if (current instanceof Map) {
+                    current = ((Map<?, ?>) current).get(names[i]);
+                } else if (current == null) {
+                    // 中间对象为空时OGNL会报错, 与标签解释器保持一致
+                    return OgnlTools.getValue(root, expression);
+                } else {
+                    String rest = joinNames(names, i);
+                    return OgnlTools.getValue(current, rest);
+                }
+            }
+            return current;
+        }
+
+        private static String joinNames(String[] names, int start) {
+            StringBuilder buffer = new StringBuilder();
+            for (int i = start; i < names.length; i++) {
+                if (i > start) {
+                    buffer.append('.');
+                }
+                buffer.append(names[i]);
+            }
+            return buffer.toString();
+        }
+    }
+
+    /** 其他表达式, 由OGNL计算 **/
+    private static class OgnlAccessor extends Accessor {
+
+        public OgnlAccessor(String expression) {
+            super(expression);
+        }
+
+        @Override
+        public Object getValue(Map<String, Object> root) throws Exception {
+            return OgnlTools.getValue(root, expression);
+        }
+    }
+
+    /** 渲染节点 **/
+    private abstract static class Node {
+
+        public abstract void render(RenderContext context, IWriter writer) throws Exception;
+    }
+
+    /** 静态文本 **/
+    private static class TextNode extends Node {
+
+        private final String text;
+
+        public TextNode(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(RenderContext context, IWriter writer) throws IOException {
+            writer.write(text);
+        }
+    }
+
+    /** 表达式: #{xxx}预编译参数, ${xxx}拼写式参数, ${sql:xxx}SQL片断或SQL字符串 **/
+    private static class ExpressionNode extends Node {
+
+        private final char prefix;
+        private final boolean sqlPrefix;
+        private final Accessor accessor;
+
+        public ExpressionNode(char prefix, String expression) {
+            this.prefix = prefix;
+            String exp = expression.trim();
+            this.sqlPrefix = prefix == '$' && exp.startsWith("sql:");
+            this.accessor = Accessor.compile(sqlPrefix ? exp.substring("sql:".length()) : exp);
+        }
+
+        @Override
+        public void render(RenderContext context, IWriter writer) throws Exception {
+            Object value = accessor.getValue(context.getRoot());
+            if (prefix == '#') {
+                writer.write(SqlBufferContext.toVariableOutput(value));
+            } else {
+                writer.write(SqlBufferContext.toSpellingOutput(value, sqlPrefix, context.getDialect()));
+            }
+        }
+    }
+
+    /** 包含子节点的标签 **/
+    private static class BlockNode extends Node {
+
+        private final List<Node> children;
+
+        public BlockNode(List<Node> children) {
+            this.children = children;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        @Override
+        public void render(RenderContext context, IWriter writer) throws Exception {
+            renderNodes(children, context, writer);
+        }
+    }
+
+    /** if/elseif/else **/
+    private static class ConditionNode extends BlockNode {
+
+        private final boolean chainStart;
+        /** 为空表示else **/
+        private final Accessor test;
+
+        public ConditionNode(boolean chainStart, Accessor test, List<Node> children) {
+            super(children);
+            this.chainStart = chainStart;
+            this.test = test;
+        }
+
+        /** 是不是if(一组条件的开始) **/
+        public boolean isChainStart() {
+            return chainStart;
+        }
+
+        public boolean test(RenderContext context) throws Exception {
+            if (test == null) {
+                return true;
+            }
+            Object value = test.getValue(context.getRoot());
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            // 非Boolean值的真假判断依赖标签解释器的实现
+            throw new UnsupportedException("test result is not boolean: " + test.expression);
+        }
+    }
+
+    /** each: 遍历rows, 每一项以var为变量名渲染子节点 **/
+    private static class EachNode extends BlockNode {
+
+        private final String var;
+        private final Accessor rows;
+
+        public EachNode(String var, Accessor rows, List<Node> children) {
+            super(children);
+            this.var = var;
+            this.rows = rows;
+        }
+
+        @Override
+        public void render(RenderContext context, IWriter writer) throws Exception {
+            Object value = rows.getValue(context.getRoot());
+            Collection<?> items;
+            if (value instanceof Collection) {
+                items = (Collection<?>) value;
+            } else if (value instanceof Object[]) {
+                items = Arrays.asList((Object[]) value);
+            } else {
+                // 空值/Map/基本类型数组等的遍历方式依赖标签解释器的实现
+                String type = value == null ? "null" : value.getClass().getSimpleName();
+                throw new UnsupportedException("each rows is " + type + ": " + rows.expression);
+            }
+            for (Object item : items) {
+                renderNodes(getChildren(), context.with(var, item), writer);
+            }
+        }
+    }
+
+    /** append/where/sql:trim: 子节点的内容不为空时, 增加前后缀, 去掉多余的前后缀 **/
+    private static class TrimNode extends BlockNode {
+
+        private final String prefix;
+        private final String suffix;
+        private final String prefixOverrides;
+        private final String suffixOverrides;
+
+        public TrimNode(Map<String, String> attrs, List<Node> children) {
+            super(children);
+            this.prefix = attrs.get("prefix");
+            this.suffix = attrs.get("suffix");
+            this.prefixOverrides = attrs.get("prefixOverrides");
+            this.suffixOverrides = attrs.get("suffixOverrides");
+        }
+
+        @Override
+        public void render(RenderContext context, IWriter writer) throws Exception {
+            SqlCachingWriter caching = new SqlCachingWriter();
+            renderNodes(getChildren(), context, caching);
+            // 与TrimBase.doEnded()相同
+            SqlBuffer buffer = caching.getContent();
+            if (buffer.isBlank()) {
+                return;
+            }
+            if (VerifyTools.isNotBlank(prefix) || VerifyTools.isNotBlank(prefixOverrides)) {
+                buffer.insertPrefix(prefix, prefixOverrides);
+            }
+            buffer.prepend(" ");
+            if (VerifyTools.isNotBlank(suffix) || VerifyTools.isNotBlank(suffixOverrides)) {
+                buffer.insertSuffix(suffix, suffixOverrides);
+            }
+            writer.write(buffer);
+        }
+    }
+
+    /** SQL模板源码编译器 **/
+    private static class Compiler {
+
+        private final String source;
+        private final IncludeResolver resolver;
+        private final int depth;
+        private int index;
+
+        public Compiler(String source, IncludeResolver resolver, int depth) {
+            this.source = source;
+            this.resolver = resolver;
+            this.depth = depth;
+        }
+
+        public List<Node> compile() {
+            List<Node> nodes = compileNodes(null);
+            if (index < source.length()) {
+                throw new UnsupportedException("unexpected content at " + index);
+            }
+            return nodes;
+        }
+
+        /** 编译到指定的结束标签为止, endTag为空时编译到末尾 **/
+        private List<Node> compileNodes(String endTag) {
+            List<Node> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            int length = source.length();
+            while (index < length) {
+                char c = source.charAt(index);
+                char next = index + 1 < length ? source.charAt(index + 1) : 0;
+                if (next == '{' && (c == '#' || c == '$' || c == '@')) {
+                    if (c == '@') {
+                        throw new UnsupportedException("unsupported expression @{}");
+                    }
+                    int end = source.indexOf('}', index + 2);
+                    if (end < 0) {
+                        throw new UnsupportedException("expression not closed at " + index);
+                    }
+                    flushText(text, nodes);
+                    nodes.add(new ExpressionNode(c, source.substring(index + 2, end)));
+                    index = end + 1;
+                } else if (c == '<' && next == '/') {
+                    int end = source.indexOf('>', index);
+                    String name = end < 0 ? null : source.substring(index + 2, end).trim();
+                    if (name == null || !name.equals(endTag)) {
+                        throw new UnsupportedException("unexpected end tag at " + index);
+                    }
+                    flushText(text, nodes);
+                    index = end + 1;
+                    return nodes;
+                } else if (c == '<' && (next == '!' || next == '%')) {
+                    if (source.startsWith("<%--", index)) {
+                        int end = source.indexOf("--%>", index);
+                        if (end < 0) {
+                            throw new UnsupportedException("comment not closed at " + index);
+                        }
+                        index = end + "--%>".length();
+                    } else {
+                        throw new UnsupportedException("unsupported content at " + index);
+                    }
+                } else if (c == '<' && Character.isLetter(next)) {
+                    flushText(text, nodes);
+                    compileTag(nodes);
+                } else {
+                    text.append(c);
+                    index++;
+                }
+            }
+            if (endTag != null) {
+                throw new UnsupportedException("tag not closed: " + endTag);
+            }
+            flushText(text, nodes);
+            return nodes;
+        }
+
+        private void flushText(StringBuilder text, List<Node> nodes) {
+            if (text.length() > 0) {
+                nodes.add(new TextNode(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private void compileTag(List<Node> nodes) {
+            index++; // <
+            String name = readName();
+            Map<String, String> attrs = new HashMap<>();
+            boolean selfClosing = readAttributes(attrs);
+            if ("comment".equals(name) || "supports".equals(name)) {
+                // 与SqlFragmentParser.isStaticContent()一致, 注释和版本支持声明不输出内容
+                if (!selfClosing) {
+                    String endTag = "</" + name + ">";
+                    int end = source.indexOf(endTag, index);
+                    if (end < 0) {
+                        throw new UnsupportedException("tag not closed: " + name);
+                    }
+                    index = end + endTag.length();
+                }
+                return;
+            }
+            List<Node> children = selfClosing ? new ArrayList<Node>() : compileNodes(name);
+            if ("if".equals(name)) {
+                checkAttributes(name, attrs, "test");
+                nodes.add(new ConditionNode(true, compileAttrExpression(name, attrs, "test"), children));
+            } else if ("elseif".equals(name) || "else".equals(name)) {
+                checkConditionChain(name, nodes);
+                boolean isElse = "else".equals(name);
+                checkAttributes(name, attrs, isElse ? new String[0] : new String[] { "test" });
+                Accessor test = isElse ? null : compileAttrExpression(name, attrs, "test");
+                nodes.add(new ConditionNode(false, test, children));
+            } else if ("each".equals(name)) {
+                checkAttributes(name, attrs, "var", "rows");
+                String var = attrs.get("var");
+                if (var == null || !PROPERTY_PATH.matcher(var).matches() || var.indexOf('.') >= 0) {
+                    throw new UnsupportedException("each var is invalid: " + var);
+                }
+                nodes.add(new EachNode(var, compileAttrExpression(name, attrs, "rows"), children));
+            } else if ("block".equals(name)) {
+                checkAttributes(name, attrs);
+                nodes.add(new BlockNode(children));
+            } else if ("sql:include".equals(name)) {
+                checkAttributes(name, attrs, "src");
+                String src = checkLiteralAttribute(name, attrs, "src");
+                nodes.add(new BlockNode(src == null ? children : compileInclude(src.trim(), children)));
+            } else if ("append".equals(name) || "sql:append".equals(name)) {
+                checkAttributes(name, attrs, "prefix", "suffix");
+                checkLiteralAttributes(name, attrs);
+                nodes.add(new TrimNode(attrs, children));
+            } else if ("where".equals(name) || "sql:where".equals(name)) {
+                checkAttributes(name, attrs);
+                Map<String, String> whereAttrs = new HashMap<>();
+                whereAttrs.put("prefix", "WHERE");
+                whereAttrs.put("prefixOverrides", "AND|OR");
+                nodes.add(new TrimNode(whereAttrs, children));
+            } else if ("sql:trim".equals(name)) {
+                checkAttributes(name, attrs, "prefix", "suffix", "prefixOverrides", "suffixOverrides");
+                checkLiteralAttributes(name, attrs);
+                nodes.add(new TrimNode(attrs, children));
+            } else {
+                throw new UnsupportedException("unsupported tag: " + name);
+            }
+        }
+
+        /** 展开被引用的模板, 同时有src和标签内容时输出哪一个由标签解释器决定, 因此不编译 **/
+        private List<Node> compileInclude(String src, List<Node> children) {
+            for (Node node : children) {
+                if (!(node instanceof TextNode) || ((TextNode) node).text.trim().length() > 0) {
+                    throw new UnsupportedException("sql:include has both src and body: " + src);
+                }
+            }
+            if (depth >= MAX_INCLUDE_DEPTH) {
+                throw new UnsupportedException("sql:include nested too deep: " + src);
+            }
+            String included = resolver == null ? null : resolver.getSource(src);
+            if (included == null) {
+                throw new UnsupportedException("sql:include source not found: " + src);
+            }
+            return new Compiler(included, resolver, depth + 1).compile();
+        }
+
+        /** elseif/else前面必须是if/elseif, 中间只能有空白字符 **/
+        private void checkConditionChain(String name, List<Node> nodes) {
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                Node node = nodes.get(i);
+                if (node instanceof TextNode && ((TextNode) node).text.trim().length() == 0) {
+                    continue;
+                }
+                if (node instanceof ConditionNode && ((ConditionNode) node).test != null) {
+                    return;
+                }
+                break;
+            }
+            throw new UnsupportedException(name + " must follow if or elseif");
+        }
+
+        private String readName() {
+            int start = index;
+            while (index < source.length()) {
+                char c = source.charAt(index);
+                if (Character.isLetterOrDigit(c) || c == ':' || c == '_' || c == '.' || c == '-') {
+                    index++;
+                } else {
+                    break;
+                }
+            }
+            if (index == start) {
+                throw new UnsupportedException("name not found at " + start);
+            }
+            return source.substring(start, index);
+        }
+
+        /** 读取属性, 返回是不是自结束标签 **/
+        private boolean readAttributes(Map<String, String> attrs) {
+            int length = source.length();
+            while (true) {
+                skipBlank();
+                if (index >= length) {
+                    throw new UnsupportedException("tag not closed at " + index);
+                }
+                char c = source.charAt(index);
+                if (c == '>') {
+                    index++;
+                    return false;
+                }
+                if (c == '/' && index + 1 < length && source.charAt(index + 1) == '>') {
+                    index += 2;
+                    return true;
+                }
+                String attrName = readName();
+                skipBlank();
+                if (index >= length || source.charAt(index) != '=') {
+                    throw new UnsupportedException("attribute value not found: " + attrName);
+                }
+                index++;
+                skipBlank();
+                char quote = index < length ? source.charAt(index) : 0;
+                if (quote != '"' && quote != '\'') {
+                    throw new UnsupportedException("attribute value not quoted: " + attrName);
+                }
+                int end = source.indexOf(quote, index + 1);
+                if (end < 0) {
+                    throw new UnsupportedException("attribute value not closed: " + attrName);
+                }
+                if (attrs.containsKey(attrName)) {
+                    throw new UnsupportedException("duplicate attribute: " + attrName);
+                }
+                attrs.put(attrName, source.substring(index + 1, end));
+                index = end + 1;
+            }
+        }
+
+        private void skipBlank() {
+            while (index < source.length() && Character.isWhitespace(source.charAt(index))) {
+                index++;
+            }
+        }
+
+        private static void checkAttributes(String tagName, Map<String, String> attrs, String... allowed) {
+            List<String> names = Arrays.asList(allowed);
+            for (String attrName : attrs.keySet()) {
+                if (!names.contains(attrName)) {
+                    throw new UnsupportedException("unsupported attribute: " + tagName + '.' + attrName);
+                }
+            }
+        }
+
+        /** 属性值只能是一个表达式, 如 test="${userId != null}" **/
+        private static Accessor compileAttrExpression(String tagName, Map<String, String> attrs, String attrName) {
+            String value = attrs.get(attrName);
+            String trimed = value == null ? null : value.trim();
+            if (trimed == null || !trimed.startsWith("${") || !trimed.endsWith("}")
+                    || trimed.indexOf('}') != trimed.length() - 1) {
+                throw new UnsupportedException("attribute is not an expression: " + tagName + '.' + attrName);
+            }
+            return Accessor.compile(trimed.substring(2, trimed.length() - 1));
+        }
+
+        /** 属性值只能是普通文本 **/
+        private static String checkLiteralAttribute(String tagName, Map<String, String> attrs, String attrName) {
+            String value = attrs.get(attrName);
+            if (value != null && (value.indexOf('{') >= 0 || value.indexOf('}') >= 0)) {
+                throw new UnsupportedException("attribute is not literal: " + tagName + '.' + attrName);
+            }
+            return value;
+        }
+
+        private static void checkLiteralAttributes(String tagName, Map<String, String> attrs) {
+            for (String attrName : attrs.keySet()) {
+                checkLiteralAttribute(tagName, attrs, attrName);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.support.JdbcAccessor;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+
+/**
+ * 表字段类型的缓存<br>
+ * 通过SELECT * FROM {tableName} WHERE 1=0读取结果集元数据, 按(数据源, 表名)缓存在限定容量的LRU缓存中<br>
+ * 同一个应用可能连接多个数据库, 不同数据源的同名表分别缓存; 表结构变更后可调用evict()/clear()刷新
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class ColumnTypeCache {
+
+    private final LruCache<CacheKey, Map<String, ColumnType>> cache;
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大容量(表的数量)
+     */
+    public ColumnTypeCache(int maxSize) {
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * 获取表的字段类型
+     *
+     * @param tableName 表名
+     * @param jdbc 数据库操作类
+     * @return 字段类型, key=列名(大写)
+     */
+    public Map<String, ColumnType> getColumnTypes(String tableName, SqlBufferJdbcOperations jdbc) {
+        CacheKey key = new CacheKey(getDataSourceKey(jdbc), tableName);
+        Map<String, ColumnType> columnTypes = cache.get(key);
+        if (columnTypes != null) {
+            return columnTypes;
+        }
+        // SELECT * FROM {tableName} WHERE 1=0, 只读取元数据
+        SqlRowSet rowSet = jdbc.queryForRowSet(new SqlBuffer("SELECT * FROM " + tableName + " WHERE 1=0"));
+        SqlRowSetMetaData metadata = rowSet.getMetaData();
+        Map<String, ColumnType> temp = new HashMap<>();
+        for (int i = 1, count = metadata.getColumnCount(); i <= count; i++) {
+            String columnName = metadata.getColumnLabel(i).toUpperCase();
+            String typeName = metadata.getColumnTypeName(i);
+            temp.put(columnName, new ColumnType(typeName, metadata.getPrecision(i), metadata.getScale(i)));
+        }
+        columnTypes = Collections.unmodifiableMap(temp);
+        cache.put(key, columnTypes);
+        return columnTypes;
+    }
+
+    /**
+     * 使指定表的字段类型缓存失效
+     *
+     * @param tableName 表名
+     * @param jdbc 数据库操作类
+     */
+    public void evict(String tableName, SqlBufferJdbcOperations jdbc) {
+        cache.remove(new CacheKey(getDataSourceKey(jdbc), tableName));
+    }
+
+    /** 清空缓存 **/
+    public void clear() {
+        cache.clear();
+    }
+
+    /** 缓存数量 **/
+    public int size() {
+        return cache.size();
+    }
+
+    /** 最大容量 **/
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    /** 数据源作为缓存KEY的一部分, 获取不到DataSource时以JdbcOperations本身区分 **/
+    private static Object getDataSourceKey(SqlBufferJdbcOperations jdbc) {
+        JdbcOperations operations = jdbc.getJdbcOperations();
+        if (operations instanceof JdbcAccessor) {
+            Object dataSource = ((JdbcAccessor) operations).getDataSource();
+            if (dataSource != null) {
+                return dataSource;
+            }
+        }
+        return operations;
+    }
+
+    /** 字段类型 **/
+    public static class ColumnType {
+
+        private final String typeName;
+        private final int precision;
+        private final int scale;
+
+        public ColumnType(String typeName, int precision, int scale) {
+            this.typeName = typeName;
+            this.precision = precision;
+            this.scale = scale;
+        }
+
+        /** 数据库的类型名称 **/
+        public String getTypeName() {
+            return typeName;
+        }
+
+        /** 长度或精度 **/
+        public int getPrecision() {
+            return precision;
+        }
+
+        /** 小数位数 **/
+        public int getScale() {
+            return scale;
+        }
+
+        @Override
+        public String toString() {
+            return typeName + '(' + precision + ',' + scale + ')';
+        }
+    }
+
+    /** 缓存KEY: 数据源按实例比较, 表名按值比较 **/
+    private static class CacheKey {
+
+        private final Object dataSource;
+        private final String tableName;
+
+        public CacheKey(Object dataSource, String tableName) {
+            this.dataSource = dataSource;
+            this.tableName = tableName;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) object;
+            return dataSource == other.dataSource && tableName.equals(other.tableName);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(dataSource) * 31 + tableName.hashCode();
+        }
+    }
+}
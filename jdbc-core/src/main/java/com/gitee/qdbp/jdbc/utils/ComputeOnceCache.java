@@ -0,0 +1,78 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 线程安全的缓存, 同一个KEY只计算一次<br>
+ * 多个线程同时首次获取同一个KEY时, 只有一个线程执行计算, 其他线程等待并共享计算结果<br>
+ * 读取已缓存的值不加锁; 允许缓存null值; 计算失败时不缓存, 下次获取时重新计算<br>
+ * 注意: 计算过程中不能再获取同一个KEY, 否则将会死锁
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class ComputeOnceCache<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 获取缓存值, 如果不存在则调用loader计算并缓存
+     *
+     * @param key KEY
+     * @param loader 计算缓存值的处理类
+     * @return 缓存值
+     */
+    public V get(K key, Callable<V> loader) {
+        FutureTask<V> future = cache.get(key);
+        if (future == null) {
+            FutureTask<V> task = new FutureTask<>(loader);
+            future = cache.putIfAbsent(key, task);
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cache value of " + key, e);
+        } catch (ExecutionException e) {
+            // 计算失败的不缓存
+            cache.remove(key, future);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException("Failed to compute cache value of " + key, cause);
+            }
+        }
+    }
+
+    /** 是否存在指定KEY的缓存 **/
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+
+    /** 移除指定KEY的缓存 **/
+    public void remove(K key) {
+        cache.remove(key);
+    }
+
+    /** 清空缓存 **/
+    public void clear() {
+        cache.clear();
+    }
+
+    /** 缓存数量 **/
+    public int size() {
+        return cache.size();
+    }
+}
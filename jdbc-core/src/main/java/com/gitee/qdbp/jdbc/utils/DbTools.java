@@ -8,6 +8,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.sql.DataSource;
 import org.springframework.jdbc.core.SqlParameterValue;
 import com.gitee.qdbp.able.jdbc.base.UpdateCondition;
@@ -18,6 +19,7 @@ import com.gitee.qdbp.able.jdbc.condition.TableJoin.TableItem;
 import com.gitee.qdbp.jdbc.model.AllFieldColumn;
 import com.gitee.qdbp.jdbc.model.DbType;
 import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.FieldScene;
 import com.gitee.qdbp.jdbc.model.OmitStrategy;
 import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
 import com.gitee.qdbp.jdbc.model.TablesFieldColumn;
@@ -25,6 +27,7 @@ import com.gitee.qdbp.jdbc.model.TypedDbVariable;
 import com.gitee.qdbp.jdbc.operator.DbBaseOperator;
 import com.gitee.qdbp.jdbc.plugins.BatchInsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.BatchUpdateExecutor;
+import com.gitee.qdbp.jdbc.plugins.BatchUpsertExecutor;
 import com.gitee.qdbp.jdbc.plugins.BeanToMapConverter;
 import com.gitee.qdbp.jdbc.plugins.DbConditionConverter;
 import com.gitee.qdbp.jdbc.plugins.DbOperatorContainer;
@@ -38,6 +41,7 @@ import com.gitee.qdbp.jdbc.plugins.SqlDialect;
 import com.gitee.qdbp.jdbc.plugins.SqlFileScanner;
 import com.gitee.qdbp.jdbc.plugins.SqlFormatter;
 import com.gitee.qdbp.jdbc.plugins.TableInfoScans;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
 import com.gitee.qdbp.jdbc.plugins.UpdateSqlBuilder;
 import com.gitee.qdbp.jdbc.plugins.VariableToDbValueConverter;
 import com.gitee.qdbp.jdbc.plugins.WhereSqlBuilder;
@@ -208,6 +212,11 @@ public abstract class DbTools {
         return DbPluginContainer.defaults().getEntityDataStateFillStrategy();
     }
 
+    /** 获取实体类的分表策略, 未注册时返回null **/
+    public static TableShardingStrategy getTableShardingStrategy(Class<?> clazz) {
+        return DbPluginContainer.defaults().getTableShardingStrategy(clazz);
+    }
+
     /** 根据DbType生成SqlDialect **/
     public static SqlDialect buildSqlDialect(DbType dbType) {
         return buildSqlDialect(new DbVersion(dbType));
@@ -332,8 +341,26 @@ public abstract class DbTools {
         return plugins.getDefaultBatchUpdateExecutor();
     }
 
+    /**
+     * 根据数据库类型获取批量新增或更新处理类
+     * 
+     * @since 3.2.2
+     */
+    public static BatchUpsertExecutor getBatchUpsertExecutor(DbVersion version) {
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        List<BatchUpsertExecutor> batchOperateExecutors = plugins.getBatchUpsertExecutors();
+        if (batchOperateExecutors != null && !batchOperateExecutors.isEmpty()) {
+            for (BatchUpsertExecutor item : batchOperateExecutors) {
+                if (item.supports(version)) {
+                    return item;
+                }
+            }
+        }
+        return plugins.getDefaultBatchUpsertExecutor();
+    }
+
     /** Entity的表名缓存 **/
-    private static Map<Class<?>, String> entityTableNameCache = new HashMap<>();
+    private static ComputeOnceCache<Class<?>, String> entityTableNameCache = new ComputeOnceCache<>();
 
     /**
      * 扫描表名信息(有缓存)
@@ -341,20 +368,20 @@ public abstract class DbTools {
      * @param clazz 类名
      * @return 表名
      */
-    public static String parseTableName(Class<?> clazz) {
+    public static String parseTableName(final Class<?> clazz) {
         VerifyTools.requireNonNull(clazz, "class");
-        if (entityTableNameCache.containsKey(clazz)) {
-            return entityTableNameCache.get(clazz);
-        }
+        return entityTableNameCache.get(clazz, new Callable<String>() {
 
-        TableInfoScans scans = DbPluginContainer.defaults().getTableInfoScans();
-        String tableName = scans.scanTableName(clazz);
-        entityTableNameCache.put(clazz, tableName);
-        return tableName;
+            @Override
+            public String call() {
+                TableInfoScans scans = DbPluginContainer.defaults().getTableInfoScans();
+                return scans.scanTableName(clazz);
+            }
+        });
     }
 
     /** Entity的主键缓存 **/
-    private static Map<Class<?>, SimpleFieldColumn> entityPrimaryKeyCache = new HashMap<>();
+    private static ComputeOnceCache<Class<?>, SimpleFieldColumn> entityPrimaryKeyCache = new ComputeOnceCache<>();
 
     /**
      * 扫描获取主键(有缓存)
@@ -362,20 +389,21 @@ public abstract class DbTools {
      * @param clazz 类名
      * @return 主键
      */
-    public static SimpleFieldColumn parsePrimaryKey(Class<?> clazz) {
+    public static SimpleFieldColumn parsePrimaryKey(final Class<?> clazz) {
         VerifyTools.requireNonNull(clazz, "class");
-        if (entityPrimaryKeyCache.containsKey(clazz)) {
-            return entityPrimaryKeyCache.get(clazz);
-        }
+        return entityPrimaryKeyCache.get(clazz, new Callable<SimpleFieldColumn>() {
 
-        AllFieldColumn<SimpleFieldColumn> all = parseAllFieldColumns(clazz);
-        SimpleFieldColumn pk = all.findPrimaryKey();
-        entityPrimaryKeyCache.put(clazz, pk);
-        return pk;
+            @Override
+            public SimpleFieldColumn call() {
+                AllFieldColumn<SimpleFieldColumn> all = parseAllFieldColumns(clazz);
+                return all.findPrimaryKey();
+            }
+        });
     }
 
     /** TableJoin的列名缓存 **/
-    private static Map<String, AllFieldColumn<TablesFieldColumn>> joinColumnsCache = new HashMap<>();
+    private static ComputeOnceCache<String, AllFieldColumn<TablesFieldColumn>> joinColumnsCache =
+            new ComputeOnceCache<>();
 
     private static List<TablesFieldColumn> scanColumnList(TableItem table) {
         TableInfoScans scans = DbPluginContainer.defaults().getTableInfoScans();
@@ -398,12 +426,19 @@ public abstract class DbTools {
      * @param tables 表关联对象
      * @return AllFieldColumn: fieldName - columnName
      */
-    public static AllFieldColumn<TablesFieldColumn> parseAllFieldColumns(TableJoin tables) {
+    public static AllFieldColumn<TablesFieldColumn> parseAllFieldColumns(final TableJoin tables) {
         VerifyTools.requireNonNull(tables, "tables");
         String cacheKey = TableJoin.buildCacheKey(tables, false);
-        if (joinColumnsCache.containsKey(cacheKey)) {
-            return joinColumnsCache.get(cacheKey);
-        }
+        return joinColumnsCache.get(cacheKey, new Callable<AllFieldColumn<TablesFieldColumn>>() {
+
+            @Override
+            public AllFieldColumn<TablesFieldColumn> call() {
+                return scanAllFieldColumns(tables);
+            }
+        });
+    }
+
+    private static AllFieldColumn<TablesFieldColumn> scanAllFieldColumns(TableJoin tables) {
         TableItem major = tables.getMajor();
         List<JoinItem> joins = tables.getJoins();
         List<TablesFieldColumn> all = new ArrayList<>();
@@ -439,13 +474,12 @@ public abstract class DbTools {
                 field.setAmbiguous(true);
             }
         }
-        AllFieldColumn<TablesFieldColumn> fieldColumns = new AllFieldColumn<>(all);
-        joinColumnsCache.put(cacheKey, fieldColumns);
-        return fieldColumns;
+        return new AllFieldColumn<>(all);
     }
 
     /** Entity的列名缓存 **/
-    private static Map<Class<?>, AllFieldColumn<SimpleFieldColumn>> entityColumnsCache = new HashMap<>();
+    private static ComputeOnceCache<Class<?>, AllFieldColumn<SimpleFieldColumn>> entityColumnsCache =
+            new ComputeOnceCache<>();
 
     /**
      * 扫描获取字段名和数据库列名的映射表(有缓存)
@@ -453,21 +487,36 @@ public abstract class DbTools {
      * @param clazz 类型
      * @return AllFieldColumn: fieldName - columnName
      */
-    public static AllFieldColumn<SimpleFieldColumn> parseAllFieldColumns(Class<?> clazz) {
+    public static AllFieldColumn<SimpleFieldColumn> parseAllFieldColumns(final Class<?> clazz) {
         VerifyTools.requireNonNull(clazz, "class");
-        if (entityColumnsCache.containsKey(clazz)) {
-            return entityColumnsCache.get(clazz);
-        } else {
-            TableInfoScans scans = DbPluginContainer.defaults().getTableInfoScans();
-            List<SimpleFieldColumn> fields = scans.scanColumnList(clazz);
-            if (fields.isEmpty()) {
-                String m = "Fields not found, please check config of TableInfoScans, class=" + clazz.getName();
-                throw new IllegalArgumentException(m);
+        return entityColumnsCache.get(clazz, new Callable<AllFieldColumn<SimpleFieldColumn>>() {
+
+            @Override
+            public AllFieldColumn<SimpleFieldColumn> call() {
+                TableInfoScans scans = DbPluginContainer.defaults().getTableInfoScans();
+                List<SimpleFieldColumn> fields = scans.scanColumnList(clazz);
+                if (fields.isEmpty()) {
+                    String m = "Fields not found, please check config of TableInfoScans, class=" + clazz.getName();
+                    throw new IllegalArgumentException(m);
+                }
+                return new AllFieldColumn<>(fields);
             }
+        });
+    }
 
-            AllFieldColumn<SimpleFieldColumn> all = new AllFieldColumn<>(fields);
-            entityColumnsCache.put(clazz, all);
-            return all;
+    /**
+     * 预加载实体类的元数据(表名/字段列信息/主键/各使用场景的字段索引)<br>
+     * 用于系统启动时预热缓存, 避免首次请求时才扫描
+     * 
+     * @param clazz 实体类
+     * @since 3.2.2
+     */
+    public static void preloadEntityMetadata(Class<?> clazz) {
+        parseTableName(clazz);
+        AllFieldColumn<SimpleFieldColumn> all = parseAllFieldColumns(clazz);
+        for (FieldScene scene : FieldScene.values()) {
+            all.filter(scene);
         }
+        parsePrimaryKey(clazz);
     }
 }
@@ -0,0 +1,301 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 实体缓存(二级缓存)<br>
+ * 每个实体类一个实例, 以主键为KEY缓存findById/listByIds查询到的完整实体, 修改和删除时按主键或整体失效<br>
+ * 缓存的是实体的字段值Map, 读取时由调用方重新转换为实体对象, 因此修改返回的对象不会影响缓存<br>
+ * 每次失效都会递增版本号, 版本号在查询之前获取, 写入时版本号已变化则不写入, 避免查询期间的修改被旧数据覆盖<br>
+ * 事务中不读取也不写入缓存(可能读到未提交的数据); 事务中修改数据时, 事务结束后会再次使缓存失效<br>
+ * 注意: 其他途径(如SqlDao或其他系统)对数据的修改无法感知, 只能依赖过期时间;
+ * 如果查询条件中有与当前用户相关的数据权限限制, 不应启用实体缓存
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class EntityCache {
+
+    private static final String CONFIG_PREFIX = "qdbc.entityCache.";
+
+    /** 缓存名称(实体类的SimpleName) **/
+    private final String name;
+    private final LruCache<String, CacheEntry> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private volatile boolean enabled;
+    private volatile long expireMillis;
+
+    /**
+     * 构造函数
+     *
+     * @param name 缓存名称(实体类的SimpleName)
+     * @param maxSize 最大容量
+     */
+    public EntityCache(String name, int maxSize) {
+        this.name = name;
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * 根据配置项初始化, 优先取实体类的配置, 未配置时取全局配置<br>
+     * qdbc.entityCache.{name}.enabled - qdbc.entityCache.enabled<br>
+     * qdbc.entityCache.{name}.maxSize - qdbc.entityCache.maxSize<br>
+     * qdbc.entityCache.{name}.expireSeconds - qdbc.entityCache.expireSeconds
+     *
+     * @param config 配置项
+     */
+    public void init(DbConfig config) {
+        String prefix = CONFIG_PREFIX + name + '.';
+        Boolean enabled = config.getBoolean(CONFIG_PREFIX + "enabled", false);
+        Integer maxSize = config.getInteger(CONFIG_PREFIX + "maxSize", 1000);
+        Long expireSeconds = config.getLong(CONFIG_PREFIX + "expireSeconds", 300L);
+        this.enabled = config.getBoolean(prefix + "enabled", enabled);
+        this.cache.setMaxSize(config.getInteger(prefix + "maxSize", maxSize));
+        this.expireMillis = config.getLong(prefix + "expireSeconds", expireSeconds) * 1000;
+    }
+
+    /** 缓存名称 **/
+    public String getName() {
+        return name;
+    }
+
+    /** 是否启用 **/
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 设置是否启用, 关闭时清空缓存 **/
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.doEvict(null);
+        }
+    }
+
+    /** 缓存的有效时间(毫秒), 小于等于0表示不过期 **/
+    public long getExpireMillis() {
+        return expireMillis;
+    }
+
+    /** 设置缓存的有效时间(毫秒), 小于等于0表示不过期 **/
+    public void setExpireMillis(long expireMillis) {
+        this.expireMillis = expireMillis;
+    }
+
+    /** 当前是否可以读写缓存(已启用且不在事务中) **/
+    public boolean isUsable() {
+        return enabled && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /** 当前版本号, 应在查询之前获取, 写入缓存时传入 **/
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 获取缓存的实体字段值
+     *
+     * @param id 主键
+     * @return 实体字段值, 不存在或已过期时返回null
+     */
+    public Map<String, Object> get(String id) {
+        if (id == null) {
+            return null;
+        }
+        CacheEntry entry = cache.get(id);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (expireMillis > 0 && System.currentTimeMillis() - entry.createTime > expireMillis) {
+            cache.remove(id);
+            expiredCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.fields;
+    }
+
+    /**
+     * 缓存实体字段值
+     *
+     * @param id 主键
+     * @param fields 实体字段值, 为空时不缓存
+     * @param version 查询之前获取的版本号, 与当前版本号不一致时不缓存
+     */
+    public void put(String id, Map<String, Object> fields, long version) {
+        if (id == null || VerifyTools.isBlank(fields) || this.version.get() != version) {
+            return;
+        }
+        cache.put(id, new CacheEntry(fields));
+        if (this.version.get() != version) {
+            // 写入期间发生了失效操作
+            cache.remove(id);
+        }
+    }
+
+    /**
+     * 使指定主键的缓存失效<br>
+     * 如果当前处于事务中, 事务结束后会再次使缓存失效, 以免其他线程在事务提交前缓存了旧数据<br>
+     * 未启用时缓存为空(关闭时已清空), 不需要处理
+     *
+     * @param ids 主键, 为null时清空缓存
+     */
+    public void evict(Collection<String> ids) {
+        if (!enabled || ids != null && ids.isEmpty()) {
+            return;
+        }
+        // 复制一份, 以免事务结束前调用方修改了列表
+        List<String> copied = ids == null ? null : new ArrayList<>(ids);
+        doEvict(copied);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new EvictSynchronization(this, copied));
+        }
+    }
+
+    /** 清空缓存, 如果当前处于事务中, 事务结束后会再次清空 **/
+    public void evictAll() {
+        evict(null);
+    }
+
+    private void doEvict(Collection<String> ids) {
+        // 先递增版本号再删除, 与put的检查顺序相反, 保证正在写入的旧数据会被移除
+        version.incrementAndGet();
+        if (ids == null) {
+            cache.clear();
+        } else {
+            for (String id : ids) {
+                cache.remove(id);
+            }
+        }
+        invalidationCount.incrementAndGet();
+    }
+
+    /** 缓存数量 **/
+    public int size() {
+        return cache.size();
+    }
+
+    /** 最大容量 **/
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    /** 设置最大容量, 如果当前数量超出新的容量, 将按LRU顺序淘汰 **/
+    public void setMaxSize(int maxSize) {
+        cache.setMaxSize(maxSize);
+    }
+
+    /** 命中次数 **/
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** 未命中次数(包括已过期的缓存项) **/
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** 命中率 **/
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** 淘汰次数(超出容量) **/
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /** 过期次数 **/
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /** 因修改数据而失效的次数 **/
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /** 清除统计数据 **/
+    public void resetStats() {
+        cache.resetStats();
+        hitCount.set(0);
+        missCount.set(0);
+        expiredCount.set(0);
+        invalidationCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": size=" + size() + "/" + getMaxSize() + ", hits=" + hitCount.get() + ", misses="
+                + missCount.get() + ", evictions=" + getEvictionCount() + ", expired=" + expiredCount.get()
+                + ", invalidations=" + invalidationCount.get();
+    }
+
+    private static class CacheEntry {
+
+        private final Map<String, Object> fields;
+        private final long createTime;
+
+        public CacheEntry(Map<String, Object> fields) {
+            this.fields = fields;
+            this.createTime = System.currentTimeMillis();
+        }
+    }
+
+    /** 事务结束后再次使缓存失效 **/
+    private static class EvictSynchronization implements TransactionSynchronization {
+
+        private final EntityCache cache;
+        private final Collection<String> ids;
+
+        public EvictSynchronization(EntityCache cache, Collection<String> ids) {
+            this.cache = cache;
+            this.ids = ids;
+        }
+
+        @Override
+        public void suspend() {
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCommit() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            cache.doEvict(ids);
+        }
+    }
+}
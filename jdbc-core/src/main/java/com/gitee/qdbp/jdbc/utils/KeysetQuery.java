@@ -0,0 +1,164 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import com.gitee.qdbp.able.jdbc.ordering.OrderType;
+import com.gitee.qdbp.able.jdbc.ordering.Ordering;
+import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.RowMapperExtractor;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.SqlBuilder;
+
+/**
+ * 键集分页(Keyset/Seek)查询工具类<br>
+ * 查询语句需要已经包含定位条件和排序语句, 这里只负责限定行数, 并从结果集中记录最后一行的排序字段值<br>
+ * 多查询一行用于判断是否还有下一页
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class KeysetQuery {
+
+    private static final Pattern COLUMN_LABEL = Pattern.compile("[A-Za-z_][\\w$]*");
+
+    /**
+     * 键集分页查询
+     *
+     * @param jdbc JDBC查询接口
+     * @param qsb 数据查询SQL语句(已包含定位条件和排序语句)
+     * @param keyLabels 排序字段在结果集中的列名(列别名), 用于获取最后一行的排序字段值
+     * @param paging 分页条件
+     * @param rowMapper 结果转换接口
+     * @return 列表数据及下一页的定位值
+     * @throws DataAccessException if the query fails
+     */
+    public static <T> KeysetPageList<T> queryForList(SqlBufferJdbcOperations jdbc, SqlBuffer qsb,
+            List<String> keyLabels, KeysetPaging paging, RowMapper<T> rowMapper) throws DataAccessException {
+        int rows = paging.getRows();
+        SqlDialect dialect = jdbc.getSqlDialect();
+        // 多查一行, 用于判断是否还有下一页
+        dialect.processPagingSql(qsb, new Paging(1, rows + 1, false));
+        KeysetRowMapper<T> keysetRowMapper = new KeysetRowMapper<>(rowMapper, keyLabels, rows);
+        List<T> list = jdbc.query(qsb, keysetRowMapper);
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        boolean hasNext = list.size() > rows;
+        if (hasNext) {
+            list = new ArrayList<>(list.subList(0, rows));
+        }
+        Object[] nextKeys = list.isEmpty() ? null : keysetRowMapper.getLastKeys();
+        return new KeysetPageList<>(list, paging, nextKeys, hasNext);
+    }
+
+    /**
+     * 自定义SQL的键集分页查询, 排序字段为查询结果的列名
+     *
+     * @param jdbc JDBC查询接口
+     * @param sql 自定义SQL(不能有ORDER BY)
+     * @param paging 分页条件
+     * @param rowMapper 结果转换接口
+     * @return 列表数据及下一页的定位值
+     * @throws DataAccessException if the query fails
+     * @see #wrapKeysetQuerySql(SqlBuffer, KeysetPaging, SqlDialect)
+     */
+    public static <T> KeysetPageList<T> queryForList(SqlBufferJdbcOperations jdbc, SqlBuffer sql, KeysetPaging paging,
+            RowMapper<T> rowMapper) throws DataAccessException {
+        SqlBuffer qsb = wrapKeysetQuerySql(sql, paging, jdbc.getSqlDialect());
+        List<String> keyLabels = new ArrayList<>();
+        for (Ordering item : paging.getOrderings()) {
+            keyLabels.add(item.getOrderBy());
+        }
+        return queryForList(jdbc, qsb, keyLabels, paging, rowMapper);
+    }
+
+    /**
+     * 将自定义SQL包装为键集分页查询语句, 排序字段为查询结果的列名<br>
+     * SELECT * FROM ( {sql} ) K_K WHERE (A,B) &gt; (?,?) ORDER BY A, B<br>
+     * 注意: 不支持子查询中带ORDER BY的数据库(如SqlServer), 自定义SQL中不能有ORDER BY
+     *
+     * @param sql 自定义SQL
+     * @param paging 分页条件
+     * @param dialect 数据库方言
+     * @return 键集分页查询语句
+     */
+    public static SqlBuffer wrapKeysetQuerySql(SqlBuffer sql, KeysetPaging paging, SqlDialect dialect) {
+        List<String> columnNames = new ArrayList<>();
+        List<OrderType> orderTypes = new ArrayList<>();
+        for (Ordering item : paging.getOrderings()) {
+            String columnName = item.getOrderBy();
+            if (!COLUMN_LABEL.matcher(columnName).matches()) {
+                throw new IllegalArgumentException("Unsupported keyset ordering column: " + columnName);
+            }
+            columnNames.add(columnName);
+            orderTypes.add(item.getOrderType());
+        }
+
+        SqlBuilder buffer = new SqlBuilder();
+        sql.indentAll(1, true);
+        buffer.ad("SELECT * FROM (").br().ad(sql).br().ad(") K_K");
+        if (!paging.isFirstPage()) {
+            List<Object> lastValues = Arrays.asList(paging.getLastKeys());
+            buffer.newline().ad("WHERE").ad(dialect.buildKeysetConditionSql(columnNames, orderTypes, lastValues));
+        }
+        buffer.newline().ad("ORDER BY");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                buffer.ad(',');
+            }
+            buffer.ad(columnNames.get(i));
+            if (orderTypes.get(i) == OrderType.DESC) {
+                buffer.ad("DESC");
+            }
+        }
+        return buffer.out();
+    }
+
+    /** 在转换结果的同时, 记录每页最后一行的排序字段值 **/
+    private static class KeysetRowMapper<T> implements RowMapper<T> {
+
+        private final RowMapper<T> delegate;
+        private final List<String> keyLabels;
+        private final int rows;
+        private RowMapper<T> mapper;
+        private Object[] lastKeys;
+
+        public KeysetRowMapper(RowMapper<T> delegate, List<String> keyLabels, int rows) {
+            this.delegate = delegate;
+            this.keyLabels = keyLabels;
+            this.rows = rows;
+        }
+
+        @Override
+        public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (rowNum < rows) {
+                // 最后多查的一行不属于当前页
+                Object[] keys = new Object[keyLabels.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = rs.getObject(keyLabels.get(i));
+                }
+                this.lastKeys = keys;
+            }
+            if (mapper == null) {
+                // 每次查询创建新的KeysetRowMapper, 因此只需在第1行绑定结果集
+                mapper = RowMapperExtractor.bind(delegate, rs);
+            }
+            return mapper.mapRow(rs, rowNum);
+        }
+
+        public Object[] getLastKeys() {
+            return lastKeys;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限定容量的LRU缓存(线程安全), 超出容量时淘汰最久未访问的项<br>
+ * 同时记录命中/未命中/淘汰次数, 用于观察缓存效果<br>
+ * LinkedHashMap按访问顺序排序, 读操作也会修改链表, 因此每次读写都要加锁<br>
+ * 访问频繁的缓存可以指定分段数, 按KEY的哈希值分为多个独立加锁的分段, 减少锁竞争;
+ * 此时容量平均分配给各分段, 只在分段内按LRU顺序淘汰(近似LRU)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class LruCache<K, V> {
+
+    private final Segment[] segments;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile int maxSize;
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大容量, 小于等于0表示不缓存
+     */
+    public LruCache(int maxSize) {
+        this(maxSize, 1);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大容量, 小于等于0表示不缓存
+     * @param segmentCount 分段数, 为1时是严格的LRU, 大于1时每个分段独立加锁
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, int segmentCount) {
+        this.maxSize = maxSize;
+        this.segments = new LruCache.Segment[Math.max(1, segmentCount)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key KEY
+     * @return 缓存值, 不存在时返回null
+     */
+    public V get(K key) {
+        Segment segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 存入缓存值
+     *
+     * @param key KEY
+     * @param value 缓存值, 为null时不缓存
+     */
+    public void put(K key, V value) {
+        if (value == null || maxSize <= 0) {
+            return;
+        }
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /** 移除指定KEY的缓存 **/
+    public void remove(K key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /** 清空缓存(不清除统计数据) **/
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /** 缓存数量 **/
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /** 分段数 **/
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /** 最大容量 **/
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** 设置最大容量, 如果当前数量超出新的容量, 将按LRU顺序淘汰 **/
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        int segmentMaxSize = getSegmentMaxSize();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<K> iterator = segment.keySet().iterator();
+                while (segment.size() > segmentMaxSize && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /** 命中次数 **/
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** 未命中次数 **/
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** 淘汰次数 **/
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /** 命中率 **/
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** 清除统计数据 **/
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+
+    /** 每个分段的容量, 分段数大于容量时每个分段至少保留1项 **/
+    private int getSegmentMaxSize() {
+        int max = this.maxSize;
+        if (max <= 0) {
+            return 0;
+        }
+        return segments.length == 1 ? max : Math.max(1, max / segments.length);
+    }
+
+    private Segment segmentFor(K key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16); // 高位参与运算, 使分布更均匀
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + maxSize + ", hits=" + hitCount.get() + ", misses=" + missCount.get()
+                + ", evictions=" + evictionCount.get();
+    }
+
+    /** 分段, 按访问顺序排序的LinkedHashMap **/
+    private class Segment extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        public Segment() {
+            super(16, 0.75F, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > getSegmentMaxSize()) {
+                evictionCount.incrementAndGet();
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+}
@@ -1,28 +1,55 @@
 package com.gitee.qdbp.jdbc.utils;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.gitee.qdbp.able.jdbc.paging.Paging;
 import com.gitee.qdbp.able.jdbc.paging.PartList;
 import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.result.TableRowToBeanMapper;
+import com.gitee.qdbp.jdbc.result.WindowCountRowMapper;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.tools.utils.ReflectTools;
 
 /**
- * 分页查询工具类
+ * 分页查询工具类<br>
+ * 如果开启了qdbc.paging.windowCount配置, 且数据库支持窗口函数, 通过COUNT(*) OVER()在查询列表的同时返回总记录数<br>
+ * 如果开启了qdbc.paging.concurrent配置, 且当前不在事务中, 统计总数与查询列表将并行执行
  *
  * @author zhaohuihua
  * @version 190607
  */
 public class PagingQuery {
 
+    private static final Logger log = LoggerFactory.getLogger(PagingQuery.class);
+
+    /** 窗口函数分页时总记录数的列名 **/
+    private static final String TOTAL_COLUMN_LABEL = "QDBC_TOTAL_ROWS_";
+
     /**
      * 分页查询
-     * 
+     *
      * @param jdbc JDBC查询接口
      * @param qsb 数据查询SQL语句
      * @param csb 总数统计SQL语句
@@ -32,34 +59,12 @@ public class PagingQuery {
      */
     public static PartList<Map<String, Object>> queryForList(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, SqlBuffer csb,
             Paging paging) throws DataAccessException {
-        if (!paging.isPaging()) { // 不分页
-            List<Map<String, Object>> list = jdbc.query(qsb, new ColumnMapRowMapper());
-            return list == null ? null : new PartList<>(list, list.size());
-        } else { // 分页
-            // 先查询总数据量
-            Integer total = paging.getTotal();
-            if (paging.isNeedCount()) {
-                total = jdbc.queryForObject(csb, Integer.class);
-                paging.setTotal(total);
-            }
-            // 再查询数据列表
-            List<Map<String, Object>> list;
-            if (total != null && total == 0) {
-                list = new ArrayList<>(); // 已知无数据, 不需要再查询
-            } else {
-                SqlDialect dialect = jdbc.getSqlDialect();
-                // 处理分页
-                dialect.processPagingSql(qsb, paging);
-                // 查询数据列表
-                list = jdbc.query(qsb, new ColumnMapRowMapper());
-            }
-            return new PartList<>(list, total == null ? list.size() : total);
-        }
+        return queryForList(jdbc, qsb, csb, paging, new ColumnMapRowMapper());
     }
 
     /**
      * 分页查询
-     * 
+     *
      * @param qsb 数据查询SQL语句
      * @param csb 总数统计SQL语句
      * @param paging 分页条件
@@ -69,34 +74,18 @@ public class PagingQuery {
      */
     public static <T> PartList<T> queryForList(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, SqlBuffer csb,
             Paging paging, Class<T> elementType) throws DataAccessException {
+        ListQuery<T> listQuery = new ElementTypeListQuery<>(jdbc, elementType);
         if (!paging.isPaging()) { // 不分页
-            List<T> list = jdbc.queryForList(qsb, elementType);
+            List<T> list = listQuery.query(qsb);
             return list == null ? null : new PartList<>(list, list.size());
         } else { // 分页
-            // 先查询总数据量
-            Integer total = paging.getTotal();
-            if (paging.isNeedCount()) {
-                total = jdbc.queryForObject(csb, Integer.class);
-                paging.setTotal(total);
-            }
-            // 再查询数据列表
-            List<T> list;
-            if (total != null && total == 0) {
-                list = new ArrayList<T>(); // 已知无数据, 不需要再查询
-            } else {
-                SqlDialect dialect = jdbc.getSqlDialect();
-                // 处理分页
-                dialect.processPagingSql(qsb, paging);
-                // 查询数据列表
-                list = jdbc.queryForList(qsb, elementType);
-            }
-            return new PartList<>(list, total == null ? list.size() : total);
+            return doPagingQuery(jdbc, qsb, new CountQuery(jdbc, csb, false), paging, listQuery);
         }
     }
 
     /**
      * 分页查询
-     * 
+     *
      * @param qsb 数据查询SQL语句
      * @param csb 总数统计SQL语句
      * @param paging 分页条件
@@ -106,28 +95,326 @@ public class PagingQuery {
      */
     public static <T> PartList<T> queryForList(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, SqlBuffer csb,
             Paging paging, RowMapper<T> rowMapper) throws DataAccessException {
+        ListQuery<T> listQuery = new RowMapperListQuery<>(jdbc, rowMapper);
         if (!paging.isPaging()) { // 不分页
-            List<T> list = jdbc.query(qsb, rowMapper);
+            List<T> list = listQuery.query(qsb);
             return list == null ? null : new PartList<>(list, list.size());
         } else { // 分页
-            // 先查询总数据量
-            Integer total = paging.getTotal();
-            if (paging.isNeedCount()) {
-                total = jdbc.queryForObject(csb, Integer.class);
-                paging.setTotal(total);
+            return doPagingQuery(jdbc, qsb, new CountQuery(jdbc, csb, false), paging, listQuery);
+        }
+    }
+
+    /**
+     * 自定义SQL的分页查询(总是分页), 未指定统计语句时根据查询语句生成统计语句
+     *
+     * @param jdbc JDBC查询接口
+     * @param qsb 数据查询SQL语句
+     * @param csb 总数统计SQL语句, 为null时根据查询语句生成
+     * @param paging 分页条件
+     * @param elementType 结果成员类型
+     * @return a PartList that contains a Map per row and total rows.
+     * @throws DataAccessException if the query fails
+     * @since 3.2.2
+     */
+    public static <T> PartList<T> queryForPage(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, SqlBuffer csb,
+            Paging paging, Class<T> elementType) throws DataAccessException {
+        CountQuery countQuery = csb == null ? new CountQuery(jdbc, qsb, true) : new CountQuery(jdbc, csb, false);
+        return doPagingQuery(jdbc, qsb, countQuery, paging, new ElementTypeListQuery<>(jdbc, elementType));
+    }
+
+    /**
+     * 自定义SQL的分页查询(总是分页), 未指定统计语句时根据查询语句生成统计语句
+     *
+     * @param jdbc JDBC查询接口
+     * @param qsb 数据查询SQL语句
+     * @param csb 总数统计SQL语句, 为null时根据查询语句生成
+     * @param paging 分页条件
+     * @param rowMapper 结果转换接口
+     * @return a PartList that contains a Map per row and total rows.
+     * @throws DataAccessException if the query fails
+     * @since 3.2.2
+     */
+    public static <T> PartList<T> queryForPage(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, SqlBuffer csb,
+            Paging paging, RowMapper<T> rowMapper) throws DataAccessException {
+        CountQuery countQuery = csb == null ? new CountQuery(jdbc, qsb, true) : new CountQuery(jdbc, csb, false);
+        return doPagingQuery(jdbc, qsb, countQuery, paging, new RowMapperListQuery<>(jdbc, rowMapper));
+    }
+
+    /**
+     * 自定义SQL的分页查询(总是分页), 结果为Map列表, 未指定统计语句时根据查询语句生成统计语句
+     *
+     * @param jdbc JDBC查询接口
+     * @param qsb 数据查询SQL语句
+     * @param csb 总数统计SQL语句, 为null时根据查询语句生成
+     * @param paging 分页条件
+     * @return a PartList that contains a Map per row and total rows.
+     * @throws DataAccessException if the query fails
+     * @since 3.2.2
+     */
+    public static PartList<Map<String, Object>> queryForPage(SqlBufferJdbcOperations jdbc, SqlBuffer qsb,
+            SqlBuffer csb, Paging paging) throws DataAccessException {
+        CountQuery countQuery = csb == null ? new CountQuery(jdbc, qsb, true) : new CountQuery(jdbc, csb, false);
+        return doPagingQuery(jdbc, qsb, countQuery, paging, new MapListQuery(jdbc));
+    }
+
+    private static <T> PartList<T> doPagingQuery(SqlBufferJdbcOperations jdbc, SqlBuffer qsb, CountQuery countQuery,
+            Paging paging, ListQuery<T> listQuery) {
+        SqlDialect dialect = jdbc.getSqlDialect();
+        if (paging.isNeedCount() && isWindowCountEnabled(jdbc)) {
+            // 一条语句同时返回分页数据和总记录数
+            // 统计语句可能由查询语句生成, 因此分页语句要用副本
+            SqlBuffer psb = dialect.buildWindowCountPagingSql(qsb, paging, TOTAL_COLUMN_LABEL);
+            if (psb != null) { // 为null表示原SQL不支持加入窗口函数(如DISTINCT/UNION), 按普通方式分页
+                return doWindowCountQuery(jdbc, psb, countQuery, paging, listQuery);
             }
-            // 再查询数据列表
-            List<T> list;
-            if (total != null && total == 0) {
-                list = new ArrayList<T>(); // 已知无数据, 不需要再查询
+        }
+        if (paging.isNeedCount() && isConcurrentEnabled(jdbc)) {
+            // 统计总数与查询列表并行执行
+            // 统计语句可能由查询语句生成, 因此分页语句要用副本
+            SqlBuffer psb = dialect.buildPagingSql(qsb, paging);
+            return doConcurrentQuery(jdbc, psb, countQuery, paging, listQuery);
+        }
+
+        // 先查询总数据量
+        Integer total = paging.getTotal();
+        if (paging.isNeedCount()) {
+            total = countQuery.call();
+            paging.setTotal(total);
+        }
+        // 再查询数据列表
+        List<T> list;
+        if (total != null && total == 0) {
+            list = new ArrayList<T>(); // 已知无数据, 不需要再查询
+        } else {
+            // 处理分页
+            dialect.processPagingSql(qsb, paging);
+            // 查询数据列表
+            list = listQuery.query(qsb);
+        }
+        return new PartList<>(list, total == null ? list.size() : total);
+    }
+
+    private static <T> PartList<T> doWindowCountQuery(SqlBufferJdbcOperations jdbc, SqlBuffer psb,
+            CountQuery countQuery, Paging paging, ListQuery<T> listQuery) {
+        WindowCountRowMapper<T> rowMapper = new WindowCountRowMapper<>(listQuery.getRowMapper(), TOTAL_COLUMN_LABEL);
+        List<T> list = jdbc.query(psb, rowMapper);
+        if (list == null) {
+            list = new ArrayList<T>();
+        }
+        Integer total = rowMapper.getTotal();
+        if (total == null) {
+            // 当前页没有数据: 首页说明总数为0; 否则可能是页码超出了范围, 需要再统计总数
+            total = paging.getStart() <= 0 ? 0 : countQuery.call();
+        }
+        paging.setTotal(total);
+        return new PartList<>(list, total);
+    }
+
+    private static <T> PartList<T> doConcurrentQuery(SqlBufferJdbcOperations jdbc, SqlBuffer psb,
+            CountQuery countQuery, Paging paging, ListQuery<T> listQuery) {
+        // 统计总数在线程池中执行, 需要传递当前线程的读己之写状态, 否则刚写入的数据可能统计不到
+        ReadReplicaRouter router = jdbc.getReadReplicaRouter();
+        Callable<Integer> countTask = router == null ? countQuery : router.propagate(countQuery);
+        FutureTask<Integer> countFuture = new FutureTask<>(countTask);
+        Executor executor = DbPluginContainer.defaults().getPagingQueryExecutor();
+        try {
+            executor.execute(countFuture);
+        } catch (RejectedExecutionException e) {
+            // 线程池已满, 在当前线程执行
+            countFuture.run();
+        }
+        List<T> list;
+        try {
+            list = listQuery.query(psb);
+        } catch (RuntimeException | Error e) {
+            countFuture.cancel(true);
+            throw e;
+        }
+        Integer total;
+        try {
+            total = countFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            countFuture.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for paging count query.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             } else {
-                SqlDialect dialect = jdbc.getSqlDialect();
-                // 处理分页
-                dialect.processPagingSql(qsb, paging);
-                // 查询数据列表
-                list = jdbc.query(qsb, rowMapper);
+                throw new IllegalStateException("Failed to execute paging count query.", cause);
             }
-            return new PartList<>(list, total == null ? list.size() : total);
+        }
+        paging.setTotal(total);
+        return new PartList<>(list, total == null ? list.size() : total);
+    }
+
+    /**
+     * 是否通过窗口函数COUNT(*) OVER()在查询列表的同时返回总记录数<br>
+     * 由qdbc.paging.windowCount配置(可按数据库类型配置), 默认为false; 且要求数据库支持窗口函数
+     *
+     * @param jdbc JDBC查询接口
+     * @return 是否使用窗口函数分页
+     * @see SqlDialect#supportsWindowCountPaging()
+     */
+    protected static boolean isWindowCountEnabled(SqlBufferJdbcOperations jdbc) {
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), jdbc.getDbVersion());
+        if (!config.getBoolean("qdbc.paging.windowCount", false)) {
+            return false;
+        }
+        return jdbc.getSqlDialect().supportsWindowCountPaging();
+    }
+
+    /**
+     * 是否并行执行统计总数与查询列表<br>
+     * 由qdbc.paging.concurrent配置(可按数据库类型配置), 默认为false<br>
+     * 在事务中(或当前线程已绑定连接)时, 其他线程无法使用同一连接, 可能读不到未提交的数据, 因此不并行
+     *
+     * @param jdbc JDBC查询接口
+     * @return 是否并行
+     */
+    protected static boolean isConcurrentEnabled(SqlBufferJdbcOperations jdbc) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        DbConfig config = new DbConfig(DbTools.getDbConfig(), jdbc.getDbVersion());
+        return config.getBoolean("qdbc.paging.concurrent", false);
+    }
+
+    /**
+     * 创建默认的并行查询执行器<br>
+     * 运行环境支持虚拟线程时(JDK21+)使用虚拟线程, 否则使用守护线程池, 线程池满时在调用者线程执行
+     *
+     * @return 执行器
+     * @since 3.2.2
+     */
+    public static Executor newDefaultExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (Exception ignore) {
+            log.trace("Virtual threads are not available, use thread pool for paging query.");
+        }
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 4);
+        return new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new NamedDaemonThreadFactory("qdbc-paging-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /** 统计总数 **/
+    private static class CountQuery implements Callable<Integer> {
+
+        private final SqlBufferJdbcOperations jdbc;
+        private final SqlBuffer sql;
+        private final boolean byQuerySql;
+
+        public CountQuery(SqlBufferJdbcOperations jdbc, SqlBuffer sql, boolean byQuerySql) {
+            this.jdbc = jdbc;
+            this.sql = sql;
+            this.byQuerySql = byQuerySql;
+        }
+
+        @Override
+        public Integer call() {
+            if (byQuerySql) {
+                return jdbc.countByQuerySql(sql);
+            } else {
+                return jdbc.queryForObject(sql, Integer.class);
+            }
+        }
+    }
+
+    /** 查询列表 **/
+    private static interface ListQuery<T> {
+
+        List<T> query(SqlBuffer sql);
+
+        /** 结果转换接口, 用于窗口函数分页 **/
+        RowMapper<T> getRowMapper();
+    }
+
+    private static class RowMapperListQuery<T> implements ListQuery<T> {
+
+        private final SqlBufferJdbcOperations jdbc;
+        private final RowMapper<T> rowMapper;
+
+        public RowMapperListQuery(SqlBufferJdbcOperations jdbc, RowMapper<T> rowMapper) {
+            this.jdbc = jdbc;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public List<T> query(SqlBuffer sql) {
+            return jdbc.query(sql, rowMapper);
+        }
+
+        @Override
+        public RowMapper<T> getRowMapper() {
+            return rowMapper;
+        }
+    }
+
+    private static class ElementTypeListQuery<T> implements ListQuery<T> {
+
+        private final SqlBufferJdbcOperations jdbc;
+        private final Class<T> elementType;
+
+        public ElementTypeListQuery(SqlBufferJdbcOperations jdbc, Class<T> elementType) {
+            this.jdbc = jdbc;
+            this.elementType = elementType;
+        }
+
+        @Override
+        public List<T> query(SqlBuffer sql) {
+            return jdbc.queryForList(sql, elementType);
+        }
+
+        @Override
+        public RowMapper<T> getRowMapper() {
+            // 与SqlBufferJdbcOperations.queryForList(SqlBuffer, Class)的转换方式保持一致
+            if (ReflectTools.isPrimitive(elementType, false)) {
+                return new SingleColumnRowMapper<>(elementType);
+            } else {
+                return new TableRowToBeanMapper<>(elementType, DbTools.getMapToBeanConverter());
+            }
+        }
+    }
+
+    private static class MapListQuery implements ListQuery<Map<String, Object>> {
+
+        private final SqlBufferJdbcOperations jdbc;
+
+        public MapListQuery(SqlBufferJdbcOperations jdbc) {
+            this.jdbc = jdbc;
+        }
+
+        @Override
+        public List<Map<String, Object>> query(SqlBuffer sql) {
+            return jdbc.queryForList(sql);
+        }
+
+        @Override
+        public RowMapper<Map<String, Object>> getRowMapper() {
+            return new ColumnMapRowMapper();
+        }
+    }
+
+    private static class NamedDaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public NamedDaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
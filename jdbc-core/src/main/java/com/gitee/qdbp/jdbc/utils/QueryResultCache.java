@@ -0,0 +1,489 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.gitee.qdbp.able.jdbc.paging.PageList;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
+import com.gitee.qdbp.tools.utils.StringTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 查询结果缓存<br>
+ * 以预编译SQL+参数+结果类型作为KEY缓存查询结果, 每个缓存项记录所涉及的表及这些表的版本号<br>
+ * 通过CrudDao/SqlDao增删改数据时递增表的版本号, 版本号不一致的缓存项视为失效<br>
+ * 版本号在查询之前获取, 因此查询期间发生的修改也能使本次查询的结果失效<br>
+ * 事务中不读取也不写入缓存(可能读到未提交的数据); 事务中修改数据时, 事务结束后会再次使缓存失效<br>
+ * 缓存的是查询结果的副本: JavaBean转换为字段值Map保存, 每次命中都重新转换为新的对象(与实体缓存相同);
+ * List/Map/日期等也是每次复制, 因此修改返回的对象不会影响缓存<br>
+ * 注意: 其他途径对数据的修改无法感知, 只能依赖过期时间
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class QueryResultCache {
+
+    private final LruCache<CacheKey, CacheEntry> cache;
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private volatile boolean enabled;
+    private volatile long expireMillis;
+    /** 允许缓存的表名, 为空表示所有表 **/
+    private volatile Set<String> cacheableTables;
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大容量
+     */
+    public QueryResultCache(int maxSize) {
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * 根据配置项初始化<br>
+     * qdbc.queryCache.enabled, qdbc.queryCache.maxSize, qdbc.queryCache.expireSeconds, qdbc.queryCache.tables
+     *
+     * @param config 配置项
+     */
+    public void init(DbConfig config) {
+        this.enabled = config.getBoolean("qdbc.queryCache.enabled", false);
+        this.cache.setMaxSize(config.getInteger("qdbc.queryCache.maxSize", 1000));
+        this.expireMillis = config.getLong("qdbc.queryCache.expireSeconds", 300L) * 1000;
+        this.setCacheableTables(config.getString("qdbc.queryCache.tables"));
+    }
+
+    /** 是否启用 **/
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 设置是否启用, 关闭时清空缓存 **/
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.cache.clear();
+        }
+    }
+
+    /** 缓存的有效时间(毫秒), 小于等于0表示不过期 **/
+    public long getExpireMillis() {
+        return expireMillis;
+    }
+
+    /** 设置缓存的有效时间(毫秒), 小于等于0表示不过期 **/
+    public void setExpireMillis(long expireMillis) {
+        this.expireMillis = expireMillis;
+    }
+
+    /** 设置允许缓存的表名, 多个以逗号分隔, 为空表示所有表 **/
+    public void setCacheableTables(String tables) {
+        if (VerifyTools.isBlank(tables)) {
+            this.cacheableTables = null;
+        } else {
+            Set<String> set = new LinkedHashSet<>();
+            for (String item : StringTools.split(tables, ',')) {
+                if (VerifyTools.isNotBlank(item)) {
+                    set.add(item.trim().toUpperCase());
+                }
+            }
+            this.cacheableTables = set.isEmpty() ? null : set;
+        }
+    }
+
+    /**
+     * 生成缓存KEY, 同时记录所涉及的表的当前版本号
+     *
+     * @param tables 涉及的表名
+     * @param resultKey 结果类型标识, 同一SQL不同结果类型的缓存互不影响
+     * @param prepared 预编译SQL及参数
+     * @return 缓存KEY, 如果不允许缓存则返回null
+     */
+    public CacheKey newCacheKey(Collection<String> tables, String resultKey, PreparedSql prepared) {
+        if (!enabled || VerifyTools.isBlank(tables) || isTransactionActive()) {
+            return null;
+        }
+        Set<String> cacheable = this.cacheableTables;
+        String[] tableNames = new String[tables.size()];
+        long[] versions = new long[tableNames.length];
+        int i = 0;
+        for (String table : tables) {
+            String tableName = table.toUpperCase();
+            if (cacheable != null && !cacheable.contains(tableName)) {
+                return null;
+            }
+            tableNames[i] = tableName;
+            versions[i] = getTableVersion(tableName).get();
+            i++;
+        }
+        return new CacheKey(resultKey, prepared.getSql(), prepared.getValues(), tableNames, versions);
+    }
+
+    /**
+     * 获取缓存的查询结果
+     *
+     * @param key 缓存KEY, 为null时返回null
+     * @return 查询结果(每次都是新的副本), 不存在或已失效时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(CacheKey key) {
+        if (key == null) {
+            return null;
+        }
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (expireMillis > 0 && System.currentTimeMillis() - entry.createTime > expireMillis) {
+            cache.remove(key);
+            expiredCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return null;
+        }
+        for (int i = 0; i < entry.tables.length; i++) {
+            if (getTableVersion(entry.tables[i]).get() != entry.versions[i]) {
+                // 数据已修改
+                cache.remove(key);
+                missCount.incrementAndGet();
+                return null;
+            }
+        }
+        hitCount.incrementAndGet();
+        return (V) restoreValue(entry.value);
+    }
+
+    /**
+     * 缓存查询结果<br>
+     * 保存的是查询结果的副本, 之后调用方修改查询结果不会影响缓存
+     *
+     * @param key 缓存KEY, 为null时不缓存
+     * @param value 查询结果, 为null时不缓存
+     */
+    public void put(CacheKey key, Object value) {
+        if (key == null || value == null) {
+            return;
+        }
+        cache.put(key, new CacheEntry(snapshotValue(value), key.tables, key.versions));
+    }
+
+    /** 生成查询结果的副本用于缓存: JavaBean转换为字段值Map, 集合/Map/日期复制一份 **/
+    private static Object snapshotValue(Object value) {
+        if (value == null || isImmutableValue(value)) {
+            return value;
+        } else if (value instanceof PageList) {
+            PageList<?> list = (PageList<?>) value;
+            return new CachedList(snapshotItems(list), list.getTotal(), true);
+        } else if (value instanceof Collection) {
+            return new CachedList(snapshotItems((Collection<?>) value), null, false);
+        } else if (value instanceof Map || value instanceof Date || value instanceof byte[]) {
+            return copyValue(value);
+        } else {
+            // deep=true: 表关联查询的子对象也转换为Map; clearBlankValue=false: 保留空值, 以便原样还原
+            Map<String, Object> fields = DbTools.getBeanToMapConverter().convert(value, true, false);
+            return new CachedBean(value.getClass(), copyFields(fields));
+        }
+    }
+
+    private static List<Object> snapshotItems(Collection<?> items) {
+        List<Object> list = new ArrayList<>(items.size());
+        for (Object item : items) {
+            list.add(snapshotValue(item));
+        }
+        return list;
+    }
+
+    /** 根据缓存的副本还原查询结果, 每次都生成新的对象 **/
+    private static Object restoreValue(Object value) {
+        if (value instanceof CachedBean) {
+            CachedBean bean = (CachedBean) value;
+            return DbTools.getMapToBeanConverter().convert(copyFields(bean.fields), bean.type);
+        } else if (value instanceof CachedList) {
+            CachedList cached = (CachedList) value;
+            List<Object> list = new ArrayList<>(cached.items.size());
+            for (Object item : cached.items) {
+                list.add(restoreValue(item));
+            }
+            return cached.page ? new PageList<Object>(list, cached.total) : list;
+        } else {
+            return copyValue(value);
+        }
+    }
+
+    /** 复制可变的值(Map/Collection/Date/byte[]), 不可变的值原样返回 **/
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(String.valueOf(entry.getKey()), copyValue(entry.getValue()));
+            }
+            return map;
+        } else if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                list.add(copyValue(item));
+            }
+            return list;
+        } else if (value instanceof Date) {
+            return ((Date) value).clone();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else {
+            return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copyFields(Map<String, Object> fields) {
+        return (Map<String, Object>) copyValue(fields);
+    }
+
+    private static boolean isImmutableValue(Object value) {
+        return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum || value instanceof Class;
+    }
+
+    /**
+     * 使指定表的缓存失效<br>
+     * 如果当前处于事务中, 事务结束后会再次使缓存失效, 以免其他线程在事务提交前缓存了旧数据
+     *
+     * @param tables 表名
+     */
+    public void invalidate(Collection<String> tables) {
+        if (VerifyTools.isBlank(tables)) {
+            return;
+        }
+        doInvalidate(tables);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new InvalidateSynchronization(this, tables));
+        }
+    }
+
+    private void doInvalidate(Collection<String> tables) {
+        for (String table : tables) {
+            getTableVersion(table.toUpperCase()).incrementAndGet();
+        }
+        invalidationCount.incrementAndGet();
+    }
+
+    /** 清空缓存(不清除统计数据) **/
+    public void clear() {
+        cache.clear();
+    }
+
+    private AtomicLong getTableVersion(String tableName) {
+        AtomicLong version = tableVersions.get(tableName);
+        if (version == null) {
+            AtomicLong newer = new AtomicLong();
+            AtomicLong older = tableVersions.putIfAbsent(tableName, newer);
+            version = older != null ? older : newer;
+        }
+        return version;
+    }
+
+    private static boolean isTransactionActive() {
+        return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /** 缓存数量 **/
+    public int size() {
+        return cache.size();
+    }
+
+    /** 最大容量 **/
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    /** 设置最大容量, 如果当前数量超出新的容量, 将按LRU顺序淘汰 **/
+    public void setMaxSize(int maxSize) {
+        cache.setMaxSize(maxSize);
+    }
+
+    /** 命中次数 **/
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** 未命中次数(包括已过期及已失效的缓存项) **/
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** 命中率 **/
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** 淘汰次数(超出容量) **/
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /** 过期次数 **/
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /** 因修改数据而失效的次数 **/
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /** 清除统计数据 **/
+    public void resetStats() {
+        cache.resetStats();
+        hitCount.set(0);
+        missCount.set(0);
+        expiredCount.set(0);
+        invalidationCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + getMaxSize() + ", hits=" + hitCount.get() + ", misses=" + missCount.get()
+                + ", evictions=" + getEvictionCount() + ", expired=" + expiredCount.get() + ", invalidations="
+                + invalidationCount.get();
+    }
+
+    /** 缓存KEY **/
+    public static class CacheKey {
+
+        private final String resultKey;
+        private final String sql;
+        private final Object[] values;
+        private final int hashCode;
+        /** 涉及的表名, 不参与equals **/
+        private final String[] tables;
+        /** 生成KEY时各表的版本号, 不参与equals **/
+        private final long[] versions;
+
+        private CacheKey(String resultKey, String sql, Object[] values, String[] tables, long[] versions) {
+            this.resultKey = resultKey;
+            this.sql = sql;
+            this.values = values;
+            this.tables = tables;
+            this.versions = versions;
+            int hash = resultKey == null ? 0 : resultKey.hashCode();
+            hash = 31 * hash + sql.hashCode();
+            this.hashCode = 31 * hash + Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) object;
+            return hashCode == other.hashCode && VerifyTools.equals(resultKey, other.resultKey)
+                    && sql.equals(other.sql) && Arrays.deepEquals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final Object value;
+        private final String[] tables;
+        private final long[] versions;
+        private final long createTime;
+
+        public CacheEntry(Object value, String[] tables, long[] versions) {
+            this.value = value;
+            this.tables = tables;
+            this.versions = versions;
+            this.createTime = System.currentTimeMillis();
+        }
+    }
+
+    /** 缓存的JavaBean: 结果类型及字段值 **/
+    private static class CachedBean {
+
+        private final Class<?> type;
+        private final Map<String, Object> fields;
+
+        public CachedBean(Class<?> type, Map<String, Object> fields) {
+            this.type = type;
+            this.fields = fields;
+        }
+    }
+
+    /** 缓存的列表, page=true表示分页结果 **/
+    private static class CachedList {
+
+        private final List<Object> items;
+        private final Integer total;
+        private final boolean page;
+
+        public CachedList(List<Object> items, Integer total, boolean page) {
+            this.items = items;
+            this.total = total;
+            this.page = page;
+        }
+    }
+
+    /** 事务结束后再次使缓存失效 **/
+    private static class InvalidateSynchronization implements TransactionSynchronization {
+
+        private final QueryResultCache cache;
+        private final Collection<String> tables;
+
+        public InvalidateSynchronization(QueryResultCache cache, Collection<String> tables) {
+            this.cache = cache;
+            this.tables = tables;
+        }
+
+        @Override
+        public void suspend() {
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCommit() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            cache.doInvalidate(tables);
+        }
+    }
+}
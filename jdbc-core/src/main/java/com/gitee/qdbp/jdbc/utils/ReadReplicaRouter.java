@@ -0,0 +1,234 @@
+package com.gitee.qdbp.jdbc.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 读写分离的只读库路由<br>
+ * 查询语句由SqlBufferJdbcTemplate交给路由选择只读库, 以下情况仍然使用主库:<br>
+ * 1. 没有配置只读库; 2. 当前处于事务中; 3. 当前线程刚执行过增删改(读己之写窗口期内)<br>
+ * 选择策略: roundRobin=轮询; leastBusy=正在执行的语句最少的只读库(相同时按轮询顺序)<br>
+ * 正在执行的语句数通过代理JdbcOperations统计, 包括结果集回调处理的时间<br>
+ * 读己之写状态保存在线程变量中, 交给线程池执行的查询需要通过propagate(Callable)传递, 否则会路由到只读库<br>
+ * 注意: 只读库与主库之间的复制延迟由数据库负责, 读己之写窗口期应大于正常情况下的复制延迟
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class ReadReplicaRouter {
+
+    /** 只读库的选择策略 **/
+    public enum Strategy {
+        /** 轮询 **/
+        ROUND_ROBIN,
+        /** 正在执行的语句最少 **/
+        LEAST_BUSY;
+
+        /**
+         * 解析配置值, roundRobin/leastBusy(不区分大小写, 可以用下划线或中划线分隔)
+         *
+         * @param value 配置值
+         * @param defaults 配置值为空时的默认值
+         * @return 选择策略
+         */
+        public static Strategy parse(String value, Strategy defaults) {
+            if (VerifyTools.isBlank(value)) {
+                return defaults;
+            }
+            String normalized = value.trim().replace("_", "").replace("-", "");
+            for (Strategy item : values()) {
+                if (item.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return item;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported read replica strategy: " + value);
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final AtomicInteger counter = new AtomicInteger();
+    /** 当前线程最后一次执行增删改的时间 **/
+    private final ThreadLocal<Long> lastWriteTime = new ThreadLocal<>();
+    private volatile Strategy strategy = Strategy.ROUND_ROBIN;
+    private volatile long readYourWritesMillis = 1000;
+
+    /**
+     * 构造函数
+     *
+     * @param replicas 只读库
+     */
+    public ReadReplicaRouter(List<JdbcOperations> replicas) {
+        List<Replica> list = new ArrayList<>();
+        if (replicas != null) {
+            for (JdbcOperations item : replicas) {
+                list.add(new Replica(item));
+            }
+        }
+        this.replicas = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 根据配置项初始化<br>
+     * qdbc.replica.strategy, qdbc.replica.readYourWritesMillis
+     *
+     * @param config 配置项
+     */
+    public void init(DbConfig config) {
+        this.strategy = Strategy.parse(config.getString("qdbc.replica.strategy"), Strategy.ROUND_ROBIN);
+        this.readYourWritesMillis = config.getLong("qdbc.replica.readYourWritesMillis", 1000L);
+    }
+
+    /**
+     * 选择执行查询语句的数据库
+     *
+     * @param primary 主库
+     * @return 只读库, 如果应使用主库则返回主库
+     */
+    public JdbcOperations select(JdbcOperations primary) {
+        if (replicas.isEmpty() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return primary;
+        }
+        Long writeTime = lastWriteTime.get();
+        if (writeTime != null) {
+            long window = readYourWritesMillis;
+            if (window > 0 && System.currentTimeMillis() - writeTime <= window) {
+                return primary;
+            }
+            lastWriteTime.remove();
+        }
+        return selectReplica().operations;
+    }
+
+    private Replica selectReplica() {
+        int size = replicas.size();
+        // 取正数, 避免计数器溢出后变为负数
+        int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % size;
+        if (size == 1 || strategy == Strategy.ROUND_ROBIN) {
+            return replicas.get(start);
+        }
+        Replica selected = replicas.get(start);
+        for (int i = 1; i < size && selected.active.get() > 0; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.active.get() < selected.active.get()) {
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    /** 记录当前线程执行了增删改, 读己之写窗口期内的查询将使用主库 **/
+    public void markWritten() {
+        // 窗口期小于等于0表示不启用, 不需要记录
+        if (!replicas.isEmpty() && readYourWritesMillis > 0) {
+            lastWriteTime.set(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 将当前线程的读己之写状态传递给在其他线程中执行的任务<br>
+     * 用于分页的并行统计总数/分表的并行查询等, 窗口期内在线程池中执行的查询也使用主库
+     *
+     * @param task 任务
+     * @return 包装后的任务, 当前线程没有读己之写状态时返回原任务
+     */
+    public <T> Callable<T> propagate(final Callable<T> task) {
+        final Long writeTime = lastWriteTime.get();
+        if (replicas.isEmpty() || writeTime == null) {
+            return task;
+        }
+        return new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                Long previous = lastWriteTime.get();
+                lastWriteTime.set(writeTime);
+                try {
+                    return task.call();
+                } finally {
+                    if (previous == null) {
+                        lastWriteTime.remove();
+                    } else {
+                        lastWriteTime.set(previous);
+                    }
+                }
+            }
+        };
+    }
+
+    /** 只读库数量 **/
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /** 选择策略 **/
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /** 设置选择策略 **/
+    public void setStrategy(Strategy strategy) {
+        VerifyTools.requireNonNull(strategy, "strategy");
+        this.strategy = strategy;
+    }
+
+    /** 读己之写窗口期(毫秒), 当前线程执行增删改之后的这段时间内的查询使用主库, 小于等于0表示不启用 **/
+    public long getReadYourWritesMillis() {
+        return readYourWritesMillis;
+    }
+
+    /** 设置读己之写窗口期(毫秒), 当前线程执行增删改之后的这段时间内的查询使用主库, 小于等于0表示不启用 **/
+    public void setReadYourWritesMillis(long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    private static class Replica {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final JdbcOperations operations;
+
+        public Replica(JdbcOperations target) {
+            ClassLoader classLoader = ReadReplicaRouter.class.getClassLoader();
+            Class<?>[] interfaces = new Class<?>[] { JdbcOperations.class };
+            ActiveCountHandler handler = new ActiveCountHandler(target, active);
+            this.operations = (JdbcOperations) Proxy.newProxyInstance(classLoader, interfaces, handler);
+        }
+    }
+
+    /** 统计正在执行的语句数 **/
+    private static class ActiveCountHandler implements InvocationHandler {
+
+        private final JdbcOperations target;
+        private final AtomicInteger active;
+
+        public ActiveCountHandler(JdbcOperations target, AtomicInteger active) {
+            this.target = target;
+            this.active = active;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            active.incrementAndGet();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gitee.qdbp.jdbc.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.ClassMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.tools.utils.ConvertTools;
+import com.gitee.qdbp.tools.utils.StringTools;
+import com.gitee.qdbp.tools.utils.VerifyTools;
+
+/**
+ * 实体类元数据预加载工具<br>
+ * 系统启动时扫描指定包下的实体类, 多线程并行解析表名/字段列信息/主键并存入DbTools的缓存<br>
+ * 避免部署后的首次请求才去做反射扫描
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ * @since 3.2.2
+ */
+public class EntityMetadataPreloader {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityMetadataPreloader.class);
+
+    /**
+     * 扫描指定包下的实体类并预加载元数据
+     *
+     * @param packages 实体类所在的包, 多个以逗号分隔
+     * @param threads 并行线程数, 小于等于0时取CPU核数
+     * @return 预加载成功的实体类数量
+     */
+    public static int preload(String packages, int threads) {
+        if (VerifyTools.isBlank(packages)) {
+            return 0;
+        }
+        Date startTime = new Date();
+        List<Class<?>> classes = scanClasses(packages);
+        if (classes.isEmpty()) {
+            return 0;
+        }
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        poolSize = Math.min(poolSize, classes.size());
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        final AtomicInteger success = new AtomicInteger();
+        try {
+            for (final Class<?> clazz : classes) {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            DbTools.preloadEntityMetadata(clazz);
+                            success.incrementAndGet();
+                        } catch (Exception e) {
+                            log.debug("Failed to preload entity metadata: {}", clazz.getName(), e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while preloading entity metadata.");
+        }
+        if (log.isInfoEnabled()) {
+            String msg = "Success to preload entity metadata, elapsed time {}, total of {} classes and {} entities.";
+            log.info(msg, ConvertTools.toDuration(startTime, true), classes.size(), success.get());
+        }
+        return success.get();
+    }
+
+    /** 扫描指定包下的普通类(排除接口/抽象类/注解/枚举/内部类) **/
+    private static List<Class<?>> scanClasses(String packages) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resolver);
+        List<Class<?>> classes = new ArrayList<>();
+        for (String pkg : StringTools.split(packages, ',')) {
+            if (pkg.trim().length() == 0) {
+                continue;
+            }
+            String path = ClassUtils.convertClassNameToResourcePath(pkg.trim());
+            String pattern = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + path + "/**/*.class";
+            Resource[] resources;
+            try {
+                resources = resolver.getResources(pattern);
+            } catch (IOException e) {
+                log.warn("Failed to scan entity classes: {}", pattern, e);
+                continue;
+            }
+            for (Resource resource : resources) {
+                try {
+                    MetadataReader reader = readerFactory.getMetadataReader(resource);
+                    ClassMetadata metadata = reader.getClassMetadata();
+                    if (!metadata.isConcrete() || !metadata.isIndependent() || metadata.isInterface()
+                            || metadata.isAnnotation() || "java.lang.Enum".equals(metadata.getSuperClassName())) {
+                        continue;
+                    }
+                    classes.add(ClassUtils.forName(metadata.getClassName(), classLoader));
+                } catch (IOException | ClassNotFoundException | LinkageError e) {
+                    log.debug("Failed to load entity class: {}", resource, e);
+                }
+            }
+        }
+        return classes;
+    }
+}
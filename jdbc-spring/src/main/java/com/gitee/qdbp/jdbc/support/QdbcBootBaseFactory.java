@@ -7,6 +7,7 @@ import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
 import com.gitee.qdbp.jdbc.biz.QdbcBootImpl;
 import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
 import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
+import com.gitee.qdbp.tools.utils.VerifyTools;
 
 /**
  * 初始化QdbcBoot, 同时负责数据库插件初始化
@@ -32,6 +33,16 @@ public class QdbcBootBaseFactory {
      * 所以, 一般情况下都应该配置为true, 除非系统中未使用SQL模板
      */
     private boolean sqlTemplateScanOnStartup = true;
+    /** 启动时是否在后台线程中扫描SQL文件(不阻塞启动, 扫描完成前获取SQL模板的线程会等待) **/
+    private boolean sqlTemplateScanInBackground = false;
+    /** 扫描SQL文件的并行线程数(小于等于0时取CPU核数, 1表示单线程) **/
+    private int sqlTemplateScanThreads = 0;
+    /** 是否监视SQL文件的变化并自动热加载(只监视本地文件, 一般只在开发环境开启) **/
+    private boolean sqlTemplateWatchEnabled = false;
+    /** 系统启动时预加载元数据的实体类所在的包, 多个以逗号分隔(为空时不预加载) **/
+    private String entityPreloadPackages;
+    /** 预加载实体类元数据的并行线程数(小于等于0时取CPU核数) **/
+    private int entityPreloadThreads = 0;
 
     public void afterPropertiesSet() {
         if (singletonInstance != null) {
@@ -46,8 +57,20 @@ public class QdbcBootBaseFactory {
         pluginContainer.setConversionService(conversionService);
         DbPluginContainer.init(pluginContainer);
 
+        SqlFragmentContainer sqlContainer = SqlFragmentContainer.defaults();
+        sqlContainer.setScanThreads(sqlTemplateScanThreads);
         if (sqlTemplateScanOnStartup) {
-            SqlFragmentContainer.defaults().scanSqlFiles();
+            if (sqlTemplateScanInBackground) {
+                sqlContainer.scanSqlFilesInBackground();
+            } else {
+                sqlContainer.scanSqlFiles();
+            }
+        }
+        if (sqlTemplateWatchEnabled) {
+            sqlContainer.startWatching();
+        }
+        if (VerifyTools.isNotBlank(entityPreloadPackages)) {
+            EntityMetadataPreloader.preload(entityPreloadPackages, entityPreloadThreads);
         }
     }
 
@@ -126,4 +149,75 @@ public class QdbcBootBaseFactory {
         this.sqlTemplateScanOnStartup = sqlTemplateScanOnStartup;
     }
 
+    /** 启动时是否在后台线程中扫描SQL文件 **/
+    public boolean isSqlTemplateScanInBackground() {
+        return sqlTemplateScanInBackground;
+    }
+
+    /**
+     * 设置启动时是否在后台线程中扫描SQL文件<br>
+     * 为true时不阻塞系统启动, 扫描完成之前获取SQL模板的线程会等待扫描结束<br>
+     * 只在sqlTemplateScanOnStartup=true时有效
+     * 
+     * @param sqlTemplateScanInBackground 是否在后台线程中扫描
+     * @since 3.2.2
+     */
+    public void setSqlTemplateScanInBackground(boolean sqlTemplateScanInBackground) {
+        this.sqlTemplateScanInBackground = sqlTemplateScanInBackground;
+    }
+
+    /** 扫描SQL文件的并行线程数 **/
+    public int getSqlTemplateScanThreads() {
+        return sqlTemplateScanThreads;
+    }
+
+    /** 设置扫描SQL文件的并行线程数(小于等于0时取CPU核数, 1表示单线程) **/
+    public void setSqlTemplateScanThreads(int sqlTemplateScanThreads) {
+        this.sqlTemplateScanThreads = sqlTemplateScanThreads;
+    }
+
+    /** 是否监视SQL文件的变化并自动热加载 **/
+    public boolean isSqlTemplateWatchEnabled() {
+        return sqlTemplateWatchEnabled;
+    }
+
+    /**
+     * 设置是否监视SQL文件的变化并自动热加载<br>
+     * 只监视本地文件(file:), 只重新解析变化的文件, 不阻塞正在执行的SQL模板渲染<br>
+     * 一般只在开发环境开启
+     * 
+     * @param sqlTemplateWatchEnabled 是否监视SQL文件的变化
+     * @since 3.2.2
+     */
+    public void setSqlTemplateWatchEnabled(boolean sqlTemplateWatchEnabled) {
+        this.sqlTemplateWatchEnabled = sqlTemplateWatchEnabled;
+    }
+
+    /** 系统启动时预加载元数据的实体类所在的包 **/
+    public String getEntityPreloadPackages() {
+        return entityPreloadPackages;
+    }
+
+    /**
+     * 设置系统启动时预加载元数据的实体类所在的包, 多个以逗号分隔<br>
+     * 启动时将多线程并行扫描这些包下的实体类, 解析表名/字段列信息/主键并缓存, 避免首次请求时才扫描<br>
+     * 为空时不预加载
+     * 
+     * @param entityPreloadPackages 实体类所在的包
+     * @since 3.2.2
+     */
+    public void setEntityPreloadPackages(String entityPreloadPackages) {
+        this.entityPreloadPackages = entityPreloadPackages;
+    }
+
+    /** 预加载实体类元数据的并行线程数 **/
+    public int getEntityPreloadThreads() {
+        return entityPreloadThreads;
+    }
+
+    /** 设置预加载实体类元数据的并行线程数(小于等于0时取CPU核数) **/
+    public void setEntityPreloadThreads(int entityPreloadThreads) {
+        this.entityPreloadThreads = entityPreloadThreads;
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.gitee.qdbp.jdbc.test.model;
+
+import javax.persistence.Column;
+import javax.persistence.Table;
+import com.gitee.qdbp.able.jdbc.annotations.ColumnDefault;
+import com.gitee.qdbp.jdbc.test.base.CommEntity;
+
+/**
+ * 分表日志表<br>
+ * 按groupId哈希取模分为TEST_SHARDING_LOGGER_0和TEST_SHARDING_LOGGER_1两张表(分表策略在qdbc.xml中注册)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Table(name="TEST_SHARDING_LOGGER")
+public class ShardingLoggerEntity extends CommEntity {
+
+    /** 版本序列号 **/
+    private static final long serialVersionUID = 1L;
+
+    /** 分组ID(分表字段) **/
+    @Column
+    private Integer groupId;
+    @Column
+    private String name;
+    @Column
+    private String content;
+    @Column
+    @ColumnDefault("1")
+    private Integer sortIndex;
+
+    public Integer getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Integer groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Integer getSortIndex() {
+        return sortIndex;
+    }
+
+    public void setSortIndex(Integer sortIndex) {
+        this.sortIndex = sortIndex;
+    }
+
+}
@@ -27,6 +27,7 @@ public class BatchInsertUpdateTest extends AbstractTestNGSpringContextTests {
     private int total = 855;
     private int defaultIndex;
     private int updateTotal = 25;
+    private int upsertTotal = 10;
 
     @BeforeClass
     public void init() {
@@ -111,4 +112,43 @@ public class BatchInsertUpdateTest extends AbstractTestNGSpringContextTests {
         int count = dao.count(where);
         Assert.assertEquals(count, updateTotal, "UpdateRecord");
     }
+
+    @Test(priority = 301, dependsOnMethods = { "testBatchInsert", "testBatchUpdate" })
+    public void testBatchUpsert() {
+        // 已存在的记录
+        DbWhere where = new DbWhere();
+        where.on("name", "starts", "BatchTest-Update");
+        OrderPaging odpg = OrderPaging.of(new Paging(1, upsertTotal, false), "name");
+        PageList<SysLoggerEntity> existing = dao.list(where, odpg);
+        SysLoggerEntity first = existing.get(0);
+        // 构造批量新增或更新的实体数据: 一半已存在, 一半不存在
+        List<SysLoggerEntity> entities = new ArrayList<>();
+        for (int i = 0; i < upsertTotal * 2; i++) {
+            SysLoggerEntity entity = new SysLoggerEntity();
+            if (i < upsertTotal) {
+                entity.setId(existing.get(i).getId());
+            }
+            String index = StringTools.pad(i + 1, 4);
+            entity.setName("BatchTest-Upsert-" + index);
+            entity.setContent("BatchTest-Content-" + index);
+            entity.setSortIndex(i + 1);
+            entities.add(entity);
+        }
+        // 执行批量新增或更新
+        List<String> ids = dao.upserts(entities);
+        Assert.assertEquals(ids.size(), upsertTotal * 2, "UpsertIds");
+        Assert.assertEquals(ids.get(0), first.getId(), "UpsertExistingId");
+
+        // 已存在的记录被更新, 不存在的记录被新增
+        DbWhere upserted = new DbWhere();
+        upserted.on("name", "starts", "BatchTest-Upsert");
+        Assert.assertEquals(dao.count(upserted), upsertTotal * 2, "UpsertRecord");
+        DbWhere all = new DbWhere();
+        all.on("name", "starts", "BatchTest");
+        Assert.assertEquals(dao.count(all), total + upsertTotal, "TotalRecordAfterUpsert");
+        // 创建时间只在新增时写入, 更新时保持不变
+        SysLoggerEntity reloaded = dao.findById(first.getId());
+        Assert.assertEquals(reloaded.getName(), "BatchTest-Upsert-0001", "UpsertName");
+        Assert.assertEquals(reloaded.getCreateTime(), first.getCreateTime(), "UpsertCreateTime");
+    }
 }
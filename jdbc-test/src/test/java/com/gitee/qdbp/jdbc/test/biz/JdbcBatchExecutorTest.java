@@ -0,0 +1,125 @@
+package com.gitee.qdbp.jdbc.test.biz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.CrudDao;
+import com.gitee.qdbp.jdbc.api.QdbcBoot;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchOperateByJdbcBatchExecutor;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.test.model.SysLoggerEntity;
+import com.gitee.qdbp.tools.utils.StringTools;
+
+/**
+ * JDBC批处理(addBatch/executeBatch)批量新增/更新测试
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+@ContextConfiguration(locations = { "classpath:settings/spring/spring.xml" })
+public class JdbcBatchExecutorTest extends AbstractTestNGSpringContextTests {
+
+    private static final String SUPPORTS_KEY = "qdbc.supports.BatchOperateByJdbcBatchExecutor";
+    private static final String SUPPORTS_VALUE = "oracle,postgresql,h2,sqlite";
+    private static final String FLUSH_SIZE_KEY = "qdbc.batch.jdbc.flushSize";
+    private static final int TOTAL = 7;
+
+    @Autowired
+    private QdbcBoot qdbcBoot;
+    private final BatchOperateByJdbcBatchExecutor executor = new BatchOperateByJdbcBatchExecutor();
+
+    /** 默认不启用; MySQL/MariaDB开启rewriteBatchedStatements之后才通过配置加入 **/
+    @Test(priority = 1)
+    public void testSupports() {
+        Assert.assertTrue(executor.supports(new DbVersion(MainDbType.Oracle)), "Oracle");
+        Assert.assertTrue(executor.supports(new DbVersion(MainDbType.PostgreSQL)), "PostgreSQL");
+        Assert.assertFalse(executor.supports(new DbVersion(MainDbType.MySQL)), "MySQL");
+        Assert.assertFalse(executor.supports(new DbVersion(MainDbType.MariaDB)), "MariaDB");
+
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        plugins.addDbConfig(SUPPORTS_KEY, SUPPORTS_VALUE + ",mysql,mariadb");
+        try {
+            Assert.assertTrue(executor.supports(new DbVersion(MainDbType.MySQL)), "MySQL");
+            Assert.assertTrue(executor.supports(new DbVersion(MainDbType.MariaDB)), "MariaDB");
+        } finally {
+            plugins.addDbConfig(SUPPORTS_KEY, SUPPORTS_VALUE);
+        }
+
+        // 未配置时不支持任何数据库, 不改变已有的批量新增/更新方式
+        plugins.addDbConfig(SUPPORTS_KEY, "");
+        try {
+            Assert.assertFalse(executor.supports(new DbVersion(MainDbType.Oracle)), "Default");
+            Assert.assertFalse(executor.supports(new DbVersion(MainDbType.PostgreSQL)), "Default");
+        } finally {
+            plugins.addDbConfig(SUPPORTS_KEY, SUPPORTS_VALUE);
+        }
+    }
+
+    /** 每批3条, 7条记录分3批提交 **/
+    @Test(priority = 2)
+    public void testInsertsAndUpdates() {
+        CrudDao<SysLoggerEntity> dao = qdbcBoot.buildCrudDao(SysLoggerEntity.class);
+        DbWhere prefixWhere = new DbWhere();
+        prefixWhere.on("name", "starts", "JdbcBatch");
+        dao.physicalDelete(prefixWhere);
+
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        CrudSqlBuilder sqlBuilder = qdbcBoot.buildSqlBuilder(SysLoggerEntity.class);
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        plugins.addDbConfig(FLUSH_SIZE_KEY, "3");
+        try {
+            List<PkEntity> inserts = new ArrayList<>();
+            for (int i = 1; i <= TOTAL; i++) {
+                String index = StringTools.pad(i, 2);
+                Map<String, Object> entity = new HashMap<>();
+                entity.put("id", "JDBC-BATCH-" + index);
+                entity.put("name", "JdbcBatch-Insert-" + index);
+                entity.put("content", "JdbcBatch-Content-" + index);
+                entity.put("sortIndex", i);
+                inserts.add(new PkEntity("JDBC-BATCH-" + index, entity));
+            }
+            List<String> ids = executor.inserts(inserts, jdbc, sqlBuilder);
+            Assert.assertEquals(ids.size(), TOTAL, "InsertIds");
+            Assert.assertEquals(ids.get(0), "JDBC-BATCH-01", "InsertIds");
+            DbWhere inserted = new DbWhere();
+            inserted.on("name", "starts", "JdbcBatch-Insert");
+            Assert.assertEquals(dao.count(inserted), TOTAL, "InsertRecord");
+
+            // 字段不同的记录分到不同的预编译SQL中
+            List<PkEntity> updates = new ArrayList<>();
+            for (int i = 1; i <= TOTAL; i++) {
+                String index = StringTools.pad(i, 2);
+                Map<String, Object> entity = new HashMap<>();
+                entity.put("name", "JdbcBatch-Update-" + index);
+                if (i % 2 == 0) {
+                    entity.put("sortIndex", i * 10);
+                }
+                updates.add(new PkEntity("JDBC-BATCH-" + index, entity));
+            }
+            int rows = executor.updates(updates, jdbc, sqlBuilder);
+            Assert.assertEquals(rows, TOTAL, "UpdateRows");
+        } finally {
+            plugins.addDbConfig(FLUSH_SIZE_KEY, "500");
+        }
+        DbWhere updated = new DbWhere();
+        updated.on("name", "starts", "JdbcBatch-Update");
+        Assert.assertEquals(dao.count(updated), TOTAL, "UpdateRecord");
+        SysLoggerEntity even = dao.findById("JDBC-BATCH-04");
+        Assert.assertEquals(even.getSortIndex(), Integer.valueOf(40), "UpdateSortIndex");
+        SysLoggerEntity odd = dao.findById("JDBC-BATCH-05");
+        Assert.assertEquals(odd.getSortIndex(), Integer.valueOf(5), "UnchangedSortIndex");
+    }
+}
@@ -0,0 +1,235 @@
+package com.gitee.qdbp.jdbc.test.biz;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.condition.TableJoin;
+import com.gitee.qdbp.able.jdbc.model.DbFieldName;
+import com.gitee.qdbp.able.jdbc.ordering.Orderings;
+import com.gitee.qdbp.jdbc.api.CrudDao;
+import com.gitee.qdbp.jdbc.api.QdbcBoot;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.plugins.BeanToMapConverter;
+import com.gitee.qdbp.jdbc.plugins.MapToBeanConverter;
+import com.gitee.qdbp.jdbc.plugins.impl.SpringMapToBeanConverter;
+import com.gitee.qdbp.jdbc.result.RowToBeanMappingPlan;
+import com.gitee.qdbp.jdbc.result.TableRowToBeanMapper;
+import com.gitee.qdbp.jdbc.result.TablesRowToProperyMapper;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.test.enums.DataState;
+import com.gitee.qdbp.jdbc.test.enums.Gender;
+import com.gitee.qdbp.jdbc.test.enums.UserSource;
+import com.gitee.qdbp.jdbc.test.enums.UserState;
+import com.gitee.qdbp.jdbc.test.enums.UserType;
+import com.gitee.qdbp.jdbc.test.model.SysRoleEntity;
+import com.gitee.qdbp.jdbc.test.model.SysUserEntity;
+import com.gitee.qdbp.jdbc.test.model.SysUserRoleEntity;
+import com.gitee.qdbp.jdbc.test.model.UserRoleResult;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 映射计划与Map转换方式的结果对比测试
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+@ContextConfiguration(locations = { "classpath:settings/spring/spring.xml" })
+public class RowMappingPlanTest extends AbstractTestNGSpringContextTests {
+
+    private static final String TENANT_CODE = "mapping-plan";
+    private static final List<String> USER_IDS = Arrays.asList("MP-U-1", "MP-U-2");
+    private static final List<String> REF_IDS = Arrays.asList("MP-R-1", "MP-R-2");
+
+    @Autowired
+    private QdbcBoot qdbcBoot;
+
+    @Test(priority = 1)
+    public void prepareData() {
+        CrudDao<SysUserEntity> userDao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        CrudDao<SysRoleEntity> roleDao = qdbcBoot.buildCrudDao(SysRoleEntity.class);
+        CrudDao<SysUserRoleEntity> refDao = qdbcBoot.buildCrudDao(SysUserRoleEntity.class);
+        DbWhere tenantWhere = new DbWhere().on("tenantCode", "=", TENANT_CODE);
+        userDao.physicalDelete(tenantWhere);
+        roleDao.physicalDelete(tenantWhere);
+        refDao.physicalDelete(new DbWhere().on("id", "in", REF_IDS));
+
+        SysRoleEntity role = new SysRoleEntity();
+        role.setId("MP-ROLE");
+        role.setTenantCode(TENANT_CODE);
+        role.setUserType(UserType.USER);
+        role.setRoleName("MappingPlanRole");
+        role.setDefaults(false);
+        // roleDesc/sortIndex/creatorId为空
+        roleDao.insert(role);
+
+        for (int i = 0; i < USER_IDS.size(); i++) {
+            SysUserEntity user = new SysUserEntity();
+            user.setId(USER_IDS.get(i));
+            user.setTenantCode(TENANT_CODE);
+            user.setDeptCode("0");
+            user.setUserType(UserType.USER);
+            user.setUserCode("mapping-plan-" + i);
+            user.setGender(i == 0 ? Gender.MALE : Gender.FEMALE);
+            user.setUserState(UserState.NORMAL);
+            user.setUserSource(UserSource.INPUT);
+            user.setSuperman(false);
+            if (i == 0) { // 第2个用户的userName/nickName/photo为空
+                user.setUserName("MappingPlanUser");
+                user.setNickName("Plan");
+                user.setPhoto("photo.png");
+            }
+            userDao.insert(user);
+
+            SysUserRoleEntity ref = new SysUserRoleEntity();
+            ref.setId(REF_IDS.get(i));
+            ref.setUserId(user.getId());
+            ref.setRoleId(role.getId());
+            ref.setDataState(DataState.NORMAL);
+            refDao.insert(ref);
+        }
+    }
+
+    /** 单表查询: 列别名与字段名不同, 以及空值列 **/
+    @Test(priority = 2)
+    public void testTableMapping() {
+        SqlBuffer sql = new SqlBuffer();
+        sql.append("SELECT ID, TENANT_CODE, USER_CODE, USER_NAME AS NICK_NAME, PHOTO, GENDER, CREATE_TIME");
+        sql.append(", DATA_STATE FROM TEST_USER_CORE_INFO WHERE TENANT_CODE=").addVariable(TENANT_CODE);
+        sql.append(" ORDER BY ID");
+
+        SpringMapToBeanConverter converter = (SpringMapToBeanConverter) DbTools.getMapToBeanConverter();
+        TableRowToBeanMapper<SysUserEntity> planMapper = new TableRowToBeanMapper<>(SysUserEntity.class, converter);
+        TableRowToBeanMapper<SysUserEntity> mapMapper;
+        mapMapper = new TableRowToBeanMapper<>(SysUserEntity.class, new MapOnlyConverter(converter));
+
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        List<SysUserEntity> planned = jdbc.query(sql, planMapper);
+        List<SysUserEntity> mapped = jdbc.query(sql, mapMapper);
+        Assert.assertTrue(RowToBeanMappingPlan.getPlanCache().size() > 0, "PlanCacheSize");
+
+        assertSameBeans(planned, mapped);
+        Assert.assertEquals(planned.size(), 2, "size");
+        Assert.assertEquals(planned.get(0).getNickName(), "MappingPlanUser", "alias");
+        Assert.assertNull(planned.get(1).getNickName(), "null alias");
+        Assert.assertNull(planned.get(1).getPhoto(), "null column");
+        Assert.assertNull(planned.get(0).getUserName(), "unselected column");
+
+        // 同一个Mapper再次查询, 结果不变
+        assertSameBeans(jdbc.query(sql, planMapper), mapped);
+    }
+
+    /** 多表关联查询: 重名字段的列别名(U_ID, R_ID...)填充到子对象, 以及空值列 **/
+    @Test(priority = 3)
+    public void testTablesMapping() {
+        // @formatter:off
+        TableJoin tables = new TableJoin(SysUserEntity.class, "u", "user")
+            .innerJoin(SysUserRoleEntity.class, "ur")
+            .on("u.id", "=", new DbFieldName("ur.userId"))
+            .innerJoin(SysRoleEntity.class, "r", "role")
+            .on("ur.roleId", "=", new DbFieldName("r.id"))
+            .end();
+        // @formatter:on
+        DbWhere where = new DbWhere().on("u.tenantCode", "=", TENANT_CODE);
+        SqlBuffer sql = qdbcBoot.buildSqlBuilder(tables).buildListSql(where, Orderings.of("u.id ASC"));
+
+        SpringMapToBeanConverter converter = (SpringMapToBeanConverter) DbTools.getMapToBeanConverter();
+        TablesRowToProperyMapper<UserRoleResult> planMapper;
+        planMapper = new TablesRowToProperyMapper<>(tables, UserRoleResult.class, converter);
+        TablesRowToProperyMapper<UserRoleResult> mapMapper;
+        mapMapper = new TablesRowToProperyMapper<>(tables, UserRoleResult.class, new MapOnlyConverter(converter));
+
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        List<UserRoleResult> planned = jdbc.query(sql, planMapper);
+        List<UserRoleResult> mapped = jdbc.query(sql, mapMapper);
+
+        Assert.assertEquals(planned.size(), 2, "size");
+        Assert.assertEquals(mapped.size(), planned.size(), "size");
+        for (int i = 0; i < planned.size(); i++) {
+            UserRoleResult p = planned.get(i);
+            UserRoleResult m = mapped.get(i);
+            assertSameBean(p.getUser(), m.getUser(), "user[" + i + "]");
+            assertSameBean(p.getRole(), m.getRole(), "role[" + i + "]");
+        }
+        // U_ID和R_ID分别填充到user和role
+        Assert.assertEquals(planned.get(0).getUser().getId(), USER_IDS.get(0), "user.id");
+        Assert.assertEquals(planned.get(0).getRole().getId(), "MP-ROLE", "role.id");
+        Assert.assertNull(planned.get(1).getUser().getPhoto(), "user.photo");
+        Assert.assertNull(planned.get(1).getRole().getRoleDesc(), "role.roleDesc");
+    }
+
+    /** SpringMapToBeanConverter的子类可能重写了convert(), 不能使用映射计划 **/
+    @Test(priority = 4)
+    public void testConverterSubclass() {
+        SqlBuffer sql = new SqlBuffer();
+        sql.append("SELECT ID, TENANT_CODE, USER_CODE, USER_NAME FROM TEST_USER_CORE_INFO WHERE TENANT_CODE=");
+        sql.addVariable(TENANT_CODE).append(" ORDER BY ID");
+
+        SpringMapToBeanConverter converter = (SpringMapToBeanConverter) DbTools.getMapToBeanConverter();
+        MarkingConverter marking = new MarkingConverter();
+        marking.setConversionService(converter.getConversionService());
+        Assert.assertTrue(RowToBeanMappingPlan.supports(converter), "SpringMapToBeanConverter");
+        Assert.assertFalse(RowToBeanMappingPlan.supports(marking), "Subclass");
+
+        TableRowToBeanMapper<SysUserEntity> mapper = new TableRowToBeanMapper<>(SysUserEntity.class, marking);
+        List<SysUserEntity> list = qdbcBoot.getSqlBufferJdbcOperations().query(sql, mapper);
+        Assert.assertEquals(list.size(), 2, "size");
+        for (SysUserEntity item : list) {
+            Assert.assertEquals(item.getNickName(), "marked", "overridden convert");
+        }
+        Assert.assertEquals(list.get(0).getUserName(), "MappingPlanUser", "userName");
+    }
+
+    private static void assertSameBeans(List<?> actual, List<?> expected) {
+        Assert.assertEquals(actual.size(), expected.size(), "size");
+        for (int i = 0; i < actual.size(); i++) {
+            assertSameBean(actual.get(i), expected.get(i), "[" + i + "]");
+        }
+    }
+
+    private static void assertSameBean(Object actual, Object expected, String message) {
+        BeanToMapConverter converter = DbTools.getBeanToMapConverter();
+        Map<String, Object> actualMap = converter.convert(actual, true, false);
+        Map<String, Object> expectedMap = converter.convert(expected, true, false);
+        Assert.assertEquals(actualMap, expectedMap, message);
+    }
+
+    /** 重写了convert()的子类, 转换后给nickName设置标记值 **/
+    private static class MarkingConverter extends SpringMapToBeanConverter {
+
+        @Override
+        public <T> T convert(Map<String, ?> map, Class<T> clazz) {
+            T bean = super.convert(map, clazz);
+            if (bean instanceof SysUserEntity) {
+                ((SysUserEntity) bean).setNickName("marked");
+            }
+            return bean;
+        }
+    }
+
+    /** 不是SpringMapToBeanConverter的子类, 因此Mapper只能使用Map转换方式 **/
+    private static class MapOnlyConverter implements MapToBeanConverter {
+
+        private final MapToBeanConverter delegate;
+
+        public MapOnlyConverter(MapToBeanConverter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> T convert(Map<String, ?> map, Class<T> clazz) {
+            return delegate.convert(map, clazz);
+        }
+
+        @Override
+        public void fill(Map<String, ?> map, Object bean) {
+            delegate.fill(map, bean);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.gitee.qdbp.jdbc.test.biz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.able.jdbc.ordering.OrderPaging;
+import com.gitee.qdbp.able.jdbc.ordering.Orderings;
+import com.gitee.qdbp.able.jdbc.paging.PageList;
+import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.api.CrudDao;
+import com.gitee.qdbp.jdbc.api.QdbcBoot;
+import com.gitee.qdbp.jdbc.biz.ShardingCrudDaoImpl;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.test.model.ShardingLoggerEntity;
+import com.gitee.qdbp.tools.utils.StringTools;
+
+/**
+ * 分表测试类<br>
+ * ShardingLoggerEntity按groupId哈希取模分为两张表: 偶数在TEST_SHARDING_LOGGER_0, 奇数在TEST_SHARDING_LOGGER_1
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+@ContextConfiguration(locations = { "classpath:settings/spring/spring.xml" })
+public class ShardingCrudDaoTest extends AbstractTestNGSpringContextTests {
+
+    private static final String ID_PREFIX = "SHARD-";
+    private static final String TABLE_0 = "TEST_SHARDING_LOGGER_0";
+    private static final String TABLE_1 = "TEST_SHARDING_LOGGER_1";
+
+    @Autowired
+    private QdbcBoot qdbcBoot;
+
+    @Test(priority = 1)
+    public void testBatchInserts() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        Assert.assertTrue(dao instanceof ShardingCrudDaoImpl, dao.getClass().getName());
+        // 没有分表字段的条件, 在所有实际表上删除
+        dao.physicalDelete(newPrefixWhere());
+
+        // groupId=1~10, 奇偶交替, 批量新增按实际表分组执行
+        List<ShardingLoggerEntity> entities = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            entities.add(newEntity(i));
+        }
+        List<String> ids = dao.inserts(entities);
+        // 返回的主键保持原来的顺序
+        Assert.assertEquals(ids, toIds(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), "InsertIds");
+        Assert.assertEquals(listTableIds(TABLE_0), toIds(2, 4, 6, 8, 10), "Table0");
+        Assert.assertEquals(listTableIds(TABLE_1), toIds(1, 3, 5, 7, 9), "Table1");
+    }
+
+    @Test(priority = 2)
+    public void testRoutedQuery() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        DbWhere where = newPrefixWhere();
+        where.on("groupId", "in", Arrays.asList(2, 4));
+        List<ShardingLoggerEntity> list = dao.list(where, Orderings.of("sortIndex asc"));
+        Assert.assertEquals(getIds(list), toIds(2, 4), "RoutedList");
+
+        DbWhere single = newPrefixWhere();
+        single.on("groupId", "=", 3);
+        Assert.assertEquals(dao.count(single), 1, "RoutedCount");
+
+        // 没有分表字段的条件, 在所有实际表上查找
+        ShardingLoggerEntity found = dao.findById(ID_PREFIX + "07");
+        Assert.assertEquals(found.getGroupId(), Integer.valueOf(7), "FanOutFind");
+        Assert.assertEquals(dao.count(newPrefixWhere()), 10, "FanOutCount");
+    }
+
+    @Test(priority = 3)
+    public void testMergeOrderedResults() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        // 跨分表查询, 合并后按排序字段重新排序
+        List<ShardingLoggerEntity> concurrent = dao.list(newPrefixWhere(), Orderings.of("sortIndex desc"));
+        Assert.assertEquals(getIds(concurrent), toIds(10, 9, 8, 7, 6, 5, 4, 3, 2, 1), "MergedDesc");
+
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        plugins.addDbConfig("qdbc.sharding.concurrent", "false");
+        try {
+            // 依次查询各实际表, 结果应与并行查询一致
+            List<ShardingLoggerEntity> sequential = dao.list(newPrefixWhere(), Orderings.of("sortIndex desc"));
+            Assert.assertEquals(getIds(sequential), getIds(concurrent), "SequentialMerged");
+        } finally {
+            plugins.addDbConfig("qdbc.sharding.concurrent", "true");
+        }
+    }
+
+    @Test(priority = 4)
+    public void testCrossShardPaging() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        Orderings orderings = Orderings.of("sortIndex asc");
+        List<String> all = getIds(dao.list(newPrefixWhere(), orderings));
+        Assert.assertEquals(all.size(), 10, "AllRecords");
+        // 每个实际表查询前N条, 合并排序后截取当前页, 逐页对比(最后一页不满)
+        for (int page = 1; page <= 4; page++) {
+            OrderPaging odpg = OrderPaging.of(new Paging(page, 3, true), orderings);
+            PageList<ShardingLoggerEntity> list = dao.list(newPrefixWhere(), odpg);
+            List<String> expected = all.subList((page - 1) * 3, Math.min(page * 3, all.size()));
+            Assert.assertEquals(getIds(list), expected, "Page" + page);
+            Assert.assertEquals(list.getTotal(), Integer.valueOf(10), "PageTotal" + page);
+            Assert.assertEquals(odpg.getTotal(), Integer.valueOf(10), "PagingTotal" + page);
+        }
+        // 超出范围的页码
+        OrderPaging outOfRange = OrderPaging.of(new Paging(5, 3, false), orderings);
+        PageList<ShardingLoggerEntity> empty = dao.list(newPrefixWhere(), outOfRange);
+        Assert.assertTrue(empty.isEmpty(), "PageOutOfRange");
+    }
+
+    @Test(priority = 5)
+    public void testBatchUpserts() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        // 已存在的记录(SHARD-01/SHARD-02)被更新, 不存在的记录(SHARD-11/SHARD-12)被新增
+        List<ShardingLoggerEntity> entities = new ArrayList<>();
+        for (int i : new int[] { 11, 1, 12, 2 }) {
+            ShardingLoggerEntity entity = newEntity(i);
+            entity.setName("ShardingUpsert-" + i);
+            entities.add(entity);
+        }
+        List<String> ids = dao.upserts(entities);
+        Assert.assertEquals(ids, toIds(11, 1, 12, 2), "UpsertIds");
+        Assert.assertEquals(listTableIds(TABLE_0), toIds(2, 4, 6, 8, 10, 12), "Table0");
+        Assert.assertEquals(listTableIds(TABLE_1), toIds(1, 3, 5, 7, 9, 11), "Table1");
+        Assert.assertEquals(dao.findById(ID_PREFIX + "01").getName(), "ShardingUpsert-1", "Upserted");
+        Assert.assertEquals(dao.findById(ID_PREFIX + "12").getName(), "ShardingUpsert-12", "Upserted");
+    }
+
+    @Test(priority = 6)
+    public void testUpdateAndDeleteFanOut() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        // 没有分表字段的条件, 在所有实际表上依次修改
+        DbUpdate ud = new DbUpdate();
+        ud.set("content", "ShardingUpdated");
+        int updated = dao.update(ud, newPrefixWhere());
+        Assert.assertEquals(updated, 12, "FanOutUpdate");
+        DbWhere contentWhere = newPrefixWhere();
+        contentWhere.on("content", "=", "ShardingUpdated");
+        Assert.assertEquals(dao.count(contentWhere), 12, "FanOutUpdated");
+
+        // 没有分表字段的条件, 在所有实际表上依次删除
+        DbWhere deleteWhere = newPrefixWhere();
+        deleteWhere.on("sortIndex", ">", 100);
+        int deleted = dao.physicalDelete(deleteWhere);
+        Assert.assertEquals(deleted, 2, "FanOutDelete");
+        Assert.assertEquals(listTableIds(TABLE_0), toIds(2, 4, 6, 8, 10), "Table0");
+        Assert.assertEquals(listTableIds(TABLE_1), toIds(1, 3, 5, 7, 9), "Table1");
+    }
+
+    /** WHERE条件中没有分表字段时, 按更新内容中分表字段的值确定实际表, 其他实际表中的记录不会被修改 **/
+    @Test(priority = 7)
+    public void testUpdateRoutedBySetValue() {
+        CrudDao<ShardingLoggerEntity> dao = qdbcBoot.buildCrudDao(ShardingLoggerEntity.class);
+        DbUpdate ud = new DbUpdate();
+        ud.set("groupId", 2);
+        ud.set("name", "RoutedBySetValue");
+        DbWhere where = new DbWhere();
+        where.on("id", "in", toIds(2, 3));
+        int updated = dao.update(ud, where);
+        // 只在TEST_SHARDING_LOGGER_0中执行, SHARD-03在TEST_SHARDING_LOGGER_1中, 不会被修改
+        Assert.assertEquals(updated, 1, "RoutedUpdate");
+        Assert.assertEquals(dao.findById(ID_PREFIX + "02").getName(), "RoutedBySetValue", "Updated");
+        Assert.assertNotEquals(dao.findById(ID_PREFIX + "03").getName(), "RoutedBySetValue", "NotUpdated");
+        Assert.assertEquals(dao.findById(ID_PREFIX + "03").getGroupId(), Integer.valueOf(3), "GroupIdUnchanged");
+    }
+
+    private static ShardingLoggerEntity newEntity(int index) {
+        ShardingLoggerEntity entity = new ShardingLoggerEntity();
+        entity.setId(ID_PREFIX + StringTools.pad(index, 2));
+        entity.setGroupId(index);
+        entity.setName("ShardingTest-" + index);
+        entity.setContent("ShardingTest-Content-" + index);
+        entity.setSortIndex(index * 10);
+        return entity;
+    }
+
+    private static DbWhere newPrefixWhere() {
+        DbWhere where = new DbWhere();
+        where.on("id", "starts", ID_PREFIX);
+        return where;
+    }
+
+    private static List<String> toIds(int... indexes) {
+        List<String> ids = new ArrayList<>();
+        for (int index : indexes) {
+            ids.add(ID_PREFIX + StringTools.pad(index, 2));
+        }
+        return ids;
+    }
+
+    private static List<String> getIds(List<ShardingLoggerEntity> list) {
+        List<String> ids = new ArrayList<>();
+        for (ShardingLoggerEntity item : list) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    /** 直接查询实际表中的主键, 检查数据所在的实际表 **/
+    private List<String> listTableIds(String tableName) {
+        SqlBuffer sql = new SqlBuffer();
+        sql.append("SELECT ID FROM ").append(tableName).append(" WHERE ID LIKE ").addVariable(ID_PREFIX + "%");
+        sql.append(" ORDER BY ID");
+        return qdbcBoot.getSqlBufferJdbcOperations().queryForList(sql, String.class);
+    }
+}
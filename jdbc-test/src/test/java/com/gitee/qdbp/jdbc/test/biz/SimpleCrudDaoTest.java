@@ -10,6 +10,7 @@ import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.condition.DbUpdate;
 import com.gitee.qdbp.able.jdbc.condition.DbWhere;
 import com.gitee.qdbp.able.jdbc.fields.ExcludeFields;
 import com.gitee.qdbp.able.jdbc.fields.Fields;
@@ -21,13 +22,20 @@ import com.gitee.qdbp.able.jdbc.paging.Paging;
 import com.gitee.qdbp.jdbc.api.CrudDao;
 import com.gitee.qdbp.jdbc.api.QdbcBoot;
 import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.KeysetPageList;
+import com.gitee.qdbp.jdbc.model.KeysetPaging;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.result.BatchDataHandler;
+import com.gitee.qdbp.jdbc.result.RowDataHandler;
 import com.gitee.qdbp.jdbc.test.enums.DataState;
 import com.gitee.qdbp.jdbc.test.enums.Gender;
 import com.gitee.qdbp.jdbc.test.enums.UserSource;
 import com.gitee.qdbp.jdbc.test.enums.UserState;
 import com.gitee.qdbp.jdbc.test.enums.UserType;
 import com.gitee.qdbp.jdbc.test.model.SysUserEntity;
+import com.gitee.qdbp.jdbc.utils.EntityCache;
 import com.gitee.qdbp.jdbc.utils.ParseTools;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
 import com.gitee.qdbp.tools.utils.ConvertTools;
 import com.gitee.qdbp.tools.utils.DateTools;
 import com.gitee.qdbp.tools.utils.JsonTools;
@@ -255,6 +263,62 @@ public class SimpleCrudDaoTest extends AbstractTestNGSpringContextTests {
         }
     }
 
+    @Test(priority = 2024)
+    public void testForEach() {
+        DbWhere where = new DbWhere();
+        where.on("tenantCode", "=", "test");
+        where.on("userType", "=", UserType.USER);
+        where.on("userCode", "in", "kelly", "evan", "coral");
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        final List<SysUserEntity> entities = new ArrayList<>();
+        int rows = dao.forEach(where, Orderings.of("createTime"), new RowDataHandler<SysUserEntity>() {
+
+            @Override
+            public boolean handle(SysUserEntity row, int rowNum) {
+                entities.add(row);
+                return true;
+            }
+        });
+        Assert.assertEquals(rows, 3, "ForEachQueryResult");
+        Assert.assertEquals(entities.size(), 3, "ForEachQueryResult");
+        for (SysUserEntity entity : entities) {
+            Assert.assertNotNull(entity.getId(), "UserEntity.id");
+            Assert.assertNotNull(entity.getUserCode(), "UserEntity.userCode");
+        }
+
+        // handler返回false时停止读取
+        rows = dao.forEach(where, Orderings.of("createTime"), new RowDataHandler<SysUserEntity>() {
+
+            @Override
+            public boolean handle(SysUserEntity row, int rowNum) {
+                return false;
+            }
+        });
+        Assert.assertEquals(rows, 1, "ForEachStopResult");
+    }
+
+    @Test(priority = 2025)
+    public void testForEachBatch() {
+        DbWhere where = new DbWhere();
+        where.on("tenantCode", "=", "test");
+        where.on("userType", "=", UserType.USER);
+        where.on("userCode", "in", "kelly", "evan", "coral");
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        final List<Integer> batchSizes = new ArrayList<>();
+        int rows = dao.forEachBatch(where, Orderings.of("createTime"), 2, new BatchDataHandler<SysUserEntity>() {
+
+            @Override
+            public boolean handle(List<SysUserEntity> list, int batchIndex) {
+                batchSizes.add(list.size());
+                return true;
+            }
+        });
+        Assert.assertEquals(rows, 3, "ForEachBatchQueryResult");
+        Assert.assertEquals(batchSizes.size(), 2, "ForEachBatchCount");
+        Assert.assertEquals(batchSizes.get(0).intValue(), 2, "ForEachBatchSize");
+        Assert.assertEquals(batchSizes.get(1).intValue(), 1, "ForEachBatchSize");
+    }
+
     @Test(priority = 3010)
     public void testUserPaging() {
         CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
@@ -272,6 +336,157 @@ public class SimpleCrudDaoTest extends AbstractTestNGSpringContextTests {
         }
     }
 
+    @Test(priority = 3011)
+    public void testUserKeysetPaging() {
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        DbWhere where = DbWhere.NONE;
+        String orderings = "createTime desc, id desc";
+        int pageSize = 10;
+        // 键集分页的结果应与OFFSET分页一致
+        KeysetPaging keysetPaging = KeysetPaging.of(pageSize, orderings);
+        for (int i = 1; i <= 5 && keysetPaging != null; i++) {
+            KeysetPageList<SysUserEntity> keysetUsers = dao.list(where, keysetPaging);
+            Paging paging = new Paging(i, pageSize, false);
+            PageList<SysUserEntity> offsetUsers = dao.list(where, OrderPaging.of(paging, orderings));
+            log.debug("UserNames: {}", ConvertTools.joinToString(getUserNames(keysetUsers)));
+            Assert.assertEquals(getUserIds(keysetUsers), getUserIds(offsetUsers), "KeysetPagingResult");
+            keysetPaging = keysetUsers.nextPaging();
+        }
+    }
+
+    @Test(priority = 3012)
+    public void testUserConcurrentPaging() {
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        DbWhere where = DbWhere.NONE;
+        String orderings = "createTime desc, id desc";
+        PageList<SysUserEntity> sequential = dao.list(where, OrderPaging.of(new Paging(2, 10), orderings));
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        plugins.addDbConfig("qdbc.paging.concurrent", "true");
+        try {
+            // 统计总数与查询列表并行执行, 结果应与顺序执行一致
+            PageList<SysUserEntity> concurrent = dao.list(where, OrderPaging.of(new Paging(2, 10), orderings));
+            Assert.assertEquals(concurrent.getTotal(), sequential.getTotal(), "ConcurrentPagingTotal");
+            Assert.assertEquals(getUserIds(concurrent), getUserIds(sequential), "ConcurrentPagingResult");
+        } finally {
+            plugins.addDbConfig("qdbc.paging.concurrent", "false");
+        }
+    }
+
+    @Test(priority = 3013)
+    public void testUserWindowCountPaging() {
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        DbWhere where = DbWhere.NONE;
+        String orderings = "createTime desc, id desc";
+        PageList<SysUserEntity> expected = dao.list(where, OrderPaging.of(new Paging(2, 10), orderings));
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        plugins.addDbConfig("qdbc.paging.windowCount", "true");
+        try {
+            // 通过COUNT(*) OVER()同时返回总记录数, 结果应与单独统计一致(数据库不支持时自动使用单独统计)
+            PageList<SysUserEntity> actual = dao.list(where, OrderPaging.of(new Paging(2, 10), orderings));
+            Assert.assertEquals(actual.getTotal(), expected.getTotal(), "WindowCountPagingTotal");
+            Assert.assertEquals(getUserIds(actual), getUserIds(expected), "WindowCountPagingResult");
+            // 第1页+第2页应与一次查询前20条的顺序完全一致, 不能乱序, 也不能在两页之间重复或遗漏
+            PageList<SysUserEntity> first = dao.list(where, OrderPaging.of(new Paging(1, 10), orderings));
+            PageList<SysUserEntity> top20 = dao.list(where, OrderPaging.of(new Paging(1, 20, false), orderings));
+            List<Object> pagedIds = getUserIds(first);
+            pagedIds.addAll(getUserIds(actual));
+            Assert.assertEquals(pagedIds, getUserIds(top20), "WindowCountPagingOrder");
+            // 页码超出范围时, 当前页没有数据, 总记录数由单独统计获得
+            PageList<SysUserEntity> outOfRange = dao.list(where, OrderPaging.of(new Paging(10000, 10), orderings));
+            Assert.assertEquals(outOfRange.size(), 0, "WindowCountPagingOutOfRangeSize");
+            Assert.assertEquals(outOfRange.getTotal(), expected.getTotal(), "WindowCountPagingOutOfRangeTotal");
+        } finally {
+            plugins.addDbConfig("qdbc.paging.windowCount", "false");
+        }
+    }
+
+    @Test(priority = 3014)
+    public void testUserQueryResultCache() {
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        QueryResultCache cache = qdbcBoot.getSqlBufferJdbcOperations().getQueryResultCache();
+        cache.setEnabled(true);
+        try {
+            SysUserEntity first = dao.find(newKellyWhere());
+            long hits = cache.getHitCount();
+            SysUserEntity second = dao.find(newKellyWhere());
+            Assert.assertEquals(cache.getHitCount(), hits + 1, "QueryCacheHit");
+            Assert.assertEquals(second.getId(), first.getId(), "QueryCacheResult");
+            Assert.assertNotSame(second, first, "QueryCacheCopied");
+
+            // 修改返回的对象不影响缓存
+            second.setCity("Wuxi");
+            Assert.assertNotEquals(dao.find(newKellyWhere()).getCity(), "Wuxi", "QueryCacheUnchanged");
+
+            // 通过CrudDao修改数据后, 缓存失效
+            DbUpdate ud = new DbUpdate();
+            ud.set("city", "Nanjing");
+            dao.update(ud, newKellyWhere());
+            SysUserEntity third = dao.find(newKellyWhere());
+            Assert.assertEquals(cache.getHitCount(), hits + 2, "QueryCacheInvalidated");
+            Assert.assertEquals(third.getCity(), "Nanjing", "QueryCacheReloaded");
+        } finally {
+            cache.setEnabled(false);
+        }
+    }
+
+    @Test(priority = 3015)
+    public void testUserEntityCache() {
+        CrudDao<SysUserEntity> dao = qdbcBoot.buildCrudDao(SysUserEntity.class);
+        EntityCache cache = dao.getEntityCache();
+        cache.setEnabled(true);
+        try {
+            List<SysUserEntity> users = dao.list(newKellyWhere(), Orderings.NONE);
+            Assert.assertEquals(users.size(), 1, "KellyUser");
+            String id = users.get(0).getId();
+            SysUserEntity first = dao.findById(id);
+            long hits = cache.getHitCount();
+            SysUserEntity second = dao.findById(id);
+            Assert.assertEquals(cache.getHitCount(), hits + 1, "EntityCacheHit");
+            Assert.assertEquals(second.getUserCode(), first.getUserCode(), "EntityCacheResult");
+            Assert.assertNotSame(second, first, "EntityCacheCopied");
+
+            // 修改返回的对象不影响缓存
+            second.setCity("Wuxi");
+            Assert.assertNotEquals(dao.findById(id).getCity(), "Wuxi", "EntityCacheUnchanged");
+
+            // listByIds只查询缓存中没有的记录, 按传入的主键顺序返回
+            DbWhere otherWhere = new DbWhere();
+            otherWhere.on("id", "!=", id);
+            List<SysUserEntity> others = dao.list(otherWhere, Orderings.of("id desc"));
+            List<String> ids = new ArrayList<>();
+            ids.add(others.get(0).getId());
+            ids.add(id);
+            List<SysUserEntity> listed = dao.listByIds(ids, null);
+            Assert.assertEquals(listed.size(), ids.size(), "EntityCacheListSize");
+            Assert.assertEquals(listed.get(0).getId(), ids.get(0), "EntityCacheListOrder");
+            Assert.assertEquals(listed.get(1).getId(), id, "EntityCacheListOrder");
+
+            // 通过CrudDao修改数据后, 缓存失效
+            DbUpdate ud = new DbUpdate();
+            ud.set("city", "Suzhou");
+            dao.update(ud, newKellyWhere());
+            Assert.assertEquals(cache.size(), 0, "EntityCacheCleared");
+            Assert.assertEquals(dao.findById(id).getCity(), "Suzhou", "EntityCacheReloaded");
+        } finally {
+            cache.setEnabled(false);
+        }
+    }
+
+    private DbWhere newKellyWhere() {
+        DbWhere where = new DbWhere();
+        where.on("tenantCode", "=", "test");
+        where.on("userCode", "=", "kelly");
+        return where;
+    }
+
+    private List<Object> getUserIds(List<SysUserEntity> users) {
+        List<Object> userIds = new ArrayList<>();
+        for (SysUserEntity user : users) {
+            userIds.add(user.getId());
+        }
+        return userIds;
+    }
+
     private List<String> getUserNames(PageList<SysUserEntity> users) {
         List<String> userNames = new ArrayList<>();
         for (SysUserEntity user : users) {
@@ -0,0 +1,67 @@
+package com.gitee.qdbp.jdbc.test.biz;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * SQL模板热加载测试
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+@ContextConfiguration(locations = { "classpath:settings/spring/spring.xml" })
+public class SqlTemplateReloadTest extends AbstractTestNGSpringContextTests {
+
+    private static final String SQL_ID = "reload.test.user.query";
+
+    @Test
+    public void testReloadSqlFiles() throws IOException {
+        SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+        SqlFragmentContainer container = SqlFragmentContainer.defaults();
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", "10000001");
+
+        File file = File.createTempFile("qdbc-reload-", ".sql");
+        file.deleteOnExit();
+        URL url = file.toURI().toURL();
+        Assert.assertFalse(container.exist(SQL_ID, dialect.getDbVersion()));
+
+        // 新增文件
+        writeSqlFile(file, "SELECT * FROM SYS_USER WHERE ID=#{userId}");
+        container.reloadSqlFiles(Arrays.asList(url), null);
+        String sql1 = container.render(SQL_ID, params, dialect).getExecutableSqlString(dialect);
+        Assert.assertTrue(sql1.contains("SYS_USER"), sql1);
+
+        // 修改文件, 查找缓存中的旧模板应被清除
+        writeSqlFile(file, "SELECT * FROM SYS_ROLE WHERE ID=#{userId}");
+        container.reloadSqlFiles(Arrays.asList(url), null);
+        String sql2 = container.render(SQL_ID, params, dialect).getExecutableSqlString(dialect);
+        Assert.assertTrue(sql2.contains("SYS_ROLE"), sql2);
+
+        // 删除文件
+        container.reloadSqlFiles(null, Arrays.asList(url));
+        Assert.assertFalse(container.exist(SQL_ID, dialect.getDbVersion()));
+        // 原有的模板不受影响
+        Assert.assertTrue(container.exist("user.roles.query", dialect.getDbVersion()));
+    }
+
+    private static void writeSqlFile(File file, String sql) throws IOException {
+        String content = "-- <<" + SQL_ID + ">>\n" + sql + "\n";
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
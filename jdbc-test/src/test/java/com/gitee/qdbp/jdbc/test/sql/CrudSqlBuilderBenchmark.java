@@ -0,0 +1,97 @@
+package com.gitee.qdbp.jdbc.test.sql;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.sql.fragment.TableCrudFragmentHelper;
+import com.gitee.qdbp.jdbc.test.model.SysUserEntity;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 单表增删改查SQL生成性能基准测试(JMH)<br>
+ * cached: 复用同一个CrudSqlBuilder, 固定部分的SQL只生成一次<br>
+ * uncached: 每次新建CrudSqlBuilder, 相当于每次都从头生成全部SQL
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrudSqlBuilderBenchmark {
+
+    private TableCrudFragmentHelper helper;
+    private CrudSqlBuilder builder;
+    private Map<String, Object> entity;
+    private DbWhere where;
+
+    @Setup
+    public void setup() {
+        SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+        helper = new TableCrudFragmentHelper(SysUserEntity.class, dialect);
+        builder = new CrudSqlBuilder(helper);
+        entity = new HashMap<>();
+        entity.put("id", "U0000001");
+        entity.put("tenantCode", "T0001");
+        entity.put("deptCode", "D0001");
+        entity.put("userCode", "zhaohuihua");
+        entity.put("userName", "zhaohuihua");
+        entity.put("nickName", "zhh");
+        entity.put("realName", "赵卉华");
+        entity.put("phone", "13900000000");
+        entity.put("email", "zhaohuihua@126.com");
+        entity.put("city", "南京");
+        entity.put("password", "e10adc3949ba59abbe56e057f20f883e");
+        entity.put("superman", false);
+        entity.put("createTime", new Date());
+        where = new DbWhere().on("id", "=", "U0000001");
+    }
+
+    @Benchmark
+    public SqlBuffer insertCached() {
+        return builder.buildInsertSql(entity);
+    }
+
+    @Benchmark
+    public SqlBuffer insertUncached() {
+        return new CrudSqlBuilder(helper).buildInsertSql(entity);
+    }
+
+    @Benchmark
+    public SqlBuffer findByIdCached() {
+        return builder.buildFindSql(where);
+    }
+
+    @Benchmark
+    public SqlBuffer findByIdUncached() {
+        return new CrudSqlBuilder(helper).buildFindSql(where);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(CrudSqlBuilderBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.gitee.qdbp.jdbc.test.sql;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * SqlBuffer拼接性能基准测试(JMH)<br>
+ * 分别在调整前后的代码上执行, 对比嵌套拼接SQL片段的耗时<br>
+ * 调整前prepend()需要遍历所有占位符重新编号, 耗时随片段数量平方增长
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlBufferBenchmark {
+
+    /** 拼接的SQL片段数量 **/
+    @Param({ "10", "100", "1000" })
+    private int size;
+
+    private SqlDialect dialect;
+    private SqlBuffer fragment;
+    private SqlBuffer composed;
+
+    @Setup
+    public void setup() {
+        dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+        fragment = new SqlBuffer();
+        fragment.append(" AND USER_CODE = ").addVariable("U0001");
+        fragment.append(" AND USER_STATE IN (").addVariable(new int[] { 1, 2, 3 }).append(')');
+        composed = buildByAppend();
+    }
+
+    /** 逐个追加到后面 **/
+    @Benchmark
+    public SqlBuffer append() {
+        return buildByAppend();
+    }
+
+    /** 逐个增加到最前面, 模拟模板嵌套时外层包裹内层的场景 **/
+    @Benchmark
+    public SqlBuffer prepend() {
+        SqlBuffer buffer = new SqlBuffer();
+        for (int i = 0; i < size; i++) {
+            buffer.prepend(fragment);
+        }
+        return buffer;
+    }
+
+    /** 生成预编译SQL语句及参数 **/
+    @Benchmark
+    public PreparedSql renderPreparedSql() {
+        return composed.getPreparedSql(dialect);
+    }
+
+    /** 生成命名参数的SQL语句 **/
+    @Benchmark
+    public String renderPreparedSqlString() {
+        return composed.getPreparedSqlString(dialect);
+    }
+
+    private SqlBuffer buildByAppend() {
+        SqlBuffer buffer = new SqlBuffer();
+        for (int i = 0; i < size; i++) {
+            buffer.append(fragment);
+        }
+        return buffer;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(SqlBufferBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
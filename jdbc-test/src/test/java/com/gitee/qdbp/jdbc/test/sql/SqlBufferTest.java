@@ -1,35 +1,57 @@
 package com.gitee.qdbp.jdbc.test.sql;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.model.DbRawValue;
 import com.gitee.qdbp.jdbc.model.MainDbType;
 import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
 import com.gitee.qdbp.jdbc.sql.SqlBuffer;
 import com.gitee.qdbp.jdbc.utils.DbTools;
 import com.gitee.qdbp.tools.utils.DateTools;
 
+/**
+ * SqlBuffer测试类: 使用?占位符的预编译SQL及参数顺序
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
 public class SqlBufferTest {
 
-    public static void main(String[] args) {
-        SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.Oracle);
-        test1(dialect);
-        test2(dialect);
-    }
+    private static final String EXPECTED_SQL = "SELECT*FROMSYS_USERWHEREDEPT_CODE=?ANDPHONELIKE('%'||?||'%')"
+            + "ANDCREATE_USER=?ANDCREATE_TIME>=?ANDUSER_STATEIN(?,?)ANDDATA_STATE=?";
+
+    private final SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.Oracle);
+    private final Date createTime = DateTools.parse("2019-01-01");
 
-    private static void test1(SqlDialect dialect) {
+    @Test
+    public void testAppend() {
         SqlBuffer buffer = new SqlBuffer();
         buffer.append("SELECT * FROM SYS_USER");
         buffer.append(" WHERE DEPT_CODE = ").addVariable("10001");
         buffer.append(" AND PHONE ").append(dialect.buildLikeSql("139%"));
         buffer.append(" AND CREATE_USER = ").addVariable("zhh");
-        buffer.append(" AND CREATE_TIME >= ").addVariable(DateTools.parse("2019-01-01"));
+        buffer.append(" AND CREATE_TIME >= ").addVariable(createTime);
         buffer.append(" AND USER_STATE IN (").addVariable(1).append(',').addVariable(2).append(')');
         buffer.append(" AND DATA_STATE = ").addVariable(0);
-        printSqlString(buffer, dialect);
+
+        PreparedSql prepared = buffer.getPreparedSql(dialect);
+        Assert.assertEquals(compact(prepared.getSql()), EXPECTED_SQL);
+        assertValues(prepared, "10001", "139%", "zhh", createTime, 1, 2, 0);
+        assertSameAsNamed(buffer, prepared);
     }
 
-    private static void test2(SqlDialect dialect) {
+    /** prepend/append另一个SqlBuffer之后, 参数顺序与SQL中占位符的顺序一致 **/
+    @Test
+    public void testPrepend() {
         SqlBuffer buffer = new SqlBuffer();
         buffer.append(" AND CREATE_USER = ").addVariable("zhh");
-        buffer.append(" AND CREATE_TIME >= ").addVariable(DateTools.parse("2019-01-01"));
+        buffer.append(" AND CREATE_TIME >= ").addVariable(createTime);
 
         SqlBuffer appendBuffer = new SqlBuffer();
         appendBuffer.append(" AND USER_STATE IN (").addVariable(1).append(',').addVariable(2).append(')');
@@ -43,20 +65,68 @@ public class SqlBufferTest {
 
         buffer.prepend("SELECT * FROM SYS_USER");
 
-        printSqlString(buffer, dialect);
+        PreparedSql prepared = buffer.getPreparedSql(dialect);
+        Assert.assertEquals(compact(prepared.getSql()), EXPECTED_SQL);
+        assertValues(prepared, "10001", "139%", "zhh", createTime, 1, 2, 0);
+        assertSameAsNamed(buffer, prepared);
+    }
+
+    /** 原生SQL值直接输出到SQL中, 不产生参数 **/
+    @Test
+    public void testRawValue() {
+        SqlBuffer buffer = new SqlBuffer();
+        buffer.append("UPDATE SYS_USER SET SORT_INDEX=").addVariable(new DbRawValue("SORT_INDEX+1"));
+        buffer.append(", USER_NAME=").addVariable("zhh");
+        buffer.append(", REMARK=").addVariable(null);
+        buffer.append(" WHERE ID=").addVariable("U1");
+
+        PreparedSql prepared = buffer.getPreparedSql(dialect);
+        String expected = "UPDATESYS_USERSETSORT_INDEX=SORT_INDEX+1,USER_NAME=?,REMARK=?WHEREID=?";
+        Assert.assertEquals(compact(prepared.getSql()), expected);
+        assertValues(prepared, "zhh", null, "U1");
+        assertSameAsNamed(buffer, prepared);
+    }
+
+    /** 省略标记只影响日志输出, 预编译SQL保留全部占位符和参数 **/
+    @Test
+    public void testOmitted() {
+        List<Object> ids = new ArrayList<>();
+        SqlBuffer buffer = new SqlBuffer();
+        buffer.append("SELECT * FROM SYS_USER WHERE ID IN (");
+        for (int i = 0, count = 10; i < count; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.tryOmit(i, count);
+            buffer.addVariable("U" + i);
+            ids.add("U" + i);
+        }
+        buffer.append(") AND DATA_STATE=").addVariable(0);
+        ids.add(0);
+
+        PreparedSql prepared = buffer.getPreparedSql(dialect);
+        String expected = "SELECT*FROMSYS_USERWHEREIDIN(?,?,?,?,?,?,?,?,?,?)ANDDATA_STATE=?";
+        Assert.assertEquals(compact(prepared.getSql()), expected);
+        assertValues(prepared, ids.toArray());
+        assertSameAsNamed(buffer, prepared);
+        // 日志中的SQL省略了中间部分
+        Assert.assertFalse(buffer.getLoggingSqlString(dialect).contains("'U5'"), "Logging");
+        Assert.assertTrue(buffer.getExecutableSqlString(dialect).contains("'U5'"), "Executable");
+    }
+
+    private static void assertValues(PreparedSql prepared, Object... expected) {
+        Assert.assertEquals(Arrays.asList(prepared.getValues()), Arrays.asList(expected), "Values");
+    }
+
+    /** 与命名参数方式(:$1, :$2)的SQL及参数对比, 占位符数量与参数一致 **/
+    private void assertSameAsNamed(SqlBuffer buffer, PreparedSql prepared) {
+        String named = buffer.getPreparedSqlString(dialect);
+        Assert.assertEquals(compact(named).replaceAll(":\\$\\d+", "?"), compact(prepared.getSql()), "NamedSql");
+        Assert.assertEquals(buffer.getPreparedVariables(dialect).size(), prepared.getValues().length, "NamedValues");
     }
 
-    private static void printSqlString(SqlBuffer buffer, SqlDialect dialect) {
-        System.out.println("/******************************************************\\");
-        System.out.println("-- PreparedSqlString");
-        System.out.println(buffer.getPreparedSqlString(dialect));
-        System.out.println("--------------------------------------------------------");
-        System.out.println("-- ExecutableSqlString");
-        System.out.println(buffer.getExecutableSqlString(dialect));
-        System.out.println("--------------------------------------------------------");
-        System.out.println("-- LoggingSqlString");
-        System.out.println(buffer.getLoggingSqlString(dialect));
-        System.out.println("\\******************************************************/");
-        System.out.println();
+    /** 去掉空白字符, 便于比较 **/
+    private static String compact(String sql) {
+        return sql.replaceAll("\\s+", "");
     }
 }
@@ -0,0 +1,148 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.biz.QdbcBootImpl;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpdateByValuesJoinExecutor;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.test.model.SysLoggerEntity;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache.ColumnType;
+
+/**
+ * 关联VALUES临时表的批量更新执行测试, 使用H2内存数据库(MERGE方式)
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class BatchUpdateExecuteTest {
+
+    private static final String MAX_PARAMETERS_KEY = "qdbc.batch.sql.maxParameters";
+    private static final int TOTAL = 5;
+
+    private DriverManagerDataSource datasource;
+    private JdbcTemplate jdbcTemplate;
+    private QdbcBootImpl qdbcBoot;
+    private final BatchUpdateByValuesJoinExecutor executor = new BatchUpdateByValuesJoinExecutor();
+
+    @BeforeClass
+    public void init() {
+        this.datasource = newDataSource("batch_update");
+        this.jdbcTemplate = new JdbcTemplate(datasource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS TEST_LOGGER(ID VARCHAR(50) NOT NULL PRIMARY KEY,"
+                + " NAME VARCHAR(30) NOT NULL, CONTENT VARCHAR(4000) NOT NULL,"
+                + " SORT_INDEX INTEGER DEFAULT 1 NOT NULL, CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,"
+                + " DATA_STATE INTEGER DEFAULT 1 NOT NULL)");
+        this.qdbcBoot = QdbcBootImpl.buildWith(datasource);
+    }
+
+    @Test
+    public void testUpdates() {
+        resetRecords();
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        Assert.assertTrue(executor.supports(jdbc.getDbVersion()), jdbc.getDbVersion().toString());
+        CrudSqlBuilder sqlBuilder = qdbcBoot.buildSqlBuilder(SysLoggerEntity.class);
+
+        int rows = executor.updates(newUpdates("Merged"), jdbc, sqlBuilder);
+        Assert.assertEquals(rows, TOTAL, "UpdateRows");
+        assertRecords("Merged");
+    }
+
+    /** 参数个数超出上限时拆分为多条SQL执行, 结果与一条SQL一致 **/
+    @Test
+    public void testSplitUpdates() {
+        resetRecords();
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        CrudSqlBuilder sqlBuilder = qdbcBoot.buildSqlBuilder(SysLoggerEntity.class);
+        DbPluginContainer plugins = DbPluginContainer.defaults();
+        // 每行3个参数(主键+2个字段), 每条SQL最多2行
+        plugins.addDbConfig(MAX_PARAMETERS_KEY, "6");
+        try {
+            int rows = executor.updates(newUpdates("Split"), jdbc, sqlBuilder);
+            Assert.assertEquals(rows, TOTAL, "UpdateRows");
+        } finally {
+            plugins.addDbConfig(MAX_PARAMETERS_KEY, "32000");
+        }
+        assertRecords("Split");
+    }
+
+    /** 字段类型按(数据源, 表名)缓存, 不同数据库中的同名表互不影响 **/
+    @Test
+    public void testColumnTypesByDataSource() {
+        DriverManagerDataSource another = newDataSource("batch_update_another");
+        JdbcTemplate anotherTemplate = new JdbcTemplate(another);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS TEST_COLUMN_TYPES(ID VARCHAR(50), AMOUNT DECIMAL(10,2))");
+        anotherTemplate.execute("CREATE TABLE IF NOT EXISTS TEST_COLUMN_TYPES(ID VARCHAR(50), AMOUNT VARCHAR(20))");
+        SqlBufferJdbcOperations first = qdbcBoot.getSqlBufferJdbcOperations();
+        SqlBufferJdbcOperations second = QdbcBootImpl.buildWith(another).getSqlBufferJdbcOperations();
+
+        ColumnTypeCache cache = new ColumnTypeCache(2);
+        ColumnType firstType = cache.getColumnTypes("TEST_COLUMN_TYPES", first).get("AMOUNT");
+        ColumnType secondType = cache.getColumnTypes("TEST_COLUMN_TYPES", second).get("AMOUNT");
+        Assert.assertEquals(firstType.getTypeName(), "DECIMAL", firstType.toString());
+        Assert.assertEquals(firstType.getScale(), 2, firstType.toString());
+        Assert.assertEquals(secondType.getTypeName(), "VARCHAR", secondType.toString());
+        Assert.assertEquals(cache.size(), 2, "CacheSize");
+
+        // 同一数据源的同名表命中缓存
+        Assert.assertSame(cache.getColumnTypes("TEST_COLUMN_TYPES", first).get("AMOUNT"), firstType);
+        // 超出容量时按LRU顺序淘汰
+        cache.getColumnTypes("TEST_LOGGER", first);
+        Assert.assertEquals(cache.size(), 2, "MaxSize");
+
+        // 表结构变更后失效, 重新读取
+        anotherTemplate.execute("ALTER TABLE TEST_COLUMN_TYPES ALTER COLUMN AMOUNT INTEGER");
+        cache.evict("TEST_COLUMN_TYPES", second);
+        ColumnType altered = cache.getColumnTypes("TEST_COLUMN_TYPES", second).get("AMOUNT");
+        Assert.assertEquals(altered.getTypeName(), "INTEGER", altered.toString());
+    }
+
+    private static DriverManagerDataSource newDataSource(String name) {
+        DriverManagerDataSource datasource = new DriverManagerDataSource();
+        datasource.setDriverClassName("org.h2.Driver");
+        datasource.setUrl("jdbc:h2:mem:qdbc_" + name + ";DB_CLOSE_DELAY=-1");
+        return datasource;
+    }
+
+    private void resetRecords() {
+        jdbcTemplate.update("DELETE FROM TEST_LOGGER");
+        for (int i = 1; i <= TOTAL; i++) {
+            String sql = "INSERT INTO TEST_LOGGER(ID, NAME, CONTENT, SORT_INDEX) VALUES(?, ?, ?, ?)";
+            jdbcTemplate.update(sql, "L" + i, "Logger-" + i, "Content-" + i, i);
+        }
+    }
+
+    private static List<PkEntity> newUpdates(String prefix) {
+        List<PkEntity> entities = new ArrayList<>();
+        for (int i = 1; i <= TOTAL; i++) {
+            Map<String, Object> entity = new HashMap<>();
+            entity.put("name", prefix + "-" + i);
+            entity.put("sortIndex", i * 10);
+            entities.add(new PkEntity("L" + i, entity));
+        }
+        return entities;
+    }
+
+    private void assertRecords(String prefix) {
+        List<Map<String, Object>> list = jdbcTemplate.queryForList("SELECT * FROM TEST_LOGGER ORDER BY ID");
+        Assert.assertEquals(list.size(), TOTAL, "Records");
+        for (int i = 1; i <= TOTAL; i++) {
+            Map<String, Object> row = list.get(i - 1);
+            Assert.assertEquals(row.get("NAME"), prefix + "-" + i, "NAME");
+            Assert.assertEquals(((Number) row.get("SORT_INDEX")).intValue(), i * 10, "SORT_INDEX");
+            // 未更新的字段保持不变
+            Assert.assertEquals(row.get("CONTENT"), "Content-" + i, "CONTENT");
+        }
+    }
+}
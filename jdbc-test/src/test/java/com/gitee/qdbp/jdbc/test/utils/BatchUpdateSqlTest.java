@@ -0,0 +1,129 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.model.SimpleFieldColumn;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpdateByValuesJoinExecutor;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+
+/**
+ * 关联VALUES临时表的批量更新SQL的生成测试
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class BatchUpdateSqlTest {
+
+    private static final String TABLE_NAME = "TEST_ORDER";
+    private final SimpleFieldColumn pk = new SimpleFieldColumn("id", "ID");
+    private final List<SimpleFieldColumn> columns = Arrays.asList(new SimpleFieldColumn("amount", "AMOUNT"),
+        new SimpleFieldColumn("remark", "REMARK"));
+    private final SqlExecutor executor = new SqlExecutor();
+
+    /** PostgreSQL: 每个参数都转换为目标字段的类型, 全为NULL的列也不会被推断为text **/
+    @Test
+    public void testPostgreSqlValuesJoin() {
+        Map<String, String> columnTypes = new HashMap<>();
+        columnTypes.put("ID", "uuid");
+        columnTypes.put("AMOUNT", "numeric");
+        columnTypes.put("REMARK", "varchar");
+        DbVersion version = new DbVersion(MainDbType.PostgreSQL);
+        SqlBuffer buffer = executor.valuesJoin(TABLE_NAME, pk, columns, newEntities(), columnTypes);
+        String sql = compact(buffer.getPreparedSqlString(version));
+        Assert.assertTrue(sql.startsWith("UPDATETEST_ORDERASETAMOUNT=B.AMOUNT,REMARK=B.REMARK"), sql);
+        String row = "(CAST(?ASuuid),CAST(?ASnumeric),CAST(?ASvarchar))";
+        Assert.assertTrue(sql.contains("FROM(VALUES" + row + "," + row + ")B(ID,AMOUNT,REMARK)"), sql);
+        Assert.assertTrue(sql.endsWith("WHEREA.ID=B.ID"), sql);
+        Assert.assertEquals(buffer.getPreparedVariables(version).size(), 6, "Variables");
+
+        // 找不到类型的字段不做类型转换
+        Map<String, String> partial = new HashMap<>();
+        partial.put("AMOUNT", "numeric");
+        SqlBuffer another = executor.valuesJoin(TABLE_NAME, pk, columns, newEntities(), partial);
+        String anotherSql = compact(another.getPreparedSqlString(version));
+        Assert.assertTrue(anotherSql.contains("VALUES(?,CAST(?ASnumeric),?),(?,CAST(?ASnumeric),?)"), anotherSql);
+    }
+
+    @Test
+    public void testSqlServerValuesJoin() {
+        SqlBuffer buffer = executor.sqlServerJoin(TABLE_NAME, pk, columns, newEntities());
+        String sql = compact(buffer.getPreparedSqlString(new DbVersion(MainDbType.SqlServer, 10, 0)));
+        Assert.assertTrue(sql.startsWith("UPDATEASETA.AMOUNT=B.AMOUNT,A.REMARK=B.REMARK"), sql);
+        Assert.assertTrue(sql.contains("FROMTEST_ORDERAJOIN(VALUES(?,?,?),(?,?,?))B(ID,AMOUNT,REMARK)"), sql);
+        Assert.assertTrue(sql.endsWith("ONA.ID=B.ID"), sql);
+        Assert.assertFalse(sql.contains("CAST"), sql);
+    }
+
+    @Test
+    public void testSqliteSelectJoin() {
+        SqlBuffer buffer = executor.selectJoin(TABLE_NAME, pk, columns, newEntities());
+        String sql = compact(buffer.getPreparedSqlString(new DbVersion(MainDbType.SQLite, 3, 33)));
+        Assert.assertTrue(sql.startsWith("UPDATETEST_ORDERSETAMOUNT=B.AMOUNT,REMARK=B.REMARK"), sql);
+        String select = "SELECT?ID,?AMOUNT,?REMARK";
+        Assert.assertTrue(sql.contains("FROM(" + select + "UNIONALL" + select + ")B"), sql);
+        Assert.assertTrue(sql.endsWith("WHERETEST_ORDER.ID=B.ID"), sql);
+        Assert.assertFalse(sql.contains("DUAL"), sql);
+    }
+
+    @Test
+    public void testH2Merge() {
+        SqlBuffer buffer = executor.mergeJoin(TABLE_NAME, pk, columns, newEntities());
+        String sql = compact(buffer.getPreparedSqlString(new DbVersion(MainDbType.H2, 1, 4)));
+        String select = "SELECT?ID,?AMOUNT,?REMARKFROMDUAL";
+        Assert.assertTrue(sql.startsWith("MERGEINTOTEST_ORDERAUSING(" + select + "UNIONALL" + select + ")B"), sql);
+        Assert.assertTrue(sql.contains(")BON(A.ID=B.ID)"), sql);
+        Assert.assertTrue(sql.endsWith("WHENMATCHEDTHENUPDATESETA.AMOUNT=B.AMOUNT,A.REMARK=B.REMARK"), sql);
+        Assert.assertFalse(sql.contains("WHENNOTMATCHED"), sql);
+    }
+
+    /** 第2条记录的备注为空 **/
+    private static List<PkEntity> newEntities() {
+        List<PkEntity> entities = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            Map<String, Object> entity = new LinkedHashMap<>();
+            entity.put("amount", "100.5" + i);
+            entity.put("remark", i == 1 ? "remark" : null);
+            entities.add(new PkEntity("9a1f2c3e-0000-0000-0000-00000000000" + i, entity));
+        }
+        return entities;
+    }
+
+    /** 去掉空白字符, 便于比较 **/
+    private static String compact(String sql) {
+        return sql.replaceAll("\\s+", "");
+    }
+
+    /** 开放SQL生成方法用于测试 **/
+    private static class SqlExecutor extends BatchUpdateByValuesJoinExecutor {
+
+        public SqlBuffer valuesJoin(String tableName, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+                List<PkEntity> entities, Map<String, String> columnTypes) {
+            return buildValuesJoinUpdateSql(tableName, pk, columns, entities, columnTypes).out();
+        }
+
+        public SqlBuffer sqlServerJoin(String tableName, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+                List<PkEntity> entities) {
+            return buildSqlServerUpdateSql(tableName, pk, columns, entities).out();
+        }
+
+        public SqlBuffer selectJoin(String tableName, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+                List<PkEntity> entities) {
+            return buildSelectJoinUpdateSql(tableName, pk, columns, entities).out();
+        }
+
+        public SqlBuffer mergeJoin(String tableName, SimpleFieldColumn pk, List<SimpleFieldColumn> columns,
+                List<PkEntity> entities) {
+            return buildMergeUpdateSql(tableName, pk, columns, entities).out();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.model.PkEntity;
+import com.gitee.qdbp.jdbc.api.SqlBufferJdbcOperations;
+import com.gitee.qdbp.jdbc.biz.QdbcBootImpl;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchUpsertByMergeExecutor;
+import com.gitee.qdbp.jdbc.sql.build.CrudSqlBuilder;
+import com.gitee.qdbp.jdbc.test.model.SysLoggerEntity;
+import com.gitee.qdbp.jdbc.utils.ColumnTypeCache.ColumnType;
+
+/**
+ * MERGE INTO批量新增或更新的执行测试, 使用H2内存数据库<br>
+ * H2默认使用SELECT FROM DUAL作为数据来源; 另外强制使用DB2/SqlServer的VALUES数据来源执行一次,
+ * 验证CAST(? AS {columnType})之后的SQL可以正确执行
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class BatchUpsertExecuteTest {
+
+    private static final int EXISTS = 3;
+    private static final int TOTAL = 5;
+
+    private JdbcTemplate jdbcTemplate;
+    private QdbcBootImpl qdbcBoot;
+
+    @BeforeClass
+    public void init() {
+        DriverManagerDataSource datasource = new DriverManagerDataSource();
+        datasource.setDriverClassName("org.h2.Driver");
+        datasource.setUrl("jdbc:h2:mem:qdbc_batch_upsert;DB_CLOSE_DELAY=-1");
+        this.jdbcTemplate = new JdbcTemplate(datasource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS TEST_LOGGER(ID VARCHAR(50) NOT NULL PRIMARY KEY,"
+                + " NAME VARCHAR(30) NOT NULL, CONTENT VARCHAR(4000) NOT NULL,"
+                + " SORT_INDEX INTEGER DEFAULT 1 NOT NULL, CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,"
+                + " DATA_STATE INTEGER DEFAULT 1 NOT NULL)");
+        this.qdbcBoot = QdbcBootImpl.buildWith(datasource);
+    }
+
+    /** SELECT FROM DUAL数据来源(Oracle/H2) **/
+    @Test
+    public void testUpsertsFromDual() {
+        doUpserts(new BatchUpsertByMergeExecutor(), "Dual");
+    }
+
+    /** VALUES数据来源(DB2/SqlServer), 每个参数转换为目标字段的类型 **/
+    @Test
+    public void testUpsertsFromValues() {
+        ValuesMergeExecutor executor = new ValuesMergeExecutor();
+        doUpserts(executor, "Values");
+        Assert.assertEquals(executor.getColumnTypeCache().size(), 1, "ColumnTypeCache");
+    }
+
+    /** 转换类型带上长度/精度, DB2的FOR BIT DATA及SqlServer的identity/max特殊处理 **/
+    @Test
+    public void testCastTypes() {
+        ValuesMergeExecutor executor = new ValuesMergeExecutor();
+        DbVersion db2 = new DbVersion(MainDbType.DB2);
+        DbVersion sqlserver = new DbVersion(MainDbType.SqlServer);
+        Assert.assertEquals(executor.castType("VARCHAR", 50, 0, db2), "VARCHAR(50)");
+        Assert.assertEquals(executor.castType("DECIMAL", 10, 2, db2), "DECIMAL(10,2)");
+        Assert.assertEquals(executor.castType("INTEGER", 10, 0, db2), "INTEGER");
+        Assert.assertEquals(executor.castType("TIMESTAMP", 26, 6, db2), "TIMESTAMP");
+        Assert.assertEquals(executor.castType("VARCHAR () FOR BIT DATA", 16, 0, db2), "VARCHAR(16) FOR BIT DATA");
+        Assert.assertEquals(executor.castType("int identity", 10, 0, sqlserver), "int");
+        Assert.assertEquals(executor.castType("nvarchar", 100, 0, sqlserver), "nvarchar(100)");
+        Assert.assertEquals(executor.castType("nvarchar", Integer.MAX_VALUE, 0, sqlserver), "nvarchar(max)");
+        Assert.assertEquals(executor.castType("numeric", 18, 0, sqlserver), "numeric(18,0)");
+        Assert.assertNull(executor.castType("", 0, 0, sqlserver));
+    }
+
+    private void doUpserts(BatchUpsertByMergeExecutor executor, String prefix) {
+        resetRecords();
+        SqlBufferJdbcOperations jdbc = qdbcBoot.getSqlBufferJdbcOperations();
+        Assert.assertTrue(executor.supports(jdbc.getDbVersion()), jdbc.getDbVersion().toString());
+        CrudSqlBuilder sqlBuilder = qdbcBoot.buildSqlBuilder(SysLoggerEntity.class);
+
+        // L1~L3已存在, L4~L5不存在; CONTENT只在新增时设置
+        List<PkEntity> entities = new ArrayList<>();
+        for (int i = 1; i <= TOTAL; i++) {
+            Map<String, Object> entity = new HashMap<>();
+            entity.put("id", "L" + i);
+            entity.put("name", prefix + "-" + i);
+            entity.put("content", prefix + "-Content-" + i);
+            entity.put("sortIndex", i * 10);
+            entities.add(new PkEntity("L" + i, entity));
+        }
+        Set<String> insertOnlyFields = new HashSet<>(Arrays.asList("content"));
+        List<String> ids = executor.upserts(entities, insertOnlyFields, jdbc, sqlBuilder);
+        Assert.assertEquals(ids, Arrays.asList("L1", "L2", "L3", "L4", "L5"), "Ids");
+
+        List<Map<String, Object>> list = jdbcTemplate.queryForList("SELECT * FROM TEST_LOGGER ORDER BY ID");
+        Assert.assertEquals(list.size(), TOTAL, "Records");
+        for (int i = 1; i <= TOTAL; i++) {
+            Map<String, Object> row = list.get(i - 1);
+            Assert.assertEquals(row.get("NAME"), prefix + "-" + i, "NAME");
+            Assert.assertEquals(((Number) row.get("SORT_INDEX")).intValue(), i * 10, "SORT_INDEX");
+            String content = i <= EXISTS ? "Content-" + i : prefix + "-Content-" + i;
+            Assert.assertEquals(row.get("CONTENT"), content, "CONTENT");
+        }
+    }
+
+    private void resetRecords() {
+        jdbcTemplate.update("DELETE FROM TEST_LOGGER");
+        for (int i = 1; i <= EXISTS; i++) {
+            String sql = "INSERT INTO TEST_LOGGER(ID, NAME, CONTENT, SORT_INDEX) VALUES(?, ?, ?, ?)";
+            jdbcTemplate.update(sql, "L" + i, "Logger-" + i, "Content-" + i, i);
+        }
+    }
+
+    /** 强制使用VALUES作为数据来源 **/
+    private static class ValuesMergeExecutor extends BatchUpsertByMergeExecutor {
+
+        @Override
+        protected boolean isFromDual(DbVersion version) {
+            return false;
+        }
+
+        public String castType(String typeName, int precision, int scale, DbVersion version) {
+            return toCastType(new ColumnType(typeName, precision, scale), version);
+        }
+    }
+}
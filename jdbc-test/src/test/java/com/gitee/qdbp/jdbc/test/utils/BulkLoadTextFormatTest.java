@@ -0,0 +1,87 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByCopyExecutor;
+import com.gitee.qdbp.jdbc.plugins.impl.BatchInsertByLoadDataExecutor;
+
+/**
+ * 原生批量导入的文本格式测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class BulkLoadTextFormatTest {
+
+    private final CopyFormat copy = new CopyFormat();
+    private final LoadDataFormat loadData = new LoadDataFormat();
+
+    @Test
+    public void testNullAndEscape() throws IOException {
+        Assert.assertEquals(copy.format(null), "\\N");
+        Assert.assertEquals(copy.format("a\tb\nc\rd\\e"), "a\\tb\\nc\\rd\\\\e");
+        // 字符串形式的\N不能与NULL混淆
+        Assert.assertEquals(copy.format("\\N"), "\\\\N");
+    }
+
+    @Test
+    public void testValueTypes() throws IOException {
+        Assert.assertEquals(copy.format(true), "t");
+        Assert.assertEquals(loadData.format(true), "1");
+        Assert.assertEquals(loadData.format(false), "0");
+        Assert.assertEquals(copy.format(new BigDecimal("1E+3")), "1000");
+        Assert.assertEquals(copy.format(123L), "123");
+        Assert.assertEquals(copy.format('x'), "x");
+        Timestamp timestamp = Timestamp.valueOf("2020-10-20 10:30:00.5");
+        Assert.assertEquals(copy.format(timestamp), "2020-10-20 10:30:00.5");
+        Assert.assertEquals(copy.format(new java.util.Date(timestamp.getTime())), "2020-10-20 10:30:00.5");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnsupportedType() throws IOException {
+        copy.format(new byte[] { 1, 2 });
+    }
+
+    /** 导入前的检查与文本转换支持的类型保持一致, 不支持的类型整批交给其他批量新增处理类 **/
+    @Test
+    public void testSupportedValue() {
+        Assert.assertTrue(copy.supported(null), "null");
+        Assert.assertTrue(copy.supported("text"), "String");
+        Assert.assertTrue(copy.supported(123L), "Long");
+        Assert.assertTrue(copy.supported(new BigDecimal("1.5")), "BigDecimal");
+        Assert.assertTrue(loadData.supported(true), "Boolean");
+        Assert.assertTrue(loadData.supported(new java.util.Date()), "Date");
+        Assert.assertFalse(copy.supported(new byte[] { 1, 2 }), "byte[]");
+        Assert.assertFalse(loadData.supported(new Object()), "Object");
+    }
+
+    private static class CopyFormat extends BatchInsertByCopyExecutor {
+
+        public String format(Object value) throws IOException {
+            StringBuilder buffer = new StringBuilder();
+            appendValue(buffer, value);
+            return buffer.toString();
+        }
+
+        public boolean supported(Object value) {
+            return isSupportedValue(value);
+        }
+    }
+
+    private static class LoadDataFormat extends BatchInsertByLoadDataExecutor {
+
+        public String format(Object value) throws IOException {
+            StringBuilder buffer = new StringBuilder();
+            appendValue(buffer, value);
+            return buffer.toString();
+        }
+
+        public boolean supported(Object value) {
+            return isSupportedValue(value);
+        }
+    }
+}
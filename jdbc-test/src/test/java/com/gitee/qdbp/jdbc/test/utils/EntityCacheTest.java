@@ -0,0 +1,92 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.utils.EntityCache;
+
+/**
+ * EntityCache测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class EntityCacheTest {
+
+    @Test
+    public void testPutAndEvict() {
+        EntityCache cache = newCache();
+        cache.put("U1", newFields("U1", "first"), cache.getVersion());
+        cache.put("U2", newFields("U2", "second"), cache.getVersion());
+        Assert.assertEquals(cache.get("U1").get("name"), "first");
+
+        cache.evict(Arrays.asList("U1"));
+        Assert.assertNull(cache.get("U1"));
+        Assert.assertEquals(cache.get("U2").get("name"), "second");
+        cache.evictAll();
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    /** 查询前获取版本号, 查询期间数据被修改, 查询到的旧数据不能覆盖失效操作 **/
+    @Test
+    public void testStalePutAfterEvict() {
+        EntityCache cache = newCache();
+        long version = cache.getVersion();
+        // 查询期间另一线程修改了数据
+        cache.evict(Arrays.asList("U1"));
+        cache.put("U1", newFields("U1", "stale"), version);
+        Assert.assertNull(cache.get("U1"), "StalePut");
+        Assert.assertEquals(cache.size(), 0);
+
+        // 其他主键的失效也会递增版本号, 旧版本号的写入同样被丢弃
+        long older = cache.getVersion();
+        cache.evict(Arrays.asList("U2"));
+        cache.put("U1", newFields("U1", "stale"), older);
+        Assert.assertNull(cache.get("U1"), "OlderVersion");
+
+        // 失效之后重新查询, 使用新的版本号可以写入
+        cache.put("U1", newFields("U1", "fresh"), cache.getVersion());
+        Assert.assertEquals(cache.get("U1").get("name"), "fresh");
+    }
+
+    /** 事务中修改数据, 事务结束后再次失效, 清除事务提交前其他线程缓存的旧数据 **/
+    @Test
+    public void testEvictAfterCompletion() {
+        EntityCache cache = newCache();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evict(Arrays.asList("U1"));
+            // 事务提交前其他线程读到旧数据并写入缓存
+            cache.put("U1", newFields("U1", "uncommitted"), cache.getVersion());
+            Assert.assertNotNull(cache.get("U1"));
+            for (TransactionSynchronization item : TransactionSynchronizationManager.getSynchronizations()) {
+                item.beforeCommit(false);
+                item.beforeCompletion();
+                item.afterCommit();
+                item.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assert.assertNull(cache.get("U1"), "EvictedAfterCompletion");
+    }
+
+    private static EntityCache newCache() {
+        EntityCache cache = new EntityCache("SysUserEntity", 10);
+        cache.setEnabled(true);
+        cache.setExpireMillis(0);
+        return cache;
+    }
+
+    private static Map<String, Object> newFields(String id, String name) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", id);
+        fields.put("name", name);
+        return fields;
+    }
+}
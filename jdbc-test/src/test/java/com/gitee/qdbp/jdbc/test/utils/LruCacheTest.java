@@ -0,0 +1,91 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.utils.LruCache;
+
+/**
+ * LruCache测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class LruCacheTest {
+
+    @Test
+    public void testEviction() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        Assert.assertEquals(cache.get("a"), "A"); // a最近被访问, 下次淘汰b
+        cache.put("c", "C");
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(cache.get("c"), "C");
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertEquals(cache.getMissCount(), 1);
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testSetMaxSize() {
+        LruCache<String, String> cache = new LruCache<>(3);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.setMaxSize(1);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.get("c"), "C");
+        Assert.assertEquals(cache.getEvictionCount(), 2);
+
+        cache.setMaxSize(0);
+        cache.put("d", "D");
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    /** 分段: 容量平均分配给各分段, 总数量不超过最大容量 **/
+    @Test
+    public void testSegments() {
+        LruCache<String, String> cache = new LruCache<>(8, 4);
+        Assert.assertEquals(cache.getSegmentCount(), 4);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        Assert.assertTrue(cache.size() <= 8, cache.toString());
+        Assert.assertEquals(cache.getEvictionCount(), 100 - cache.size());
+        Assert.assertEquals(cache.get("key99"), "value99"); // 最后放入的一定还在
+
+        cache.setMaxSize(4);
+        Assert.assertTrue(cache.size() <= 4, cache.toString());
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    /** 多线程并发读写 **/
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final LruCache<Integer, Integer> cache = new LruCache<>(64, 16);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        Integer key = i % 50;
+                        if (cache.get(key) == null) {
+                            cache.put(key, key);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(cache.size() <= 64, cache.toString());
+        Assert.assertEquals(cache.getHitCount() + cache.getMissCount(), 8 * 10000);
+    }
+}
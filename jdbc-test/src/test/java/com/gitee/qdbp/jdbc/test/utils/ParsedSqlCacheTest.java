@@ -0,0 +1,45 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+import com.gitee.qdbp.jdbc.utils.LruCache;
+import com.gitee.qdbp.staticize.common.IMetaData;
+
+/**
+ * SQL字符串解析结果缓存测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class ParsedSqlCacheTest {
+
+    @Test
+    public void testParseCache() {
+        SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+        SqlFragmentContainer container = SqlFragmentContainer.defaults();
+        LruCache<String, IMetaData> cache = container.getParsedSqlCache();
+        String sqlString = "SELECT * FROM SYS_USER WHERE ID=#{userId} /* ParsedSqlCacheTest */";
+
+        Map<String, Object> params1 = new HashMap<>();
+        params1.put("userId", "U0001");
+        long misses = cache.getMissCount();
+        String sql1 = container.parse(sqlString, params1, dialect).getExecutableSqlString(dialect);
+        Assert.assertEquals(cache.getMissCount(), misses + 1);
+
+        // 同一个SQL字符串第2次直接使用缓存的解析结果, 参数仍按本次传入的渲染
+        Map<String, Object> params2 = new HashMap<>();
+        params2.put("userId", "U0002");
+        long hits = cache.getHitCount();
+        String sql2 = container.parse(sqlString, params2, dialect).getExecutableSqlString(dialect);
+        Assert.assertEquals(cache.getHitCount(), hits + 1);
+        Assert.assertTrue(sql1.contains("U0001"), sql1);
+        Assert.assertTrue(sql2.contains("U0002"), sql2);
+    }
+}
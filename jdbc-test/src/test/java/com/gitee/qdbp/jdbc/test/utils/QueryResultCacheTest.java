@@ -0,0 +1,142 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.paging.PageList;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
+import com.gitee.qdbp.jdbc.test.model.SysRoleEntity;
+import com.gitee.qdbp.jdbc.test.model.SysUserEntity;
+import com.gitee.qdbp.jdbc.test.model.UserRoleResult;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache;
+import com.gitee.qdbp.jdbc.utils.QueryResultCache.CacheKey;
+
+/**
+ * QueryResultCache测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class QueryResultCacheTest {
+
+    private static final List<String> USER_TABLES = Arrays.asList("TEST_USER_CORE_INFO");
+    private static final List<String> ROLE_TABLES = Arrays.asList("TEST_ROLE_CORE_INFO");
+
+    @Test
+    public void testInvalidate() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.setEnabled(true);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO WHERE ID=?", new Object[] { "U1" });
+        CacheKey key = cache.newCacheKey(USER_TABLES, "user", sql);
+        cache.put(key, "cached");
+        Assert.assertEquals(cache.get(key), "cached");
+
+        // 其他表的修改不影响
+        cache.invalidate(ROLE_TABLES);
+        Assert.assertEquals(cache.get(key), "cached");
+
+        cache.invalidate(Arrays.asList("test_user_core_info"));
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void testModifiedDuringQuery() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.setEnabled(true);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO", new Object[0]);
+        // 查询前生成KEY, 查询期间数据被修改, 查询结果不应被使用
+        CacheKey key = cache.newCacheKey(USER_TABLES, "user", sql);
+        cache.invalidate(USER_TABLES);
+        cache.put(key, "stale");
+        CacheKey newer = cache.newCacheKey(USER_TABLES, "user", sql);
+        Assert.assertNull(cache.get(newer));
+    }
+
+    @Test
+    public void testCacheableTables() {
+        QueryResultCache cache = new QueryResultCache(10);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO", new Object[0]);
+        Assert.assertNull(cache.newCacheKey(USER_TABLES, "user", sql)); // 未启用
+
+        cache.setEnabled(true);
+        cache.setCacheableTables("TEST_ROLE_CORE_INFO");
+        Assert.assertNull(cache.newCacheKey(USER_TABLES, "user", sql));
+        Assert.assertNotNull(cache.newCacheKey(ROLE_TABLES, "role", sql));
+    }
+
+    @Test
+    public void testResultKey() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.setEnabled(true);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO WHERE ID=?", new Object[] { "U1" });
+        cache.put(cache.newCacheKey(USER_TABLES, "user", sql), "bean");
+        Assert.assertNull(cache.get(cache.newCacheKey(USER_TABLES, "map", sql)));
+        PreparedSql other = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO WHERE ID=?", new Object[] { "U2" });
+        Assert.assertNull(cache.get(cache.newCacheKey(USER_TABLES, "user", other)));
+        Assert.assertEquals(cache.get(cache.newCacheKey(USER_TABLES, "user", sql)), "bean");
+    }
+
+    /** 缓存保存的是副本, 每次命中都返回新的对象 **/
+    @Test
+    public void testCopiedResult() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.setEnabled(true);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO", new Object[0]);
+        CacheKey key = cache.newCacheKey(USER_TABLES, "user", sql);
+        SysUserEntity user = new SysUserEntity();
+        user.setId("U1");
+        user.setCity("Nanjing");
+        user.setCreateTime(new Date(1000L));
+        List<SysUserEntity> users = new ArrayList<>();
+        users.add(user);
+        cache.put(key, new PageList<SysUserEntity>(users, 8));
+
+        // 放入缓存之后修改原对象, 不影响缓存
+        user.setCity("Wuxi");
+        users.add(new SysUserEntity());
+
+        PageList<SysUserEntity> first = cache.get(key);
+        Assert.assertEquals(first.size(), 1, "size");
+        Assert.assertEquals((int) first.getTotal(), 8, "total");
+        Assert.assertEquals(first.get(0).getCity(), "Nanjing", "city");
+        Assert.assertNotSame(first.get(0), user, "copied");
+
+        // 修改命中的结果, 不影响下一次命中
+        first.get(0).setCity("Suzhou");
+        first.get(0).getCreateTime().setTime(2000L);
+        first.clear();
+        PageList<SysUserEntity> second = cache.get(key);
+        Assert.assertEquals(second.size(), 1, "size");
+        Assert.assertEquals(second.get(0).getCity(), "Nanjing", "city");
+        Assert.assertEquals(second.get(0).getCreateTime(), new Date(1000L), "createTime");
+    }
+
+    /** 表关联查询的结果, 子对象也是副本 **/
+    @Test
+    public void testCopiedNestedResult() {
+        QueryResultCache cache = new QueryResultCache(10);
+        cache.setEnabled(true);
+        PreparedSql sql = new PreparedSql("SELECT * FROM TEST_USER_CORE_INFO", new Object[0]);
+        CacheKey key = cache.newCacheKey(USER_TABLES, "join", sql);
+        UserRoleResult result = new UserRoleResult();
+        result.setUser(new SysUserEntity());
+        result.getUser().setId("U1");
+        result.setRole(new SysRoleEntity());
+        result.getRole().setRoleName("Admin");
+        cache.put(key, result);
+
+        UserRoleResult first = cache.get(key);
+        Assert.assertEquals(first.getUser().getId(), "U1", "user.id");
+        Assert.assertEquals(first.getRole().getRoleName(), "Admin", "role.roleName");
+        first.getRole().setRoleName("Guest");
+        UserRoleResult second = cache.get(key);
+        Assert.assertNotSame(second.getRole(), first.getRole(), "copied");
+        Assert.assertEquals(second.getRole().getRoleName(), "Admin", "role.roleName");
+    }
+}
@@ -0,0 +1,230 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.able.jdbc.paging.PartList;
+import com.gitee.qdbp.jdbc.biz.SqlBufferJdbcTemplate;
+import com.gitee.qdbp.jdbc.plugins.DbPluginContainer;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.utils.PagingQuery;
+import com.gitee.qdbp.jdbc.utils.ReadReplicaRouter;
+import com.gitee.qdbp.jdbc.utils.ReadReplicaRouter.Strategy;
+
+/**
+ * ReadReplicaRouter测试类, 使用H2内存数据库模拟主库和两个只读库
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class ReadReplicaRouterTest {
+
+    private JdbcOperations primary;
+    private List<JdbcOperations> replicas;
+
+    @BeforeClass
+    public void init() {
+        this.primary = newDatabase("primary");
+        this.replicas = new ArrayList<>();
+        this.replicas.add(newDatabase("replica1"));
+        this.replicas.add(newDatabase("replica2"));
+    }
+
+    private static JdbcOperations newDatabase(String name) {
+        DriverManagerDataSource datasource = new DriverManagerDataSource();
+        datasource.setDriverClassName("org.h2.Driver");
+        datasource.setUrl("jdbc:h2:mem:qdbc_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(datasource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS TEST_NODE(NODE_NAME VARCHAR(20))");
+        jdbc.update("DELETE FROM TEST_NODE");
+        jdbc.update("INSERT INTO TEST_NODE(NODE_NAME) VALUES(?)", name);
+        // 主库3条记录, 只读库1条记录(模拟复制延迟), 用于检查统计总数是在哪个库执行的
+        jdbc.execute("CREATE TABLE IF NOT EXISTS TEST_PAGING(ITEM_NAME VARCHAR(20))");
+        jdbc.update("DELETE FROM TEST_PAGING");
+        int rows = "primary".equals(name) ? 3 : 1;
+        for (int i = 1; i <= rows; i++) {
+            jdbc.update("INSERT INTO TEST_PAGING(ITEM_NAME) VALUES(?)", name + "-" + i);
+        }
+        return jdbc;
+    }
+
+    private static String queryNodeName(JdbcOperations jdbc) {
+        return jdbc.queryForObject("SELECT NODE_NAME FROM TEST_NODE", String.class);
+    }
+
+    @Test
+    public void testRoundRobin() {
+        ReadReplicaRouter router = new ReadReplicaRouter(replicas);
+        String first = queryNodeName(router.select(primary));
+        String second = queryNodeName(router.select(primary));
+        String third = queryNodeName(router.select(primary));
+        Assert.assertTrue(first.startsWith("replica"), first);
+        Assert.assertTrue(second.startsWith("replica"), second);
+        Assert.assertNotEquals(first, second);
+        Assert.assertEquals(third, first);
+    }
+
+    @Test
+    public void testReadYourWrites() throws InterruptedException {
+        final ReadReplicaRouter router = new ReadReplicaRouter(replicas);
+        router.setReadYourWritesMillis(200);
+        router.markWritten();
+        Assert.assertEquals(queryNodeName(router.select(primary)), "primary");
+        Thread.sleep(300);
+        Assert.assertTrue(queryNodeName(router.select(primary)).startsWith("replica"));
+
+        // 其他线程不受影响
+        router.markWritten();
+        final String[] otherThread = new String[1];
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                otherThread[0] = queryNodeName(router.select(primary));
+            }
+        };
+        thread.start();
+        thread.join();
+        Assert.assertTrue(otherThread[0].startsWith("replica"), otherThread[0]);
+    }
+
+    /** 读己之写窗口期为0表示不启用, 刚执行过增删改也使用只读库 **/
+    @Test
+    public void testReadYourWritesDisabled() {
+        ReadReplicaRouter router = new ReadReplicaRouter(replicas);
+        router.setReadYourWritesMillis(0);
+        router.markWritten();
+        String name = queryNodeName(router.select(primary));
+        Assert.assertTrue(name.startsWith("replica"), name);
+    }
+
+    /** 读己之写状态传递给其他线程中执行的任务 **/
+    @Test
+    public void testPropagate() throws Exception {
+        final ReadReplicaRouter router = new ReadReplicaRouter(replicas);
+        Callable<String> query = new Callable<String>() {
+
+            @Override
+            public String call() {
+                return queryNodeName(router.select(primary));
+            }
+        };
+        // 没有读己之写状态时返回原任务
+        Assert.assertSame(router.propagate(query), query);
+
+        router.markWritten();
+        Callable<String> propagated = router.propagate(query);
+        String notPropagated = callInOtherThread(query);
+        Assert.assertTrue(notPropagated.startsWith("replica"), "NotPropagated: " + notPropagated);
+        Assert.assertEquals(callInOtherThread(propagated), "primary", "Propagated");
+    }
+
+    /** SqlBufferJdbcTemplate的查询路由: 写操作之后的查询(包括并行的分页统计)使用主库 **/
+    @Test
+    public void testTemplateRouting() {
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(primary);
+        SqlBufferJdbcTemplate template = new SqlBufferJdbcTemplate(named);
+        List<NamedParameterJdbcOperations> replicaOperations = new ArrayList<>();
+        for (JdbcOperations replica : replicas) {
+            replicaOperations.add(new NamedParameterJdbcTemplate(replica));
+        }
+        template.setReadReplicas(replicaOperations);
+        Assert.assertNotNull(template.getReadReplicaRouter(), "ReadReplicaRouter");
+
+        // 在新的线程中执行, 避免其他测试的读己之写状态的影响
+        final SqlBufferJdbcTemplate jdbc = template;
+        String[] results = callInOtherThread(new Callable<String[]>() {
+
+            @Override
+            public String[] call() {
+                SqlBuffer nodeSql = new SqlBuffer("SELECT NODE_NAME FROM TEST_NODE");
+                String beforeWrite = jdbc.queryForObject(nodeSql, String.class);
+                jdbc.update(new SqlBuffer("UPDATE TEST_NODE SET NODE_NAME=NODE_NAME"));
+                String afterWrite = jdbc.queryForObject(nodeSql, String.class);
+
+                DbPluginContainer plugins = DbPluginContainer.defaults();
+                plugins.addDbConfig("qdbc.paging.concurrent", "true");
+                try {
+                    SqlBuffer pagingSql = new SqlBuffer("SELECT ITEM_NAME FROM TEST_PAGING ORDER BY ITEM_NAME");
+                    Paging paging = new Paging(1, 2, true);
+                    PartList<String> list = PagingQuery.queryForPage(jdbc, pagingSql, null, paging, String.class);
+                    return new String[] { beforeWrite, afterWrite, String.valueOf(list.getTotal()) };
+                } finally {
+                    plugins.addDbConfig("qdbc.paging.concurrent", "false");
+                }
+            }
+        });
+        Assert.assertTrue(results[0].startsWith("replica"), "BeforeWrite: " + results[0]);
+        Assert.assertEquals(results[1], "primary", "AfterWrite");
+        // 统计总数在线程池中执行, 也应使用主库
+        Assert.assertEquals(results[2], "3", "ConcurrentCount");
+    }
+
+    private static <T> T callInOtherThread(final Callable<T> task) {
+        final List<T> results = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    errors.add(e);
+                }
+            }
+        };
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.get(0));
+        }
+        return results.get(0);
+    }
+
+    @Test
+    public void testLeastBusy() {
+        final ReadReplicaRouter router = new ReadReplicaRouter(replicas);
+        router.setStrategy(Strategy.LEAST_BUSY);
+        final List<String> names = new ArrayList<>();
+        // 在第一个只读库的结果集回调中再次查询, 此时第一个只读库正忙, 应选择另一个
+        router.select(primary).query("SELECT NODE_NAME FROM TEST_NODE", new RowCallbackHandler() {
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                names.add(rs.getString(1));
+                names.add(queryNodeName(router.select(primary)));
+                names.add(queryNodeName(router.select(primary)));
+            }
+        });
+        Assert.assertEquals(names.size(), 3);
+        Assert.assertNotEquals(names.get(1), names.get(0));
+        Assert.assertNotEquals(names.get(2), names.get(0));
+    }
+
+    @Test
+    public void testStrategyParse() {
+        Assert.assertEquals(Strategy.parse("roundRobin", null), Strategy.ROUND_ROBIN);
+        Assert.assertEquals(Strategy.parse("least-busy", null), Strategy.LEAST_BUSY);
+        Assert.assertEquals(Strategy.parse("LEAST_BUSY", null), Strategy.LEAST_BUSY);
+        Assert.assertEquals(Strategy.parse(" ", Strategy.ROUND_ROBIN), Strategy.ROUND_ROBIN);
+    }
+}
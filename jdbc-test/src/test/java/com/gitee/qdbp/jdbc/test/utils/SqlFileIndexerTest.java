@@ -0,0 +1,194 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.plugins.impl.IndexedSqlFileScanner;
+import com.gitee.qdbp.jdbc.plugins.impl.SqlFileIndexer;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.FragmentEntry;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFileIndex.IndexedFile;
+
+/**
+ * SQL模板文件索引测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class SqlFileIndexerTest {
+
+    @Test
+    public void testIndexAndScan() throws IOException {
+        File classesDir = Files.createTempDirectory("qdbc-index-").toFile();
+        writeFile(classesDir, "qdbc-index-test/user.sql");
+        writeFile(classesDir, "qdbc-index-test/readme.txt");
+        writeFile(classesDir, "qdbc-index-test/sub/role.sql");
+        writeFile(classesDir, "others/dept.sql");
+
+        List<String> paths = SqlFileIndexer.scanFiles(classesDir, "classpath:/qdbc-index-test", "*.sql");
+        Assert.assertEquals(paths, Arrays.asList("qdbc-index-test/sub/role.sql", "qdbc-index-test/user.sql"));
+        File indexFile = SqlFileIndexer.writeIndex(classesDir, paths);
+        Assert.assertTrue(indexFile.isFile());
+
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { classesDir.toURI().toURL() }, original);
+        Thread.currentThread().setContextClassLoader(classLoader);
+        try {
+            IndexedSqlFileScanner scanner = new IndexedSqlFileScanner("qdbc-index-test/", "*.sql");
+            List<URL> urls = scanner.scanSqlFiles();
+            Assert.assertEquals(urls.size(), 2, urls.toString());
+            Assert.assertTrue(urls.get(0).toString().endsWith("qdbc-index-test/sub/role.sql"), urls.toString());
+            Assert.assertTrue(urls.get(1).toString().endsWith("qdbc-index-test/user.sql"), urls.toString());
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    /** 本地文件夹不读取索引, 构建之后新增的文件也能找到 **/
+    @Test
+    public void testLocalFolderNotStale() throws IOException {
+        File classesDir = Files.createTempDirectory("qdbc-index-").toFile();
+        writeFile(classesDir, "qdbc-stale-test/user.sql");
+        SqlFileIndexer.writeIndex(classesDir, SqlFileIndexer.scanFiles(classesDir, "qdbc-stale-test/", "*.sql"));
+        // 生成索引之后新增的文件
+        writeFile(classesDir, "qdbc-stale-test/role.sql");
+
+        List<URL> urls = scanWithClassLoader(classesDir, "qdbc-stale-test/");
+        Assert.assertEquals(urls.size(), 2, urls.toString());
+        Assert.assertTrue(urls.get(0).toString().endsWith("qdbc-stale-test/role.sql"), urls.toString());
+    }
+
+    /** jar包中读取索引, 只返回索引中的文件 **/
+    @Test
+    public void testJarIndex() throws IOException {
+        File jarFile = File.createTempFile("qdbc-index-", ".jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+            writeJarEntry(jar, "qdbc-jar-test/user.sql", "SELECT 1");
+            // 不在索引中的文件, 如果读到了说明没有使用索引
+            writeJarEntry(jar, "qdbc-jar-test/unindexed.sql", "SELECT 1");
+            writeJarEntry(jar, SqlFileIndexer.INDEX_PATH, "# index\nqdbc-jar-test/user.sql\n");
+        }
+
+        List<URL> urls = scanWithClassLoader(jarFile, "qdbc-jar-test/");
+        Assert.assertEquals(urls.size(), 1, urls.toString());
+        Assert.assertTrue(urls.get(0).toString().startsWith("jar:"), urls.toString());
+        Assert.assertTrue(urls.get(0).toString().endsWith("qdbc-jar-test/user.sql"), urls.toString());
+    }
+
+    /** 索引中记录了每个片断的SqlId/版本支持声明/行号/是否静态文本, 运行时不必读取模板文件 **/
+    @Test
+    public void testFragmentMetadata() throws IOException {
+        File classesDir = Files.createTempDirectory("qdbc-index-").toFile();
+        String content = "-- <<user.query>>\nSELECT * FROM SYS_USER\n"
+                + "-- <<user.find:mysql.8>>\nSELECT * FROM SYS_USER WHERE ID=#{id}\n"
+                + "-- <<user.find>>\n<supports>oracle,db2</supports>\nSELECT * FROM SYS_USER WHERE ID=#{id}\n";
+        writeFile(classesDir, "qdbc-meta-test/user.manage.sql", content);
+        writeFile(classesDir, "qdbc-meta-test/dept.mysql.sql", "SELECT * FROM SYS_DEPT\n");
+        File indexFile = SqlFileIndexer.writeIndex(classesDir,
+                SqlFileIndexer.scanFiles(classesDir, "qdbc-meta-test/", "*.sql"));
+        File jarFile = toJarFile(classesDir, indexFile);
+
+        List<IndexedFile> files = scanIndexedWithClassLoader(jarFile, "qdbc-meta-test/");
+        Assert.assertEquals(files.size(), 2, files.toString());
+        // 文件名中的数据库类型作为版本支持声明
+        List<FragmentEntry> deptFragments = files.get(0).getFragments();
+        Assert.assertEquals(deptFragments.size(), 1, "DeptFragments");
+        assertFragment(deptFragments.get(0), 0, "dept", null, "mysql", true);
+        List<FragmentEntry> userFragments = files.get(1).getFragments();
+        Assert.assertEquals(userFragments.size(), 3, "UserFragments");
+        assertFragment(userFragments.get(0), 1, "user.manage", "user.query", null, true);
+        assertFragment(userFragments.get(1), 3, "user.manage", "user.find", "mysql.8", false);
+        assertFragment(userFragments.get(2), 5, "user.manage", "user.find", "oracle,db2", false);
+    }
+
+    /** 旧格式的索引(只有文件路径)及数据库类型不一致的索引, 只使用文件列表, 片断元数据为空 **/
+    @Test
+    public void testUnusableMetadata() throws IOException {
+        File jarFile = File.createTempFile("qdbc-index-", ".jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+            writeJarEntry(jar, "qdbc-types-test/user.sql", "SELECT 1");
+            String index = "# format=2\n# dbTypes=unknown\nqdbc-types-test/user.sql\n\t0\tuser\t\t\t1\n";
+            writeJarEntry(jar, SqlFileIndexer.INDEX_PATH, index);
+        }
+        List<IndexedFile> files = scanIndexedWithClassLoader(jarFile, "qdbc-types-test/");
+        Assert.assertEquals(files.size(), 1, files.toString());
+        Assert.assertNull(files.get(0).getFragments(), "Fragments");
+    }
+
+    private static void assertFragment(FragmentEntry entry, int line, String fileId, String fragmentId,
+            String supports, boolean staticContent) {
+        Assert.assertEquals(entry.getLine(), line, "Line");
+        Assert.assertEquals(entry.getFileId(), fileId, "FileId");
+        Assert.assertEquals(entry.getFragmentId(), fragmentId, "FragmentId");
+        Assert.assertEquals(entry.getSupports(), supports, "Supports");
+        Assert.assertEquals(entry.isStaticContent(), staticContent, "StaticContent");
+        // 写入索引之后再读出, 内容不变
+        FragmentEntry parsed = FragmentEntry.parse(entry.toIndexLine());
+        Assert.assertEquals(parsed.toIndexLine(), entry.toIndexLine(), "IndexLine");
+    }
+
+    private static File toJarFile(File classesDir, File indexFile) throws IOException {
+        File jarFile = File.createTempFile("qdbc-index-", ".jar");
+        String root = classesDir.toURI().toString();
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+            for (String path : SqlFileIndexer.scanFiles(classesDir, "qdbc-meta-test/", "*.sql")) {
+                jar.putNextEntry(new JarEntry(path));
+                jar.write(Files.readAllBytes(new File(classesDir, path).toPath()));
+                jar.closeEntry();
+            }
+            String indexPath = indexFile.toURI().toString().substring(root.length());
+            jar.putNextEntry(new JarEntry(indexPath));
+            jar.write(Files.readAllBytes(indexFile.toPath()));
+            jar.closeEntry();
+        }
+        return jarFile;
+    }
+
+    private static List<IndexedFile> scanIndexedWithClassLoader(File root, String folder) throws IOException {
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, original);
+        Thread.currentThread().setContextClassLoader(classLoader);
+        try {
+            return new IndexedSqlFileScanner(folder, "*.sql").scanIndexedSqlFiles();
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private static List<URL> scanWithClassLoader(File root, String folder) throws IOException {
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, original);
+        Thread.currentThread().setContextClassLoader(classLoader);
+        try {
+            return new IndexedSqlFileScanner(folder, "*.sql").scanSqlFiles();
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private static void writeJarEntry(JarOutputStream jar, String path, String content) throws IOException {
+        jar.putNextEntry(new ZipEntry(path));
+        jar.write(content.getBytes(StandardCharsets.UTF_8));
+        jar.closeEntry();
+    }
+
+    private static void writeFile(File root, String path) throws IOException {
+        writeFile(root, path, "SELECT 1");
+    }
+
+    private static void writeFile(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,183 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.PreparedSql;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.parse.SqlFragmentContainer;
+import com.gitee.qdbp.jdbc.sql.parse.SqlRenderPlan;
+import com.gitee.qdbp.jdbc.sql.parse.SqlStringParser;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * SQL模板渲染计划测试类: 渲染计划与标签解释器的渲染结果对比
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class SqlRenderPlanTest {
+
+    private static final String IF_SQL = "SELECT * FROM SYS_USER WHERE DATA_STATE=1\n"
+            + "<if test=\"${userType == 'admin'}\">AND USER_TYPE=1</if>\n"
+            + "<elseif test=\"${userType == 'user'}\">AND USER_TYPE=2</elseif>\n"
+            + "<else>AND USER_TYPE=0</else>\n"
+            + "<if test=\"${deptCode != null}\">AND DEPT_CODE=#{deptCode}</if>";
+    private static final String EACH_SQL = "SELECT * FROM SYS_USER WHERE ID IN (\n"
+            + "<each var=\"item\" rows=\"${ids}\">#{item}, </each>\n"
+            + "'-') <%-- each每一项后面都有逗号 --%>";
+    private static final String WHERE_SQL = "SELECT * FROM ${tableName}\n"
+            + "<where>\n"
+            + "    <if test=\"${user.name != null}\">AND USER_NAME=#{user.name}</if>\n"
+            + "    <if test=\"${user.phone != null}\">OR PHONE=#{user.phone}</if>\n"
+            + "</where>\n"
+            + "<comment>注释的内容不输出</comment>\n"
+            + "<append prefix=\"ORDER BY\">${orderBy}</append>\n"
+            + "<sql:trim prefix=\"LIMIT\" suffixOverrides=\",\">${size},</sql:trim>";
+    private static final String INCLUDED_SQL = "SELECT ID, USER_NAME FROM SYS_USER\n"
+            + "<where><if test=\"${userId != null}\">AND ID=#{userId}</if></where>";
+
+    private final SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+
+    @Test
+    public void testIf() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userType", "admin");
+        params.put("deptCode", "D01");
+        assertSameResult(IF_SQL, params);
+        params.put("userType", "user");
+        params.put("deptCode", null);
+        assertSameResult(IF_SQL, params);
+        params.put("userType", "guest");
+        assertSameResult(IF_SQL, params);
+    }
+
+    @Test
+    public void testEach() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", Arrays.asList("U1", "U2", "U3"));
+        assertSameResult(EACH_SQL, params);
+        params.put("ids", new String[] { "U4" });
+        assertSameResult(EACH_SQL, params);
+    }
+
+    /** where/append/sql:trim, 以及属性路径/拼写式参数/SQL片断表达式 **/
+    @Test
+    public void testExpressions() {
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "zhh");
+        user.put("phone", "139");
+        Map<String, Object> params = new HashMap<>();
+        params.put("tableName", "SYS_USER");
+        params.put("user", user);
+        params.put("orderBy", "ID DESC");
+        params.put("size", 10);
+        assertSameResult(WHERE_SQL, params);
+
+        user.put("name", null);
+        params.put("orderBy", null);
+        assertSameResult(WHERE_SQL, params);
+
+        user.put("phone", null);
+        assertSameResult(WHERE_SQL, params);
+
+        // db是全局变量
+        String sqlString = "SELECT * FROM SYS_USER WHERE ${sql:condition} /* ${db.dbType} */";
+        SqlBuffer condition = new SqlBuffer();
+        condition.append("DEPT_CODE=").addVariable("D01");
+        params.put("condition", condition);
+        assertSameResult(sqlString, params);
+    }
+
+    /** sql:include在编译时展开, 结果与标签解释器渲染标签内容一致 **/
+    @Test
+    public void testInclude() {
+        String sqlString = "<sql:include src=\"user.base\" />\nORDER BY ID";
+        SqlRenderPlan plan = SqlRenderPlan.compile(sqlString, new SqlRenderPlan.IncludeResolver() {
+
+            @Override
+            public String getSource(String src) {
+                return "user.base".equals(src) ? INCLUDED_SQL : null;
+            }
+        });
+        Assert.assertNotNull(plan, "Compiled");
+        String inlineString = "<sql:include>" + INCLUDED_SQL + "</sql:include>\nORDER BY ID";
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", "U1");
+        assertSameResult(plan, inlineString, params);
+        params.put("userId", null);
+        assertSameResult(plan, inlineString, params);
+
+        // 找不到被引用的模板时不编译, 由标签解释器处理
+        Assert.assertNull(SqlRenderPlan.compile(sqlString), "NotFound");
+    }
+
+    /** 含有不支持的标签或表达式时不编译 **/
+    @Test
+    public void testUnsupported() {
+        Assert.assertNull(SqlRenderPlan.compile("SELECT * FROM T WHERE ID <sql:in>#{ids}</sql:in>"), "sql:in");
+        Assert.assertNull(SqlRenderPlan.compile("SELECT * FROM T WHERE T.DATE>=#{@DateTools.now()}"), "alias");
+        Assert.assertNull(SqlRenderPlan.compile("SELECT * FROM T <else>X</else>"), "else");
+        Assert.assertNull(SqlRenderPlan.compile("SELECT * FROM T <if test=\"${a}\">X"), "notClosed");
+        Assert.assertNotNull(SqlRenderPlan.compile("SELECT * FROM T WHERE A < B"), "lessThan");
+    }
+
+    /** if的test结果不是Boolean时由标签解释器渲染, 并停用渲染计划 **/
+    @Test
+    public void testFallback() {
+        String sqlString = "SELECT * FROM SYS_USER <if test=\"${userId}\">WHERE ID=#{userId}</if>";
+        SqlRenderPlan plan = SqlRenderPlan.compile(sqlString);
+        Assert.assertNotNull(plan, "Compiled");
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", "U1");
+        Assert.assertNull(plan.render(params, dialect), "Rendered");
+        Assert.assertFalse(plan.isEnabled(), "Enabled");
+    }
+
+    /** 容器首次渲染时与标签解释器对比, 之后直接使用渲染计划 **/
+    @Test
+    public void testContainerParse() {
+        SqlFragmentContainer container = SqlFragmentContainer.defaults();
+        String sqlString = IF_SQL + " /* SqlRenderPlanTest */";
+        for (String userType : Arrays.asList("admin", "user", "guest")) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("userType", userType);
+            params.put("deptCode", "D01");
+            SqlBuffer interpreted = container.publish(SqlStringParser.parseSqlString(sqlString), params, dialect);
+            SqlBuffer parsed = container.parse(sqlString, params, dialect);
+            assertSameSql(parsed, interpreted, userType);
+        }
+    }
+
+    private void assertSameResult(String sqlString, Map<String, Object> params) {
+        SqlRenderPlan plan = SqlRenderPlan.compile(sqlString);
+        Assert.assertNotNull(plan, "Compiled");
+        assertSameResult(plan, sqlString, params);
+    }
+
+    private void assertSameResult(SqlRenderPlan plan, String sqlString, Map<String, Object> params) {
+        SqlBuffer compiled = plan.render(params, dialect);
+        Assert.assertNotNull(compiled, "Rendered");
+        SqlFragmentContainer container = SqlFragmentContainer.defaults();
+        SqlBuffer interpreted = container.publish(SqlStringParser.parseSqlString(sqlString), params, dialect);
+        assertSameSql(compiled, interpreted, sqlString);
+        Assert.assertTrue(plan.verify(compiled, interpreted, dialect), "Verified");
+    }
+
+    private void assertSameSql(SqlBuffer actual, SqlBuffer expected, String message) {
+        PreparedSql actualSql = actual.getPreparedSql(dialect);
+        PreparedSql expectedSql = expected.getPreparedSql(dialect);
+        Assert.assertEquals(compact(actualSql.getSql()), compact(expectedSql.getSql()), message);
+        Assert.assertEquals(Arrays.asList(actualSql.getValues()), Arrays.asList(expectedSql.getValues()), message);
+    }
+
+    /** 空白字符合并为一个空格, 便于比较 **/
+    private static String compact(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,92 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.jdbc.plugins.TableShardingStrategy;
+import com.gitee.qdbp.jdbc.plugins.impl.DateTableShardingStrategy;
+import com.gitee.qdbp.jdbc.plugins.impl.HashTableShardingStrategy;
+import com.gitee.qdbp.jdbc.plugins.impl.RangeTableShardingStrategy;
+
+/**
+ * 分表策略测试类
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class TableShardingStrategyTest {
+
+    @Test
+    public void testHashStrategy() {
+        TableShardingStrategy strategy = new HashTableShardingStrategy("userId", 4);
+        Assert.assertEquals(strategy.getShardingField(), "userId");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", 10), "ORDER_INFO_2");
+        // 数字和数字形式的字符串结果一致
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", "10"), "ORDER_INFO_2");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", 10L), "ORDER_INFO_2");
+        // 负数取非负余数
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", -1), "ORDER_INFO_3");
+        // 字符串按hashCode取模, 同一个值结果相同
+        String table = strategy.getShardingTableName("ORDER_INFO", "U0001");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", "U0001"), table);
+        Assert.assertTrue(strategy.getAllShardingTableNames("ORDER_INFO").contains(table), table);
+        // 空值无法确定分表
+        Assert.assertNull(strategy.getShardingTableName("ORDER_INFO", null));
+        List<String> expected = Arrays.asList("ORDER_INFO_0", "ORDER_INFO_1", "ORDER_INFO_2", "ORDER_INFO_3");
+        Assert.assertEquals(strategy.getAllShardingTableNames("ORDER_INFO"), expected);
+    }
+
+    @Test
+    public void testRangeStrategy() {
+        TableShardingStrategy strategy = new RangeTableShardingStrategy("orderNo", 1000, 2000);
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", 999), "ORDER_INFO_0");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", 1000), "ORDER_INFO_1");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", "1999"), "ORDER_INFO_1");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", 2000L), "ORDER_INFO_2");
+        Assert.assertNull(strategy.getShardingTableName("ORDER_INFO", "abc"));
+        List<String> expected = Arrays.asList("ORDER_INFO_0", "ORDER_INFO_1", "ORDER_INFO_2");
+        Assert.assertEquals(strategy.getAllShardingTableNames("ORDER_INFO"), expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRangeStrategyUnorderedBounds() {
+        new RangeTableShardingStrategy("orderNo", 2000, 1000);
+    }
+
+    @Test
+    public void testDateStrategy() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -2);
+        Date start = calendar.getTime();
+        TableShardingStrategy strategy = new DateTableShardingStrategy("createTime", "yyyyMM", start);
+        Calendar date = Calendar.getInstance();
+        date.clear();
+        date.set(2020, Calendar.OCTOBER, 20, 10, 30);
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", date.getTime()), "ORDER_INFO_202010");
+        Assert.assertEquals(strategy.getShardingTableName("ORDER_INFO", date), "ORDER_INFO_202010");
+        // 起始月份至当前月份共3张表
+        List<String> tables = strategy.getAllShardingTableNames("ORDER_INFO");
+        Assert.assertEquals(tables.size(), 3, tables.toString());
+        Assert.assertEquals(tables.get(2), strategy.getShardingTableName("ORDER_INFO", new Date()));
+        Assert.assertEquals(tables.get(0), strategy.getShardingTableName("ORDER_INFO", start));
+    }
+
+    /** 所有实际表只到当前时间所在的周期, 未来时间的数据所在的表不包含在内 **/
+    @Test
+    public void testDateStrategyFutureTable() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -1);
+        TableShardingStrategy strategy = new DateTableShardingStrategy("createTime", "yyyyMM", calendar.getTime());
+        Calendar future = Calendar.getInstance();
+        future.add(Calendar.MONTH, 1);
+        String futureTable = strategy.getShardingTableName("ORDER_INFO", future.getTime());
+        Assert.assertNotNull(futureTable);
+        List<String> tables = strategy.getAllShardingTableNames("ORDER_INFO");
+        Assert.assertEquals(tables.size(), 2, tables.toString());
+        Assert.assertFalse(tables.contains(futureTable), tables.toString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import java.util.Arrays;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.condition.DbWhere;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.sql.fragment.TableCrudFragmentHelper;
+import com.gitee.qdbp.jdbc.test.model.SysUserEntity;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 按条件结构缓存WHERE语句的测试类<br>
+ * 同一个helper第2次生成时命中缓存, 与新建helper直接生成的结果必须一致
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class WhereSqlCacheTest {
+
+    private final SqlDialect dialect = DbTools.buildSqlDialect(MainDbType.MySQL);
+    private final TableCrudFragmentHelper cached = new TableCrudFragmentHelper(SysUserEntity.class, dialect);
+
+    @Test
+    public void testSameShapeDifferentValues() {
+        assertSameAsUncached(newWhere("D0001", "U0001"));
+        assertSameAsUncached(newWhere("D0002", "U0002"));
+    }
+
+    @Test
+    public void testInListSize() {
+        DbWhere where1 = new DbWhere().on("userCode", "in", Arrays.asList("U1", "U2", "U3"));
+        assertSameAsUncached(where1);
+        DbWhere where2 = new DbWhere().on("userCode", "in", Arrays.asList("U4", "U5"));
+        assertSameAsUncached(where2);
+        // 有重复项, 去重后与where2的结构相同
+        DbWhere where3 = new DbWhere().on("userCode", "in", Arrays.asList("U6", "U7", "U6"));
+        assertSameAsUncached(where3);
+        DbWhere where4 = new DbWhere().on("userCode", "in", Arrays.asList("U8"));
+        assertSameAsUncached(where4);
+    }
+
+    @Test
+    public void testNullValue() {
+        assertSameAsUncached(new DbWhere().on("deptCode", "=", null));
+        assertSameAsUncached(new DbWhere().on("deptCode", "=", "D0001"));
+        assertSameAsUncached(new DbWhere().on("deptCode", "=", null));
+        assertSameAsUncached(new DbWhere().on("deptCode", "=", ""));
+    }
+
+    @Test
+    public void testSubWhere() {
+        DbWhere where1 = new DbWhere();
+        where1.on("deptCode", "=", "D0001");
+        where1.sub("or").on("userCode", "=", "U0001").on("userName", "like", "zhh");
+        assertSameAsUncached(where1);
+        DbWhere where2 = new DbWhere();
+        where2.on("deptCode", "=", "D0002");
+        where2.sub("or").on("userCode", "=", "U0002").on("userName", "like", "abc");
+        assertSameAsUncached(where2);
+    }
+
+    @Test
+    public void testResultIsIndependent() {
+        SqlBuffer first = cached.buildWhereSql(newWhere("D0001", "U0001"), true);
+        first.append(" AND 1=1");
+        SqlBuffer second = cached.buildWhereSql(newWhere("D0001", "U0001"), true);
+        Assert.assertFalse(second.getExecutableSqlString(dialect).contains("1=1"));
+    }
+
+    private static DbWhere newWhere(String deptCode, String userCode) {
+        DbWhere where = new DbWhere();
+        where.on("deptCode", "=", deptCode);
+        where.on("userCode", "!=", userCode);
+        where.on("createTime", "between", Arrays.asList("2020-01-01", "2020-12-31"));
+        return where;
+    }
+
+    private void assertSameAsUncached(DbWhere where) {
+        // 每次新建helper, 缓存为空, 相当于不使用缓存
+        TableCrudFragmentHelper uncached = new TableCrudFragmentHelper(SysUserEntity.class, dialect);
+        String expected = uncached.buildWhereSql(where, true).getExecutableSqlString(dialect);
+        String actual = cached.buildWhereSql(where, true).getExecutableSqlString(dialect);
+        Assert.assertEquals(actual, expected);
+    }
+}
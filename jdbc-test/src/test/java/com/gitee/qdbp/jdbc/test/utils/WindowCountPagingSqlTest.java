@@ -0,0 +1,60 @@
+package com.gitee.qdbp.jdbc.test.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import com.gitee.qdbp.able.jdbc.paging.Paging;
+import com.gitee.qdbp.jdbc.model.DbVersion;
+import com.gitee.qdbp.jdbc.model.MainDbType;
+import com.gitee.qdbp.jdbc.plugins.SqlDialect;
+import com.gitee.qdbp.jdbc.sql.SqlBuffer;
+import com.gitee.qdbp.jdbc.utils.DbTools;
+
+/**
+ * 窗口函数分页SQL的生成测试
+ *
+ * @author zhaohuihua
+ * @version 20201020
+ */
+@Test
+public class WindowCountPagingSqlTest {
+
+    private final SqlDialect dialect = DbTools.buildSqlDialect(new DbVersion(MainDbType.MySQL, 8, 0));
+
+    /** 窗口函数加在原SQL的查询列中, ORDER BY与LIMIT在同一层查询 **/
+    @Test
+    public void testSelectColumns() {
+        SqlBuffer buffer = new SqlBuffer();
+        buffer.append("SELECT ID, USER_NAME FROM SYS_USER WHERE TENANT_CODE=").addVariable("test");
+        buffer.append(" ORDER BY CREATE_TIME DESC, ID DESC");
+        SqlBuffer paging = dialect.buildWindowCountPagingSql(buffer, new Paging(2, 10), "QDBC_TOTAL");
+        Assert.assertNotNull(paging);
+        String sql = paging.getPreparedSqlString(dialect);
+        Assert.assertTrue(sql.startsWith("SELECT COUNT(*) OVER() AS QDBC_TOTAL, ID, USER_NAME FROM SYS_USER"), sql);
+        Assert.assertFalse(sql.contains("W_T"), sql);
+        int orderBy = sql.indexOf("ORDER BY CREATE_TIME DESC, ID DESC");
+        Assert.assertTrue(orderBy > 0 && orderBy < sql.indexOf("LIMIT"), sql);
+        // 原SQL不受影响
+        Assert.assertTrue(buffer.getPreparedSqlString(dialect).startsWith("SELECT ID,"));
+    }
+
+    /** 子查询中的UNION/DISTINCT不影响外层 **/
+    @Test
+    public void testSubQuery() {
+        SqlBuffer buffer = new SqlBuffer();
+        buffer.append("SELECT T.ID FROM (SELECT DISTINCT ID FROM A UNION SELECT ID FROM B) T ORDER BY T.ID");
+        Assert.assertNotNull(dialect.buildWindowCountPagingSql(buffer, new Paging(2, 10), "QDBC_TOTAL"));
+    }
+
+    /** 无法加入窗口函数的SQL返回null, 由调用方按普通方式分页 **/
+    @Test
+    public void testUnsupported() {
+        String[] sqls = new String[] { "SELECT DISTINCT USER_NAME FROM SYS_USER ORDER BY USER_NAME",
+                "SELECT * FROM SYS_USER ORDER BY ID",
+                "SELECT ID FROM SYS_USER UNION ALL SELECT ID FROM SYS_ROLE ORDER BY ID",
+                "WITH T AS (SELECT ID FROM SYS_USER) SELECT ID FROM T ORDER BY ID" };
+        for (String sql : sqls) {
+            SqlBuffer buffer = new SqlBuffer(sql);
+            Assert.assertNull(dialect.buildWindowCountPagingSql(buffer, new Paging(2, 10), "QDBC_TOTAL"), sql);
+        }
+    }
+}
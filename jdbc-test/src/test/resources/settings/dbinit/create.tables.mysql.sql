@@ -5,6 +5,8 @@ DROP TABLE IF EXISTS TEST_ROLE_CORE_INFO;
 DROP TABLE IF EXISTS TEST_USER_CORE_INFO;
 DROP TABLE IF EXISTS TEST_USER_ROLE_REF;
 DROP TABLE IF EXISTS TEST_DEPARTMENT_CORE_INFO;
+DROP TABLE IF EXISTS TEST_SHARDING_LOGGER_0;
+DROP TABLE IF EXISTS TEST_SHARDING_LOGGER_1;
 
 CREATE TABLE IF NOT EXISTS TEST_SETTING (
 	ID VARCHAR(50) NOT NULL COMMENT '主键', 
@@ -104,3 +106,26 @@ CREATE TABLE TEST_DEPARTMENT_CORE_INFO (
   UNIQUE KEY AK_UQ_DEPT_CODE (TENANT_CODE,DEPT_CODE,DATA_STATE),
   UNIQUE KEY AK_UQ_DEPT_NAME (TENANT_CODE,PARENT_CODE,DEPT_NAME,DATA_STATE)
 ) COMMENT='部门信息表(pkg:personnel)';
+
+-- 分表测试: 按GROUP_ID哈希取模分为2张表
+CREATE TABLE IF NOT EXISTS TEST_SHARDING_LOGGER_0 (
+	ID VARCHAR(50) NOT NULL COMMENT '主键',
+	GROUP_ID INTEGER(8) NOT NULL COMMENT '分组ID(分表字段)',
+	NAME VARCHAR(30) COMMENT '名称',
+	CONTENT TEXT NOT NULL COMMENT '内容',
+	SORT_INDEX INTEGER(8) NOT NULL DEFAULT 1 COMMENT '排序号',
+	CREATE_TIME TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+	DATA_STATE INTEGER(10) NOT NULL DEFAULT 1 COMMENT '数据状态:1为正常|随机数为删除',
+	PRIMARY KEY (ID)
+) COMMENT='分表日志表';
+
+CREATE TABLE IF NOT EXISTS TEST_SHARDING_LOGGER_1 (
+	ID VARCHAR(50) NOT NULL COMMENT '主键',
+	GROUP_ID INTEGER(8) NOT NULL COMMENT '分组ID(分表字段)',
+	NAME VARCHAR(30) COMMENT '名称',
+	CONTENT TEXT NOT NULL COMMENT '内容',
+	SORT_INDEX INTEGER(8) NOT NULL DEFAULT 1 COMMENT '排序号',
+	CREATE_TIME TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+	DATA_STATE INTEGER(10) NOT NULL DEFAULT 1 COMMENT '数据状态:1为正常|随机数为删除',
+	PRIMARY KEY (ID)
+) COMMENT='分表日志表';
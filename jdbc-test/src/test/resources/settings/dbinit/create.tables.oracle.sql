@@ -5,6 +5,8 @@ DROP TABLE "TEST_ROLE_CORE_INFO" CASCADE CONSTRAINTS;
 DROP TABLE "TEST_USER_CORE_INFO" CASCADE CONSTRAINTS;
 DROP TABLE "TEST_USER_ROLE_REF" CASCADE CONSTRAINTS;
 DROP TABLE "TEST_DEPARTMENT_CORE_INFO" CASCADE CONSTRAINTS;
+DROP TABLE "TEST_SHARDING_LOGGER_0" CASCADE CONSTRAINTS;
+DROP TABLE "TEST_SHARDING_LOGGER_1" CASCADE CONSTRAINTS;
 
 
 CREATE TABLE TEST_SETTING (
@@ -172,3 +174,43 @@ COMMENT ON COLUMN "TEST_DEPARTMENT_CORE_INFO"."SORT_INDEX" IS '排序号(越小
 COMMENT ON COLUMN "TEST_DEPARTMENT_CORE_INFO"."CREATOR_ID" IS '创建人ID';
 COMMENT ON COLUMN "TEST_DEPARTMENT_CORE_INFO"."CREATE_TIME" IS '创建时间';
 COMMENT ON COLUMN "TEST_DEPARTMENT_CORE_INFO"."DATA_STATE" IS '数据状态:1为正常|随机数为删除';
+
+
+-- 分表测试: 按GROUP_ID哈希取模分为2张表
+CREATE TABLE TEST_SHARDING_LOGGER_0 (
+	ID VARCHAR2(50) NOT NULL,
+	GROUP_ID NUMBER(8) NOT NULL,
+	NAME VARCHAR2(30),
+	CONTENT VARCHAR2(4000) NOT NULL,
+	SORT_INDEX NUMBER(8) DEFAULT 1 NOT NULL,
+	CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	DATA_STATE NUMBER(10) DEFAULT 1 NOT NULL,
+	CONSTRAINT TEST_SHARDING_LOGGER_0_PK PRIMARY KEY (ID)
+);
+COMMENT ON TABLE TEST_SHARDING_LOGGER_0 IS '分表日志表';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.ID IS '主键';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.GROUP_ID IS '分组ID(分表字段)';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.NAME IS '名称';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.CONTENT IS '内容';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.SORT_INDEX IS '排序号';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.CREATE_TIME IS '创建时间';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_0.DATA_STATE IS '数据状态:1为正常|随机数为删除';
+
+CREATE TABLE TEST_SHARDING_LOGGER_1 (
+	ID VARCHAR2(50) NOT NULL,
+	GROUP_ID NUMBER(8) NOT NULL,
+	NAME VARCHAR2(30),
+	CONTENT VARCHAR2(4000) NOT NULL,
+	SORT_INDEX NUMBER(8) DEFAULT 1 NOT NULL,
+	CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	DATA_STATE NUMBER(10) DEFAULT 1 NOT NULL,
+	CONSTRAINT TEST_SHARDING_LOGGER_1_PK PRIMARY KEY (ID)
+);
+COMMENT ON TABLE TEST_SHARDING_LOGGER_1 IS '分表日志表';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.ID IS '主键';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.GROUP_ID IS '分组ID(分表字段)';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.NAME IS '名称';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.CONTENT IS '内容';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.SORT_INDEX IS '排序号';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.CREATE_TIME IS '创建时间';
+COMMENT ON COLUMN TEST_SHARDING_LOGGER_1.DATA_STATE IS '数据状态:1为正常|随机数为删除';
@@ -4,6 +4,8 @@ DROP TABLE "TEST_ROLE_CORE_INFO";
 DROP TABLE "TEST_USER_CORE_INFO";
 DROP TABLE "TEST_USER_ROLE_REF";
 DROP TABLE "TEST_DEPARTMENT_CORE_INFO";
+DROP TABLE "TEST_SHARDING_LOGGER_0";
+DROP TABLE "TEST_SHARDING_LOGGER_1";
 
 CREATE TABLE TEST_SETTING (
 	ID VARCHAR(50) NOT NULL, 
@@ -102,3 +104,27 @@ CREATE TABLE "TEST_DEPARTMENT_CORE_INFO" (
    CONSTRAINT "TEST_DEPT_CORE_CODE" UNIQUE ("TENANT_CODE", "DEPT_CODE", "DATA_STATE"),
    CONSTRAINT "TEST_DEPT_CORE_NAME" UNIQUE ("TENANT_CODE", "PARENT_CODE", "DEPT_NAME", "DATA_STATE")
 );
+
+
+-- 分表测试: 按GROUP_ID哈希取模分为2张表
+CREATE TABLE TEST_SHARDING_LOGGER_0 (
+	ID VARCHAR(50) NOT NULL,
+	GROUP_ID INTEGER(8) NOT NULL,
+	NAME VARCHAR(30),
+	CONTENT VARCHAR(4000) NOT NULL,
+	SORT_INDEX INTEGER(8) DEFAULT 1 NOT NULL,
+	CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	DATA_STATE INTEGER(10) DEFAULT 1 NOT NULL,
+	CONSTRAINT TEST_SHARDING_LOGGER_0_PK PRIMARY KEY (ID)
+);
+
+CREATE TABLE TEST_SHARDING_LOGGER_1 (
+	ID VARCHAR(50) NOT NULL,
+	GROUP_ID INTEGER(8) NOT NULL,
+	NAME VARCHAR(30),
+	CONTENT VARCHAR(4000) NOT NULL,
+	SORT_INDEX INTEGER(8) DEFAULT 1 NOT NULL,
+	CREATE_TIME TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	DATA_STATE INTEGER(10) DEFAULT 1 NOT NULL,
+	CONSTRAINT TEST_SHARDING_LOGGER_1_PK PRIMARY KEY (ID)
+);